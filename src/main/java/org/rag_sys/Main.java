@@ -1,9 +1,13 @@
 package org.rag_sys;
 
+import org.rag_sys.config.GuardProfile;
+import org.rag_sys.config.ModelRole;
 import org.rag_sys.config.RagConfiguration;
 import org.rag_sys.orchestrator.RagSystemOrchestrator;
 
 import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.List;
 
 /**
  * Classe principale de l'application RAG
@@ -15,9 +19,92 @@ public class Main {
         try {
             // Configuration par défaut
             RagConfiguration configuration = new RagConfiguration();
+
+            // --ollama-backends url1,url2 : instances Ollama pour tous les rôles, puis surcharges par rôle
+            String allBackends = optionValue(args, "--ollama-backends");
+            for (ModelRole role : ModelRole.values()) {
+                String backends = optionValue(args, "--" + role.name().toLowerCase() + "-backends");
+                if (backends == null) backends = allBackends;
+                if (backends != null) {
+                    configuration = configuration.withOllamaBackends(role, List.of(backends.split(",")));
+                }
+            }
+
+            // --compact-guard : agent de garde à prompt court et sortie JSON contrainte
+            if (hasOption(args, "--compact-guard")) {
+                configuration = configuration.withGuardProfile(GuardProfile.COMPACT);
+            }
+            
+            // --fan-out N : une question ambiguë est posée en parallèle à N agents au plus
+            String fanOutAgents = optionValue(args, "--fan-out");
+            if (fanOutAgents != null) {
+                configuration = configuration.withFanOutAgents(Integer.parseInt(fanOutAgents));
+            }
             
             // Créer et démarrer l'orchestrateur
             RagSystemOrchestrator orchestrator = new RagSystemOrchestrator(configuration);
+
+            // --shared-schema : une table partitionnée par agent et un pool de connexions commun
+            if (hasOption(args, "--shared-schema")) {
+                orchestrator.enableSharedSchema();
+            }
+
+            // --bulk-load : chargement initial par COPY, index HNSW reconstruit après chargement
+            if (hasOption(args, "--bulk-load")) {
+                orchestrator.enableBulkLoad();
+            }
+
+            // --halfvec : embeddings en float16, table et index deux fois plus petits
+            if (hasOption(args, "--halfvec")) {
+                orchestrator.enableHalfPrecisionVectors();
+            }
+
+            // --quantized : embeddings en mémoire en int8 et binaire, re-notés en float32 depuis un fichier projeté
+            if (hasOption(args, "--quantized")) {
+                orchestrator.enableQuantizedVectors();
+            }
+
+            // --adaptive-k : nombre de segments injectés choisi à chaque question (scores, budgets)
+            if (hasOption(args, "--adaptive-k")) {
+                orchestrator.enableAdaptiveRetrieval();
+            }
+
+            // --dedup : quasi-doublons écartés à l'ingestion, embeddings repris d'un agent à l'autre
+            if (hasOption(args, "--dedup")) {
+                orchestrator.enableNearDuplicateDetection();
+            }
+
+            // --live-reindex : fichiers modifiés dans les répertoires de documents réindexés sans redémarrage
+            if (hasOption(args, "--live-reindex")) {
+                orchestrator.enableLiveReindexing();
+            }
+
+            // --replay <fichier> [--speed N] : rejoue un trafic capturé au lieu de la session interactive
+            String replayFile = optionValue(args, "--replay");
+            if (replayFile != null) {
+                String speed = optionValue(args, "--speed");
+                orchestrator.replay(Path.of(replayFile), speed != null ? Double.parseDouble(speed) : 1.0);
+                return;
+            }
+
+            // --batch <questions> --output <fichier> [--parallelism N] [--rate Q] : répond à un lot de questions
+            String batchFile = optionValue(args, "--batch");
+            if (batchFile != null) {
+                String outputFile = optionValue(args, "--output");
+                String parallelism = optionValue(args, "--parallelism");
+                String rate = optionValue(args, "--rate");
+                orchestrator.runBatch(Path.of(batchFile),
+                        Path.of(outputFile != null ? outputFile : batchFile + ".results.jsonl"),
+                        parallelism != null ? Integer.parseInt(parallelism) : 4,
+                        rate != null ? Double.parseDouble(rate) : 0);
+                return;
+            }
+
+            // --capture <fichier> : enregistre le trafic de la session interactive
+            String captureFile = optionValue(args, "--capture");
+            if (captureFile != null) {
+                orchestrator.enableTrafficCapture(Path.of(captureFile));
+            }
             orchestrator.start();
             
         } catch (URISyntaxException e) {
@@ -27,4 +114,22 @@ public class Main {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    private static boolean hasOption(String[] args, String option) {
+        for (String arg : args) {
+            if (arg.equals(option)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String optionValue(String[] args, String option) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(option)) {
+                return args[i + 1];
+            }
+        }
+        return null;
+    }
+}
@@ -1,6 +1,9 @@
 package org.rag_sys.agent;
 
-import org.rag_sys.model.DocumentAnalyser;
+import org.rag_sys.concurrent.AsyncTasks;
+import org.rag_sys.context.RequestContext;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Interface représentant un agent spécialisé dans le système RAG
@@ -8,16 +11,41 @@ import org.rag_sys.model.DocumentAnalyser;
 public interface Agent {
 
 
+    /**
+     * Traite une question avec cet agent spécialisé, sans bloquer l'appelant
+     * @param question la question à traiter
+     * @param context le contexte de la requête, partagé avec les autres agents consultés
+     * @return la réponse de l'agent ; annuler le future abandonne les appels au modèle en cours.
+     * Un agent qui ne peut pas répondre achève le future par une {@link AgentFailureException}.
+     */
+    CompletableFuture<String> processQuestionAsync(String question, RequestContext context);
+
+    /**
+     * Traite une question dans une requête qui lui est propre
+     */
+    default CompletableFuture<String> processQuestionAsync(String question) {
+        return processQuestionAsync(question, RequestContext.create());
+    }
+
     /**
      * Traite une question avec cet agent spécialisé
      * @param question la question à traiter
      * @return la réponse de l'agent
      */
-    String processQuestion(String question);
+    default String processQuestion(String question) {
+        return AsyncTasks.await(processQuestionAsync(question));
+    }
     
     /**
      * Indique si l'agent est prêt à traiter des questions
      */
     boolean isReady();
 
+    /**
+     * @return la raison pour laquelle l'agent n'est pas prêt, ou null s'il l'est
+     */
+    default String getUnavailabilityReason() {
+        return isReady() ? null : "agent non prêt";
+    }
+
 }
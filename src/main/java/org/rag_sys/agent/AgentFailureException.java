@@ -0,0 +1,42 @@
+package org.rag_sys.agent;
+
+/**
+ * Levée par un agent qui n'a pas pu produire de réponse : le message est celui destiné à l'utilisateur,
+ * l'issue indique si l'agent était indisponible (non prêt, disjoncteur ouvert) ou a échoué en traitant la question
+ */
+public class AgentFailureException extends RuntimeException {
+
+    private final AgentType agentType;
+    private final RoutingOutcome outcome;
+
+    private AgentFailureException(AgentType agentType, RoutingOutcome outcome, String message, Throwable cause) {
+        super(message, cause);
+        this.agentType = agentType;
+        this.outcome = outcome;
+    }
+
+    /**
+     * L'agent n'était pas en état de traiter la question
+     */
+    public static AgentFailureException unavailable(AgentType agentType, String message, Throwable cause) {
+        return new AgentFailureException(agentType, RoutingOutcome.AGENT_UNAVAILABLE, message, cause);
+    }
+
+    /**
+     * Le traitement de la question par l'agent a échoué
+     */
+    public static AgentFailureException failed(AgentType agentType, String message, Throwable cause) {
+        return new AgentFailureException(agentType, RoutingOutcome.AGENT_FAILED, message, cause);
+    }
+
+    public AgentType getAgentType() {
+        return agentType;
+    }
+
+    /**
+     * @return AGENT_UNAVAILABLE ou AGENT_FAILED
+     */
+    public RoutingOutcome getOutcome() {
+        return outcome;
+    }
+}
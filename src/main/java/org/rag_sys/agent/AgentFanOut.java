@@ -0,0 +1,188 @@
+package org.rag_sys.agent;
+
+import org.rag_sys.concurrent.AsyncTasks;
+import org.rag_sys.context.RequestContext;
+import org.rag_sys.logging.RequestLog;
+import org.rag_sys.metrics.StatsProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pose une question ambiguë à plusieurs agents à la fois, sous une échéance commune.
+ *
+ * Chaque agent mène sa recherche et sa génération en parallèle des autres. La première réponse qui passe
+ * le contrôle de qualité l'emporte et les agents encore en cours sont annulés, ce qui coupe leurs appels
+ * au modèle. Si aucune réponse ne passe, les réponses obtenues à la fin de tous les agents ou à l'échéance
+ * sont fusionnées. Si tous les agents ont échoué, l'échec du premier candidat est rendu.
+ */
+public class AgentFanOut implements StatsProvider {
+
+    private static final RequestLog LOG = RequestLog.of(AgentFanOut.class);
+
+    /**
+     * Réponse retenue : celle d'un agent, ou la fusion des réponses obtenues
+     * @param agent l'agent gagnant, ou le premier agent ayant répondu en cas de fusion
+     * @param respondingAgents les agents dont la réponse figure dans le résultat
+     */
+    public record Answer(AgentType agent, String response, boolean merged, List<AgentType> respondingAgents) {
+    }
+
+    private final int maxAgents;
+    private final Duration deadline;
+
+    private final AtomicLong dispatches = new AtomicLong();
+    private final AtomicLong firstAnswers = new AtomicLong();
+    private final AtomicLong mergedAnswers = new AtomicLong();
+    private final AtomicLong missedDeadlines = new AtomicLong();
+    private final AtomicLong cancelledAgents = new AtomicLong();
+
+    /**
+     * @param maxAgents nombre maximal d'agents interrogés pour une question
+     * @param deadline temps accordé à l'ensemble des agents
+     */
+    public AgentFanOut(int maxAgents, Duration deadline) {
+        this.maxAgents = maxAgents;
+        this.deadline = deadline;
+    }
+
+    public int getMaxAgents() {
+        return maxAgents;
+    }
+
+    /**
+     * Envoie la question aux agents candidats
+     * @param context le contexte de la requête : la question n'est embarquée qu'une fois pour tous les agents
+     * @param candidates agents prêts, du plus probable au moins probable
+     * @return la réponse retenue ; en échec par l'{@link AgentFailureException} du premier candidat si tous ont échoué,
+     * ou par une TimeoutException si aucun agent n'a répondu à l'échéance.
+     * L'annuler annule tous les agents.
+     */
+    public CompletableFuture<Answer> dispatch(String question, RequestContext context, Map<AgentType, Agent> candidates) {
+        dispatches.incrementAndGet();
+        CompletableFuture<Answer> result = new CompletableFuture<>();
+        // Réponses reçues, rangées dans l'ordre des candidats pour la fusion
+        Map<AgentType, String> responses = new LinkedHashMap<>();
+        candidates.keySet().forEach(type -> responses.put(type, null));
+        // Échecs des agents, rangés de même ; protégés par le verrou de responses
+        Map<AgentType, AgentFailureException> failures = new LinkedHashMap<>();
+        candidates.keySet().forEach(type -> failures.put(type, null));
+        Map<AgentType, CompletableFuture<String>> pending = new LinkedHashMap<>();
+        AtomicInteger remaining = new AtomicInteger(candidates.size());
+
+        for (Map.Entry<AgentType, Agent> candidate : candidates.entrySet()) {
+            AgentType type = candidate.getKey();
+            CompletableFuture<String> answer = candidate.getValue().processQuestionAsync(question, context);
+            pending.put(type, answer);
+            answer.whenComplete((response, error) -> {
+                if (error == null) {
+                    synchronized (responses) {
+                        responses.put(type, response);
+                    }
+                    if (AnswerQualityCheck.accepts(response) && result.complete(
+                            new Answer(type, response, false, List.of(type)))) {
+                        firstAnswers.incrementAndGet();
+                        LOG.info(() -> "🏁 Réponse retenue: agent " + type.getCode().toUpperCase());
+                    }
+                } else if (AsyncTasks.unwrap(error) instanceof AgentFailureException failure) {
+                    synchronized (responses) {
+                        failures.put(type, failure);
+                    }
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    complete(result, responses, failures, false);
+                }
+            });
+        }
+
+        CompletableFuture.delayedExecutor(deadline.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(() -> complete(result, responses, failures, true));
+        // Les agents perdants sont arrêtés dès qu'une réponse est retenue (ou que l'appelant abandonne)
+        result.whenComplete((answer, error) -> pending.values().forEach(future -> {
+            if (future.cancel(true)) {
+                cancelledAgents.incrementAndGet();
+            }
+        }));
+        return result;
+    }
+
+    /**
+     * Aucune réponse n'a passé le contrôle : fusionner celles qui sont arrivées
+     */
+    private void complete(CompletableFuture<Answer> result, Map<AgentType, String> responses,
+                          Map<AgentType, AgentFailureException> failures, boolean atDeadline) {
+        if (result.isDone()) {
+            return;
+        }
+        Map<AgentType, String> received = new LinkedHashMap<>();
+        AgentFailureException firstFailure;
+        synchronized (responses) {
+            responses.forEach((type, response) -> {
+                if (response != null) {
+                    received.put(type, response);
+                }
+            });
+            firstFailure = failures.values().stream().filter(Objects::nonNull).findFirst().orElse(null);
+        }
+
+        if (received.isEmpty()) {
+            if (firstFailure != null) {
+                // Seulement des échecs : celui du premier candidat est rendu
+                result.completeExceptionally(firstFailure);
+                return;
+            }
+            if (result.completeExceptionally(new TimeoutException(
+                    "Aucun agent n'a répondu en " + deadline.toSeconds() + " s"))) {
+                missedDeadlines.incrementAndGet();
+            }
+            return;
+        }
+        List<AgentType> agents = new ArrayList<>(received.keySet());
+        Answer answer = received.size() == 1
+                ? new Answer(agents.get(0), received.get(agents.get(0)), false, agents)
+                : new Answer(agents.get(0), merge(received), true, agents);
+        if (result.complete(answer)) {
+            if (atDeadline) {
+                missedDeadlines.incrementAndGet();
+            }
+            if (answer.merged()) {
+                mergedAnswers.incrementAndGet();
+            }
+        }
+    }
+
+    private static String merge(Map<AgentType, String> responses) {
+        StringBuilder merged = new StringBuilder();
+        responses.forEach((type, response) -> {
+            if (!merged.isEmpty()) {
+                merged.append("\n\n");
+            }
+            merged.append("**Agent ").append(type.getCode().toUpperCase()).append(" :**\n").append(response.trim());
+        });
+        return merged.toString();
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "🔀 RÉPARTITION ENTRE AGENTS";
+    }
+
+    @Override
+    public List<String> getStatsLines() {
+        return List.of(
+                String.format("Questions réparties: %d (jusqu'à %d agents, échéance %d s)",
+                        dispatches.get(), maxAgents, deadline.toSeconds()),
+                String.format("Première réponse retenue: %d, réponses fusionnées: %d, échéances atteintes: %d",
+                        firstAnswers.get(), mergedAnswers.get(), missedDeadlines.get()),
+                "Agents annulés en cours de route: " + cancelledAgents.get());
+    }
+}
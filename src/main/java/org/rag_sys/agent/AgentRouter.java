@@ -1,26 +1,46 @@
 package org.rag_sys.agent;
 
+import org.rag_sys.concurrent.AsyncTasks;
+import org.rag_sys.config.ModelRole;
+import org.rag_sys.context.RequestContext;
 import org.rag_sys.config.RagConfiguration;
 import org.rag_sys.factory.ServiceFactory;
-import org.rag_sys.model.DocumentAnalyser;
+import org.rag_sys.indexing.LiveDirectoryIndexer;
+import org.rag_sys.logging.RequestLog;
+import org.rag_sys.metrics.StatsProvider;
+import org.rag_sys.orchestrator.AgentPipeline;
+import org.rag_sys.traffic.TrafficRecord;
+import org.rag_sys.traffic.TrafficRecorder;
 
 import java.net.URISyntaxException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
 /**
  * Routeur d'agents qui gère la distribution des questions aux agents spécialisés
  * avec métriques de performance et gestion d'erreurs améliorée
  */
 public class AgentRouter {
-    
+
+    // Échéance commune des agents interrogés en parallèle (-Drag.fanout.deadlineSeconds)
+    private static final long DEFAULT_FAN_OUT_DEADLINE_SECONDS = 60;
+    private static final RequestLog LOG = RequestLog.of(AgentRouter.class);
+
     private final Map<AgentType, Agent> agents;
     private final GuardAgentImpl guardAgent;
     private final RagConfiguration configuration;
+    private final AgentFanOut fanOut;
     
     // Métriques de performance
     private final AtomicInteger totalQuestions = new AtomicInteger(0);
@@ -28,12 +48,24 @@ public class AgentRouter {
     private final AtomicLong totalProcessingTime = new AtomicLong(0);
     private final Map<AgentType, AtomicInteger> agentUsageCount = new HashMap<>();
     private LocalDateTime startTime;
+    private volatile TrafficRecorder trafficRecorder;
+    private final List<StatsProvider> statsProviders = new CopyOnWriteArrayList<>();
     
     public AgentRouter(RagConfiguration configuration) {
         this.configuration = configuration;
         this.agents = new HashMap<>();
-        this.guardAgent = new GuardAgentImpl(configuration.getModelName(), configuration.getOllamaBaseUrl());
+        this.guardAgent = new GuardAgentImpl(configuration.getModelName(), configuration.getOllamaBackends(ModelRole.GUARD),
+                configuration.getGuardProfile());
         this.startTime = LocalDateTime.now();
+        registerStatsProvider(guardAgent);
+        registerStatsProvider(guardAgent.getCircuitBreaker());
+        if (configuration.getFanOutAgents() > 1) {
+            this.fanOut = new AgentFanOut(configuration.getFanOutAgents(),
+                    Duration.ofSeconds(Long.getLong("rag.fanout.deadlineSeconds", DEFAULT_FAN_OUT_DEADLINE_SECONDS)));
+            registerStatsProvider(fanOut);
+        } else {
+            this.fanOut = null;
+        }
         
         // Initialiser les compteurs d'usage pour chaque type d'agent
         for (AgentType type : AgentType.values()) {
@@ -58,11 +90,18 @@ public class AgentRouter {
         try {
             System.out.println("Création de l'agent " + type.getCode() + " avec le répertoire: " + documentDirectory);
             
-            DocumentAnalyser documentAnalyser = createAgentDocumentAnalyser(documentDirectory, serviceFactory);
+            AgentPipeline pipeline = createAgentPipeline(documentDirectory, serviceFactory);
             
-            if (documentAnalyser != null) {
-                Agent agent = new SpecializedAgent(type, documentAnalyser);
+            if (pipeline != null) {
+                Agent agent = new SpecializedAgent(type, pipeline.getDocumentAnalyser(), pipeline.getCircuitBreakers());
                 registerAgent(type, agent);
+                for (StatsProvider pipelineStats : pipeline.getStatsProviders()) {
+                    registerStatsProvider(StatsProvider.titled(
+                            pipelineStats.getStatsTitle() + " - " + type.getCode().toUpperCase(), pipelineStats));
+                }
+                if (serviceFactory.getConfiguration().getAgentProfile().isLiveReindexing()) {
+                    startLiveIndexer(type, pipeline);
+                }
             } else {
                 System.err.println("Échec de la création de l'agent " + type.getCode());
             }
@@ -72,52 +111,272 @@ public class AgentRouter {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Ajoute une section à la commande 'stats'
+     */
+    public void registerStatsProvider(StatsProvider statsProvider) {
+        statsProviders.add(statsProvider);
+    }
+
+    private void startLiveIndexer(AgentType type, AgentPipeline pipeline) {
+        try {
+            LiveDirectoryIndexer indexer = pipeline.createLiveIndexer(type);
+            indexer.start();
+            registerStatsProvider(indexer);
+        } catch (Exception e) {
+            System.err.println("⚠️ Réindexation à chaud indisponible pour l'agent " + type.getCode() + ": " + e.getMessage());
+        }
+    }
     
+    /**
+     * Active la capture du trafic : chaque question routée est transmise au recorder
+     * avec sa décision de routage et ses temps par étape
+     */
+    public void setTrafficRecorder(TrafficRecorder trafficRecorder) {
+        this.trafficRecorder = trafficRecorder;
+    }
+
     /**
      * Route une question vers l'agent approprié avec métriques de performance
      */
     public String routeQuestion(String question) {
-        long startTime = System.currentTimeMillis();
+        return routeQuestionWithTrace(question).getResponse();
+    }
+
+    /**
+     * Route une question d'une session de conversation : chaque agent consulté garde l'historique de la session
+     * @param sessionId identifiant de la conversation, ou null pour une question isolée
+     */
+    public String routeQuestion(String question, String sessionId) {
+        return AsyncTasks.await(routeQuestionWithTraceAsync(question, sessionId)).getResponse();
+    }
+
+    /**
+     * Route une question et retourne la réponse accompagnée de la trace de routage
+     */
+    public RoutingResult routeQuestionWithTrace(String question) {
+        return AsyncTasks.await(routeQuestionWithTraceAsync(question));
+    }
+
+    /**
+     * Route une question sans bloquer l'appelant
+     */
+    public CompletableFuture<String> routeQuestionAsync(String question) {
+        CompletableFuture<RoutingResult> routing = routeQuestionWithTraceAsync(question);
+        return AsyncTasks.propagateCancellation(routing.thenApply(RoutingResult::getResponse), routing);
+    }
+
+    /**
+     * Route une question sans bloquer l'appelant : l'analyse de garde puis l'agent spécialisé s'enchaînent
+     * sur les threads qui reçoivent leurs réponses. Annuler le future annule l'étape en cours.
+     * Les erreurs sont rendues comme réponse (issue ERROR), le future n'échoue pas.
+     * La question est isolée : les agents ne gardent pas d'historique entre deux appels.
+     */
+    public CompletableFuture<RoutingResult> routeQuestionWithTraceAsync(String question) {
+        return routeQuestionWithTraceAsync(question, null);
+    }
+
+    /**
+     * Route sans bloquer une question d'une session de conversation
+     * @param sessionId identifiant de la conversation, ou null pour une question isolée
+     */
+    public CompletableFuture<RoutingResult> routeQuestionWithTraceAsync(String question, String sessionId) {
+        Routing routing = new Routing(question, sessionId);
         totalQuestions.incrementAndGet();
-        
-        try {
-            // 1. Analyser la question avec l'agent de garde
-            QuestionAnalysisResult analysis = guardAgent.analyzeQuestion(question);
-            System.out.println("📊 Résultat de l'analyse: " + analysis);
-            
-            // 2. Vérifier si la question doit être traitée
-            if (!analysis.shouldProcess()) {
-                rejectedQuestions.incrementAndGet();
-                return formatRejectionResponse(analysis);
+
+        // 1. Analyser la question avec l'agent de garde
+        routing.onComplete(routing.context.callWithin(() -> guardAgent.analyzeQuestionAsync(question)), (analysis, error) -> {
+            try {
+                if (error != null) {
+                    routing.fail(error);
+                    return;
+                }
+                routing.guardNanos = System.nanoTime() - routing.startNanos;
+                routing.recommendedType = analysis.getRecommendedAgent();
+                routing.confidenceScore = analysis.getConfidenceScore();
+                LOG.payload(() -> "📊 Résultat de l'analyse: " + analysis);
+
+                // 2. Vérifier si la question doit être traitée
+                if (!analysis.shouldProcess()) {
+                    rejectedQuestions.incrementAndGet();
+                    routing.finish(RoutingOutcome.REJECTED, formatRejectionResponse(analysis));
+                    return;
+                }
+
+                // 3. Question ambiguë : plusieurs agents en parallèle si le mode est actif
+                if (fanOut != null) {
+                    Map<AgentType, Agent> candidates = readyCandidates(question, analysis);
+                    if (candidates.size() > 1) {
+                        dispatchFanOut(routing, question, analysis, candidates);
+                        return;
+                    }
+                }
+
+                // Sinon, obtenir l'agent recommandé
+                AgentType recommendedType = analysis.getRecommendedAgent();
+                Agent recommendedAgent = agents.get(recommendedType);
+                if (recommendedAgent == null || !recommendedAgent.isReady()) {
+                    routing.finish(RoutingOutcome.AGENT_UNAVAILABLE, formatAgentUnavailableResponse(recommendedType,
+                            recommendedAgent == null ? null : recommendedAgent.getUnavailabilityReason()));
+                    return;
+                }
+
+                // 4. Incrémenter les statistiques d'usage
+                agentUsageCount.get(recommendedType).incrementAndGet();
+
+                // 5. Traiter la question avec l'agent spécialisé
+                LOG.info(() -> "🚀 Routage vers l'agent " + recommendedType.getCode().toUpperCase());
+                long agentStart = System.nanoTime();
+                routing.onComplete(recommendedAgent.processQuestionAsync(question, routing.context), (response, agentError) -> {
+                    routing.agentNanos = System.nanoTime() - agentStart;
+                    try {
+                        if (agentError != null) {
+                            finishWithAgentError(routing, analysis, agentError);
+                        } else {
+                            // 6. Formater la réponse avec des informations de contexte
+                            routing.finish(RoutingOutcome.PROCESSED, formatSuccessResponse(analysis.getRecommendedAgent(),
+                                    analysis.getConfidenceScore(), response));
+                        }
+                    } catch (RuntimeException e) {
+                        routing.fail(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                routing.fail(e);
             }
-            
-            // 3. Obtenir l'agent recommandé
-            AgentType recommendedType = analysis.getRecommendedAgent();
-            Agent recommendedAgent = agents.get(recommendedType);
-            
-            if (recommendedAgent == null || !recommendedAgent.isReady()) {
-                return formatAgentUnavailableResponse(recommendedType);
+        });
+        return routing.result;
+    }
+
+    /**
+     * Un agent qui n'a pas pu répondre rend son message à l'utilisateur, avec l'issue qu'il indique ;
+     * toute autre erreur est une erreur de routage
+     */
+    private void finishWithAgentError(Routing routing, QuestionAnalysisResult analysis, Throwable error) {
+        if (AsyncTasks.unwrap(error) instanceof AgentFailureException failure) {
+            routing.recommendedType = failure.getAgentType();
+            routing.finish(failure.getOutcome(), formatSuccessResponse(failure.getAgentType(),
+                    analysis.getConfidenceScore(), failure.getMessage()));
+        } else {
+            routing.fail(error);
+        }
+    }
+
+    /**
+     * Agents candidats prêts à répondre, du plus probable au moins probable
+     */
+    private Map<AgentType, Agent> readyCandidates(String question, QuestionAnalysisResult analysis) {
+        Map<AgentType, Agent> candidates = new LinkedHashMap<>();
+        for (AgentType type : guardAgent.getCandidateAgents(question, analysis, fanOut.getMaxAgents())) {
+            Agent agent = agents.get(type);
+            if (agent != null && agent.isReady()) {
+                candidates.put(type, agent);
+            }
+        }
+        return candidates;
+    }
+
+    private void dispatchFanOut(Routing routing, String question, QuestionAnalysisResult analysis,
+                                Map<AgentType, Agent> candidates) {
+        candidates.keySet().forEach(type -> agentUsageCount.get(type).incrementAndGet());
+        LOG.info(() -> "🔀 Question ambiguë, envoyée en parallèle aux agents " + candidates.keySet().stream()
+                .map(type -> type.getCode().toUpperCase()).toList());
+        long agentStart = System.nanoTime();
+        routing.onComplete(fanOut.dispatch(question, routing.context, candidates), (answer, error) -> {
+            routing.agentNanos = System.nanoTime() - agentStart;
+            try {
+                if (error != null) {
+                    finishWithAgentError(routing, analysis, error);
+                    return;
+                }
+                routing.recommendedType = answer.agent();
+                routing.finish(RoutingOutcome.PROCESSED, answer.merged()
+                        ? formatMergedResponse(analysis, answer)
+                        : formatSuccessResponse(answer.agent(), analysis.getConfidenceScore(), answer.response()));
+            } catch (RuntimeException e) {
+                routing.fail(e);
+            }
+        });
+    }
+
+    /**
+     * État d'un routage en cours : contexte de la requête, temps par étape, décision de garde et étape à annuler
+     */
+    private final class Routing {
+
+        private final String question;
+        private final RequestContext context;
+        private final long receivedAt = System.currentTimeMillis();
+        private final long startNanos = System.nanoTime();
+        private final CompletableFuture<RoutingResult> result = new CompletableFuture<>();
+        private volatile CompletableFuture<?> currentStage;
+        private volatile long guardNanos;
+        private volatile long agentNanos;
+        private volatile AgentType recommendedType = AgentType.GUARD;
+        private volatile double confidenceScore;
+
+        private Routing(String question, String sessionId) {
+            this.question = question;
+            this.context = RequestContext.create(sessionId);
+            result.whenComplete((routingResult, error) -> {
+                // Quelle que soit l'issue (réponse, erreur, annulation) : enregistrer le temps de traitement
+                long processingTime = routingResult != null ? routingResult.getTrace().getTotalMillis()
+                        : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                totalProcessingTime.addAndGet(processingTime);
+                LOG.info(() -> "⏱️ Temps de traitement: " + processingTime + "ms");
+
+                CompletableFuture<?> stage = currentStage;
+                if (result.isCancelled() && stage != null) {
+                    stage.cancel(true);
+                }
+            });
+        }
+
+        /**
+         * Désigne l'étape en cours, annulée avec le routage
+         */
+        private <T> CompletableFuture<T> follow(CompletableFuture<T> stage) {
+            currentStage = stage;
+            if (result.isCancelled()) {
+                stage.cancel(true);
+            }
+            return stage;
+        }
+
+        /**
+         * Enchaîne une étape sur la précédente, avec le contexte de la requête lié au thread qui l'exécute
+         */
+        private <T> void onComplete(CompletableFuture<T> stage, BiConsumer<T, Throwable> next) {
+            follow(stage).whenComplete((value, error) -> context.runWithin(() -> next.accept(value, error)));
+        }
+
+        private void fail(Throwable error) {
+            Throwable cause = AsyncTasks.unwrap(error);
+            if (AsyncTasks.isCancellation(cause)) {
+                result.cancel(false);
+                return;
+            }
+            LOG.error(() -> "❌ Erreur lors du routage de la question: " + cause.getMessage(), cause);
+            finish(RoutingOutcome.ERROR, formatErrorResponse(cause));
+        }
+
+        private void finish(RoutingOutcome outcome, String formattedResponse) {
+            if (result.isDone()) {
+                return;
+            }
+            long processingTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            TrafficRecord trace = new TrafficRecord(receivedAt, question, recommendedType, confidenceScore, outcome,
+                    TimeUnit.NANOSECONDS.toMillis(guardNanos), TimeUnit.NANOSECONDS.toMillis(agentNanos), processingTime);
+            try {
+                TrafficRecorder recorder = trafficRecorder;
+                if (recorder != null) {
+                    recorder.record(trace);
+                }
+            } finally {
+                // Le future doit s'achever, même si la capture échoue
+                result.complete(new RoutingResult(formattedResponse, trace));
             }
-            
-            // 4. Incrémenter les statistiques d'usage
-            agentUsageCount.get(recommendedType).incrementAndGet();
-            
-            // 5. Traiter la question avec l'agent spécialisé
-            System.out.println("🚀 Routage vers l'agent " + recommendedType.getCode().toUpperCase());
-            String response = recommendedAgent.processQuestion(question);
-            
-            // 6. Formater la réponse avec des informations de contexte
-            return formatSuccessResponse(analysis, response);
-            
-        } catch (Exception e) {
-            System.err.println("❌ Erreur lors du routage de la question: " + e.getMessage());
-            e.printStackTrace();
-            return formatErrorResponse(e);
-        } finally {
-            // Enregistrer le temps de traitement
-            long processingTime = System.currentTimeMillis() - startTime;
-            totalProcessingTime.addAndGet(processingTime);
-            System.out.println("⏱️ Temps de traitement: " + processingTime + "ms");
         }
     }
     
@@ -155,7 +414,7 @@ public class AgentRouter {
             int usage = agentUsageCount.get(type).get();
             
             if (agent != null) {
-                String status = agent.isReady() ? "✅ Actif" : "⚠️ Indisponible";
+                String status = agent.isReady() ? "✅ Actif" : "⚠️ Indisponible (" + agent.getUnavailabilityReason() + ")";
                 stats.append(String.format("║ %s %-6s: %s (Utilisé: %-3d fois)         ║\n", 
                     getAgentEmoji(type), type.getCode().toUpperCase(), status, usage));
             } else {
@@ -164,6 +423,15 @@ public class AgentRouter {
             }
         }
         
+        // Sections des autres composants (réindexation, etc.)
+        for (StatsProvider provider : statsProviders) {
+            stats.append("╠══════════════════════════════════════════════════════════════╣\n");
+            stats.append(String.format("║ %s\n", provider.getStatsTitle()));
+            for (String line : provider.getStatsLines()) {
+                stats.append(String.format("║   %s\n", line));
+            }
+        }
+        
         stats.append("╚══════════════════════════════════════════════════════════════╝\n");
         
         return stats.toString();
@@ -179,10 +447,10 @@ public class AgentRouter {
         };
     }
     
-    private DocumentAnalyser createAgentDocumentAnalyser(String documentDirectory, ServiceFactory serviceFactory) {
+    private AgentPipeline createAgentPipeline(String documentDirectory, ServiceFactory serviceFactory) {
         try {
             return new org.rag_sys.orchestrator.RagSystemOrchestrator(configuration)
-                    .registerRagChainForDifferentAgents(documentDirectory, serviceFactory, configuration);
+                    .buildAgentPipeline(documentDirectory, serviceFactory, serviceFactory.getConfiguration());
         } catch (Exception e) {
             System.err.println("Erreur lors de la création de l'analyseur de documents: " + e.getMessage());
             return null;
@@ -208,11 +476,11 @@ public class AgentRouter {
             """, analysis.getReasoning(), analysis.getConfidenceScore());
     }
     
-    private String formatAgentUnavailableResponse(AgentType agentType) {
+    private String formatAgentUnavailableResponse(AgentType agentType, String reason) {
         return String.format("""
             ⚠️ **Agent Temporairement Indisponible**
             
-            L'agent spécialisé **%s** (%s) n'est pas disponible actuellement.
+            L'agent spécialisé **%s** (%s) n'est pas disponible actuellement%s.
             
             🔧 **Causes possibles :**
             • Agent en cours d'initialisation
@@ -227,10 +495,11 @@ public class AgentRouter {
             📊 Tapez 'stats' pour voir l'état de tous les agents.
             """, 
             agentType.getCode().toUpperCase(), 
-            agentType.getDescription());
+            agentType.getDescription(),
+            reason == null ? "" : " : " + reason);
     }
     
-    private String formatErrorResponse(Exception error) {
+    private String formatErrorResponse(Throwable error) {
         return String.format("""
             💥 **Erreur Système**
             
@@ -248,7 +517,7 @@ public class AgentRouter {
             """, error.getMessage());
     }
     
-    private String formatSuccessResponse(QuestionAnalysisResult analysis, String response) {
+    private String formatSuccessResponse(AgentType agentType, double confidenceScore, String response) {
         return String.format("""
             🤖 **Réponse de l'Agent %s** (Confiance: %.1f%%)
             
@@ -257,9 +526,23 @@ public class AgentRouter {
             ---
             💡 *Cette réponse a été générée par l'agent spécialisé en %s*
             """, 
-            analysis.getRecommendedAgent().getCode().toUpperCase(),
-            analysis.getConfidenceScore() * 100,
+            agentType.getCode().toUpperCase(),
+            confidenceScore * 100,
             response,
-            analysis.getRecommendedAgent().getDescription().toLowerCase());
+            agentType.getDescription().toLowerCase());
+    }
+
+    private String formatMergedResponse(QuestionAnalysisResult analysis, AgentFanOut.Answer answer) {
+        return String.format("""
+            🤝 **Réponses des Agents %s** (Confiance: %.1f%%)
+            
+            %s
+            
+            ---
+            💡 *Question ambiguë : aucune réponse ne suffisant seule, voici celles des agents consultés*
+            """,
+            String.join(", ", answer.respondingAgents().stream().map(type -> type.getCode().toUpperCase()).toList()),
+            analysis.getConfidenceScore() * 100,
+            answer.response());
     }
 }
@@ -0,0 +1,36 @@
+package org.rag_sys.agent;
+
+import java.util.List;
+
+/**
+ * Contrôle sommaire d'une réponse d'agent lors d'une répartition entre plusieurs agents :
+ * une réponse vide ou un aveu d'ignorance ne peut pas l'emporter. Les échecs des agents
+ * n'arrivent pas jusqu'ici : ils achèvent leur future par une {@link AgentFailureException}.
+ */
+final class AnswerQualityCheck {
+
+    private static final int MIN_LENGTH = 20;
+    // Un aveu d'ignorance se trouve en tête de réponse ; plus loin, ces tournures font partie de l'explication
+    private static final int OPENING_LENGTH = 160;
+    private static final List<String> NON_ANSWERS = List.of(
+            "je ne sais pas", "je n'ai pas trouvé", "je ne trouve pas",
+            "aucune information", "pas d'information", "ne contient pas d'information", "ne permet pas de répondre",
+            "pas en mesure de répondre", "impossible de répondre");
+
+    private AnswerQualityCheck() {
+    }
+
+    static boolean accepts(String response) {
+        if (response == null || response.isBlank() || response.trim().length() < MIN_LENGTH) {
+            return false;
+        }
+        String opening = response.trim().toLowerCase().replace('’', '\'');
+        opening = opening.substring(0, Math.min(OPENING_LENGTH, opening.length()));
+        for (String marker : NON_ANSWERS) {
+            if (opening.contains(marker)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
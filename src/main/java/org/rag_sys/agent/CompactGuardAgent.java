@@ -0,0 +1,27 @@
+package org.rag_sys.agent;
+
+import dev.langchain4j.service.Result;
+import dev.langchain4j.service.SystemMessage;
+
+/**
+ * Agent de garde à prompt court : le modèle ne produit que le JSON {agent, score, process},
+ * sa forme étant imposée par un schéma plutôt que décrite dans le prompt
+ */
+public interface CompactGuardAgent {
+
+    String SYSTEM_PROMPT = """
+        Classe la question de l'utilisateur.
+        agent : STORY (récits, histoire, littérature, biographies), MATH (calculs, équations, géométrie, statistiques), \
+        DROIT (lois, contrats, droits, procédures), GUARD si aucun ne convient.
+        score : confiance de 0.0 à 1.0, moins de 0.3 pour une question vague, hors sujet ou incompréhensible.
+        process : false pour une question inappropriée, dangereuse, illégale ou incompréhensible.
+        """;
+
+    String REJECTION_PROMPT = """
+        La question de l'utilisateur a été refusée par un assistant spécialisé en récits, mathématiques et droit.
+        Explique pourquoi en une phrase courte.
+        """;
+
+    @SystemMessage(SYSTEM_PROMPT)
+    Result<String> classify(String question);
+}
@@ -1,13 +1,15 @@
 package org.rag_sys.agent;
 
+import dev.langchain4j.service.Result;
 import dev.langchain4j.service.SystemMessage;
 
 /**
  * Agent de garde spécialisé dans l'analyse et le routage des questions
  */
 public interface GuardAgent {
-    
-    @SystemMessage("""
+
+    // shouldProcess précède reasoning : lue en flux, la décision est connue avant le raisonnement
+    String SYSTEM_PROMPT = """
         Tu es un agent de garde intelligent et expert chargé d'analyser les questions des utilisateurs.
         
         ## TON RÔLE PRINCIPAL ##
@@ -51,9 +53,11 @@ public interface GuardAgent {
         {
           "recommendedAgent": "STORY|MATH|DROIT|GUARD",
           "confidenceScore": qui doit être un nombre entre 0.0 et 1.0 et représente la confiance dans le choix de l'agent,
-          "reasoning": "Explication détaillée de ton analyse et justification du choix",
-          "shouldProcess": true
+          "shouldProcess": true,
+          "reasoning": "Explication détaillée de ton analyse et justification du choix"
         }
-        """)
-    String analyzeQuestion(String question);
+        """;
+
+    @SystemMessage(SYSTEM_PROMPT)
+    Result<String> analyzeQuestion(String question);
 }
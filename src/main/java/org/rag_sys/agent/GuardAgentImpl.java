@@ -1,40 +1,190 @@
 package org.rag_sys.agent;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import dev.langchain4j.model.ollama.OllamaChatModel;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpMethod;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEvent;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ResponseFormat;
+import dev.langchain4j.model.chat.request.ResponseFormatType;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.request.json.JsonSchema;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
 import dev.langchain4j.service.AiServices;
+import dev.langchain4j.service.Result;
+import org.rag_sys.concurrent.AsyncTasks;
+import org.rag_sys.config.GuardProfile;
+import org.rag_sys.context.RequestContext;
+import org.rag_sys.logging.RequestLog;
+import org.rag_sys.metrics.StatsProvider;
+import org.rag_sys.ollama.ModelResidencyManager;
+import org.rag_sys.ollama.OllamaClientRegistry;
+import org.rag_sys.resilience.CircuitBreaker;
+import org.rag_sys.resilience.CircuitBreakerOpenException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Implémentation de l'agent de garde
  */
-public class GuardAgentImpl {
+public class GuardAgentImpl implements StatsProvider {
     
     private static final double MIN_CONFIDENCE_THRESHOLD = 0.3;
     private static final double HIGH_CONFIDENCE_THRESHOLD = 0.7;
+    // Au-delà, une analyse compte comme lente pour le disjoncteur (-Drag.breaker.guardSlowSeconds)
+    private static final long DEFAULT_SLOW_SECONDS = 15;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final RequestLog LOG = RequestLog.of(GuardAgentImpl.class);
+    // {"agent":"DROIT","score":0.85,"process":true} tient en une vingtaine de tokens
+    private static final int COMPACT_MAX_TOKENS = 48;
+    private static final int REJECTION_MAX_TOKENS = 64;
+    private static final ResponseFormat COMPACT_RESPONSE_FORMAT = ResponseFormat.builder()
+            .type(ResponseFormatType.JSON)
+            .jsonSchema(JsonSchema.builder()
+                    .name("GuardDecision")
+                    .rootElement(JsonObjectSchema.builder()
+                            .addEnumProperty("agent", List.of("STORY", "MATH", "DROIT", "GUARD"))
+                            .addNumberProperty("score")
+                            .addBooleanProperty("process")
+                            .required("agent", "score", "process")
+                            .build())
+                    .build())
+            .build();
+
+    // Mots-clés de l'analyse de repli et de la recherche d'agents candidats
+    private static final String[] MATH_KEYWORDS = {
+        "math", "calcul", "équation", "nombre", "addition", "soustraction", 
+        "multiplication", "division", "dérivée", "intégrale", "fonction",
+        "algèbre", "géométrie", "statistique", "probabilité", "résoudre",
+        "x²", "√", "+", "-", "×", "÷", "=", "%"
+    };
+    private static final String[] STORY_KEYWORDS = {
+        "histoire", "récit", "événement", "narratif", "raconte", "guerre",
+        "bataille", "biographie", "personnage", "époque", "siècle",
+        "révolution", "empire", "roi", "reine", "président", "leader",
+        "1942", "1943", "1944", "1945", "ww2", "seconde guerre"
+    };
+    private static final String[] LEGAL_KEYWORDS = {
+        "droit", "loi", "juridique", "légal", "contrat", "tribunal",
+        "justice", "avocat", "juge", "procédure", "code civil",
+        "constitution", "article", "réglementation", "sanction",
+        "propriété", "responsabilité", "obligation"
+    };
+    private static final Map<AgentType, String[]> DOMAIN_KEYWORDS = new EnumMap<>(Map.of(
+            AgentType.MATH, MATH_KEYWORDS, AgentType.STORY, STORY_KEYWORDS, AgentType.DROIT, LEGAL_KEYWORDS));
+
+    private final GuardProfile profile;
+    private final String modelName;
+    private final OllamaClientRegistry registry;
+    private final HttpClient streamingClient;
+    private final boolean finishInBackground;
     private final GuardAgent guardAgent;
+    private final CompactGuardAgent compactGuardAgent;
+    private final ChatModel rejectionModel;
     private final ObjectMapper objectMapper;
+    private final CircuitBreaker circuitBreaker;
+
+    private final AtomicLong analyses = new AtomicLong();
+    private final AtomicLong modelNanos = new AtomicLong();
+    private final AtomicLong inputTokens = new AtomicLong();
+    private final AtomicLong outputTokens = new AtomicLong();
+    private final AtomicLong explanations = new AtomicLong();
+    private final AtomicLong inputTokenReports = new AtomicLong();
+    private final AtomicLong earlyDecisions = new AtomicLong();
+    private final AtomicLong cancelledGenerations = new AtomicLong();
     
     public GuardAgentImpl(String modelName, String baseUrl) {
-        // Créer le modèle de chat pour l'agent de garde
-        OllamaChatModel chatModel = OllamaChatModel.builder()
-                .baseUrl(baseUrl)
-                .modelName(modelName)
-                .temperature(0.1) // Température basse pour plus de cohérence dans l'analyse
-                .timeout(java.time.Duration.ofSeconds(30))
-                .build();
-        
-        // Créer l'agent de garde avec AI Services
-        this.guardAgent = AiServices.builder(GuardAgent.class)
-                .chatModel(chatModel)
-                .build();
+        this(modelName, List.of(baseUrl));
+    }
+
+    /**
+     * @param backends instances Ollama entre lesquelles répartir les analyses
+     */
+    public GuardAgentImpl(String modelName, List<String> backends) {
+        this(modelName, backends, GuardProfile.DETAILED);
+    }
+
+    /**
+     * @param backends instances Ollama entre lesquelles répartir les analyses
+     * @param profile prompt complet, ou prompt court à sortie contrainte
+     */
+    public GuardAgentImpl(String modelName, List<String> backends, GuardProfile profile) {
+        this.profile = profile;
+        this.modelName = modelName;
+        this.registry = OllamaClientRegistry.of(backends);
+        // Le profil détaillé lit sa réponse en flux (-Drag.guard.streaming=false pour attendre la réponse entière)
+        boolean streaming = profile == GuardProfile.DETAILED
+                && Boolean.parseBoolean(System.getProperty("rag.guard.streaming", "true"));
+        this.streamingClient = streaming
+                ? registry.httpClient(modelName, ModelResidencyManager.ModelKind.CHAT, TIMEOUT)
+                : null;
+        // Une fois la décision prise, la génération est interrompue, ou menée à terme pour la journaliser
+        this.finishInBackground = Boolean.getBoolean("rag.guard.logFullResponse");
+        // Modèles de chat partagés, température basse pour plus de cohérence dans l'analyse
+        if (profile == GuardProfile.COMPACT) {
+            this.guardAgent = null;
+            this.compactGuardAgent = AiServices.builder(CompactGuardAgent.class)
+                    .chatModel(registry.chatModel(modelName, 0.1, COMPACT_RESPONSE_FORMAT, TIMEOUT, COMPACT_MAX_TOKENS))
+                    .build();
+            this.rejectionModel = registry.chatModel(modelName, 0.1, null, TIMEOUT, REJECTION_MAX_TOKENS);
+        } else {
+            this.guardAgent = AiServices.builder(GuardAgent.class)
+                    .chatModel(registry.chatModel(modelName, 0.1, null, TIMEOUT))
+                    .build();
+            this.compactGuardAgent = null;
+            this.rejectionModel = null;
+        }
         
         this.objectMapper = new ObjectMapper();
+        this.circuitBreaker = new CircuitBreaker("agent de garde",
+                Duration.ofSeconds(Long.getLong("rag.breaker.guardSlowSeconds", DEFAULT_SLOW_SECONDS)));
+    }
+
+    /**
+     * @return le disjoncteur des appels au modèle : ouvert, les questions sont routées par mots-clés
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
     }
     
     /**
      * Analyse une question et détermine quel agent doit la traiter
      */
     public QuestionAnalysisResult analyzeQuestion(String question) {
+        return AsyncTasks.await(analyzeQuestionAsync(question));
+    }
+
+    /**
+     * Analyse une question sans bloquer l'appelant. Le future n'échoue pas : en cas d'erreur du modèle,
+     * il porte l'analyse de repli par mots-clés. L'annuler interrompt l'appel au modèle en cours.
+     */
+    public CompletableFuture<QuestionAnalysisResult> analyzeQuestionAsync(String question) {
+        CompletableFuture<QuestionAnalysisResult> analysis;
         try {
             // Validation préliminaire
 //            if (question == null || question.trim().isEmpty()) {
@@ -48,28 +198,368 @@ public class GuardAgentImpl {
             
             // Nettoyer et préprarer la question
             String cleanedQuestion = question.trim();
-            System.out.println("🛡️ Agent de garde analyse la question: " + cleanedQuestion);
+            LOG.debug(() -> "🛡️ Agent de garde analyse la question: " + cleanedQuestion);
             
+            analysis = profile == GuardProfile.COMPACT
+                    ? AsyncTasks.supplyInterruptibly("agent-garde", () -> analyzeCompact(cleanedQuestion))
+                    : analyzeDetailed(cleanedQuestion);
+        } catch (RuntimeException e) {
+            analysis = CompletableFuture.failedFuture(e);
+        }
+
+        return AsyncTasks.propagateCancellation(analysis.handle((result, error) -> {
+            if (error == null) {
+                LOG.payload(() -> "✅ Analyse finale: " + result);
+                return result;
+            }
+            Throwable cause = AsyncTasks.unwrap(error);
+            if (cause instanceof CancellationException cancelled) {
+                throw cancelled;
+            }
+            if (cause instanceof TimeoutException) {
+                cause = new RuntimeException("L'agent de garde n'a pas décidé en " + TIMEOUT.toSeconds() + " s", cause);
+            }
+            Throwable failure = cause;
+            if (failure instanceof CircuitBreakerOpenException) {
+                LOG.warn(() -> "⚡ " + failure.getMessage() + " : analyse par mots-clés");
+            } else {
+                LOG.error(() -> "❌ Erreur lors de l'analyse par l'agent de garde: " + failure.getMessage(), failure);
+            }
+            // Retourner un résultat de fallback sécurisé
+            return createFallbackAnalysis(question, cause);
+        }), analysis);
+    }
+
+    private CompletableFuture<QuestionAnalysisResult> analyzeDetailed(String cleanedQuestion) {
+        if (streamingClient != null) {
+            CompletableFuture<QuestionAnalysisResult> decision = analyzeStreaming(cleanedQuestion);
+            return AsyncTasks.propagateCancellation(
+                    decision.thenApply(result -> validateAndAdjustResult(result, cleanedQuestion)), decision);
+        }
+
+        return AsyncTasks.supplyInterruptibly("agent-garde", () -> {
             // Obtenir l'analyse de l'agent de garde
-            String jsonResponse = guardAgent.analyzeQuestion(cleanedQuestion);
-            System.out.println("📋 Réponse brute de l'agent de garde: " + jsonResponse);
-            
-            // Parser la réponse JSON
-            QuestionAnalysisResult result = parseAnalysisResult(jsonResponse, cleanedQuestion);
-            
-            // Validation et ajustement final
-            result = validateAndAdjustResult(result, cleanedQuestion);
-            
-            System.out.println("✅ Analyse finale: " + result);
+            String jsonResponse = callModel(() -> guardAgent.analyzeQuestion(cleanedQuestion));
+            LOG.payload(() -> "📋 Réponse brute de l'agent de garde: " + jsonResponse);
+
+            // Parser la réponse JSON puis validation et ajustement final
+            return validateAndAdjustResult(parseAnalysisResult(jsonResponse, cleanedQuestion), cleanedQuestion);
+        });
+    }
+
+    private QuestionAnalysisResult analyzeCompact(String cleanedQuestion) {
+        String jsonResponse = callModel(() -> compactGuardAgent.classify(cleanedQuestion));
+        LOG.payload(() -> "📋 Réponse brute de l'agent de garde: " + jsonResponse);
+
+        QuestionAnalysisResult result = validateAndAdjustResult(parseCompactResult(jsonResponse, cleanedQuestion), cleanedQuestion);
+        if (result.shouldProcess() || containsInappropriateContent(cleanedQuestion)) {
             return result;
-            
+        }
+        // Le raisonnement n'est rédigé que pour expliquer un rejet à l'utilisateur
+        return new QuestionAnalysisResult(result.getRecommendedAgent(), result.getConfidenceScore(),
+                explainRejection(cleanedQuestion), false);
+    }
+
+    private String callModel(Supplier<Result<String>> call) {
+        long start = System.nanoTime();
+        Result<String> response = circuitBreaker.execute(call);
+        modelNanos.addAndGet(System.nanoTime() - start);
+        analyses.incrementAndGet();
+        recordTokenUsage(response.tokenUsage());
+        return response.content();
+    }
+
+    /**
+     * Lit la réponse token par token et rend la main dès que l'agent, le score et la décision sont connus.
+     * Un rejet attend aussi le raisonnement, présenté à l'utilisateur.
+     * La requête part sans bloquer : le future se complète depuis le thread qui lit le flux.
+     */
+    private CompletableFuture<QuestionAnalysisResult> analyzeStreaming(String cleanedQuestion) {
+        long start = System.nanoTime();
+        GuardStreamParser streamParser = new GuardStreamParser(cleanedQuestion);
+        return circuitBreaker.executeAsync(() -> {
+            streamParser.decision.orTimeout(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((result, error) -> {
+                        if (error == null) {
+                            modelNanos.addAndGet(System.nanoTime() - start);
+                            analyses.incrementAndGet();
+                        } else {
+                            // Annulation ou délai dépassé : couper le flux arrête la génération côté Ollama
+                            streamParser.abort();
+                        }
+                    });
+            HttpRequest request = streamingRequest(cleanedQuestion);
+            // L'attente d'une connexion libre vers Ollama ne doit pas bloquer l'appelant
+            Thread.ofVirtual().name("agent-garde-flux").start(() -> {
+                try {
+                    if (!streamParser.decision.isDone()) {
+                        streamingClient.execute(request, streamParser, streamParser);
+                    }
+                } catch (RuntimeException e) {
+                    streamParser.decision.completeExceptionally(e);
+                }
+            });
+            return streamParser.decision;
+        });
+    }
+
+    private HttpRequest streamingRequest(String question) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("model", modelName);
+        body.put("stream", true);
+        body.putObject("options").put("temperature", 0.1);
+        var messages = body.putArray("messages");
+        messages.addObject().put("role", "system").put("content", GuardAgent.SYSTEM_PROMPT);
+        messages.addObject().put("role", "user").put("content", question);
+        try {
+            return HttpRequest.builder()
+                    .method(HttpMethod.POST)
+                    .url(registry.getBaseUrl() + "/api/chat")
+                    .addHeader("Content-Type", "application/json")
+                    .body(objectMapper.writeValueAsString(body))
+                    .build();
+        } catch (IOException e) {
+            throw new RuntimeException("Échec de la préparation de la requête de l'agent de garde: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parseur du flux NDJSON de /api/chat : chaque ligne porte un fragment de la réponse du modèle.
+     * Sortir de parse() ferme le flux, ce qui coupe la connexion et arrête la génération côté Ollama.
+     */
+    private final class GuardStreamParser implements ServerSentEventParser, ServerSentEventListener {
+
+        private final String question;
+        private final GuardOutputDecoder decoder = new GuardOutputDecoder();
+        private final CompletableFuture<QuestionAnalysisResult> decision = new CompletableFuture<>();
+        // Le flux est lu par un thread du client HTTP : le contexte de la requête y est relié
+        private final RequestContext context = RequestContext.current();
+        private volatile InputStream body;
+
+        private GuardStreamParser(String question) {
+            this.question = question;
+        }
+
+        /**
+         * Ferme le flux depuis un autre thread ; la boucle de lecture s'arrête aussi d'elle-même à la ligne suivante
+         */
+        private void abort() {
+            InputStream stream = body;
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                    // Le flux est déjà coupé
+                }
+            }
+        }
+
+        @Override
+        public void parse(InputStream httpResponseBody, ServerSentEventListener listener) {
+            if (context != null && RequestContext.current() != context) {
+                context.runWithin(() -> parse(httpResponseBody, listener));
+                return;
+            }
+            body = httpResponseBody;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(httpResponseBody, StandardCharsets.UTF_8))) {
+                String line;
+                while (!decision.isCompletedExceptionally() && (line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonNode chunk = objectMapper.readTree(line);
+                    if (chunk.has("error")) {
+                        throw new IOException(chunk.get("error").asText());
+                    }
+                    String fragment = chunk.path("message").path("content").asText("");
+                    if (!fragment.isEmpty()) {
+                        // Ollama envoie un token par ligne
+                        outputTokens.incrementAndGet();
+                        decoder.feed(fragment);
+                    }
+                    if (chunk.path("done").asBoolean(false)) {
+                        if (chunk.has("prompt_eval_count")) {
+                            inputTokens.addAndGet(chunk.get("prompt_eval_count").asLong());
+                            inputTokenReports.incrementAndGet();
+                        }
+                        break;
+                    }
+                    // Un refus (ou une confiance sous le seuil) attend le raisonnement, qui sera montré à l'utilisateur
+                    if (!decision.isDone() && decoder.isDecided() && (decoder.getReasoning() != null
+                            || (decoder.shouldProcess() && decoder.getConfidenceScore() >= MIN_CONFIDENCE_THRESHOLD))) {
+                        earlyDecisions.incrementAndGet();
+                        decision.complete(toResult());
+                        if (!finishInBackground && !decoder.isComplete()) {
+                            cancelledGenerations.incrementAndGet();
+                            LOG.payload(() -> "📋 Réponse de l'agent de garde, génération interrompue: " + decoder.getRawText());
+                            return;
+                        }
+                    }
+                }
+                LOG.payload(() -> "📋 Réponse brute de l'agent de garde: " + decoder.getRawText());
+                decision.complete(toResult());
+            } catch (IOException | RuntimeException e) {
+                // Sans effet si le flux a été coupé après annulation : le future est déjà achevé
+                decision.completeExceptionally(e);
+            }
+        }
+
+        private QuestionAnalysisResult toResult() {
+            if (!decoder.isDecided()) {
+                // JSON invalide ou incomplet : analyse du texte entier, comme sans flux
+                return parseAnalysisResult(decoder.getRawText(), question);
+            }
+            double confidenceScore = Math.max(0.0, Math.min(1.0, decoder.getConfidenceScore()));
+            String reasoning = decoder.getReasoning() != null ? decoder.getReasoning()
+                    : "Décision prise avant la fin du raisonnement";
+            return new QuestionAnalysisResult(AgentType.fromCode(decoder.getRecommendedAgent()), confidenceScore, reasoning,
+                    decoder.shouldProcess() && confidenceScore >= MIN_CONFIDENCE_THRESHOLD);
+        }
+
+        @Override
+        public void onOpen(SuccessfulHttpResponse response) {
+        }
+
+        @Override
+        public void onEvent(ServerSentEvent event) {
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            decision.completeExceptionally(error);
+        }
+
+        @Override
+        public void onClose() {
+        }
+    }
+
+    private QuestionAnalysisResult parseCompactResult(String jsonResponse, String originalQuestion) {
+        try {
+            var jsonNode = objectMapper.readTree(cleanJsonResponse(jsonResponse));
+            AgentType agentType = AgentType.fromCode(extractStringField(jsonNode, "agent", "GUARD"));
+            double confidenceScore = Math.max(0.0, Math.min(1.0, extractDoubleField(jsonNode, "score", 0.2)));
+            boolean shouldProcess = extractBooleanField(jsonNode, "process", false)
+                    && confidenceScore >= MIN_CONFIDENCE_THRESHOLD;
+            return new QuestionAnalysisResult(agentType, confidenceScore,
+                    "Classement compact vers " + agentType.getCode().toUpperCase(), shouldProcess);
         } catch (Exception e) {
-            System.err.println("❌ Erreur lors de l'analyse par l'agent de garde: " + e.getMessage());
-            e.printStackTrace();
-            
-            // Retourner un résultat de fallback sécurisé
-            return createFallbackAnalysis(question, e);
+            // Réponse tronquée par le plafond de tokens ou modèle ignorant le schéma
+            LOG.warn(() -> "❌ Erreur lors du parsing de la réponse JSON: " + e.getMessage() + "\nJSON reçu: " + jsonResponse);
+            return performBasicAnalysis(originalQuestion);
+        }
+    }
+
+    private String explainRejection(String question) {
+        try {
+            ChatResponse response = circuitBreaker.execute(() -> rejectionModel.chat(ChatRequest.builder()
+                    .messages(SystemMessage.from(CompactGuardAgent.REJECTION_PROMPT), UserMessage.from(question))
+                    .build()));
+            explanations.incrementAndGet();
+            recordTokenUsage(response.tokenUsage());
+            return response.aiMessage().text().trim();
+        } catch (RuntimeException e) {
+            LOG.warn(() -> "⚠️ Explication du rejet indisponible: " + e.getMessage());
+            return "Question trop imprécise, hors du périmètre des agents ou inappropriée";
+        }
+    }
+
+    private void recordTokenUsage(TokenUsage tokenUsage) {
+        if (tokenUsage == null) {
+            return;
+        }
+        if (tokenUsage.inputTokenCount() != null) {
+            inputTokens.addAndGet(tokenUsage.inputTokenCount());
+        }
+        if (tokenUsage.outputTokenCount() != null) {
+            outputTokens.addAndGet(tokenUsage.outputTokenCount());
+        }
+    }
+
+    /**
+     * Agents candidats pour une question, du plus probable au moins probable : l'agent recommandé,
+     * puis les domaines dont les mots-clés apparaissent dans la question, puis, si la confiance est moyenne,
+     * les autres agents spécialisés. Une question sûre et d'un seul domaine n'a qu'un candidat.
+     * @param maxAgents nombre maximal de candidats
+     */
+    public List<AgentType> getCandidateAgents(String question, QuestionAnalysisResult analysis, int maxAgents) {
+        List<AgentType> candidates = new ArrayList<>();
+        if (analysis.getRecommendedAgent() != AgentType.GUARD) {
+            candidates.add(analysis.getRecommendedAgent());
+        }
+        boolean uncertain = analysis.getConfidenceScore() < HIGH_CONFIDENCE_THRESHOLD;
+        String lowerQuestion = question.toLowerCase();
+        // Mots-clés en début de mot (« roi » ne doit pas sortir de « droit ») ; les symboles (+, -, %...),
+        // trop fréquents, ne suffisent pas à signaler un second domaine
+        for (Map.Entry<AgentType, String[]> domain : DOMAIN_KEYWORDS.entrySet()) {
+            if (!candidates.contains(domain.getKey()) && containsAnyWordKeyword(lowerQuestion, domain.getValue())) {
+                candidates.add(domain.getKey());
+            }
+        }
+        if (uncertain) {
+            for (AgentType type : AgentType.values()) {
+                if (type != AgentType.GUARD && !candidates.contains(type)) {
+                    candidates.add(type);
+                }
+            }
+        }
+        return candidates.subList(0, Math.min(maxAgents, candidates.size()));
+    }
+
+    private boolean containsAnyWordKeyword(String question, String[] keywords) {
+        for (String keyword : keywords) {
+            if (keyword.length() < 2) {
+                continue;
+            }
+            for (int index = question.indexOf(keyword); index >= 0; index = question.indexOf(keyword, index + 1)) {
+                if (index == 0 || !Character.isLetterOrDigit(question.charAt(index - 1))) {
+                    return true;
+                }
+            }
         }
+        return false;
+    }
+
+    public GuardProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @return la durée moyenne d'une analyse par le modèle, explications de rejet exclues
+     */
+    public double getAverageLatencyMillis() {
+        long count = analyses.get();
+        return count == 0 ? 0 : modelNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * @return les tokens lus et générés par analyse, explications de rejet comprises
+     */
+    public double getAverageInputTokens() {
+        // Une génération interrompue ne rapporte pas ses tokens lus
+        long count = streamingClient != null ? inputTokenReports.get() : analyses.get();
+        return count == 0 ? 0 : (double) inputTokens.get() / count;
+    }
+
+    public double getAverageOutputTokens() {
+        long count = analyses.get();
+        return count == 0 ? 0 : (double) outputTokens.get() / count;
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "🛡️ AGENT DE GARDE (profil " + profile.name().toLowerCase() + ")";
+    }
+
+    @Override
+    public List<String> getStatsLines() {
+        return List.of(
+                String.format("Analyses par le modèle: %d, %.0f ms en moyenne", analyses.get(), getAverageLatencyMillis()),
+                String.format("Tokens par analyse: %.0f lus, %.1f générés", getAverageInputTokens(), getAverageOutputTokens()),
+                "Explications de rejet rédigées: " + explanations.get(),
+                streamingClient == null ? "Réponse lue en entier"
+                        : String.format("Réponse lue en flux: %d décisions avant la fin, %d générations interrompues",
+                                earlyDecisions.get(), cancelledGenerations.get()));
     }
     
     private QuestionAnalysisResult parseAnalysisResult(String jsonResponse, String originalQuestion) {
@@ -96,8 +586,7 @@ public class GuardAgentImpl {
             return new QuestionAnalysisResult(agentType, confidenceScore, reasoning, shouldProcess);
             
         } catch (Exception e) {
-            System.err.println("❌ Erreur lors du parsing de la réponse JSON: " + e.getMessage());
-            System.err.println("JSON reçu: " + jsonResponse);
+            LOG.warn(() -> "❌ Erreur lors du parsing de la réponse JSON: " + e.getMessage() + "\nJSON reçu: " + jsonResponse);
             
             // Analyse de fallback basique
             return performBasicAnalysis(originalQuestion);
@@ -192,7 +681,7 @@ public class GuardAgentImpl {
         return false;
     }
     
-    private QuestionAnalysisResult createFallbackAnalysis(String question, Exception error) {
+    private QuestionAnalysisResult createFallbackAnalysis(String question, Throwable error) {
         if (question == null || question.trim().isEmpty()) {
             return new QuestionAnalysisResult(
                 AgentType.GUARD,
@@ -243,36 +732,15 @@ public class GuardAgentImpl {
     }
     
     private boolean containsMathKeywords(String question) {
-        String[] mathKeywords = {
-            "math", "calcul", "équation", "nombre", "addition", "soustraction", 
-            "multiplication", "division", "dérivée", "intégrale", "fonction",
-            "algèbre", "géométrie", "statistique", "probabilité", "résoudre",
-            "x²", "√", "+", "-", "×", "÷", "=", "%"
-        };
-        
-        return containsAnyKeyword(question, mathKeywords);
+        return containsAnyKeyword(question, MATH_KEYWORDS);
     }
     
     private boolean containsStoryKeywords(String question) {
-        String[] storyKeywords = {
-            "histoire", "récit", "événement", "narratif", "raconte", "guerre",
-            "bataille", "biographie", "personnage", "époque", "siècle",
-            "révolution", "empire", "roi", "reine", "président", "leader",
-            "1942", "1943", "1944", "1945", "ww2", "seconde guerre"
-        };
-        
-        return containsAnyKeyword(question, storyKeywords);
+        return containsAnyKeyword(question, STORY_KEYWORDS);
     }
     
     private boolean containsLegalKeywords(String question) {
-        String[] legalKeywords = {
-            "droit", "loi", "juridique", "légal", "contrat", "tribunal",
-            "justice", "avocat", "juge", "procédure", "code civil",
-            "constitution", "article", "réglementation", "sanction",
-            "propriété", "responsabilité", "obligation"
-        };
-        
-        return containsAnyKeyword(question, legalKeywords);
+        return containsAnyKeyword(question, LEGAL_KEYWORDS);
     }
     
     private boolean containsAnyKeyword(String question, String[] keywords) {
@@ -0,0 +1,166 @@
+package org.rag_sys.agent;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lit la réponse JSON de l'agent de garde au fil des tokens, avec le parseur non bloquant de Jackson.
+ *
+ * Le texte qui précède la première accolade (bloc markdown, etc.) est ignoré, comme ce qui suit l'objet.
+ * Seuls les champs de premier niveau sont retenus ; si la réponse n'est pas du JSON valide, le décodeur
+ * s'arrête et le texte brut reste disponible pour l'analyse complète.
+ */
+final class GuardOutputDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final StringBuilder rawText = new StringBuilder();
+    private boolean started;
+    private boolean complete;
+    private boolean failed;
+    private int depth;
+    private String currentField;
+
+    private String recommendedAgent;
+    private Double confidenceScore;
+    private Boolean shouldProcess;
+    private String reasoning;
+
+    GuardOutputDecoder() {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Ajoute un fragment de la réponse et lit les champs qu'il complète
+     */
+    void feed(String fragment) {
+        rawText.append(fragment);
+        if (complete || failed) {
+            return;
+        }
+        String input = fragment;
+        if (!started) {
+            int brace = input.indexOf('{');
+            if (brace < 0) {
+                return;
+            }
+            input = input.substring(brace);
+            started = true;
+        }
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            readAvailableTokens();
+        } catch (IOException e) {
+            failed = true;
+        }
+    }
+
+    private void readAvailableTokens() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> {
+                    depth++;
+                    if (depth > 1) {
+                        currentField = null;
+                    }
+                }
+                case END_OBJECT, END_ARRAY -> {
+                    depth--;
+                    if (depth == 0) {
+                        complete = true;
+                        return;
+                    }
+                }
+                case FIELD_NAME -> {
+                    if (depth == 1) {
+                        currentField = parser.currentName();
+                    }
+                }
+                default -> {
+                    if (depth == 1 && currentField != null) {
+                        readField(currentField, token);
+                        currentField = null;
+                    }
+                }
+            }
+        }
+    }
+
+    private void readField(String field, JsonToken token) throws IOException {
+        switch (field) {
+            case "recommendedAgent" -> recommendedAgent = parser.getValueAsString();
+            case "confidenceScore" -> {
+                if (token.isNumeric()) {
+                    confidenceScore = parser.getDoubleValue();
+                } else {
+                    try {
+                        confidenceScore = Double.parseDouble(parser.getValueAsString("").trim());
+                    } catch (NumberFormatException e) {
+                        confidenceScore = 0.2;
+                    }
+                }
+            }
+            case "shouldProcess" -> shouldProcess = token == JsonToken.VALUE_TRUE
+                    || (token == JsonToken.VALUE_STRING && Boolean.parseBoolean(parser.getText().trim()));
+            case "reasoning" -> reasoning = parser.getValueAsString();
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * @return vrai quand l'agent, le score et la décision sont connus : le routage peut commencer
+     */
+    boolean isDecided() {
+        return recommendedAgent != null && confidenceScore != null && shouldProcess != null;
+    }
+
+    /**
+     * @return vrai quand l'objet JSON est refermé
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    boolean isFailed() {
+        return failed;
+    }
+
+    String getRecommendedAgent() {
+        return recommendedAgent;
+    }
+
+    double getConfidenceScore() {
+        return confidenceScore;
+    }
+
+    boolean shouldProcess() {
+        return shouldProcess;
+    }
+
+    /**
+     * @return le raisonnement, ou null s'il n'a pas encore été (entièrement) généré
+     */
+    String getReasoning() {
+        return reasoning;
+    }
+
+    String getRawText() {
+        return rawText.toString();
+    }
+}
@@ -0,0 +1,20 @@
+package org.rag_sys.agent;
+
+/**
+ * Issue du routage d'une question par l'AgentRouter.
+ *
+ * Les rangs sont enregistrés dans le journal de capture du trafic : une nouvelle issue s'ajoute à la fin.
+ */
+public enum RoutingOutcome {
+    PROCESSED,
+    REJECTED,
+    AGENT_UNAVAILABLE,
+    ERROR,
+    // L'agent a échoué en traitant la question (AgentFailureException)
+    AGENT_FAILED;
+
+    public static RoutingOutcome fromOrdinal(int ordinal) {
+        RoutingOutcome[] values = values();
+        return ordinal >= 0 && ordinal < values.length ? values[ordinal] : ERROR;
+    }
+}
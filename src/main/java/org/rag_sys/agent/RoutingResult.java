@@ -0,0 +1,25 @@
+package org.rag_sys.agent;
+
+import org.rag_sys.traffic.TrafficRecord;
+
+/**
+ * Réponse formatée d'une question routée, accompagnée de la trace de routage
+ * (décision de l'agent de garde et temps par étape)
+ */
+public class RoutingResult {
+    private final String response;
+    private final TrafficRecord trace;
+
+    public RoutingResult(String response, TrafficRecord trace) {
+        this.response = response;
+        this.trace = trace;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public TrafficRecord getTrace() {
+        return trace;
+    }
+}
@@ -1,40 +1,101 @@
 package org.rag_sys.agent;
 
+import org.rag_sys.concurrent.AsyncTasks;
+import org.rag_sys.context.RequestContext;
+import org.rag_sys.logging.RequestLog;
 import org.rag_sys.model.DocumentAnalyser;
+import org.rag_sys.resilience.CircuitBreaker;
+import org.rag_sys.resilience.CircuitBreakerOpenException;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Implémentation de base pour un agent spécialisé
  */
 public class SpecializedAgent implements Agent {
+
+    private static final RequestLog LOG = RequestLog.of(SpecializedAgent.class);
     
     private final AgentType type;
     private final DocumentAnalyser documentAnalyser;
+    private final List<CircuitBreaker> circuitBreakers;
     
     public SpecializedAgent(AgentType type, DocumentAnalyser documentAnalyser) {
+        this(type, documentAnalyser, List.of());
+    }
+
+    /**
+     * @param circuitBreakers disjoncteurs de la chaîne de l'agent : tant que l'un d'eux est ouvert, l'agent n'est pas prêt
+     */
+    public SpecializedAgent(AgentType type, DocumentAnalyser documentAnalyser, List<CircuitBreaker> circuitBreakers) {
         this.type = type;
         this.documentAnalyser = documentAnalyser;
+        this.circuitBreakers = circuitBreakers;
     }
     
     @Override
-    public String processQuestion(String question) {
+    public CompletableFuture<String> processQuestionAsync(String question, RequestContext context) {
         if (!isReady()) {
-            return "Désolé, cet agent n'est pas encore prêt à traiter des questions.";
+            return CompletableFuture.failedFuture(AgentFailureException.unavailable(type,
+                    "Désolé, cet agent n'est pas encore prêt à traiter des questions.", null));
         }
-        
-        try {
-            System.out.println("Agent " + type.getCode() + " traite la question: " + question);
-            String response = documentAnalyser.analyse(question);
-            System.out.println("Agent " + type.getCode() + " a terminé le traitement.");
-            return response;
-        } catch (Exception e) {
-            System.err.println("Erreur lors du traitement par l'agent " + type.getCode() + ": " + e.getMessage());
-            return "Désolé, une erreur s'est produite lors du traitement de votre question.";
+
+        LOG.debug(() -> "Agent " + type.getCode() + " traite la question: " + question);
+        CompletableFuture<String> analysis = AsyncTasks.supplyInterruptibly("agent-" + type.getCode(),
+                () -> context.callWithin(() -> documentAnalyser.analyse(question)));
+        return AsyncTasks.propagateCancellation(analysis.handle((response, error) -> {
+            if (error == null) {
+                LOG.debug(() -> "Agent " + type.getCode() + " a terminé le traitement.");
+                return response;
+            }
+            if (AsyncTasks.isCancellation(error)) {
+                LOG.info(() -> "Agent " + type.getCode() + ": traitement annulé.");
+                throw new CancellationException("Traitement annulé par l'appelant");
+            }
+            CircuitBreakerOpenException open = findOpenBreaker(error);
+            if (open != null) {
+                LOG.warn(() -> "Agent " + type.getCode() + " indisponible: " + open.getMessage());
+                throw AgentFailureException.unavailable(type,
+                        "Désolé, cet agent est temporairement indisponible. Réessayez dans quelques instants.", open);
+            }
+            LOG.error(() -> "Erreur lors du traitement par l'agent " + type.getCode() + ": "
+                    + AsyncTasks.unwrap(error).getMessage());
+            throw AgentFailureException.failed(type,
+                    "Désolé, une erreur s'est produite lors du traitement de votre question.", AsyncTasks.unwrap(error));
+        }), analysis);
+    }
+
+    /**
+     * La recherche peut s'exécuter dans un autre thread : l'exception du disjoncteur arrive alors enveloppée
+     */
+    private static CircuitBreakerOpenException findOpenBreaker(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CircuitBreakerOpenException open) {
+                return open;
+            }
         }
+        return null;
     }
     
     @Override
     public boolean isReady() {
-        return documentAnalyser != null;
+        return documentAnalyser != null && circuitBreakers.stream().allMatch(CircuitBreaker::isCallPermitted);
+    }
+
+    @Override
+    public String getUnavailabilityReason() {
+        if (documentAnalyser == null) {
+            return "chaîne RAG non initialisée";
+        }
+        for (CircuitBreaker circuitBreaker : circuitBreakers) {
+            if (!circuitBreaker.isCallPermitted()) {
+                return "disjoncteur " + circuitBreaker.getName() + " ouvert, nouvel essai dans "
+                        + circuitBreaker.getRemainingOpenDuration().toSeconds() + " s";
+            }
+        }
+        return null;
     }
     
 
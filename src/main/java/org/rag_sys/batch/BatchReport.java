@@ -0,0 +1,99 @@
+package org.rag_sys.batch;
+
+import org.rag_sys.agent.RoutingOutcome;
+import org.rag_sys.traffic.ReplayReport;
+import org.rag_sys.traffic.TrafficRecord;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bilan d'un lot de questions : issues du routage, débit et percentiles de latence par étape
+ */
+public class BatchReport {
+
+    private final long startNanos = System.nanoTime();
+    private final Map<RoutingOutcome, Long> outcomes = new EnumMap<>(RoutingOutcome.class);
+    private final List<TrafficRecord> traces = new ArrayList<>();
+    private long skipped;
+    private long failures;
+    private long elapsedNanos = -1;
+
+    synchronized void record(TrafficRecord trace) {
+        traces.add(trace);
+        outcomes.merge(trace.getOutcome(), 1L, Long::sum);
+    }
+
+    synchronized void recordFailure() {
+        failures++;
+    }
+
+    synchronized void recordSkipped() {
+        skipped++;
+    }
+
+    synchronized void finish() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return les questions traitées pendant ce lot, échecs compris (hors questions reprises)
+     */
+    public synchronized long getAnsweredCount() {
+        return traces.size() + failures;
+    }
+
+    public synchronized long getSkippedCount() {
+        return skipped;
+    }
+
+    public synchronized long getFailureCount() {
+        return failures;
+    }
+
+    /**
+     * @return le débit en questions par seconde depuis le début du lot
+     */
+    public synchronized double getThroughput() {
+        long nanos = elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+        return nanos == 0 ? 0 : getAnsweredCount() / (nanos / 1e9);
+    }
+
+    private long[] sortedMillis(ToLongFunction<TrafficRecord> extractor) {
+        return traces.stream().mapToLong(extractor).sorted().toArray();
+    }
+
+    private void appendLatencyLine(StringBuilder report, String stage, ToLongFunction<TrafficRecord> extractor) {
+        long[] values = sortedMillis(extractor);
+        report.append(String.format("║ %-6s p50 %6d ms | p90 %6d ms | p99 %6d ms           ║\n", stage,
+                ReplayReport.percentile(values, 50), ReplayReport.percentile(values, 90),
+                ReplayReport.percentile(values, 99)));
+    }
+
+    @Override
+    public synchronized String toString() {
+        long nanos = elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+        StringBuilder report = new StringBuilder();
+        report.append("╔══════════════════════════════════════════════════════════════╗\n");
+        report.append("║                    📦 BILAN DU LOT                           ║\n");
+        report.append("╠══════════════════════════════════════════════════════════════╣\n");
+        report.append(String.format("║ 📝 Questions traitées: %-6d (reprises: %-6d, échecs: %-5d) ║\n",
+                getAnsweredCount(), skipped, failures));
+        for (RoutingOutcome outcome : RoutingOutcome.values()) {
+            report.append(String.format("║    %-18s: %-6d                               ║\n",
+                    outcome.name(), outcomes.getOrDefault(outcome, 0L)));
+        }
+        report.append(String.format("║ ⏱️ Durée: %d s, débit: %.2f questions/s                    ║\n",
+                TimeUnit.NANOSECONDS.toSeconds(nanos), getThroughput()));
+        report.append("╠══════════════════════════════════════════════════════════════╣\n");
+        appendLatencyLine(report, "garde", TrafficRecord::getGuardMillis);
+        appendLatencyLine(report, "agent", TrafficRecord::getAgentMillis);
+        appendLatencyLine(report, "total", TrafficRecord::getTotalMillis);
+        report.append("╚══════════════════════════════════════════════════════════════╝\n");
+        return report.toString();
+    }
+}
@@ -0,0 +1,249 @@
+package org.rag_sys.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.rag_sys.agent.AgentRouter;
+import org.rag_sys.agent.RoutingOutcome;
+import org.rag_sys.agent.RoutingResult;
+import org.rag_sys.concurrent.AsyncTasks;
+import org.rag_sys.traffic.TrafficRecord;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traite hors ligne un fichier de questions à travers l'AgentRouter, comme la session interactive.
+ *
+ * Le fichier d'entrée contient une question par ligne, en texte brut ou en JSON {"id": ..., "question": ...} ;
+ * sans id, le numéro de ligne en tient lieu. Chaque résultat (décision de routage, réponse, temps par étape)
+ * est ajouté au fichier JSONL de sortie dès qu'il est prêt. Ce fichier sert aussi de point de reprise :
+ * relancé sur la même sortie, le lot saute les questions déjà traitées et retente celles en erreur,
+ * celles dont l'agent a échoué ou était indisponible (la dernière ligne d'un id fait foi).
+ */
+public class BatchRunner {
+
+    private static final int PROGRESS_EVERY = 100;
+    // Issues passagères : la question est reposée à la reprise du lot
+    private static final Set<String> RETRIED_OUTCOMES = Set.of(RoutingOutcome.ERROR.name(),
+            RoutingOutcome.AGENT_FAILED.name(), RoutingOutcome.AGENT_UNAVAILABLE.name());
+
+    private final AgentRouter agentRouter;
+    private final int parallelism;
+    private final double maxQuestionsPerSecond;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @param parallelism nombre de questions traitées simultanément
+     * @param maxQuestionsPerSecond débit maximal de questions lancées, 0 pour ne pas limiter
+     */
+    public BatchRunner(AgentRouter agentRouter, int parallelism, double maxQuestionsPerSecond) {
+        if (maxQuestionsPerSecond < 0) {
+            throw new IllegalArgumentException("Le débit maximal ne peut pas être négatif: " + maxQuestionsPerSecond);
+        }
+        this.agentRouter = agentRouter;
+        this.parallelism = Math.max(1, parallelism);
+        this.maxQuestionsPerSecond = maxQuestionsPerSecond;
+    }
+
+    /**
+     * Traite toutes les questions du fichier d'entrée qui n'ont pas encore de résultat dans la sortie
+     * @param questionsPath fichier de questions
+     * @param outputPath fichier JSONL des résultats, complété s'il existe
+     * @return le bilan du lot
+     */
+    public BatchReport run(Path questionsPath, Path outputPath) throws IOException, InterruptedException {
+        Set<String> completed = readCompletedIds(outputPath);
+        if (!completed.isEmpty()) {
+            System.out.println("⏯️ Reprise: " + completed.size() + " questions déjà traitées dans " + outputPath);
+        }
+        if (outputPath.getParent() != null) {
+            Files.createDirectories(outputPath.getParent());
+        }
+
+        BatchReport report = new BatchReport();
+        // Les questions sont lues au fil de l'eau : au plus `parallelism` à la fois en cours, sans thread dédié
+        Semaphore slots = new Semaphore(parallelism);
+        long intervalNanos = maxQuestionsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxQuestionsPerSecond) : 0;
+        long nextStartNanos = System.nanoTime();
+
+        try (BufferedReader reader = Files.newBufferedReader(questionsPath, StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            List<CompletableFuture<?>> inFlight = new CopyOnWriteArrayList<>();
+            try {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    ObjectNode question;
+                    try {
+                        question = parseQuestion(line, lineNumber);
+                    } catch (IOException e) {
+                        System.err.println("⚠️ Ligne " + lineNumber + " ignorée: " + e.getMessage());
+                        report.recordFailure();
+                        continue;
+                    }
+                    if (completed.contains(question.get("id").asText())) {
+                        report.recordSkipped();
+                        continue;
+                    }
+
+                    slots.acquire();
+                    if (intervalNanos > 0) {
+                        long waitNanos = nextStartNanos - System.nanoTime();
+                        if (waitNanos > 0) {
+                            TimeUnit.NANOSECONDS.sleep(waitNanos);
+                        }
+                        nextStartNanos = Math.max(nextStartNanos, System.nanoTime()) + intervalNanos;
+                    }
+                    CompletableFuture<RoutingResult> routing =
+                            agentRouter.routeQuestionWithTraceAsync(question.get("question").asText());
+                    inFlight.add(routing);
+                    routing.whenComplete((result, error) -> {
+                        try {
+                            if (!routing.isCancelled()) {
+                                write(question, result, error, writer, report);
+                            }
+                        } finally {
+                            inFlight.remove(routing);
+                            slots.release();
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                // Lot interrompu : les questions en cours sont abandonnées, elles seront reprises
+                inFlight.forEach(routing -> routing.cancel(true));
+                throw e;
+            } finally {
+                // Attendre les questions en cours avant de fermer la sortie
+                slots.acquireUninterruptibly(parallelism);
+            }
+        }
+        report.finish();
+        return report;
+    }
+
+    private ObjectNode parseQuestion(String line, int lineNumber) throws IOException {
+        ObjectNode question = objectMapper.createObjectNode();
+        String trimmed = line.trim();
+        if (trimmed.startsWith("{")) {
+            JsonNode json = objectMapper.readTree(trimmed);
+            String text = json.path("question").asText("");
+            if (text.isBlank()) {
+                throw new IOException("Ligne " + lineNumber + " sans champ \"question\": " + trimmed);
+            }
+            question.put("id", json.hasNonNull("id") ? json.get("id").asText() : String.valueOf(lineNumber));
+            question.put("question", text);
+        } else {
+            question.put("id", String.valueOf(lineNumber));
+            question.put("question", trimmed);
+        }
+        return question;
+    }
+
+    private void write(ObjectNode question, RoutingResult routing, Throwable error, BufferedWriter writer,
+                       BatchReport report) {
+        ObjectNode result = question.deepCopy();
+        if (error == null) {
+            TrafficRecord trace = routing.getTrace();
+            result.put("agent", trace.getRecommendedAgent().getCode());
+            result.put("confidence", trace.getConfidenceScore());
+            result.put("outcome", trace.getOutcome().name());
+            result.put("answer", routing.getResponse());
+            result.put("guardMillis", trace.getGuardMillis());
+            result.put("agentMillis", trace.getAgentMillis());
+            result.put("totalMillis", trace.getTotalMillis());
+            report.record(trace);
+        } else {
+            result.put("outcome", RoutingOutcome.ERROR.name());
+            result.put("error", String.valueOf(AsyncTasks.unwrap(error).getMessage()));
+            report.recordFailure();
+        }
+
+        try {
+            String json = objectMapper.writeValueAsString(result);
+            synchronized (writer) {
+                writer.write(json);
+                writer.newLine();
+                // Chaque résultat écrit est acquis, même si le lot est interrompu
+                writer.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Impossible d'écrire le résultat de la question " + question.get("id").asText()
+                    + ": " + e.getMessage());
+        }
+
+        long done = report.getAnsweredCount();
+        if (done % PROGRESS_EVERY == 0) {
+            System.out.printf("📦 %d questions traitées (%.2f q/s)%n", done, report.getThroughput());
+        }
+    }
+
+    /**
+     * Relit la sortie d'un lot précédent : ids traités sans issue à retenter. Une dernière ligne tronquée
+     * par un arrêt brutal est retirée pour que la suite du fichier reste du JSONL valide.
+     */
+    private Set<String> readCompletedIds(Path outputPath) throws IOException {
+        Set<String> completed = new HashSet<>();
+        if (!Files.exists(outputPath)) {
+            return completed;
+        }
+        truncateIncompleteLine(outputPath);
+        try (BufferedReader reader = Files.newBufferedReader(outputPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode result;
+                try {
+                    result = objectMapper.readTree(line);
+                } catch (IOException e) {
+                    continue;
+                }
+                String id = result.path("id").asText();
+                if (RETRIED_OUTCOMES.contains(result.path("outcome").asText())) {
+                    completed.remove(id);
+                } else {
+                    completed.add(id);
+                }
+            }
+        }
+        return completed;
+    }
+
+    private static void truncateIncompleteLine(Path path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            long length = file.length();
+            long end = length;
+            while (end > 0) {
+                file.seek(end - 1);
+                if (file.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < length) {
+                file.setLength(end);
+                System.err.println("⚠️ Dernière ligne incomplète retirée de " + path);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.rag_sys.concurrent;
+
+import org.rag_sys.context.RequestContext;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Outils communs aux API asynchrones des agents.
+ *
+ * Les appels que LangChain4j ne sait faire que de façon bloquante (chaînes AiServices, recherche) tournent
+ * chacun sur un thread virtuel : bloqué sur une requête HTTP, il ne retient aucun thread système.
+ * Annuler le future interrompt ce thread, et le client HTTP du JDK abandonne alors la requête en cours.
+ * Le contexte de requête de l'appelant suit l'appel sur ce thread, jusqu'aux étapes qui s'enchaînent sur le future.
+ */
+public final class AsyncTasks {
+
+    private AsyncTasks() {
+    }
+
+    /**
+     * Lance un appel bloquant sur un thread virtuel
+     * @param name nom du thread, visible dans les dumps
+     * @return un future dont l'annulation interrompt l'appel
+     */
+    public static <T> CompletableFuture<T> supplyInterruptibly(String name, Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        RequestContext context = RequestContext.current();
+        Runnable call = () -> {
+            try {
+                future.complete(task.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        };
+        Thread thread = Thread.ofVirtual().name(name).unstarted(context != null ? () -> context.runWithin(call) : call);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                thread.interrupt();
+            }
+        });
+        thread.start();
+        return future;
+    }
+
+    /**
+     * Reporte l'annulation d'un future dérivé (thenApply, handle...) sur le future dont il dépend
+     * @return le future dérivé
+     */
+    public static <T> CompletableFuture<T> propagateCancellation(CompletableFuture<T> dependent, CompletableFuture<?> source) {
+        dependent.whenComplete((result, error) -> {
+            if (dependent.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Attend le résultat d'un future : c'est l'adaptateur des méthodes bloquantes.
+     * L'exception d'origine est relancée telle quelle ; si le thread appelant est interrompu, le future est annulé.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw asRuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Attente interrompue");
+        }
+    }
+
+    /**
+     * Retire les enveloppes CompletionException/ExecutionException ajoutées par les étapes d'un future
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * @return vrai si l'erreur vient d'une annulation ou d'une interruption plutôt que d'une défaillance
+     */
+    public static boolean isCancellation(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CancellationException || cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static RuntimeException asRuntimeException(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error fatal) {
+            throw fatal;
+        }
+        return new RuntimeException(cause.getMessage(), cause);
+    }
+}
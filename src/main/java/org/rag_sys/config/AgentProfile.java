@@ -0,0 +1,198 @@
+package org.rag_sys.config;
+
+import java.time.Duration;
+
+/**
+ * Réglages propres à un agent spécialisé (découpage des documents, réindexation, recherche, etc.)
+ * Immuable : chaque méthode with* retourne une nouvelle instance
+ */
+public class AgentProfile {
+
+    public static final int DEFAULT_CHUNK_MAX_TOKENS = 256;
+    public static final int DEFAULT_CHUNK_OVERLAP_TOKENS = 32;
+    public static final int DEFAULT_MAX_RESULTS = 3;
+    public static final int DEFAULT_CONTEXT_TOKEN_BUDGET = 1024;
+    public static final double DEFAULT_MIN_RELEVANCE_SCORE = 0.6;
+
+    private int chunkMaxTokens = DEFAULT_CHUNK_MAX_TOKENS;
+    private int chunkOverlapTokens = DEFAULT_CHUNK_OVERLAP_TOKENS;
+    private boolean liveReindexing = false;
+    private boolean hybridRetrieval = false;
+    private int maxResults = DEFAULT_MAX_RESULTS;
+    private int contextTokenBudget = DEFAULT_CONTEXT_TOKEN_BUDGET;
+    private VectorStoreMode vectorStoreMode = VectorStoreMode.PGVECTOR;
+    private boolean bulkLoad = false;
+    private boolean deferIndexCreation = false;
+    private VectorColumnType vectorColumnType = VectorColumnType.VECTOR;
+    private boolean adaptiveRetrieval = false;
+    private double minRelevanceScore = DEFAULT_MIN_RELEVANCE_SCORE;
+    private Duration generationLatencyBudget;
+    private double nearDuplicateThreshold = 0;
+
+    public AgentProfile() {
+    }
+
+    private AgentProfile copy() {
+        AgentProfile copy = new AgentProfile();
+        copy.chunkMaxTokens = chunkMaxTokens;
+        copy.chunkOverlapTokens = chunkOverlapTokens;
+        copy.liveReindexing = liveReindexing;
+        copy.hybridRetrieval = hybridRetrieval;
+        copy.maxResults = maxResults;
+        copy.contextTokenBudget = contextTokenBudget;
+        copy.vectorStoreMode = vectorStoreMode;
+        copy.bulkLoad = bulkLoad;
+        copy.deferIndexCreation = deferIndexCreation;
+        copy.vectorColumnType = vectorColumnType;
+        copy.adaptiveRetrieval = adaptiveRetrieval;
+        copy.minRelevanceScore = minRelevanceScore;
+        copy.generationLatencyBudget = generationLatencyBudget;
+        copy.nearDuplicateThreshold = nearDuplicateThreshold;
+        return copy;
+    }
+
+    public AgentProfile withChunking(int maxTokens, int overlapTokens) {
+        if (maxTokens <= 0) {
+            throw new IllegalArgumentException("La taille de segment doit être positive: " + maxTokens);
+        }
+        if (overlapTokens < 0 || overlapTokens >= maxTokens) {
+            throw new IllegalArgumentException("Le recouvrement doit être compris entre 0 et la taille de segment: " + overlapTokens);
+        }
+        AgentProfile copy = copy();
+        copy.chunkMaxTokens = maxTokens;
+        copy.chunkOverlapTokens = overlapTokens;
+        return copy;
+    }
+
+    /**
+     * Active ou non la surveillance du répertoire de documents de l'agent
+     */
+    public AgentProfile withLiveReindexing(boolean enabled) {
+        AgentProfile copy = copy();
+        copy.liveReindexing = enabled;
+        return copy;
+    }
+
+    /**
+     * Active ou non la recherche hybride (BM25 + vecteurs) pour cet agent
+     */
+    public AgentProfile withHybridRetrieval(boolean enabled) {
+        AgentProfile copy = copy();
+        copy.hybridRetrieval = enabled;
+        return copy;
+    }
+
+    public AgentProfile withMaxResults(int maxResults) {
+        if (maxResults <= 0) {
+            throw new IllegalArgumentException("Le nombre de résultats doit être positif: " + maxResults);
+        }
+        AgentProfile copy = copy();
+        copy.maxResults = maxResults;
+        return copy;
+    }
+
+    /**
+     * Nombre maximal de tokens de contexte injectés dans le prompt de l'agent
+     */
+    public AgentProfile withContextTokenBudget(int contextTokenBudget) {
+        if (contextTokenBudget <= 0) {
+            throw new IllegalArgumentException("Le budget de contexte doit être positif: " + contextTokenBudget);
+        }
+        AgentProfile copy = copy();
+        copy.contextTokenBudget = contextTokenBudget;
+        return copy;
+    }
+
+    public AgentProfile withVectorStoreMode(VectorStoreMode vectorStoreMode) {
+        if (vectorStoreMode == null) {
+            throw new IllegalArgumentException("Le mode de stockage des vecteurs est obligatoire");
+        }
+        AgentProfile copy = copy();
+        copy.vectorStoreMode = vectorStoreMode;
+        return copy;
+    }
+
+    /**
+     * Active l'écriture des segments par COPY binaire, et éventuellement la création
+     * de l'index vectoriel après le chargement initial plutôt qu'avant
+     */
+    public AgentProfile withBulkLoad(boolean enabled, boolean deferIndexCreation) {
+        AgentProfile copy = copy();
+        copy.bulkLoad = enabled;
+        copy.deferIndexCreation = enabled && deferIndexCreation;
+        return copy;
+    }
+
+    /**
+     * Type de la colonne embedding dans Postgres : halfvec divise par deux la taille de la table et de l'index
+     */
+    public AgentProfile withVectorColumnType(VectorColumnType vectorColumnType) {
+        if (vectorColumnType == null) {
+            throw new IllegalArgumentException("Le type de colonne vectorielle est obligatoire");
+        }
+        AgentProfile copy = copy();
+        copy.vectorColumnType = vectorColumnType;
+        return copy;
+    }
+
+    /**
+     * Active la recherche adaptative : le nombre de segments (au plus maxResults) est choisi à chaque question
+     * d'après la distribution des scores, le budget de contexte et le temps de génération observé
+     * @param minRelevanceScore score en dessous duquel un segment n'est pas retenu (le premier l'est toujours)
+     * @param generationLatencyBudget durée de génération visée, ou null pour ne pas la limiter
+     */
+    public AgentProfile withAdaptiveRetrieval(double minRelevanceScore, Duration generationLatencyBudget) {
+        if (minRelevanceScore < 0 || minRelevanceScore > 1) {
+            throw new IllegalArgumentException("Le score minimal doit être compris entre 0 et 1: " + minRelevanceScore);
+        }
+        if (generationLatencyBudget != null && (generationLatencyBudget.isNegative() || generationLatencyBudget.isZero())) {
+            throw new IllegalArgumentException("Le budget de latence doit être positif: " + generationLatencyBudget);
+        }
+        AgentProfile copy = copy();
+        copy.adaptiveRetrieval = true;
+        copy.minRelevanceScore = minRelevanceScore;
+        copy.generationLatencyBudget = generationLatencyBudget;
+        return copy;
+    }
+
+    /**
+     * Écarte à l'ingestion les segments quasi identiques à un segment déjà retenu (MinHash/LSH),
+     * et reprend l'embedding d'un segment quasi identique déjà ingéré par un autre agent
+     * @param threshold similarité de Jaccard estimée à partir de laquelle deux segments sont des doublons
+     */
+    public AgentProfile withNearDuplicateDetection(double threshold) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("Le seuil de similarité doit être compris entre 0 et 1: " + threshold);
+        }
+        AgentProfile copy = copy();
+        copy.nearDuplicateThreshold = threshold;
+        return copy;
+    }
+
+    public int getChunkMaxTokens() { return chunkMaxTokens; }
+    public int getChunkOverlapTokens() { return chunkOverlapTokens; }
+    public boolean isLiveReindexing() { return liveReindexing; }
+    public boolean isHybridRetrieval() { return hybridRetrieval; }
+    public int getMaxResults() { return maxResults; }
+    public int getContextTokenBudget() { return contextTokenBudget; }
+    public VectorStoreMode getVectorStoreMode() { return vectorStoreMode; }
+    public boolean isBulkLoad() { return bulkLoad; }
+    public boolean isDeferIndexCreation() { return deferIndexCreation; }
+    public VectorColumnType getVectorColumnType() { return vectorColumnType; }
+    public boolean isAdaptiveRetrieval() { return adaptiveRetrieval; }
+    public double getMinRelevanceScore() { return minRelevanceScore; }
+    public Duration getGenerationLatencyBudget() { return generationLatencyBudget; }
+    public boolean isNearDuplicateDetection() { return nearDuplicateThreshold > 0; }
+    public double getNearDuplicateThreshold() { return nearDuplicateThreshold; }
+
+    @Override
+    public String toString() {
+        return String.format("AgentProfile{chunk=%d tokens, overlap=%d tokens, liveReindexing=%s, hybrid=%s, maxResults=%d, contextBudget=%d tokens, store=%s, bulkLoad=%s, deferIndex=%s, column=%s, adaptive=%s, dedup=%s}",
+                chunkMaxTokens, chunkOverlapTokens, liveReindexing, hybridRetrieval, maxResults, contextTokenBudget,
+                vectorStoreMode, bulkLoad, deferIndexCreation, vectorColumnType.sqlType(),
+                adaptiveRetrieval ? "score≥" + minRelevanceScore
+                        + (generationLatencyBudget != null ? ", " + generationLatencyBudget.toMillis() + " ms" : "")
+                        : "non",
+                nearDuplicateThreshold > 0 ? "jaccard≥" + nearDuplicateThreshold : "non");
+    }
+}
@@ -0,0 +1,11 @@
+package org.rag_sys.config;
+
+/**
+ * Manière dont l'agent de garde interroge son modèle
+ */
+public enum GuardProfile {
+    /** Prompt complet, raisonnement rédigé pour chaque question */
+    DETAILED,
+    /** Prompt court, sortie JSON contrainte par un schéma et plafonnée ; raisonnement rédigé seulement pour un rejet */
+    COMPACT
+}
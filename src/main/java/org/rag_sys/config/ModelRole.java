@@ -0,0 +1,13 @@
+package org.rag_sys.config;
+
+/**
+ * Usage d'un modèle Ollama, chacun pouvant être servi par ses propres instances
+ */
+public enum ModelRole {
+    /** Analyse et routage des questions */
+    GUARD,
+    /** Génération des réponses des agents spécialisés */
+    CHAT,
+    /** Calcul des embeddings à l'ingestion et à la recherche */
+    EMBEDDING
+}
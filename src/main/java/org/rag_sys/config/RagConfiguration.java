@@ -1,5 +1,9 @@
 package org.rag_sys.config;
 
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Configuration de l'application RAG
  * Principe SRP : Se concentre uniquement sur la configuration
@@ -25,6 +29,10 @@ public class RagConfiguration {
     private final String postgresPassword;
     private final String postgresDatabase;
     private final String postgresTable;
+    private final AgentProfile agentProfile;
+    private final Map<ModelRole, List<String>> ollamaBackends;
+    private final GuardProfile guardProfile;
+    private final int fanOutAgents;
     
     public RagConfiguration() {
         this(DEFAULT_MODEL_NAME, DEFAULT_EMBEDDING_MODEL, DEFAULT_OLLAMA_BASE_URL,
@@ -35,6 +43,16 @@ public class RagConfiguration {
     public RagConfiguration(String modelName, String embeddingModel, String ollamaBaseUrl,
                            String postgresHost, int postgresPort, String postgresUser,
                            String postgresPassword, String postgresDatabase, String postgresTable) {
+        this(modelName, embeddingModel, ollamaBaseUrl, postgresHost, postgresPort, postgresUser,
+             postgresPassword, postgresDatabase, postgresTable, new AgentProfile(), new EnumMap<>(ModelRole.class),
+             GuardProfile.DETAILED, 1);
+    }
+
+    private RagConfiguration(String modelName, String embeddingModel, String ollamaBaseUrl,
+                             String postgresHost, int postgresPort, String postgresUser,
+                             String postgresPassword, String postgresDatabase, String postgresTable,
+                             AgentProfile agentProfile, Map<ModelRole, List<String>> ollamaBackends,
+                             GuardProfile guardProfile, int fanOutAgents) {
         this.modelName = modelName;
         this.embeddingModel = embeddingModel;
         this.ollamaBaseUrl = ollamaBaseUrl;
@@ -44,6 +62,10 @@ public class RagConfiguration {
         this.postgresPassword = postgresPassword;
         this.postgresDatabase = postgresDatabase;
         this.postgresTable = postgresTable;
+        this.agentProfile = agentProfile;
+        this.ollamaBackends = ollamaBackends;
+        this.guardProfile = guardProfile;
+        this.fanOutAgents = fanOutAgents;
     }
 
     public RagConfiguration(String postgresHost, int postgresPort, String postgresUser, String postgresPassword, String postgresDatabase, String postgresTable)
@@ -51,6 +73,61 @@ public class RagConfiguration {
         this(DEFAULT_MODEL_NAME, DEFAULT_EMBEDDING_MODEL, DEFAULT_OLLAMA_BASE_URL,
              postgresHost, postgresPort, postgresUser, postgresPassword, postgresDatabase, postgresTable);
     }
+
+    /**
+     * Retourne une copie de cette configuration avec les réglages propres à un agent
+     */
+    public RagConfiguration withAgentProfile(AgentProfile agentProfile) {
+        return new RagConfiguration(modelName, embeddingModel, ollamaBaseUrl, postgresHost, postgresPort,
+                postgresUser, postgresPassword, postgresDatabase, postgresTable, agentProfile, ollamaBackends, guardProfile, fanOutAgents);
+    }
+
+    /**
+     * Retourne une copie de cette configuration où les requêtes d'un rôle sont réparties entre plusieurs instances Ollama
+     * @param backends URL de base des instances, chacune servant le modèle du rôle
+     */
+    public RagConfiguration withOllamaBackends(ModelRole role, List<String> backends) {
+        if (backends == null || backends.isEmpty()) {
+            throw new IllegalArgumentException("Au moins une instance Ollama est requise pour le rôle " + role);
+        }
+        Map<ModelRole, List<String>> copy = new EnumMap<>(ModelRole.class);
+        copy.putAll(ollamaBackends);
+        copy.put(role, List.copyOf(backends));
+        return new RagConfiguration(modelName, embeddingModel, ollamaBaseUrl, postgresHost, postgresPort,
+                postgresUser, postgresPassword, postgresDatabase, postgresTable, agentProfile, copy, guardProfile, fanOutAgents);
+    }
+
+    /**
+     * Retourne une copie de cette configuration avec un autre profil d'agent de garde
+     */
+    public RagConfiguration withGuardProfile(GuardProfile guardProfile) {
+        return new RagConfiguration(modelName, embeddingModel, ollamaBaseUrl, postgresHost, postgresPort,
+                postgresUser, postgresPassword, postgresDatabase, postgresTable, agentProfile, ollamaBackends, guardProfile, fanOutAgents);
+    }
+
+    /**
+     * Retourne une copie de cette configuration où une question ambiguë est posée en parallèle à plusieurs agents
+     * @param fanOutAgents nombre maximal d'agents interrogés, 1 pour toujours router vers un seul agent
+     */
+    public RagConfiguration withFanOutAgents(int fanOutAgents) {
+        if (fanOutAgents < 1) {
+            throw new IllegalArgumentException("Au moins un agent doit être interrogé: " + fanOutAgents);
+        }
+        return new RagConfiguration(modelName, embeddingModel, ollamaBaseUrl, postgresHost, postgresPort,
+                postgresUser, postgresPassword, postgresDatabase, postgresTable, agentProfile, ollamaBackends, guardProfile,
+                fanOutAgents);
+    }
+
+    /**
+     * Retourne une copie de cette configuration avec les instances Ollama d'une autre configuration
+     */
+    public RagConfiguration withOllamaBackendsOf(RagConfiguration other) {
+        RagConfiguration result = this;
+        for (ModelRole role : ModelRole.values()) {
+            result = result.withOllamaBackends(role, other.getOllamaBackends(role));
+        }
+        return result;
+    }
     
     // Getters
     public String getModelName() { return modelName; }
@@ -62,4 +139,14 @@ public class RagConfiguration {
     public String getPostgresPassword() { return postgresPassword; }
     public String getPostgresDatabaseName() { return postgresDatabase; }
     public String getPostgresTable() { return postgresTable; }
+    public AgentProfile getAgentProfile() { return agentProfile; }
+    public GuardProfile getGuardProfile() { return guardProfile; }
+    public int getFanOutAgents() { return fanOutAgents; }
+
+    /**
+     * @return les instances Ollama d'un rôle, par défaut la seule ollamaBaseUrl
+     */
+    public List<String> getOllamaBackends(ModelRole role) {
+        return ollamaBackends.getOrDefault(role, List.of(ollamaBaseUrl));
+    }
 }
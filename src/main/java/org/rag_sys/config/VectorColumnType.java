@@ -0,0 +1,49 @@
+package org.rag_sys.config;
+
+/**
+ * Type de la colonne pgvector qui stocke les embeddings d'un agent
+ */
+public enum VectorColumnType {
+    /** float32 : 4 octets par dimension */
+    VECTOR("vector", "vector_cosine_ops", 4),
+    /** float16 : 2 octets par dimension, table et index deux fois plus petits */
+    HALFVEC("halfvec", "halfvec_cosine_ops", 2);
+
+    private final String sqlType;
+    private final String cosineOperatorClass;
+    private final int bytesPerDimension;
+
+    VectorColumnType(String sqlType, String cosineOperatorClass, int bytesPerDimension) {
+        this.sqlType = sqlType;
+        this.cosineOperatorClass = cosineOperatorClass;
+        this.bytesPerDimension = bytesPerDimension;
+    }
+
+    public String sqlType() {
+        return sqlType;
+    }
+
+    public String columnDefinition(int dimension) {
+        return sqlType + "(" + dimension + ")";
+    }
+
+    public String cosineOperatorClass() {
+        return cosineOperatorClass;
+    }
+
+    public int bytesPerDimension() {
+        return bytesPerDimension;
+    }
+
+    /**
+     * @return le type correspondant au nom de type Postgres (udt_name), ou null s'il n'est pas vectoriel
+     */
+    public static VectorColumnType fromSqlType(String sqlType) {
+        for (VectorColumnType type : values()) {
+            if (type.sqlType.equalsIgnoreCase(sqlType)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,13 @@
+package org.rag_sys.config;
+
+/**
+ * Stockage des embeddings d'un agent
+ */
+public enum VectorStoreMode {
+    /** Table pgvector en float32 */
+    PGVECTOR,
+    /** Table pgvector commune partitionnée par agent, pool de connexions partagé */
+    PARTITIONED,
+    /** Store en mémoire à codes int8/binaires, vecteurs float32 dans un fichier projeté */
+    QUANTIZED
+}
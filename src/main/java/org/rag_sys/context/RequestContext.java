@@ -0,0 +1,122 @@
+package org.rag_sys.context;
+
+import dev.langchain4j.data.embedding.Embedding;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * État d'une question, du routeur jusqu'au retriever de chaque agent consulté.
+ *
+ * Les chaînes AiServices n'exposent que la question : le contexte est donc lié au thread qui exécute
+ * la chaîne de l'agent ({@link #callWithin}), et les composants qui en ont besoin le retrouvent
+ * par {@link #current()}. Il garde les embeddings déjà calculés pour la question, de sorte que chaque
+ * texte ne soit embarqué qu'une fois par requête, même quand plusieurs agents répondent.
+ * Il porte aussi la session de conversation de la question, ou aucune pour une question isolée (lots, rejeu).
+ */
+public final class RequestContext {
+
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private record EmbeddingKey(Object model, String text) {
+    }
+
+    private final String requestId;
+    private final String sessionId;
+    private final Map<EmbeddingKey, Embedding> embeddings = new ConcurrentHashMap<>();
+    private final Map<Object, Object> attributes = new ConcurrentHashMap<>();
+
+    private RequestContext(String requestId, String sessionId) {
+        this.requestId = requestId;
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * @return un nouveau contexte hors session, avec un identifiant unique dans ce processus
+     */
+    public static RequestContext create() {
+        return create(null);
+    }
+
+    /**
+     * @param sessionId la conversation dont la question fait partie, ou null pour une question isolée
+     */
+    public static RequestContext create(String sessionId) {
+        return new RequestContext("q" + NEXT_ID.incrementAndGet(), sessionId);
+    }
+
+    /**
+     * @return le contexte de la requête traitée par ce thread, ou null hors requête (ingestion, benchmarks)
+     */
+    public static RequestContext current() {
+        return CURRENT.get();
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * @return la session de conversation, ou null pour une question isolée
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * État propre à la requête d'un composant (mémoire de conversation d'une question isolée, etc.)
+     * @return la valeur associée à la clé, créée au premier appel
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T attribute(Object key, Function<Object, T> factory) {
+        return (T) attributes.computeIfAbsent(key, factory);
+    }
+
+    /**
+     * Exécute une tâche avec ce contexte comme contexte courant du thread
+     */
+    public void runWithin(Runnable task) {
+        callWithin(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Exécute un appel avec ce contexte comme contexte courant du thread
+     */
+    public <T> T callWithin(Supplier<T> call) {
+        RequestContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * @param model le modèle d'embedding, les vecteurs de deux modèles n'étant pas interchangeables
+     * @return l'embedding déjà calculé pour ce texte pendant la requête, ou null
+     */
+    public Embedding getEmbedding(Object model, String text) {
+        return embeddings.get(new EmbeddingKey(model, text));
+    }
+
+    public void putEmbedding(Object model, String text, Embedding embedding) {
+        embeddings.put(new EmbeddingKey(model, text), embedding);
+    }
+
+    @Override
+    public String toString() {
+        return requestId;
+    }
+}
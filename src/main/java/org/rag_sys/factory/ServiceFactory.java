@@ -1,7 +1,9 @@
 package org.rag_sys.factory;
 
 import org.rag_sys.agent.AgentRouter;
+import org.rag_sys.config.ModelRole;
 import org.rag_sys.config.RagConfiguration;
+import org.rag_sys.config.VectorStoreMode;
 import org.rag_sys.model.DbVectorModel;
 import org.rag_sys.services.*;
 import org.rag_sys.services.impl.*;
@@ -19,28 +21,42 @@ public class ServiceFactory {
         this.configuration = configuration;
     }
     
+    public RagConfiguration getConfiguration() {
+        return configuration;
+    }
+    
     public DocumentLoaderService createDocumentLoaderService() {
         return new FileSystemDocumentLoaderService();
     }
     
     public EmbeddingModelService createEmbeddingModelService() {
-        return new OllamaEmbeddingModelService(configuration.getOllamaBaseUrl(), true);
+        // Le détail des requêtes d'embedding (-Drag.log.ollamaRequests) est écrit de façon synchrone par LangChain4j
+        return new OllamaEmbeddingModelService(configuration.getOllamaBackends(ModelRole.EMBEDDING),
+                Boolean.getBoolean("rag.log.ollamaRequests"));
     }
     
     public VectorStoreService createVectorStoreService() {
-        return new PgVectorStoreService(
-            new DbVectorModel(
-                    configuration.getPostgresDatabaseName(),
-                    configuration.getPostgresUser(),
-                    configuration.getPostgresPassword(),
-                    configuration.getPostgresHost(),
-                    configuration.getPostgresPort(),
-                    configuration.getPostgresTable())
-        );
+        DbVectorModel dbVectorModel = new DbVectorModel(
+                configuration.getPostgresDatabaseName(),
+                configuration.getPostgresUser(),
+                configuration.getPostgresPassword(),
+                configuration.getPostgresHost(),
+                configuration.getPostgresPort(),
+                configuration.getPostgresTable());
+        VectorStoreMode mode = configuration.getAgentProfile().getVectorStoreMode();
+        if (mode == VectorStoreMode.QUANTIZED) {
+            return new QuantizedVectorStoreService(dbVectorModel, configuration.getAgentProfile());
+        }
+        if (mode == VectorStoreMode.PARTITIONED) {
+            return new PartitionedPgVectorStoreService(dbVectorModel, configuration.getAgentProfile());
+        }
+        return new PgVectorStoreService(dbVectorModel, configuration.getAgentProfile());
     }
     
     public RagService createRagService() {
-        return new OllamaRagService(configuration.getOllamaBaseUrl(), 0.2, 10);
+        // La table identifie l'agent de façon stable : ses historiques survivent au redémarrage
+        return new OllamaRagService(configuration.getOllamaBackends(ModelRole.CHAT), 0.2, 10, configuration.getAgentProfile(),
+                configuration.getPostgresTable());
     }
 
     
@@ -0,0 +1,107 @@
+package org.rag_sys.indexing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Surveillance d'un répertoire de documents, sous-répertoires compris, à ouvrir avant l'ingestion initiale.
+ * Chaque répertoire est surveillé avant que ses fichiers soient relevés : un fichier ajouté ou modifié
+ * pendant le chargement produit un événement, que l'indexeur à chaud traite une fois démarré,
+ * et l'empreinte relevée à l'ouverture ne peut pas masquer une modification faite après.
+ */
+public class DirectoryWatch implements Closeable {
+
+    private final Path directory;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Map<Path, FileFingerprint> initialFiles = new HashMap<>();
+
+    private DirectoryWatch(Path directory) throws IOException {
+        this.directory = directory;
+        this.watchService = directory.getFileSystem().newWatchService();
+    }
+
+    /**
+     * Ouvre la surveillance et relève l'empreinte des fichiers présents
+     */
+    public static DirectoryWatch open(Path directory) throws IOException {
+        DirectoryWatch watch = new DirectoryWatch(directory);
+        try {
+            for (Path file : watch.registerTree(directory)) {
+                watch.initialFiles.put(file, FileFingerprint.of(file));
+            }
+            return watch;
+        } catch (IOException | RuntimeException e) {
+            watch.close();
+            throw e;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return l'empreinte des fichiers à l'ouverture, celle des fichiers lus par l'ingestion initiale
+     */
+    Map<Path, FileFingerprint> getInitialFiles() {
+        return initialFiles;
+    }
+
+    /**
+     * Surveille un répertoire et tous ses sous-répertoires
+     * @return les fichiers qu'ils contiennent
+     */
+    List<Path> registerTree(Path root) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isDirectory(path)) {
+                    if (!watchedDirectories.containsValue(path)) {
+                        watchedDirectories.put(path.register(watchService,
+                                StandardWatchEventKinds.ENTRY_CREATE,
+                                StandardWatchEventKinds.ENTRY_MODIFY,
+                                StandardWatchEventKinds.ENTRY_DELETE), path);
+                    }
+                } else if (Files.isRegularFile(path)) {
+                    files.add(path);
+                }
+            }
+        }
+        return files;
+    }
+
+    WatchKey poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return watchService.poll(timeout, unit);
+    }
+
+    /**
+     * @return le répertoire surveillé par cette clé, ou null s'il est inconnu
+     */
+    Path watchedDirectory(WatchKey key) {
+        return watchedDirectories.get(key);
+    }
+
+    /**
+     * Oublie un répertoire qui n'est plus surveillé (supprimé)
+     */
+    void forget(WatchKey key) {
+        watchedDirectories.remove(key);
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,19 @@
+package org.rag_sys.indexing;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Taille et date de modification d'un fichier : un fichier dont l'empreinte n'a pas changé n'est pas réembarqué
+ */
+record FileFingerprint(long size, long lastModifiedMillis) {
+
+    static FileFingerprint of(Path file) {
+        try {
+            return new FileFingerprint(Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        } catch (IOException e) {
+            return new FileFingerprint(-1, -1);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.rag_sys.indexing;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compteurs de la réindexation à chaud : volume indexé, délai entre la modification
+ * d'un fichier et sa disponibilité dans le store, et débit d'indexation
+ */
+public class IndexingStats {
+
+    private final AtomicInteger filesIndexed = new AtomicInteger();
+    private final AtomicInteger filesRemoved = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicLong segmentsIndexed = new AtomicLong();
+    private final AtomicLong indexingNanos = new AtomicLong();
+    private final AtomicLong totalLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private volatile long lastLagMillis;
+
+    void recordIndexed(int segments, long indexingDurationNanos, long lagMillis) {
+        filesIndexed.incrementAndGet();
+        segmentsIndexed.addAndGet(segments);
+        indexingNanos.addAndGet(indexingDurationNanos);
+        recordLag(lagMillis);
+    }
+
+    void recordRemoved(long lagMillis) {
+        filesRemoved.incrementAndGet();
+        recordLag(lagMillis);
+    }
+
+    void recordFailure() {
+        failures.incrementAndGet();
+    }
+
+    private void recordLag(long lagMillis) {
+        lastLagMillis = lagMillis;
+        totalLagMillis.addAndGet(lagMillis);
+        maxLagMillis.accumulateAndGet(lagMillis, Math::max);
+    }
+
+    public int getFilesIndexed() { return filesIndexed.get(); }
+    public int getFilesRemoved() { return filesRemoved.get(); }
+    public int getFailures() { return failures.get(); }
+    public long getSegmentsIndexed() { return segmentsIndexed.get(); }
+    public long getLastLagMillis() { return lastLagMillis; }
+    public long getMaxLagMillis() { return maxLagMillis.get(); }
+
+    public double getAverageLagMillis() {
+        int changes = filesIndexed.get() + filesRemoved.get();
+        return changes == 0 ? 0 : (double) totalLagMillis.get() / changes;
+    }
+
+    /**
+     * Débit d'indexation en segments par seconde de travail effectif
+     */
+    public double getSegmentsPerSecond() {
+        long nanos = indexingNanos.get();
+        return nanos == 0 ? 0 : segmentsIndexed.get() / (nanos / 1e9);
+    }
+}
@@ -0,0 +1,266 @@
+package org.rag_sys.indexing;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.rag_sys.agent.AgentType;
+import org.rag_sys.metrics.StatsProvider;
+import org.rag_sys.services.DocumentLoaderService;
+import org.rag_sys.services.VectorStoreService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Surveille le répertoire de documents d'un agent, sous-répertoires compris, et réindexe à chaud
+ * les fichiers ajoutés, modifiés ou supprimés, sans redémarrage et pendant que les requêtes continuent.
+ * Les segments d'un fichier sont identifiés par son chemin relatif au répertoire de l'agent.
+ *
+ * Les événements sont regroupés par fichier et traités après une période de calme (debounce),
+ * et seuls les fichiers dont la taille ou la date de modification a changé sont réembarqués.
+ * Un fichier dont des passages avaient été écartés comme doublons d'un fichier modifié ou retiré
+ * est réindexé à son tour, pour que ces passages reviennent.
+ *
+ * La surveillance ({@link DirectoryWatch}) est ouverte avant l'ingestion initiale : les fichiers ajoutés
+ * ou modifiés pendant le démarrage sont indexés dès que l'indexeur démarre. Un gros fichier est réindexé
+ * par parties, comme au chargement initial.
+ */
+public class LiveDirectoryIndexer implements StatsProvider, Closeable {
+
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 750;
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final AgentType agentType;
+    private final DirectoryWatch watch;
+    private final Path directory;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final EmbeddingModel embeddingModel;
+    private final VectorStoreService vectorStoreService;
+    private final DocumentLoaderService documentLoaderService;
+    private final long debounceMillis;
+    private final IndexingStats stats = new IndexingStats();
+
+    private final Map<Path, FileFingerprint> indexedFiles = new HashMap<>();
+    private final Map<Path, PendingChange> pendingChanges = new HashMap<>();
+    private Thread worker;
+
+    /**
+     * @param watch surveillance du répertoire de l'agent, ouverte avant l'ingestion initiale ; fermée avec l'indexeur
+     */
+    public LiveDirectoryIndexer(AgentType agentType, DirectoryWatch watch,
+                                EmbeddingStore<TextSegment> embeddingStore, EmbeddingModel embeddingModel,
+                                VectorStoreService vectorStoreService, DocumentLoaderService documentLoaderService) {
+        this(agentType, watch, embeddingStore, embeddingModel, vectorStoreService, documentLoaderService,
+             DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public LiveDirectoryIndexer(AgentType agentType, DirectoryWatch watch,
+                                EmbeddingStore<TextSegment> embeddingStore, EmbeddingModel embeddingModel,
+                                VectorStoreService vectorStoreService, DocumentLoaderService documentLoaderService,
+                                long debounceMillis) {
+        this.agentType = agentType;
+        this.watch = watch;
+        this.directory = watch.getDirectory();
+        this.embeddingStore = embeddingStore;
+        this.embeddingModel = embeddingModel;
+        this.vectorStoreService = vectorStoreService;
+        this.documentLoaderService = documentLoaderService;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Démarre la réindexation ; les fichiers présents à l'ouverture de la surveillance sont considérés
+     * comme indexés, ceux qui ont changé depuis sont traités par les événements reçus entre-temps
+     */
+    public synchronized void start() {
+        if (worker != null) return;
+
+        indexedFiles.putAll(watch.getInitialFiles());
+
+        worker = new Thread(this::watchLoop, "live-indexer-" + agentType.getCode());
+        worker.setDaemon(true);
+        worker.start();
+        System.out.println("👀 Réindexation à chaud active pour l'agent " + agentType.getCode() + ": " + directory);
+    }
+
+    private void watchLoop() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watch.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    collectEvents(key);
+                }
+                processSettledChanges();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Arrêt demandé
+        }
+    }
+
+    /**
+     * Surveille un répertoire apparu en cours de surveillance et met ses fichiers en attente d'indexation
+     */
+    private void registerTree(Path root, long now) throws IOException {
+        for (Path file : watch.registerTree(root)) {
+            pendingChanges.computeIfAbsent(file, path -> new PendingChange(now)).lastEventMillis = now;
+        }
+    }
+
+    private void collectEvents(WatchKey key) {
+        long now = System.currentTimeMillis();
+        Path watched = watch.watchedDirectory(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || watched == null) {
+                // Des événements ont été perdus : on compare toute l'arborescence à l'état connu
+                rescanDirectory(now);
+                continue;
+            }
+            Path file = watched.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(file)) {
+                // Nouveau sous-répertoire (ou déplacé ici) : le surveiller et indexer ce qu'il contient déjà
+                try {
+                    registerTree(file, now);
+                } catch (IOException e) {
+                    System.err.println("⚠️ Impossible de surveiller " + file + ": " + e.getMessage());
+                }
+                continue;
+            }
+            pendingChanges.computeIfAbsent(file, path -> new PendingChange(now)).lastEventMillis = now;
+        }
+        if (!key.reset()) {
+            // Répertoire supprimé : ses fichiers sont retirés par l'événement de suppression du parent
+            watch.forget(key);
+        }
+    }
+
+    private void rescanDirectory(long now) {
+        try {
+            registerTree(directory, now);
+        } catch (IOException e) {
+            System.err.println("⚠️ Impossible de relister " + directory + ": " + e.getMessage());
+        }
+        indexedFiles.keySet().forEach(file -> pendingChanges.computeIfAbsent(file, path -> new PendingChange(now)));
+    }
+
+    private void processSettledChanges() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, PendingChange>> iterator = pendingChanges.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingChange> entry = iterator.next();
+            if (now - entry.getValue().lastEventMillis < debounceMillis) {
+                continue;
+            }
+            iterator.remove();
+            applyChange(entry.getKey(), entry.getValue().firstEventMillis);
+        }
+        queueOrphanedDocuments(now);
+    }
+
+    /**
+     * Met en attente les fichiers dont les passages écartés comme doublons ont perdu leur original
+     */
+    private void queueOrphanedDocuments(long now) {
+        for (String relativePath : vectorStoreService.takeDocumentsToReindex()) {
+            Path file = directory.resolve(relativePath);
+            // Contenu inchangé : l'empreinte est oubliée pour forcer le réembarquement
+            if (indexedFiles.remove(file) != null) {
+                System.out.println("♻️ [" + agentType.getCode() + "] Réindexation de " + relativePath
+                        + " : des passages écartés comme doublons reviennent");
+                pendingChanges.computeIfAbsent(file, path -> new PendingChange(now));
+            }
+        }
+    }
+
+    private void applyChange(Path file, long firstEventMillis) {
+        try {
+            if (Files.isDirectory(file)) {
+                return;
+            }
+            if (!Files.isRegularFile(file)) {
+                // Fichier supprimé, ou répertoire supprimé avec tous les fichiers qu'il contenait
+                List<Path> removed = indexedFiles.keySet().stream().filter(indexed -> indexed.startsWith(file)).toList();
+                for (Path indexed : removed) {
+                    indexedFiles.remove(indexed);
+                    vectorStoreService.removeDocument(embeddingStore, relativePath(indexed));
+                    stats.recordRemoved(System.currentTimeMillis() - firstEventMillis);
+                    System.out.println("🗑️ [" + agentType.getCode() + "] Document retiré de l'index: " + relativePath(indexed));
+                }
+                return;
+            }
+
+            FileFingerprint fingerprint = FileFingerprint.of(file);
+            if (fingerprint.equals(indexedFiles.get(file))) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            int segments;
+            try (Stream<Document> parts = documentLoaderService.streamDocument(directory.toString(), file.toString())) {
+                segments = vectorStoreService.upsertDocument(embeddingStore, embeddingModel, relativePath(file), parts);
+            }
+            indexedFiles.put(file, fingerprint);
+            stats.recordIndexed(segments, System.nanoTime() - start, System.currentTimeMillis() - firstEventMillis);
+            System.out.println("🔄 [" + agentType.getCode() + "] Document réindexé: " + relativePath(file)
+                    + " (" + segments + " segments)");
+        } catch (Exception e) {
+            stats.recordFailure();
+            System.err.println("⚠️ [" + agentType.getCode() + "] Échec de la réindexation de " + file + ": " + e.getMessage());
+        }
+    }
+
+    private String relativePath(Path file) {
+        return DocumentLoaderService.relativePath(directory, file);
+    }
+
+    public IndexingStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "🔄 RÉINDEXATION " + agentType.getCode().toUpperCase();
+    }
+
+    @Override
+    public List<String> getStatsLines() {
+        return List.of(
+                String.format("Fichiers réindexés: %d, retirés: %d, échecs: %d",
+                        stats.getFilesIndexed(), stats.getFilesRemoved(), stats.getFailures()),
+                String.format("Délai d'indexation: dernier %d ms, moyen %.0f ms, max %d ms",
+                        stats.getLastLagMillis(), stats.getAverageLagMillis(), stats.getMaxLagMillis()),
+                String.format("Débit: %.1f segments/s (%d segments)",
+                        stats.getSegmentsPerSecond(), stats.getSegmentsIndexed()));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+        watch.close();
+    }
+
+    private static final class PendingChange {
+        final long firstEventMillis;
+        long lastEventMillis;
+
+        PendingChange(long firstEventMillis) {
+            this.firstEventMillis = firstEventMillis;
+            this.lastEventMillis = firstEventMillis;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.rag_sys.ingestion;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mémoïse les comptes de tokens par texte : les phrases répétées d'un corpus (formules juridiques,
+ * en-têtes de cours) ne sont comptées qu'une fois.
+ *
+ * La clé est le texte lui-même, comparé en entier lors d'un succès : deux textes différents ne partagent
+ * jamais un compte. Les portions courtes (un mot) sont comptées directement, la clé coûterait plus cher
+ * que le compte. Au-delà de maxEntries, les textes les moins récemment utilisés sont évincés (LRU).
+ *
+ * À réserver à un compteur coûteux (tokenizer exact d'un modèle) : le {@link HeuristicTokenCounter}
+ * parcourt le texte une seule fois, moins que le hachage, la comparaison et le verrou d'un succès de cache.
+ */
+public class CachingTokenCounter implements TokenCounter {
+
+    private static final int DEFAULT_MAX_ENTRIES = 100_000;
+    private static final int MIN_CACHED_LENGTH = 64;
+
+    private final TokenCounter delegate;
+    private final Map<String, Integer> cache;
+
+    public CachingTokenCounter(TokenCounter delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES);
+    }
+
+    public CachingTokenCounter(TokenCounter delegate, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("La taille du cache doit être positive: " + maxEntries);
+        }
+        this.delegate = delegate;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public int countTokens(CharSequence text, int start, int end) {
+        if (end - start < MIN_CACHED_LENGTH) {
+            return delegate.countTokens(text, start, end);
+        }
+        // Un String entier sert de clé tel quel (son empreinte est calculée une fois pour toutes)
+        String key = text instanceof String string && start == 0 && end == string.length()
+                ? string : text.subSequence(start, end).toString();
+        synchronized (cache) {
+            Integer cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        int count = delegate.countTokens(key);
+        synchronized (cache) {
+            cache.put(key, count);
+        }
+        return count;
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.rag_sys.ingestion;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.util.List;
+
+/**
+ * Découpage qui écarte les quasi-doublons d'un segment déjà retenu dans le corpus de l'agent,
+ * avant qu'ils n'atteignent le modèle d'embedding ({@link NearDuplicateIndex})
+ */
+public class DeduplicatingDocumentSplitter implements DocumentSplitter {
+
+    private final DocumentSplitter delegate;
+    private final NearDuplicateIndex.Corpus corpus;
+
+    public DeduplicatingDocumentSplitter(DocumentSplitter delegate, NearDuplicateIndex.Corpus corpus) {
+        this.delegate = delegate;
+        this.corpus = corpus;
+    }
+
+    @Override
+    public List<TextSegment> split(Document document) {
+        return corpus.retain(delegate.split(document));
+    }
+}
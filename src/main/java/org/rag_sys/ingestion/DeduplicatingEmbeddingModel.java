@@ -0,0 +1,71 @@
+package org.rag_sys.ingestion;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Modèle d'embedding de l'ingestion : un segment quasi identique à celui d'un autre agent reprend
+ * son embedding au lieu d'appeler le modèle, et chaque embedding calculé est gardé pour les agents suivants
+ * (une fois le segment écrit, voir {@link DeduplicatingEmbeddingStore}). Si le modèle échoue, les segments
+ * sont retirés de l'index des doublons. Les segments passent d'abord par {@link DeduplicatingDocumentSplitter} ;
+ * les autres sont embarqués tels quels.
+ */
+public class DeduplicatingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final NearDuplicateIndex.Corpus corpus;
+
+    public DeduplicatingEmbeddingModel(EmbeddingModel delegate, NearDuplicateIndex.Corpus corpus) {
+        this.delegate = delegate;
+        this.corpus = corpus;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        Embedding[] embeddings = new Embedding[textSegments.size()];
+        NearDuplicateIndex.Entry[] entries = new NearDuplicateIndex.Entry[textSegments.size()];
+        List<TextSegment> toEmbed = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < textSegments.size(); i++) {
+            entries[i] = corpus.pendingEntry(textSegments.get(i));
+            float[] reused = entries[i] != null && entries[i].reuseFrom != null ? entries[i].reuseFrom.vector : null;
+            if (reused != null) {
+                // Copie : un store peut normaliser le vecteur sur place
+                embeddings[i] = Embedding.from(reused.clone());
+                entries[i].embedded = reused;
+                corpus.recordReusedEmbedding();
+            } else {
+                toEmbed.add(textSegments.get(i));
+                positions.add(i);
+            }
+        }
+
+        Response<List<Embedding>> response;
+        try {
+            response = toEmbed.isEmpty() ? null : delegate.embedAll(toEmbed);
+        } catch (RuntimeException e) {
+            corpus.abandon(textSegments);
+            throw e;
+        }
+        for (int i = 0; i < positions.size(); i++) {
+            int position = positions.get(i);
+            embeddings[position] = response.content().get(i);
+            if (entries[position] != null) {
+                entries[position].embedded = embeddings[position].vector();
+            }
+        }
+        return response != null
+                ? new Response<>(List.of(embeddings), response.tokenUsage(), response.finishReason())
+                : new Response<>(List.of(embeddings));
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+}
@@ -0,0 +1,121 @@
+package org.rag_sys.ingestion;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Store de l'ingestion : les segments retenus par {@link DeduplicatingDocumentSplitter} ne sont validés
+ * dans l'index des doublons qu'une fois écrits ; si l'écriture échoue, ils en sont retirés.
+ *
+ * Quand le store délégué diffère ses écritures (COPY par lots), un ajout qui rend la main n'est pas encore écrit :
+ * la validation revient alors à celui qui sait quand le lot part
+ * ({@link org.rag_sys.store.BulkCopyEmbeddingStore.FlushListener}), seul l'échec immédiat est traité ici.
+ */
+public class DeduplicatingEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private final EmbeddingStore<TextSegment> delegate;
+    private final NearDuplicateIndex.Corpus corpus;
+    private final boolean deferredWrites;
+
+    public DeduplicatingEmbeddingStore(EmbeddingStore<TextSegment> delegate, NearDuplicateIndex.Corpus corpus) {
+        this(delegate, corpus, false);
+    }
+
+    /**
+     * @param deferredWrites vrai si les ajouts au délégué ne sont écrits qu'à l'envoi d'un lot, validé ailleurs
+     */
+    public DeduplicatingEmbeddingStore(EmbeddingStore<TextSegment> delegate, NearDuplicateIndex.Corpus corpus,
+                                       boolean deferredWrites) {
+        this.delegate = delegate;
+        this.corpus = corpus;
+        this.deferredWrites = deferredWrites;
+    }
+
+    private void written(List<TextSegment> segments) {
+        if (!deferredWrites) {
+            written(segments);
+        }
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        return delegate.add(embedding);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        delegate.add(id, embedding);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment segment) {
+        try {
+            String id = delegate.add(embedding, segment);
+            written(List.of(segment));
+            return id;
+        } catch (RuntimeException e) {
+            corpus.abandon(List.of(segment));
+            throw e;
+        }
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return delegate.addAll(embeddings);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+        try {
+            List<String> ids = delegate.addAll(embeddings, segments);
+            written(segments);
+            return ids;
+        } catch (RuntimeException e) {
+            corpus.abandon(segments);
+            throw e;
+        }
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        try {
+            delegate.addAll(ids, embeddings, segments);
+            written(segments);
+        } catch (RuntimeException e) {
+            corpus.abandon(segments);
+            throw e;
+        }
+    }
+
+    @Override
+    public void remove(String id) {
+        delegate.remove(id);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        delegate.removeAll(ids);
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        delegate.removeAll(filter);
+    }
+
+    @Override
+    public void removeAll() {
+        delegate.removeAll();
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        return delegate.search(request);
+    }
+}
@@ -0,0 +1,307 @@
+package org.rag_sys.ingestion;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import org.rag_sys.config.AgentProfile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Découpeur de documents qui respecte les frontières de phrases et de paragraphes du français
+ * et mesure les segments en tokens plutôt qu'en caractères.
+ *
+ * Le texte est parcouru une seule fois pour repérer les phrases (positions et nombre de tokens
+ * stockés dans des tableaux d'entiers), puis les phrases sont regroupées en segments exprimés
+ * en positions dans le texte source. Le recouvrement se fait par phrases entières et ne franchit
+ * pas les fins de paragraphe.
+ */
+public class FrenchSentenceSplitter implements DocumentSplitter {
+
+    // Abréviations courantes après lesquelles un point ne termine pas la phrase
+    private static final Set<String> ABBREVIATIONS = Set.of(
+            "m", "mm", "mme", "mmes", "mlle", "dr", "pr", "me", "st", "ste",
+            "art", "al", "cf", "ex", "etc", "env", "p", "pp", "vol", "chap", "éd", "fig",
+            "n", "no", "nº", "av", "apr", "j.-c", "c.civ", "civ", "cass", "ch", "req", "sect",
+            "janv", "févr", "avr", "juil", "sept", "oct", "nov", "déc");
+
+    private final int maxTokens;
+    private final int overlapTokens;
+    private final TokenCounter tokenCounter;
+
+    public FrenchSentenceSplitter(int maxTokens, int overlapTokens, TokenCounter tokenCounter) {
+        if (maxTokens <= 0 || overlapTokens < 0 || overlapTokens >= maxTokens) {
+            throw new IllegalArgumentException("Paramètres de découpage invalides: max=" + maxTokens + ", overlap=" + overlapTokens);
+        }
+        this.maxTokens = maxTokens;
+        this.overlapTokens = overlapTokens;
+        this.tokenCounter = tokenCounter;
+    }
+
+    public FrenchSentenceSplitter(AgentProfile profile) {
+        this(profile.getChunkMaxTokens(), profile.getChunkOverlapTokens(),
+             new HeuristicTokenCounter());
+    }
+
+    @Override
+    public List<TextSegment> split(Document document) {
+        String text = document.text();
+        List<SegmentSpan> spans = spans(text);
+        List<TextSegment> segments = new ArrayList<>(spans.size());
+        for (int i = 0; i < spans.size(); i++) {
+            Metadata metadata = document.metadata().copy();
+            metadata.put("index", String.valueOf(i));
+            segments.add(TextSegment.from(spans.get(i).textOf(text), metadata));
+        }
+        return segments;
+    }
+
+    /**
+     * Calcule les segments d'un texte sous forme de positions, sans copier le contenu
+     * @param text le texte source
+     * @return les segments dans l'ordre du texte
+     */
+    public List<SegmentSpan> spans(CharSequence text) {
+        Sentences sentences = detectSentences(text);
+        List<SegmentSpan> spans = new ArrayList<>();
+        int count = sentences.count;
+        int[] prefix = sentences.tokenPrefixSums();
+
+        int i = 0;
+        while (i < count) {
+            // Phrase plus longue que le budget : découpe aux espaces
+            if (sentences.tokens[i] > maxTokens) {
+                splitLongSentence(text, sentences.starts[i], sentences.ends[i], spans);
+                i++;
+                continue;
+            }
+
+            int j = i;
+            int lastParagraphEnd = -1;
+            while (j < count && prefix[j + 1] - prefix[i] <= maxTokens) {
+                if (sentences.paragraphEnd[j]) lastParagraphEnd = j;
+                j++;
+            }
+            // Préférer s'arrêter à une fin de paragraphe si le segment reste au moins à moitié plein
+            if (j < count && lastParagraphEnd >= i && lastParagraphEnd < j - 1
+                    && prefix[lastParagraphEnd + 1] - prefix[i] >= maxTokens / 2) {
+                j = lastParagraphEnd + 1;
+            }
+
+            spans.add(new SegmentSpan(sentences.starts[i], sentences.ends[j - 1], prefix[j] - prefix[i]));
+            if (j >= count) break;
+
+            // Recouvrement par phrases entières, sans franchir une fin de paragraphe,
+            // et en laissant toujours la place à la phrase suivante dans le segment
+            int next = j;
+            while (next - 1 > i && !sentences.paragraphEnd[next - 1]
+                    && prefix[j] - prefix[next - 1] <= overlapTokens
+                    && prefix[j + 1] - prefix[next - 1] <= maxTokens) {
+                next--;
+            }
+            i = next;
+        }
+        return spans;
+    }
+
+    private void splitLongSentence(CharSequence text, int start, int end, List<SegmentSpan> spans) {
+        int pieceStart = -1;
+        int pieceEnd = -1;
+        int pieceTokens = 0;
+        int i = start;
+        while (i < end) {
+            while (i < end && Character.isWhitespace(text.charAt(i))) i++;
+            if (i >= end) break;
+            int wordStart = i;
+            while (i < end && !Character.isWhitespace(text.charAt(i))) i++;
+            int wordTokens = tokenCounter.countTokens(text, wordStart, i);
+
+            if (pieceStart >= 0 && pieceTokens + wordTokens > maxTokens) {
+                spans.add(new SegmentSpan(pieceStart, pieceEnd, pieceTokens));
+                pieceStart = -1;
+                pieceTokens = 0;
+            }
+            if (pieceStart < 0) pieceStart = wordStart;
+            pieceEnd = i;
+            pieceTokens += wordTokens;
+        }
+        if (pieceStart >= 0) {
+            spans.add(new SegmentSpan(pieceStart, pieceEnd, pieceTokens));
+        }
+    }
+
+    private Sentences detectSentences(CharSequence text) {
+        Sentences sentences = new Sentences(Math.max(16, text.length() / 80));
+        int length = text.length();
+        int i = 0;
+
+        while (i < length) {
+            // Début de phrase : premier caractère non blanc
+            while (i < length && Character.isWhitespace(text.charAt(i))) i++;
+            if (i >= length) break;
+            int start = i;
+            int end = -1;
+            boolean paragraphEnd = false;
+
+            while (i < length) {
+                char c = text.charAt(i);
+                if (c == '\n') {
+                    int next = skipHorizontalSpaces(text, i + 1);
+                    if (next < length && text.charAt(next) == '\n') {
+                        end = trimEnd(text, start, i);
+                        paragraphEnd = true;
+                        i = next + 1;
+                        break;
+                    }
+                    if (isLineBoundary(text, start, i, next)) {
+                        end = trimEnd(text, start, i);
+                        i = next;
+                        break;
+                    }
+                } else if (isTerminal(c)) {
+                    int afterClosers = skipClosers(text, i + 1);
+                    if (isSentenceEnd(text, start, i, afterClosers)) {
+                        end = afterClosers;
+                        i = afterClosers;
+                        break;
+                    }
+                }
+                i++;
+            }
+
+            if (end < 0) {
+                end = trimEnd(text, start, length);
+                paragraphEnd = true;
+            }
+            if (end > start) {
+                sentences.add(start, end, tokenCounter.countTokens(text, start, end), paragraphEnd);
+            }
+        }
+        if (sentences.count > 0) {
+            sentences.paragraphEnd[sentences.count - 1] = true;
+        }
+        return sentences;
+    }
+
+    private static boolean isTerminal(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '…';
+    }
+
+    private static boolean isCloser(char c) {
+        return c == '"' || c == '»' || c == ')' || c == '’' || c == '\'' || isTerminal(c);
+    }
+
+    private static int skipClosers(CharSequence text, int i) {
+        while (i < text.length() && isCloser(text.charAt(i))) i++;
+        return i;
+    }
+
+    private static int skipHorizontalSpaces(CharSequence text, int i) {
+        while (i < text.length() && (text.charAt(i) == ' ' || text.charAt(i) == '\t' || text.charAt(i) == '\r')) i++;
+        return i;
+    }
+
+    private static int trimEnd(CharSequence text, int start, int end) {
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        return end;
+    }
+
+    /**
+     * Un point, point d'exclamation ou d'interrogation termine la phrase s'il est suivi d'un blanc
+     * puis d'une majuscule, d'un chiffre, d'un guillemet ou d'un tiret, et qu'il ne suit pas une abréviation
+     */
+    private static boolean isSentenceEnd(CharSequence text, int sentenceStart, int terminal, int afterClosers) {
+        int length = text.length();
+        if (afterClosers >= length) return true;
+        if (!Character.isWhitespace(text.charAt(afterClosers))) return false;
+
+        int next = afterClosers;
+        while (next < length && Character.isWhitespace(text.charAt(next))) next++;
+        if (next >= length) return true;
+        char following = text.charAt(next);
+        if (!(Character.isUpperCase(following) || Character.isDigit(following)
+                || following == '«' || following == '"' || following == '-' || following == '—' || following == '•')) {
+            return false;
+        }
+        return text.charAt(terminal) != '.' || !followsAbbreviation(text, sentenceStart, terminal);
+    }
+
+    private static boolean followsAbbreviation(CharSequence text, int sentenceStart, int dot) {
+        int wordStart = dot;
+        while (wordStart > sentenceStart && !Character.isWhitespace(text.charAt(wordStart - 1))
+                && text.charAt(wordStart - 1) != '(') {
+            wordStart--;
+        }
+        int wordLength = dot - wordStart;
+        if (wordLength == 0) return false;
+        // Initiale (« J. Dupont ») ou numérotation romaine courte (« II. »)
+        if (wordLength == 1 && Character.isLetter(text.charAt(wordStart))) return true;
+        if (wordLength > 8) return false;
+
+        char[] word = new char[wordLength];
+        for (int k = 0; k < wordLength; k++) {
+            word[k] = Character.toLowerCase(text.charAt(wordStart + k));
+        }
+        return ABBREVIATIONS.contains(new String(word));
+    }
+
+    /**
+     * Un retour à la ligne simple sépare deux phrases si la ligne précédente se termine
+     * par une ponctuation forte ou si la suivante commence comme un nouvel élément
+     */
+    private static boolean isLineBoundary(CharSequence text, int sentenceStart, int newline, int nextLineStart) {
+        int previous = trimEnd(text, sentenceStart, newline);
+        if (previous == sentenceStart) return false;
+        char last = text.charAt(previous - 1);
+        if (isTerminal(last) || last == ':' || last == ';') return true;
+        if (nextLineStart >= text.length()) return true;
+        char first = text.charAt(nextLineStart);
+        return Character.isUpperCase(first) || Character.isDigit(first)
+                || first == '-' || first == '•' || first == '*' || first == '#';
+    }
+
+    /**
+     * Phrases détectées, stockées dans des tableaux parallèles pour éviter une allocation par phrase
+     */
+    private static final class Sentences {
+        int[] starts;
+        int[] ends;
+        int[] tokens;
+        boolean[] paragraphEnd;
+        int count;
+
+        Sentences(int capacity) {
+            starts = new int[capacity];
+            ends = new int[capacity];
+            tokens = new int[capacity];
+            paragraphEnd = new boolean[capacity];
+        }
+
+        void add(int start, int end, int tokenCount, boolean endsParagraph) {
+            if (count == starts.length) {
+                int capacity = count * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                tokens = Arrays.copyOf(tokens, capacity);
+                paragraphEnd = Arrays.copyOf(paragraphEnd, capacity);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            tokens[count] = tokenCount;
+            paragraphEnd[count] = endsParagraph;
+            count++;
+        }
+
+        int[] tokenPrefixSums() {
+            int[] prefix = new int[count + 1];
+            for (int k = 0; k < count; k++) {
+                prefix[k + 1] = prefix[k] + tokens[k];
+            }
+            return prefix;
+        }
+    }
+}
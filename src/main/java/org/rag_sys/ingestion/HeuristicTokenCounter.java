@@ -0,0 +1,35 @@
+package org.rag_sys.ingestion;
+
+/**
+ * Estimation du nombre de tokens calibrée sur les tokenizers BPE usuels pour le français :
+ * environ un token par tranche de quatre lettres ou chiffres d'un mot,
+ * et un token par signe de ponctuation ou symbole
+ */
+public class HeuristicTokenCounter implements TokenCounter {
+
+    private static final int CHARS_PER_WORD_PIECE = 4;
+
+    @Override
+    public int countTokens(CharSequence text, int start, int end) {
+        int tokens = 0;
+        int wordLength = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                wordLength++;
+                continue;
+            }
+            if (wordLength > 0) {
+                tokens += (wordLength + CHARS_PER_WORD_PIECE - 1) / CHARS_PER_WORD_PIECE;
+                wordLength = 0;
+            }
+            if (!Character.isWhitespace(c) && !Character.isLowSurrogate(c)) {
+                tokens++;
+            }
+        }
+        if (wordLength > 0) {
+            tokens += (wordLength + CHARS_PER_WORD_PIECE - 1) / CHARS_PER_WORD_PIECE;
+        }
+        return tokens;
+    }
+}
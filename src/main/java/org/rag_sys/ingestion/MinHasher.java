@@ -0,0 +1,87 @@
+package org.rag_sys.ingestion;
+
+import org.rag_sys.retrieval.TextAnalyzer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Signatures MinHash des segments : la proportion de positions égales entre deux signatures estime
+ * la similarité de Jaccard de leurs ensembles de shingles (suites de SHINGLE_TERMS termes consécutifs).
+ *
+ * Les termes sont ceux de la recherche par mots-clés ({@link TextAnalyzer}) : casse, accents, ponctuation
+ * et mots vides n'empêchent pas de reconnaître deux copies d'un même passage.
+ */
+public final class MinHasher {
+
+    public static final int SHINGLE_TERMS = 3;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long[] seeds;
+
+    /**
+     * @param signatureLength nombre de fonctions de hachage, donc de valeurs par signature
+     */
+    public MinHasher(int signatureLength) {
+        if (signatureLength <= 0) {
+            throw new IllegalArgumentException("La longueur de signature doit être positive: " + signatureLength);
+        }
+        seeds = new long[signatureLength];
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < signatureLength; i++) {
+            seed += GOLDEN_GAMMA;
+            seeds[i] = mix(seed);
+        }
+    }
+
+    public int getSignatureLength() {
+        return seeds.length;
+    }
+
+    /**
+     * @return la signature du texte, ou null s'il a moins de SHINGLE_TERMS termes (trop court pour être comparé)
+     */
+    public long[] signature(String text) {
+        List<String> terms = TextAnalyzer.terms(text);
+        if (terms.size() < SHINGLE_TERMS) {
+            return null;
+        }
+        long[] signature = new long[seeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (int start = 0; start + SHINGLE_TERMS <= terms.size(); start++) {
+            long shingle = 0;
+            for (int i = start; i < start + SHINGLE_TERMS; i++) {
+                shingle = (shingle ^ terms.get(i).hashCode()) * GOLDEN_GAMMA;
+                shingle ^= shingle >>> 32;
+            }
+            // Une permutation par graine : on garde le plus petit haché de chaque permutation
+            for (int i = 0; i < seeds.length; i++) {
+                long hash = mix(shingle ^ seeds[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * @return la similarité de Jaccard estimée entre deux signatures de même longueur
+     */
+    public static double similarity(long[] first, long[] second) {
+        int equal = 0;
+        for (int i = 0; i < first.length; i++) {
+            if (first[i] == second[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / first.length;
+    }
+
+    // Finaliseur de SplitMix64
+    static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
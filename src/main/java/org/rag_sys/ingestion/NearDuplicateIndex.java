@@ -0,0 +1,333 @@
+package org.rag_sys.ingestion;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.segment.TextSegment;
+import org.rag_sys.logging.RequestLog;
+import org.rag_sys.metrics.StatsProvider;
+import org.rag_sys.services.DocumentLoaderService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index des segments déjà ingérés par tous les agents, pour reconnaître les passages quasi identiques
+ * (mentions légales, en-têtes de cours, articles recopiés) avant de les embarquer.
+ *
+ * Chaque segment a une signature MinHash ({@link MinHasher}) découpée en bandes (LSH) : deux segments
+ * partageant une bande sont candidats, puis comparés sur toute la signature. Dans le corpus d'un agent,
+ * un quasi-doublon est écarté : ni embedding ni ligne en base. D'un agent à l'autre, le segment est gardé
+ * (chaque agent cherche dans sa table) mais reprend l'embedding déjà calculé, sans appel au modèle.
+ *
+ * Un segment retenu est indexé dès le découpage (les répétitions d'un même document sont reconnues),
+ * mais n'est validé qu'une fois son embedding écrit dans le store ({@link DeduplicatingEmbeddingStore}) :
+ * si l'embedding ou l'écriture échoue, il est retiré de l'index, et seul un segment validé prête son embedding.
+ *
+ * Les vecteurs des segments indexés restent en mémoire pour cette reprise : environ 3 Ko par segment
+ * pour des embeddings de dimension 768.
+ */
+public final class NearDuplicateIndex implements StatsProvider {
+
+    private static final RequestLog LOG = RequestLog.of(NearDuplicateIndex.class);
+    public static final double DEFAULT_THRESHOLD = 0.85;
+    // 16 bandes de 8 valeurs : un quasi-doublon à 0.85 partage au moins une bande dans 99 % des cas
+    private static final int BANDS = 16;
+    private static final int ROWS = 8;
+
+    private static final NearDuplicateIndex SHARED = new NearDuplicateIndex(BANDS, ROWS);
+
+    /**
+     * Segment indexé : sa signature, son agent, son fichier et, une fois écrit dans le store, son embedding
+     */
+    static final class Entry {
+        final long[] signature;
+        final Corpus corpus;
+        final String source;
+        // Fichiers dont une copie a été écartée au profit de ce segment
+        final Set<String> duplicateSources = new LinkedHashSet<>();
+        Entry reuseFrom;
+        // Embedding calculé (ou repris), publié dans vector quand le segment est validé
+        volatile float[] embedded;
+        volatile float[] vector;
+
+        private Entry(long[] signature, Corpus corpus, String source) {
+            this.signature = signature;
+            this.corpus = corpus;
+            this.source = source;
+        }
+    }
+
+    private final int bands;
+    private final int rows;
+    private final MinHasher minHasher;
+    private final List<Map<Long, List<Entry>>> buckets = new ArrayList<>();
+    private final Map<String, Corpus> corpora = new LinkedHashMap<>();
+
+    private final AtomicLong candidatesChecked = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    public NearDuplicateIndex(int bands, int rows) {
+        if (bands <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Le nombre de bandes et de lignes doit être positif: " + bands + "×" + rows);
+        }
+        this.bands = bands;
+        this.rows = rows;
+        this.minHasher = new MinHasher(bands * rows);
+        for (int band = 0; band < bands; band++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * @return l'index commun à tous les agents, pour reconnaître aussi les doublons d'un agent à l'autre
+     */
+    public static NearDuplicateIndex shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param name nom du corpus (la table de l'agent)
+     * @param threshold similarité de Jaccard estimée à partir de laquelle deux segments sont des doublons
+     * @param bytesPerVector taille d'un embedding en base, pour estimer le stockage évité
+     * @return le corpus de ce nom, créé au premier appel
+     */
+    public synchronized Corpus corpus(String name, double threshold, long bytesPerVector) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("Le seuil de similarité doit être compris entre 0 et 1: " + threshold);
+        }
+        return corpora.computeIfAbsent(name, key -> new Corpus(key, threshold, bytesPerVector));
+    }
+
+    /**
+     * Segments d'un agent vus par l'index
+     */
+    public final class Corpus {
+
+        private final String name;
+        private final double threshold;
+        private final long bytesPerVector;
+        private final Map<String, List<Entry>> entriesBySource = new HashMap<>();
+        // Segments retenus pas encore écrits dans le store
+        private final Map<TextSegment, Entry> pending = Collections.synchronizedMap(new IdentityHashMap<>());
+
+        private final AtomicLong analysedSegments = new AtomicLong();
+        private final AtomicLong skippedSegments = new AtomicLong();
+        private final AtomicLong skippedBytes = new AtomicLong();
+        private final AtomicLong reusedEmbeddings = new AtomicLong();
+
+        private Corpus(String name, double threshold, long bytesPerVector) {
+            this.name = name;
+            this.threshold = threshold;
+            this.bytesPerVector = bytesPerVector;
+        }
+
+        /**
+         * Écarte les quasi-doublons de segments déjà retenus dans ce corpus, et indexe les autres
+         * @return les segments à embarquer, dans leur ordre
+         */
+        List<TextSegment> retain(List<TextSegment> segments) {
+            List<TextSegment> retained = new ArrayList<>(segments.size());
+            for (TextSegment segment : segments) {
+                analysedSegments.incrementAndGet();
+                long[] signature = minHasher.signature(segment.text());
+                if (signature == null) {
+                    retained.add(segment);
+                    continue;
+                }
+                String source = segment.metadata().getString(DocumentLoaderService.RELATIVE_PATH);
+                if (source == null) {
+                    source = segment.metadata().getString(Document.FILE_NAME);
+                }
+                synchronized (NearDuplicateIndex.this) {
+                    Entry[] matches = findMatches(signature, this);
+                    if (matches[0] != null) {
+                        if (source != null && !source.equals(matches[0].source)) {
+                            matches[0].duplicateSources.add(source);
+                        }
+                        skippedSegments.incrementAndGet();
+                        skippedBytes.addAndGet(segment.text().getBytes(StandardCharsets.UTF_8).length + bytesPerVector);
+                        continue;
+                    }
+                    Entry entry = new Entry(signature, this, source);
+                    entry.reuseFrom = matches[1];
+                    add(entry);
+                    pending.put(segment, entry);
+                }
+                retained.add(segment);
+            }
+            return retained;
+        }
+
+        /**
+         * @return l'entrée d'un segment retenu pas encore écrit, ou null
+         */
+        Entry pendingEntry(TextSegment segment) {
+            return pending.get(segment);
+        }
+
+        /**
+         * Valide les segments écrits dans le store : leurs embeddings deviennent réutilisables par les autres agents
+         */
+        public void commit(List<TextSegment> segments) {
+            for (TextSegment segment : segments) {
+                Entry entry = pending.remove(segment);
+                if (entry != null) {
+                    entry.vector = entry.embedded;
+                }
+            }
+        }
+
+        /**
+         * Retire de l'index les segments dont l'embedding ou l'écriture a échoué : ils seront retenus à la prochaine tentative
+         */
+        public void abandon(List<TextSegment> segments) {
+            synchronized (NearDuplicateIndex.this) {
+                for (TextSegment segment : segments) {
+                    Entry entry = pending.remove(segment);
+                    if (entry == null) {
+                        continue;
+                    }
+                    remove(entry);
+                    List<Entry> entries = entriesBySource.get(entry.source);
+                    if (entries != null) {
+                        entries.remove(entry);
+                        if (entries.isEmpty()) {
+                            entriesBySource.remove(entry.source);
+                        }
+                    }
+                }
+            }
+        }
+
+        void recordReusedEmbedding() {
+            reusedEmbeddings.incrementAndGet();
+        }
+
+        /**
+         * Oublie les segments d'un fichier retiré ou sur le point d'être réindexé
+         * @return les autres fichiers dont des passages avaient été écartés comme doublons de celui-ci,
+         *         à réindexer pour que ces passages reviennent dans le corpus
+         */
+        public Set<String> forget(String source) {
+            Set<String> orphaned = new LinkedHashSet<>();
+            synchronized (NearDuplicateIndex.this) {
+                List<Entry> entries = entriesBySource.remove(source);
+                if (entries == null) {
+                    return Set.of();
+                }
+                for (Entry entry : entries) {
+                    remove(entry);
+                    orphaned.addAll(entry.duplicateSources);
+                }
+            }
+            orphaned.remove(source);
+            if (!orphaned.isEmpty()) {
+                LOG.info(() -> "♻️ [" + name + "] Des passages de " + orphaned + " avaient été écartés comme doublons de "
+                        + source + " : ces fichiers sont à réindexer");
+            }
+            return orphaned;
+        }
+
+        private void add(Entry entry) {
+            entriesBySource.computeIfAbsent(entry.source, key -> new ArrayList<>()).add(entry);
+            for (int band = 0; band < bands; band++) {
+                buckets.get(band).computeIfAbsent(bandKey(entry.signature, band), key -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        private void remove(Entry entry) {
+            for (int band = 0; band < bands; band++) {
+                long key = bandKey(entry.signature, band);
+                List<Entry> bucket = buckets.get(band).get(key);
+                if (bucket != null) {
+                    bucket.remove(entry);
+                    if (bucket.isEmpty()) {
+                        buckets.get(band).remove(key);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return une ligne de bilan de l'ingestion de ce corpus
+         */
+        public String describe() {
+            return String.format("Doublons de %s: %d segments analysés, %d écartés (%.1f Ko évités), %d embeddings repris d'un autre agent",
+                    name, analysedSegments.get(), skippedSegments.get(), skippedBytes.get() / 1024.0, reusedEmbeddings.get());
+        }
+    }
+
+    /**
+     * @return le meilleur doublon du même corpus, puis le meilleur d'un autre corpus dont l'embedding est calculé
+     */
+    private Entry[] findMatches(long[] signature, Corpus corpus) {
+        Set<Entry> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int band = 0; band < bands; band++) {
+            List<Entry> bucket = buckets.get(band).get(bandKey(signature, band));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        Entry[] best = new Entry[2];
+        double[] bestSimilarity = {0, 0};
+        for (Entry candidate : candidates) {
+            candidatesChecked.incrementAndGet();
+            double similarity = MinHasher.similarity(signature, candidate.signature);
+            if (similarity < corpus.threshold) {
+                falsePositives.incrementAndGet();
+                continue;
+            }
+            int slot = candidate.corpus == corpus ? 0 : 1;
+            if (slot == 1 && candidate.vector == null) {
+                // Agent encore en cours d'ingestion : rien à reprendre
+                continue;
+            }
+            if (similarity > bestSimilarity[slot]) {
+                best[slot] = candidate;
+                bestSimilarity[slot] = similarity;
+            }
+        }
+        return best;
+    }
+
+    private long bandKey(long[] signature, int band) {
+        long key = band;
+        for (int row = band * rows; row < (band + 1) * rows; row++) {
+            key = MinHasher.mix(key * 31 + signature[row]);
+        }
+        return key;
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "🧬 DOUBLONS À L'INGESTION (MinHash " + minHasher.getSignatureLength() + ", LSH " + bands + "×" + rows + ")";
+    }
+
+    @Override
+    public List<String> getStatsLines() {
+        List<String> lines = new ArrayList<>();
+        long skipped = 0;
+        long reused = 0;
+        long bytes = 0;
+        synchronized (this) {
+            for (Corpus corpus : corpora.values()) {
+                lines.add(corpus.describe());
+                skipped += corpus.skippedSegments.get();
+                reused += corpus.reusedEmbeddings.get();
+                bytes += corpus.skippedBytes.get();
+            }
+        }
+        lines.add(String.format("Embeddings évités: %d (%d doublons écartés, %d repris), stockage évité: %.1f Ko",
+                skipped + reused, skipped, reused, bytes / 1024.0));
+        lines.add(String.format("Candidats LSH comparés: %d, dont %d sous le seuil", candidatesChecked.get(), falsePositives.get()));
+        return lines;
+    }
+}
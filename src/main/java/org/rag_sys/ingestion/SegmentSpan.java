@@ -0,0 +1,44 @@
+package org.rag_sys.ingestion;
+
+/**
+ * Portion d'un texte source exprimée en positions, sans copie du contenu
+ */
+public class SegmentSpan {
+    private final int start;
+    private final int end;
+    private final int tokenCount;
+
+    public SegmentSpan(int start, int end, int tokenCount) {
+        this.start = start;
+        this.end = end;
+        this.tokenCount = tokenCount;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    public int length() {
+        return end - start;
+    }
+
+    /**
+     * Matérialise la portion : seule copie effectuée, au moment où le segment est réellement utilisé
+     */
+    public String textOf(String source) {
+        return source.substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SegmentSpan{[%d, %d), tokens=%d}", start, end, tokenCount);
+    }
+}
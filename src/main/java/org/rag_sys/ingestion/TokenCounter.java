@@ -0,0 +1,18 @@
+package org.rag_sys.ingestion;
+
+/**
+ * Compte les tokens d'une portion de texte sans en extraire de sous-chaîne
+ */
+public interface TokenCounter {
+    /**
+     * @param text le texte source
+     * @param start début de la portion (inclus)
+     * @param end fin de la portion (exclue)
+     * @return le nombre de tokens de la portion
+     */
+    int countTokens(CharSequence text, int start, int end);
+
+    default int countTokens(CharSequence text) {
+        return countTokens(text, 0, text.length());
+    }
+}
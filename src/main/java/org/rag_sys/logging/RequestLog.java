@@ -0,0 +1,170 @@
+package org.rag_sys.logging;
+
+import org.rag_sys.context.RequestContext;
+import org.rag_sys.metrics.StatsProvider;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Journal des composants traversés par les requêtes (routeur, agents, disjoncteurs).
+ *
+ * Aucune écriture n'a lieu sur le thread appelant : les lignes partent dans le tampon de
+ * {@link RingBufferAppender}. Les messages sont fournis par un Supplier, construit seulement
+ * si le niveau est actif ; chaque ligne porte l'identifiant de la requête courante ({@link RequestContext}).
+ *
+ * Les détails verbeux (réponse brute de l'agent de garde, raisonnement) passent par {@link #payload} :
+ * toujours journalisés en DEBUG, ils ne le sont en INFO que pour un échantillon de requêtes,
+ * tiré sur l'identifiant pour qu'une requête échantillonnée garde tous ses détails.
+ *
+ * Réglages : -Drag.log.level (DEBUG, INFO, WARN, ERROR ; INFO par défaut), -Drag.log.payloadSampleRate (0.05),
+ * -Drag.log.bufferSize (8192 lignes), -Drag.log.file (console par défaut), -Drag.log.format=json.
+ */
+public final class RequestLog {
+
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    private static final Level THRESHOLD = Level.valueOf(
+            System.getProperty("rag.log.level", Level.INFO.name()).toUpperCase(Locale.ROOT));
+    private static final double PAYLOAD_SAMPLE_RATE = Double.parseDouble(
+            System.getProperty("rag.log.payloadSampleRate", "0.05"));
+    private static final RingBufferAppender APPENDER = new RingBufferAppender(
+            Integer.getInteger("rag.log.bufferSize", 8192),
+            System.getProperty("rag.log.file") != null ? Path.of(System.getProperty("rag.log.file")) : null,
+            "json".equalsIgnoreCase(System.getProperty("rag.log.format")));
+    private static final long FLUSH_TIMEOUT_SECONDS = 2;
+
+    private static final AtomicLong SAMPLED_PAYLOADS = new AtomicLong();
+    private static final AtomicLong SKIPPED_PAYLOADS = new AtomicLong();
+    // Échantillonnage hors requête (démarrage, tâches de fond) : une fois sur 1/taux
+    private static final AtomicLong UNBOUND_PAYLOADS = new AtomicLong();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(RequestLog::flush, "rag-log-flush"));
+    }
+
+    private final String component;
+
+    private RequestLog(String component) {
+        this.component = component;
+    }
+
+    /**
+     * @return le journal d'un composant, nommé d'après sa classe
+     */
+    public static RequestLog of(Class<?> type) {
+        return new RequestLog(type.getSimpleName());
+    }
+
+    public static Level getThreshold() {
+        return THRESHOLD;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(THRESHOLD) >= 0;
+    }
+
+    public void debug(Supplier<String> message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    public void info(Supplier<String> message) {
+        log(Level.INFO, message, null);
+    }
+
+    public void warn(Supplier<String> message) {
+        log(Level.WARN, message, null);
+    }
+
+    public void error(Supplier<String> message) {
+        log(Level.ERROR, message, null);
+    }
+
+    /**
+     * Erreur avec sa pile d'appels, mise en forme par le thread du journal
+     */
+    public void error(Supplier<String> message, Throwable error) {
+        log(Level.ERROR, message, error);
+    }
+
+    /**
+     * Détail verbeux : journalisé en DEBUG, ou en INFO pour les requêtes échantillonnées
+     */
+    public void payload(Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) {
+            log(Level.DEBUG, message, null);
+            return;
+        }
+        if (!isEnabled(Level.INFO)) {
+            return;
+        }
+        RequestContext context = RequestContext.current();
+        if (isSampled(context)) {
+            SAMPLED_PAYLOADS.incrementAndGet();
+            append(Level.INFO, context, message.get(), null);
+        } else {
+            SKIPPED_PAYLOADS.incrementAndGet();
+        }
+    }
+
+    private void log(Level level, Supplier<String> message, Throwable error) {
+        if (isEnabled(level)) {
+            append(level, RequestContext.current(), message.get(), error);
+        }
+    }
+
+    private void append(Level level, RequestContext context, String message, Throwable error) {
+        APPENDER.append(new RingBufferAppender.Entry(System.currentTimeMillis(), level,
+                context != null ? context.getRequestId() : null, component, message, error));
+    }
+
+    private static boolean isSampled(RequestContext context) {
+        if (PAYLOAD_SAMPLE_RATE >= 1) {
+            return true;
+        }
+        if (PAYLOAD_SAMPLE_RATE <= 0) {
+            return false;
+        }
+        if (context == null) {
+            return UNBOUND_PAYLOADS.getAndIncrement() % Math.round(1 / PAYLOAD_SAMPLE_RATE) == 0;
+        }
+        // Hachage de Fibonacci : des identifiants consécutifs (q1, q2...) tombent loin les uns des autres
+        long hash = context.getRequestId().hashCode() * 0x9E3779B97F4A7C15L;
+        return (hash >>> 11) * 0x1.0p-53 < PAYLOAD_SAMPLE_RATE;
+    }
+
+    /**
+     * Attend l'écriture des lignes déjà journalisées, pour que la console les affiche avant une réponse
+     */
+    public static void flush() {
+        APPENDER.flush(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Confie une écriture au thread du journal, pour qu'elle n'ait pas lieu sur le thread de la requête
+     * @return faux si le tampon était plein : l'écriture n'a pas été prise en charge
+     */
+    public static boolean submit(Runnable write) {
+        return APPENDER.append(new RingBufferAppender.Task(write));
+    }
+
+    /**
+     * @return la section 'stats' du journal : lignes écrites, perdues, détails échantillonnés
+     */
+    public static StatsProvider stats() {
+        return APPENDER;
+    }
+
+    static long getSampledPayloads() {
+        return SAMPLED_PAYLOADS.get();
+    }
+
+    static long getSkippedPayloads() {
+        return SKIPPED_PAYLOADS.get();
+    }
+}
@@ -0,0 +1,252 @@
+package org.rag_sys.logging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.rag_sys.metrics.StatsProvider;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appender asynchrone du journal : les threads des requêtes déposent leurs lignes dans un tampon circulaire
+ * borné, sans jamais attendre, et un seul thread les met en forme et les écrit par lots.
+ *
+ * Quand le tampon est plein, la ligne est perdue (et comptée) plutôt que de ralentir la requête.
+ * Le même thread exécute les écritures confiées par d'autres journaux (capture du trafic), dans l'ordre de dépôt.
+ */
+final class RingBufferAppender implements StatsProvider {
+
+    private static final int BATCH_SIZE = 256;
+    private static final long DROP_REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
+
+    sealed interface Item permits Entry, Task {
+    }
+
+    /**
+     * Ligne du journal telle que déposée par le thread appelant : le texte est déjà construit
+     */
+    record Entry(long timeMillis, RequestLog.Level level, String requestId, String component, String message,
+                 Throwable error) implements Item {
+    }
+
+    /**
+     * Écriture confiée au thread du journal
+     */
+    record Task(Runnable write) implements Item {
+    }
+
+    private final ArrayBlockingQueue<Item> buffer;
+    private final int capacity;
+    private final Path file;
+    private final boolean json;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Object progress = new Object();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long written;
+    private long tasksRun;
+    private long droppedReported;
+    private long droppedReportedAtNanos;
+
+    private Writer fileWriter;
+
+    /**
+     * @param file fichier du journal, ou null pour la console (WARN et ERROR sur la sortie d'erreur)
+     * @param json une ligne JSON par entrée plutôt que du texte
+     */
+    RingBufferAppender(int capacity, Path file, boolean json) {
+        this.capacity = capacity;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.file = file;
+        this.json = json;
+        Thread writer = new Thread(this::drain, "rag-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Dépose une ligne ou une écriture sans attendre
+     * @return faux si le tampon était plein ; seule une ligne est alors perdue, l'écriture reste à son appelant
+     */
+    boolean append(Item item) {
+        if (buffer.offer(item)) {
+            accepted.incrementAndGet();
+            return true;
+        }
+        if (item instanceof Entry) {
+            dropped.incrementAndGet();
+        }
+        return false;
+    }
+
+    /**
+     * Attend que les lignes déposées jusqu'ici soient écrites, au plus timeout
+     */
+    void flush(long timeout, TimeUnit unit) {
+        long target = accepted.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (progress) {
+            while (written < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(progress, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void drain() {
+        List<Item> batch = new ArrayList<>(BATCH_SIZE);
+        StringBuilder out = new StringBuilder();
+        StringBuilder err = new StringBuilder();
+        while (true) {
+            try {
+                batch.add(buffer.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            buffer.drainTo(batch, BATCH_SIZE - 1);
+
+            long lost = dropped.get();
+            // Au plus un avertissement par seconde tant que le tampon déborde
+            if (lost > droppedReported && System.nanoTime() - droppedReportedAtNanos >= DROP_REPORT_INTERVAL_NANOS) {
+                droppedReportedAtNanos = System.nanoTime();
+                format(new Entry(System.currentTimeMillis(), RequestLog.Level.WARN, null, "journal",
+                        (lost - droppedReported) + " lignes perdues (tampon de " + capacity + " lignes plein)", null), err);
+                droppedReported = lost;
+            }
+            long tasks = 0;
+            for (Item item : batch) {
+                if (item instanceof Entry entry) {
+                    format(entry, entry.level().compareTo(RequestLog.Level.WARN) >= 0 ? err : out);
+                } else if (item instanceof Task task) {
+                    tasks++;
+                    run(task, err);
+                }
+            }
+            write(out, err);
+
+            synchronized (progress) {
+                written += batch.size();
+                tasksRun += tasks;
+                progress.notifyAll();
+            }
+            batch.clear();
+            out.setLength(0);
+            err.setLength(0);
+        }
+    }
+
+    private void run(Task task, StringBuilder err) {
+        try {
+            task.write().run();
+        } catch (RuntimeException e) {
+            format(new Entry(System.currentTimeMillis(), RequestLog.Level.ERROR, null, "journal",
+                    "Échec d'une écriture différée", e), err);
+        }
+    }
+
+    private void format(Entry entry, StringBuilder target) {
+        if (json) {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("time", Instant.ofEpochMilli(entry.timeMillis()).toString());
+            node.put("level", entry.level().name());
+            node.put("request", entry.requestId());
+            node.put("component", entry.component());
+            node.put("message", entry.message());
+            if (entry.error() != null) {
+                node.put("error", stackTrace(entry.error()));
+            }
+            target.append(node).append(System.lineSeparator());
+            return;
+        }
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(entry.timeMillis()), target);
+        target.append(' ').append(entry.level().name());
+        for (int i = entry.level().name().length(); i < 5; i++) {
+            target.append(' ');
+        }
+        target.append(" [").append(entry.requestId() != null ? entry.requestId() : "-").append("] ")
+                .append(entry.component()).append(": ").append(entry.message()).append(System.lineSeparator());
+        if (entry.error() != null) {
+            target.append(stackTrace(entry.error()));
+        }
+    }
+
+    private static String stackTrace(Throwable error) {
+        StringWriter trace = new StringWriter();
+        error.printStackTrace(new PrintWriter(trace));
+        return trace.toString();
+    }
+
+    private void write(StringBuilder out, StringBuilder err) {
+        if (file == null) {
+            print(System.out, out);
+            print(System.err, err);
+            return;
+        }
+        try {
+            if (fileWriter == null) {
+                fileWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            fileWriter.append(out).append(err);
+            fileWriter.flush();
+        } catch (IOException e) {
+            System.err.println("⚠️ Écriture du journal impossible dans " + file + ": " + e.getMessage());
+            print(System.out, out);
+            print(System.err, err);
+        }
+    }
+
+    private static void print(PrintStream stream, StringBuilder text) {
+        if (!text.isEmpty()) {
+            stream.print(text);
+            stream.flush();
+        }
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "📝 JOURNAL (niveau " + RequestLog.getThreshold() + ", tampon " + capacity + " lignes"
+                + (file != null ? ", " + file : "") + ")";
+    }
+
+    @Override
+    public List<String> getStatsLines() {
+        long writtenLines;
+        long writtenTasks;
+        synchronized (progress) {
+            writtenLines = written - tasksRun;
+            writtenTasks = tasksRun;
+        }
+        return List.of(
+                String.format("Lignes écrites: %d, écritures déléguées: %d, en attente: %d, perdues: %d",
+                        writtenLines, writtenTasks, buffer.size(), dropped.get()),
+                String.format("Détails verbeux: %d journalisés, %d écartés par échantillonnage",
+                        RequestLog.getSampledPayloads(), RequestLog.getSkippedPayloads()));
+    }
+}
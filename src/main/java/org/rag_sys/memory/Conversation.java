@@ -0,0 +1,243 @@
+package org.rag_sys.memory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.rag_sys.ingestion.TokenCounter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Historique d'une conversation avec un agent : message système, tours récents et résumé des tours plus anciens.
+ *
+ * À la fin de chaque tour, l'historique est compacté : le contexte documentaire injecté dans les questions
+ * est retiré (la recherche du tour suivant fournit le sien), puis les tours les plus anciens sont résumés
+ * en une ligne chacun tant que l'historique dépasse son budget de tokens. Le résumé est extractif
+ * (début de la question et de la réponse) : il ne coûte aucun appel au modèle.
+ */
+final class Conversation {
+
+    // Séparateur du DefaultContentInjector de LangChain4j entre la question et les segments injectés
+    static final String CONTEXT_MARKER = "\n\nAnswer using the following information:\n";
+    private static final String SUMMARY_HEADER = "Résumé des échanges précédents :";
+    private static final int MESSAGE_OVERHEAD_BYTES = 48;
+    private static final int CONVERSATION_OVERHEAD_BYTES = 256;
+    private static final int SUMMARY_QUESTION_CHARS = 160;
+    private static final int SUMMARY_ANSWER_CHARS = 240;
+    // Part du budget de tokens laissée au résumé
+    private static final int SUMMARY_BUDGET_DIVISOR = 4;
+
+    /**
+     * Effet d'une compaction
+     */
+    record Compaction(int strippedContexts, int summarizedTurns, int tokensSaved) {
+    }
+
+    private SystemMessage systemMessage;
+    private final List<ChatMessage> turns = new ArrayList<>();
+    private final List<String> summary = new ArrayList<>();
+    private long bytes = CONVERSATION_OVERHEAD_BYTES;
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    synchronized void add(ChatMessage message) {
+        if (message instanceof SystemMessage system) {
+            // AiServices renvoie le message système à chaque tour : il remplace le précédent
+            systemMessage = system;
+        } else {
+            turns.add(message);
+        }
+        bytes = computeBytes();
+    }
+
+    /**
+     * @return les messages à envoyer au modèle ; le résumé complète le message système
+     */
+    synchronized List<ChatMessage> messages() {
+        List<ChatMessage> messages = new ArrayList<>(turns.size() + 1);
+        String system = systemMessage != null ? systemMessage.text() : null;
+        if (!summary.isEmpty()) {
+            String digest = SUMMARY_HEADER + "\n" + String.join("\n", summary);
+            system = system != null ? system + "\n\n" + digest : digest;
+        }
+        if (system != null) {
+            messages.add(SystemMessage.from(system));
+        }
+        messages.addAll(turns);
+        return messages;
+    }
+
+    synchronized void clear() {
+        systemMessage = null;
+        turns.clear();
+        summary.clear();
+        bytes = computeBytes();
+    }
+
+    /**
+     * Compacte l'historique à la fin d'un tour
+     * @param tokenBudget tokens au plus pour les tours gardés tels quels (le dernier tour est toujours gardé)
+     * @param maxMessages nombre maximal de messages gardés tels quels
+     */
+    synchronized Compaction compact(int tokenBudget, int maxMessages, TokenCounter tokenCounter) {
+        int before = countTokens(tokenCounter);
+
+        int strippedContexts = 0;
+        for (int i = 0; i < turns.size(); i++) {
+            String question = textOf(turns.get(i));
+            int marker = turns.get(i) instanceof UserMessage && question != null ? question.indexOf(CONTEXT_MARKER) : -1;
+            if (marker >= 0) {
+                turns.set(i, UserMessage.from(question.substring(0, marker)));
+                strippedContexts++;
+            }
+        }
+
+        int summarizedTurns = 0;
+        int turnTokens = 0;
+        for (ChatMessage message : turns) {
+            turnTokens += tokensOf(message, tokenCounter);
+        }
+        while ((turnTokens > tokenBudget || turns.size() > maxMessages) && secondTurnStart() > 0) {
+            int end = secondTurnStart();
+            List<ChatMessage> oldest = new ArrayList<>(turns.subList(0, end));
+            turns.subList(0, end).clear();
+            for (ChatMessage message : oldest) {
+                turnTokens -= tokensOf(message, tokenCounter);
+            }
+            summary.add(summarize(oldest));
+            summarizedTurns++;
+        }
+
+        int summaryTokens = 0;
+        for (String line : summary) {
+            summaryTokens += tokenCounter.countTokens(line);
+        }
+        while (summaryTokens > tokenBudget / SUMMARY_BUDGET_DIVISOR && summary.size() > 1) {
+            summaryTokens -= tokenCounter.countTokens(summary.remove(0));
+        }
+
+        bytes = computeBytes();
+        return new Compaction(strippedContexts, summarizedTurns, Math.max(0, before - countTokens(tokenCounter)));
+    }
+
+    /**
+     * @return l'indice du début du deuxième tour (deuxième question), ou -1 s'il n'y a qu'un tour
+     */
+    private int secondTurnStart() {
+        for (int i = 1; i < turns.size(); i++) {
+            if (turns.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String summarize(List<ChatMessage> turn) {
+        StringBuilder line = new StringBuilder("- ");
+        for (ChatMessage message : turn) {
+            String text = textOf(message);
+            if (text == null || text.isBlank()) {
+                continue;
+            }
+            if (message instanceof UserMessage) {
+                line.append("Q : ").append(abbreviate(text, SUMMARY_QUESTION_CHARS)).append(' ');
+            } else if (message instanceof AiMessage) {
+                line.append("→ R : ").append(abbreviate(text, SUMMARY_ANSWER_CHARS)).append(' ');
+            }
+        }
+        return line.toString().trim();
+    }
+
+    private static String abbreviate(String text, int maxChars) {
+        String flat = text.replaceAll("\\s+", " ").trim();
+        return flat.length() <= maxChars ? flat : flat.substring(0, maxChars - 1) + "…";
+    }
+
+    private int countTokens(TokenCounter tokenCounter) {
+        int tokens = 0;
+        for (ChatMessage message : turns) {
+            tokens += tokensOf(message, tokenCounter);
+        }
+        for (String line : summary) {
+            tokens += tokenCounter.countTokens(line);
+        }
+        return tokens;
+    }
+
+    private static int tokensOf(ChatMessage message, TokenCounter tokenCounter) {
+        String text = textOf(message);
+        return text != null ? tokenCounter.countTokens(text) : 0;
+    }
+
+    private static String textOf(ChatMessage message) {
+        if (message instanceof UserMessage user) {
+            return user.hasSingleText() ? user.singleText() : null;
+        }
+        if (message instanceof AiMessage ai) {
+            return ai.text();
+        }
+        if (message instanceof SystemMessage system) {
+            return system.text();
+        }
+        return null;
+    }
+
+    private long computeBytes() {
+        long total = CONVERSATION_OVERHEAD_BYTES;
+        if (systemMessage != null) {
+            total += MESSAGE_OVERHEAD_BYTES + 2L * systemMessage.text().length();
+        }
+        for (ChatMessage message : turns) {
+            String text = textOf(message);
+            total += MESSAGE_OVERHEAD_BYTES + (text != null ? 2L * text.length() : 0);
+        }
+        for (String line : summary) {
+            total += MESSAGE_OVERHEAD_BYTES + 2L * line.length();
+        }
+        return total;
+    }
+
+    /**
+     * @return l'empreinte mémoire estimée (texte en UTF-16 et en-têtes d'objets)
+     */
+    long getBytes() {
+        return bytes;
+    }
+
+    void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    synchronized String toJson(ObjectMapper objectMapper) throws IOException {
+        ObjectNode json = objectMapper.createObjectNode();
+        if (systemMessage != null) {
+            json.put("system", systemMessage.text());
+        }
+        summary.forEach(json.putArray("summary")::add);
+        json.put("messages", ChatMessageSerializer.messagesToJson(turns));
+        return objectMapper.writeValueAsString(json);
+    }
+
+    static Conversation fromJson(String text, ObjectMapper objectMapper) throws IOException {
+        JsonNode json = objectMapper.readTree(text);
+        Conversation conversation = new Conversation();
+        if (json.hasNonNull("system")) {
+            conversation.systemMessage = SystemMessage.from(json.get("system").asText());
+        }
+        json.path("summary").forEach(line -> conversation.summary.add(line.asText()));
+        conversation.turns.addAll(ChatMessageDeserializer.messagesFromJson(json.path("messages").asText("[]")));
+        conversation.bytes = conversation.computeBytes();
+        return conversation;
+    }
+}
@@ -0,0 +1,92 @@
+package org.rag_sys.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.memory.ChatMemory;
+import org.rag_sys.context.RequestContext;
+
+import java.util.List;
+
+/**
+ * Mémoire de conversation de la chaîne d'un agent, partagée par toutes les sessions.
+ *
+ * La conversation est choisie à chaque appel d'après la session de la requête courante
+ * ({@link RequestContext#getSessionId()}) : chaque session a son propre historique avec chaque agent.
+ * Une question hors session (lots, rejeu) a un historique propre à la requête, oublié ensuite ;
+ * hors requête, la session "default" est utilisée.
+ *
+ * Les historiques d'un agent sont rangés sous un identifiant stable (la table de l'agent), pour que ceux
+ * déversés sur disque par le SessionMemoryStore soient retrouvés après un redémarrage.
+ */
+public class SessionChatMemory implements ChatMemory {
+
+    static final String DEFAULT_SESSION = "default";
+
+    private final SessionMemoryStore store;
+    private final int maxMessages;
+    private final String scope;
+
+    /**
+     * @param scope identifiant stable de l'agent (sa table), propre à chaque chaîne
+     * @param maxMessages nombre maximal de messages gardés tels quels, les plus anciens étant résumés
+     */
+    public SessionChatMemory(SessionMemoryStore store, String scope, int maxMessages) {
+        if (maxMessages < 2) {
+            throw new IllegalArgumentException("La mémoire doit garder au moins un tour (2 messages): " + maxMessages);
+        }
+        this.store = store;
+        this.maxMessages = maxMessages;
+        this.scope = "chaine-" + scope;
+    }
+
+    @Override
+    public Object id() {
+        return scope;
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        Conversation ephemeral = ephemeralConversation();
+        if (ephemeral == null) {
+            store.add(sessionKey(), message, maxMessages);
+            return;
+        }
+        ephemeral.add(message);
+        if (message instanceof AiMessage) {
+            store.compact(ephemeral, maxMessages);
+        }
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        Conversation ephemeral = ephemeralConversation();
+        return ephemeral != null ? ephemeral.messages() : store.messages(sessionKey());
+    }
+
+    @Override
+    public void clear() {
+        Conversation ephemeral = ephemeralConversation();
+        if (ephemeral != null) {
+            ephemeral.clear();
+        } else {
+            store.clear(sessionKey());
+        }
+    }
+
+    /**
+     * @return la conversation de la question isolée en cours, ou null si la requête appartient à une session
+     */
+    private Conversation ephemeralConversation() {
+        RequestContext context = RequestContext.current();
+        if (context == null || context.getSessionId() != null) {
+            return null;
+        }
+        return context.attribute(scope, key -> new Conversation());
+    }
+
+    private SessionMemoryStore.SessionKey sessionKey() {
+        RequestContext context = RequestContext.current();
+        String sessionId = context != null ? context.getSessionId() : DEFAULT_SESSION;
+        return new SessionMemoryStore.SessionKey(sessionId, scope);
+    }
+}
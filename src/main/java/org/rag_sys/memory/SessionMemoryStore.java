@@ -0,0 +1,341 @@
+package org.rag_sys.memory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import org.rag_sys.ingestion.HeuristicTokenCounter;
+import org.rag_sys.ingestion.TokenCounter;
+import org.rag_sys.logging.RequestLog;
+import org.rag_sys.metrics.StatsProvider;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mémoire des conversations de toutes les sessions, une conversation par (session, chaîne d'agent).
+ *
+ * L'empreinte totale est bornée : au-delà du plafond, les conversations les moins récemment utilisées
+ * sont évincées (LRU), de même que celles inactives depuis plus que le délai d'inactivité.
+ * Avec un répertoire de déchargement, une conversation évincée est écrite sur disque (hors du thread
+ * de la requête) et rechargée quand sa session revient, y compris après un redémarrage.
+ * Chaque conversation est compactée à la fin de chaque tour ({@link Conversation#compact}).
+ *
+ * Réglages : -Drag.memory.maxMegabytes (64), -Drag.memory.idleMinutes (30), -Drag.memory.tokenBudget (1024),
+ * -Drag.memory.spillDir (pas de déchargement par défaut).
+ */
+public class SessionMemoryStore implements StatsProvider {
+
+    private static final RequestLog LOG = RequestLog.of(SessionMemoryStore.class);
+    private static final long IDLE_SWEEP_PERIOD_SECONDS = 60;
+    private static final String SPILL_SUFFIX = ".json";
+
+    private static final SessionMemoryStore SHARED = new SessionMemoryStore(
+            Long.getLong("rag.memory.maxMegabytes", 64) * 1024 * 1024,
+            Duration.ofMinutes(Long.getLong("rag.memory.idleMinutes", 30)),
+            Integer.getInteger("rag.memory.tokenBudget", 1024),
+            System.getProperty("rag.memory.spillDir") != null ? Path.of(System.getProperty("rag.memory.spillDir")) : null);
+
+    /**
+     * Conversation d'une session avec une chaîne d'agent
+     */
+    record SessionKey(String sessionId, String scope) {
+    }
+
+    private final long maxBytes;
+    private final Duration idleTimeout;
+    private final int tokenBudget;
+    private final Path spillDirectory;
+    private final TokenCounter tokenCounter = new HeuristicTokenCounter();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "session-memory");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Ordre d'accès : la première conversation est la moins récemment utilisée
+    private final LinkedHashMap<SessionKey, Conversation> conversations = new LinkedHashMap<>(16, 0.75f, true);
+    private long footprintBytes;
+    // Conversations sur disque, et celles dont l'écriture est en cours
+    private final Set<SessionKey> spilledKeys = new HashSet<>();
+    private final Map<SessionKey, Conversation> spilling = new ConcurrentHashMap<>();
+
+    private final AtomicLong lruEvictions = new AtomicLong();
+    private final AtomicLong idleEvictions = new AtomicLong();
+    private final AtomicLong spilledConversations = new AtomicLong();
+    private final AtomicLong restoredConversations = new AtomicLong();
+    private final AtomicLong strippedContexts = new AtomicLong();
+    private final AtomicLong summarizedTurns = new AtomicLong();
+    private final AtomicLong tokensSaved = new AtomicLong();
+
+    /**
+     * @param maxBytes plafond de l'empreinte de toutes les conversations en mémoire
+     * @param idleTimeout délai d'inactivité au-delà duquel une conversation est évincée
+     * @param tokenBudget budget de tokens de l'historique d'une conversation
+     * @param spillDirectory répertoire de déchargement, ou null pour abandonner les conversations évincées
+     */
+    public SessionMemoryStore(long maxBytes, Duration idleTimeout, int tokenBudget, Path spillDirectory) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Le plafond mémoire doit être positif: " + maxBytes);
+        }
+        if (tokenBudget <= 0) {
+            throw new IllegalArgumentException("Le budget de tokens doit être positif: " + tokenBudget);
+        }
+        this.maxBytes = maxBytes;
+        this.idleTimeout = idleTimeout;
+        this.tokenBudget = tokenBudget;
+        this.spillDirectory = spillDirectory;
+        if (spillDirectory != null) {
+            indexSpilledConversations();
+        }
+        maintenance.scheduleWithFixedDelay(this::evictIdle, IDLE_SWEEP_PERIOD_SECONDS, IDLE_SWEEP_PERIOD_SECONDS,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return la mémoire commune à tous les agents, réglée par les propriétés système rag.memory.*
+     */
+    public static SessionMemoryStore shared() {
+        return SHARED;
+    }
+
+    List<ChatMessage> messages(SessionKey key) {
+        Conversation restored = null;
+        while (true) {
+            synchronized (this) {
+                Conversation conversation = conversations.get(key);
+                if (conversation != null || restored != null || !spilledKeys.contains(key)) {
+                    if (conversation == null && restored == null) {
+                        // Pas encore de conversation : inutile d'en créer une pour la lire
+                        return List.of();
+                    }
+                    conversation = conversation != null ? conversation : admit(key, restored);
+                    conversation.touch();
+                    return conversation.messages();
+                }
+            }
+            restored = restore(key);
+        }
+    }
+
+    /**
+     * Ajoute un message ; une réponse du modèle termine le tour et déclenche la compaction
+     */
+    void add(SessionKey key, ChatMessage message, int maxMessages) {
+        Conversation restored = null;
+        while (true) {
+            synchronized (this) {
+                Conversation conversation = conversations.get(key);
+                if (conversation != null || restored != null || !spilledKeys.contains(key)) {
+                    if (conversation == null) {
+                        conversation = admit(key, restored != null ? restored : new Conversation());
+                    }
+                    conversation.touch();
+                    long before = conversation.getBytes();
+                    conversation.add(message);
+                    if (message instanceof AiMessage) {
+                        recordCompaction(conversation.compact(tokenBudget, maxMessages, tokenCounter));
+                    }
+                    footprintBytes += conversation.getBytes() - before;
+                    evictOverCeiling();
+                    return;
+                }
+            }
+            restored = restore(key);
+        }
+    }
+
+    synchronized void clear(SessionKey key) {
+        Conversation conversation = conversations.remove(key);
+        if (conversation != null) {
+            footprintBytes -= conversation.getBytes();
+        }
+        if (spilledKeys.remove(key)) {
+            deleteSpillFile(key);
+        }
+    }
+
+    /**
+     * Compacte l'historique d'une question isolée, hors du magasin
+     */
+    void compact(Conversation conversation, int maxMessages) {
+        recordCompaction(conversation.compact(tokenBudget, maxMessages, tokenCounter));
+    }
+
+    private void recordCompaction(Conversation.Compaction compaction) {
+        strippedContexts.addAndGet(compaction.strippedContexts());
+        summarizedTurns.addAndGet(compaction.summarizedTurns());
+        tokensSaved.addAndGet(compaction.tokensSaved());
+    }
+
+    private Conversation admit(SessionKey key, Conversation conversation) {
+        conversations.put(key, conversation);
+        footprintBytes += conversation.getBytes();
+        return conversation;
+    }
+
+    private void evictOverCeiling() {
+        Iterator<Map.Entry<SessionKey, Conversation>> eldest = conversations.entrySet().iterator();
+        // La conversation en cours (la plus récente) reste en mémoire
+        while (footprintBytes > maxBytes && conversations.size() > 1) {
+            Map.Entry<SessionKey, Conversation> entry = eldest.next();
+            eldest.remove();
+            footprintBytes -= entry.getValue().getBytes();
+            lruEvictions.incrementAndGet();
+            spill(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private synchronized void evictIdle() {
+        long idleNanos = idleTimeout.toNanos();
+        long now = System.nanoTime();
+        Iterator<Map.Entry<SessionKey, Conversation>> iterator = conversations.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<SessionKey, Conversation> entry = iterator.next();
+            if (now - entry.getValue().getLastAccessNanos() < idleNanos) {
+                // Ordre d'accès : les suivantes sont plus récentes
+                break;
+            }
+            iterator.remove();
+            footprintBytes -= entry.getValue().getBytes();
+            idleEvictions.incrementAndGet();
+            spill(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Décharge une conversation évincée ; l'écriture se fait sur le thread de maintenance
+     */
+    private void spill(SessionKey key, Conversation conversation) {
+        if (spillDirectory == null) {
+            return;
+        }
+        spilledKeys.add(key);
+        spilling.put(key, conversation);
+        maintenance.execute(() -> {
+            try {
+                Files.createDirectories(spillDirectory);
+                Files.writeString(spillFile(key), conversation.toJson(objectMapper), StandardCharsets.UTF_8);
+                spilledConversations.incrementAndGet();
+            } catch (IOException e) {
+                LOG.warn(() -> "⚠️ Conversation de la session " + key.sessionId() + " non déchargée: " + e.getMessage());
+            } finally {
+                spilling.remove(key, conversation);
+                synchronized (this) {
+                    // Rechargée pendant l'écriture : le fichier est déjà périmé
+                    if (!spilledKeys.contains(key)) {
+                        deleteSpillFile(key);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Relit une conversation déchargée, hors du verrou du magasin
+     * @return la conversation, ou une conversation vide si le fichier est illisible
+     */
+    private Conversation restore(SessionKey key) {
+        Conversation conversation = spilling.get(key);
+        if (conversation == null) {
+            try {
+                conversation = Conversation.fromJson(Files.readString(spillFile(key), StandardCharsets.UTF_8), objectMapper);
+            } catch (IOException | RuntimeException e) {
+                LOG.warn(() -> "⚠️ Conversation de la session " + key.sessionId() + " non rechargée: " + e.getMessage());
+                conversation = new Conversation();
+            }
+        }
+        synchronized (this) {
+            if (spilledKeys.remove(key)) {
+                restoredConversations.incrementAndGet();
+                deleteSpillFile(key);
+            }
+        }
+        return conversation;
+    }
+
+    private void indexSpilledConversations() {
+        if (!Files.isDirectory(spillDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spillDirectory, "*" + SPILL_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String[] parts = new String(Base64.getUrlDecoder().decode(
+                        name.substring(0, name.length() - SPILL_SUFFIX.length())), StandardCharsets.UTF_8).split("\u0000", 2);
+                if (parts.length == 2) {
+                    spilledKeys.add(new SessionKey(parts[0], parts[1]));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn(() -> "⚠️ Répertoire de conversations illisible " + spillDirectory + ": " + e.getMessage());
+        }
+    }
+
+    private Path spillFile(SessionKey key) {
+        String name = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (key.sessionId() + "\u0000" + key.scope()).getBytes(StandardCharsets.UTF_8));
+        return spillDirectory.resolve(name + SPILL_SUFFIX);
+    }
+
+    private void deleteSpillFile(SessionKey key) {
+        try {
+            Files.deleteIfExists(spillFile(key));
+        } catch (IOException e) {
+            LOG.warn(() -> "⚠️ Fichier de conversation non supprimé: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return le nombre de sessions dont au moins une conversation est en mémoire
+     */
+    public synchronized int getActiveSessionCount() {
+        Set<String> sessions = new HashSet<>();
+        conversations.keySet().forEach(key -> sessions.add(key.sessionId()));
+        return sessions.size();
+    }
+
+    public synchronized long getFootprintBytes() {
+        return footprintBytes;
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "🧠 MÉMOIRE DES SESSIONS (plafond " + maxBytes / (1024 * 1024) + " Mo, inactivité "
+                + idleTimeout.toMinutes() + " min, " + tokenBudget + " tokens par conversation)";
+    }
+
+    @Override
+    public List<String> getStatsLines() {
+        List<String> lines = new ArrayList<>();
+        synchronized (this) {
+            lines.add(String.format("Sessions actives: %d, conversations en mémoire: %d, empreinte: %.1f Ko",
+                    getActiveSessionCount(), conversations.size(), footprintBytes / 1024.0));
+            if (spillDirectory != null) {
+                lines.add(String.format("Sur disque: %d conversations (%s), déchargées: %d, rechargées: %d",
+                        spilledKeys.size(), spillDirectory, spilledConversations.get(), restoredConversations.get()));
+            }
+        }
+        lines.add(String.format("Évictions: LRU %d, inactivité %d", lruEvictions.get(), idleEvictions.get()));
+        lines.add(String.format("Compaction: contextes retirés %d, tours résumés %d, tokens économisés %d",
+                strippedContexts.get(), summarizedTurns.get(), tokensSaved.get()));
+        return lines;
+    }
+}
@@ -0,0 +1,35 @@
+package org.rag_sys.metrics;
+
+import java.util.List;
+
+/**
+ * Composant capable de contribuer une section à la commande 'stats'
+ */
+public interface StatsProvider {
+    /**
+     * @return le titre de la section
+     */
+    String getStatsTitle();
+
+    /**
+     * @return les lignes de la section, déjà formatées
+     */
+    List<String> getStatsLines();
+
+    /**
+     * Présente les statistiques d'un composant partagé sous un titre propre à un agent
+     */
+    static StatsProvider titled(String title, StatsProvider provider) {
+        return new StatsProvider() {
+            @Override
+            public String getStatsTitle() {
+                return title;
+            }
+
+            @Override
+            public List<String> getStatsLines() {
+                return provider.getStatsLines();
+            }
+        };
+    }
+}
@@ -0,0 +1,276 @@
+package org.rag_sys.ollama;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.rag_sys.metrics.StatsProvider;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Garde les modèles Ollama de l'application chargés en mémoire.
+ *
+ * Au démarrage, chaque modèle déclaré est préchargé en parallèle de l'initialisation des agents,
+ * pour que la première question ne paie pas le temps de chargement. Ensuite, tant qu'un modèle a reçu
+ * du trafic récemment, un ping prolonge son keep_alive avant qu'Ollama ne le décharge ; après
+ * -Drag.ollama.idleMinutes sans requête (30 par défaut), les pings cessent et Ollama libère la mémoire.
+ * La durée de keep_alive des pings se règle avec -Drag.ollama.keepAliveMinutes (10 par défaut).
+ *
+ * Les vraies requêtes (chat, embeddings) ne portent pas de keep_alive : chacune ramène l'échéance
+ * au défaut d'Ollama (5 minutes). Les pings ont donc lieu à mi-parcours de la plus courte des deux durées,
+ * qu'il y ait eu du trafic ou non depuis le ping précédent.
+ */
+public class ModelResidencyManager implements StatsProvider {
+
+    public enum ModelKind { CHAT, EMBEDDING }
+
+    public static final int DEFAULT_KEEP_ALIVE_MINUTES = 10;
+    public static final int DEFAULT_IDLE_MINUTES = 30;
+    // keep_alive appliqué par Ollama aux requêtes qui n'en précisent pas
+    private static final int OLLAMA_DEFAULT_KEEP_ALIVE_MINUTES = 5;
+    private static final Duration LOAD_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration STATUS_TIMEOUT = Duration.ofSeconds(2);
+
+    private static final Map<String, ModelResidencyManager> MANAGERS = new ConcurrentHashMap<>();
+
+    private final String baseUrl;
+    private final long keepAliveMinutes;
+    private final long idleNanos;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, ResidentModel> models = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean keepAliveStarted;
+
+    private ModelResidencyManager(String baseUrl, long keepAliveMinutes, long idleMinutes) {
+        this.baseUrl = baseUrl;
+        this.keepAliveMinutes = keepAliveMinutes;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+        this.httpClient = HttpClient.newBuilder().connectTimeout(STATUS_TIMEOUT).build();
+        this.scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "ollama-residency");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return le gestionnaire de ce serveur Ollama, créé au premier appel
+     */
+    public static ModelResidencyManager of(String baseUrl) {
+        String key = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        return MANAGERS.computeIfAbsent(key, url -> new ModelResidencyManager(url,
+                Long.getLong("rag.ollama.keepAliveMinutes", DEFAULT_KEEP_ALIVE_MINUTES),
+                Long.getLong("rag.ollama.idleMinutes", DEFAULT_IDLE_MINUTES)));
+    }
+
+    /**
+     * Déclare un modèle à garder chargé
+     */
+    public void register(String modelName, ModelKind kind) {
+        models.computeIfAbsent(modelName, name -> new ResidentModel(name, kind));
+    }
+
+    /**
+     * Précharge en parallèle tous les modèles déclarés, puis démarre les pings de keep-alive.
+     * Les échecs sont signalés sans interrompre le démarrage : le modèle sera chargé à sa première requête.
+     */
+    public CompletableFuture<Void> warmUp() {
+        startKeepAlive();
+        List<CompletableFuture<Void>> warmUps = new ArrayList<>();
+        for (ResidentModel model : models.values()) {
+            warmUps.add(CompletableFuture.runAsync(() -> {
+                long start = System.nanoTime();
+                try {
+                    long loadNanos = load(model);
+                    model.warmUpNanos = System.nanoTime() - start;
+                    model.loadNanos = loadNanos;
+                    System.out.printf("🔥 Modèle %s préchargé en %.1f s%n", model.name, model.warmUpNanos / 1e9);
+                } catch (IOException e) {
+                    model.lastError = e.getMessage();
+                    System.err.println("⚠️ Échec du préchargement du modèle " + model.name + ": " + e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, scheduler));
+        }
+        return CompletableFuture.allOf(warmUps.toArray(new CompletableFuture[0]));
+    }
+
+    private synchronized void startKeepAlive() {
+        if (keepAliveStarted) {
+            return;
+        }
+        keepAliveStarted = true;
+        // Pinger à mi-parcours de l'échéance la plus proche laisse une marge pour un ping lent
+        long period = Math.max(1, TimeUnit.MINUTES.toSeconds(Math.min(keepAliveMinutes, OLLAMA_DEFAULT_KEEP_ALIVE_MINUTES)) / 2);
+        scheduler.scheduleWithFixedDelay(this::pingActiveModels, period, period, TimeUnit.SECONDS);
+    }
+
+    private void pingActiveModels() {
+        long now = System.nanoTime();
+        for (ResidentModel model : models.values()) {
+            // Une vraie requête ne compte pas comme un ping : elle a ramené l'échéance à 5 minutes
+            if (now - model.lastUsedNanos >= idleNanos) {
+                continue;
+            }
+            try {
+                load(model);
+                model.pings.incrementAndGet();
+            } catch (IOException e) {
+                model.lastError = e.getMessage();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Charge le modèle (ou prolonge sa présence) avec une requête minimale portant le keep_alive
+     * @return la durée de chargement annoncée par Ollama, 0 si le modèle était déjà en mémoire
+     */
+    private long load(ResidentModel model) throws IOException, InterruptedException {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("model", model.name);
+        body.put("keep_alive", keepAliveMinutes + "m");
+        String path;
+        if (model.kind == ModelKind.EMBEDDING) {
+            path = "/api/embed";
+            body.put("input", "préchargement");
+        } else {
+            // Sans prompt, /api/generate se contente de charger le modèle
+            path = "/api/generate";
+        }
+        JsonNode response = send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(LOAD_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build());
+        model.lastError = null;
+        return response.path("load_duration").asLong(0);
+    }
+
+    /**
+     * @return les modèles actuellement en mémoire selon /api/ps, avec leur échéance de déchargement
+     */
+    public Map<String, OffsetDateTime> loadedModels() throws IOException, InterruptedException {
+        JsonNode response = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/ps"))
+                .timeout(STATUS_TIMEOUT)
+                .GET()
+                .build());
+        Map<String, OffsetDateTime> loaded = new HashMap<>();
+        for (JsonNode model : response.path("models")) {
+            String expiresAt = model.path("expires_at").asText(null);
+            loaded.put(model.path("name").asText(), expiresAt == null ? null : OffsetDateTime.parse(expiresAt));
+        }
+        return loaded;
+    }
+
+    private JsonNode send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Ollama a répondu " + response.statusCode() + " à " + request.uri() + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    /**
+     * Note une requête vers le modèle : tant qu'il est utilisé, ses pings le gardent chargé
+     */
+    public void recordUse(String modelName, ModelKind kind) {
+        register(modelName, kind);
+        models.get(modelName).recordUse();
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "🔥 MODÈLES OLLAMA (" + baseUrl + ")";
+    }
+
+    @Override
+    public List<String> getStatsLines() {
+        Map<String, OffsetDateTime> loaded = null;
+        String statusError = null;
+        try {
+            loaded = loadedModels();
+        } catch (IOException e) {
+            statusError = e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            statusError = "interrompu";
+        }
+
+        List<String> lines = new ArrayList<>();
+        if (statusError != null) {
+            lines.add("État des modèles indisponible: " + statusError);
+        }
+        long now = System.nanoTime();
+        for (ResidentModel model : models.values()) {
+            String residency = loaded == null ? "état inconnu" : describeResidency(model.name, loaded);
+            String warmUp = model.warmUpNanos < 0 ? "non préchargé"
+                    : String.format("préchargé en %.1f s (chargement %.1f s)", model.warmUpNanos / 1e9, model.loadNanos / 1e9);
+            String lastUse = model.uses.get() == 0 ? "aucune requête"
+                    : String.format("%d requêtes, dernière il y a %d s", model.uses.get(),
+                            TimeUnit.NANOSECONDS.toSeconds(now - model.lastUsedNanos));
+            lines.add(String.format("%s (%s): %s | %s | %d pings | %s%s", model.name,
+                    model.kind.name().toLowerCase(), residency, warmUp, model.pings.get(), lastUse,
+                    model.lastError == null ? "" : " | erreur: " + model.lastError));
+        }
+        return lines;
+    }
+
+    private static String describeResidency(String modelName, Map<String, OffsetDateTime> loaded) {
+        for (Map.Entry<String, OffsetDateTime> entry : loaded.entrySet()) {
+            // "mistral" désigne "mistral:latest" dans /api/ps
+            String name = entry.getKey();
+            if (name.equals(modelName) || (!modelName.contains(":") && name.startsWith(modelName + ":"))) {
+                if (entry.getValue() == null) {
+                    return "chargé";
+                }
+                long minutes = Duration.between(OffsetDateTime.now(), entry.getValue()).toMinutes();
+                return "chargé, déchargement dans " + Math.max(0, minutes) + " min";
+            }
+        }
+        return "non chargé";
+    }
+
+    private static final class ResidentModel {
+        private final String name;
+        private final ModelKind kind;
+        private final AtomicLong uses = new AtomicLong();
+        private final AtomicLong pings = new AtomicLong();
+        private volatile long lastUsedNanos;
+        private volatile long warmUpNanos = -1;
+        private volatile long loadNanos;
+        private volatile String lastError;
+
+        private ResidentModel(String name, ModelKind kind) {
+            this.name = name;
+            this.kind = kind;
+            // Le démarrage compte comme une utilisation : le modèle reste chargé pendant la fenêtre d'inactivité
+            this.lastUsedNanos = System.nanoTime();
+        }
+
+        private void recordUse() {
+            uses.incrementAndGet();
+            lastUsedNanos = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.rag_sys.ollama;
+
+import org.rag_sys.logging.RequestLog;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Répartit les requêtes d'un groupe d'instances Ollama vers celle qui a le moins de requêtes en cours.
+ *
+ * Une instance est écartée après plusieurs échecs consécutifs, ou quand sa latence moyenne dépasse
+ * largement celle des autres ; elle revient après une période d'éviction (doublée à chaque récidive)
+ * si son contrôle de santé répond. La dernière instance disponible n'est jamais écartée.
+ *
+ * La latence est suivie par classe de requête (modèle et options : une classification courte du garde
+ * ne se compare pas à une réponse RAG complète), et une instance n'est comparée aux autres que sur une même classe.
+ */
+final class OllamaBackendBalancer {
+
+    private static final RequestLog LOG = RequestLog.of(OllamaBackendBalancer.class);
+
+    static final int FAILURES_BEFORE_EJECTION = 3;
+    static final double SLOW_FACTOR = 3.0;
+    private static final long MIN_SLOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final long BASE_EJECTION_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long MAX_EJECTION_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final long HEALTH_CHECK_PERIOD_SECONDS = 10;
+    private static final Duration HEALTH_CHECK_TIMEOUT = Duration.ofSeconds(2);
+
+    private final List<Backend> backends;
+    private final HttpClient httpClient;
+    private final AtomicInteger nextStart = new AtomicInteger();
+
+    OllamaBackendBalancer(List<String> urls, HttpClient httpClient) {
+        this.backends = urls.stream().map(Backend::new).toList();
+        this.httpClient = httpClient;
+        if (backends.size() > 1) {
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ollama-health");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::checkHealth, HEALTH_CHECK_PERIOD_SECONDS,
+                    HEALTH_CHECK_PERIOD_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    int size() {
+        return backends.size();
+    }
+
+    /**
+     * Réserve l'instance disponible la moins chargée ; à appeler avec {@link #release} une fois la réponse reçue,
+     * ou {@link #abandon} si la requête a été annulée
+     */
+    Backend acquire() {
+        // Départ tournant : à charge égale, les instances sont servies à tour de rôle
+        int start = Math.floorMod(nextStart.getAndIncrement(), backends.size());
+        Backend chosen = null;
+        for (int i = 0; i < backends.size(); i++) {
+            Backend backend = backends.get((start + i) % backends.size());
+            if (!backend.ejected && (chosen == null || backend.outstanding.get() < chosen.outstanding.get())) {
+                chosen = backend;
+            }
+        }
+        if (chosen == null) {
+            // Toutes écartées (ne devrait pas arriver) : la plus proche de son retour
+            chosen = backends.stream().min((a, b) -> Long.compare(a.ejectedUntilNanos, b.ejectedUntilNanos)).orElseThrow();
+        }
+        chosen.outstanding.incrementAndGet();
+        chosen.requests.incrementAndGet();
+        return chosen;
+    }
+
+    /**
+     * @param latencyClass classe de la requête (modèle et options), dont la latence est comparée d'une instance à l'autre
+     */
+    void release(Backend backend, String latencyClass, long elapsedNanos, boolean success) {
+        backend.outstanding.decrementAndGet();
+        if (success) {
+            double latencyNanos;
+            synchronized (backend) {
+                backend.consecutiveFailures = 0;
+                latencyNanos = backend.latencyNanos.merge(latencyClass, (double) elapsedNanos,
+                        (previous, elapsed) -> LATENCY_SMOOTHING * elapsed + (1 - LATENCY_SMOOTHING) * previous);
+            }
+            ejectIfSlow(backend, latencyClass, latencyNanos);
+        } else {
+            backend.failures.incrementAndGet();
+            recordFailure(backend, "échecs répétés");
+        }
+    }
+
+    /**
+     * Libère une instance dont la requête a été annulée par l'appelant : ni succès ni échec n'est compté
+     */
+    void abandon(Backend backend) {
+        backend.outstanding.decrementAndGet();
+    }
+
+    private void recordFailure(Backend backend, String reason) {
+        boolean eject;
+        synchronized (backend) {
+            backend.consecutiveFailures++;
+            eject = backend.consecutiveFailures >= FAILURES_BEFORE_EJECTION;
+        }
+        if (eject) {
+            eject(backend, reason);
+        }
+    }
+
+    private void ejectIfSlow(Backend backend, String latencyClass, double latencyNanos) {
+        List<Double> others = new ArrayList<>();
+        for (Backend other : backends) {
+            Double otherLatency = other.latencyNanos.get(latencyClass);
+            if (other != backend && !other.ejected && otherLatency != null) {
+                others.add(otherLatency);
+            }
+        }
+        if (others.isEmpty()) {
+            return;
+        }
+        double[] sorted = others.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        double median = sorted[sorted.length / 2];
+        if (latencyNanos > MIN_SLOW_NANOS && latencyNanos > SLOW_FACTOR * median) {
+            eject(backend, String.format("lente sur %s (%.1f s contre %.1f s)", latencyClass, latencyNanos / 1e9, median / 1e9));
+        }
+    }
+
+    private synchronized void eject(Backend backend, String reason) {
+        if (backend.ejected) {
+            return;
+        }
+        long available = backends.stream().filter(b -> !b.ejected).count();
+        if (available <= 1) {
+            return;
+        }
+        long duration = Math.min(MAX_EJECTION_NANOS, BASE_EJECTION_NANOS << Math.min(backend.ejections, 10));
+        backend.ejectedUntilNanos = System.nanoTime() + duration;
+        backend.ejections++;
+        backend.ejectionReason = reason;
+        backend.ejected = true;
+        LOG.warn(() -> String.format("⚠️ Instance Ollama %s écartée pour %d s: %s",
+                backend.url, TimeUnit.NANOSECONDS.toSeconds(duration), reason));
+    }
+
+    private void checkHealth() {
+        for (Backend backend : backends) {
+            boolean healthy = ping(backend);
+            if (backend.ejected) {
+                if (healthy && System.nanoTime() >= backend.ejectedUntilNanos) {
+                    synchronized (backend) {
+                        backend.consecutiveFailures = 0;
+                        // La latence mesurée avant l'éviction ne reflète plus l'état de l'instance
+                        backend.latencyNanos.clear();
+                    }
+                    backend.ejected = false;
+                    LOG.info(() -> "✅ Instance Ollama " + backend.url + " réintégrée");
+                }
+            } else if (!healthy) {
+                recordFailure(backend, "contrôle de santé en échec");
+            }
+        }
+    }
+
+    private boolean ping(Backend backend) {
+        try {
+            HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(URI.create(backend.url + "/api/version"))
+                    .timeout(HEALTH_CHECK_TIMEOUT)
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200;
+        } catch (java.io.IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return une ligne par instance : part des requêtes, charge en cours, latence par classe de requête et état
+     */
+    List<String> describe() {
+        long total = Math.max(1, backends.stream().mapToLong(b -> b.requests.get()).sum());
+        List<String> lines = new ArrayList<>();
+        for (Backend backend : backends) {
+            String state = backend.ejected
+                    ? String.format("écartée (%s), retour dans %d s", backend.ejectionReason,
+                            Math.max(0, TimeUnit.NANOSECONDS.toSeconds(backend.ejectedUntilNanos - System.nanoTime())))
+                    : "active";
+            lines.add(String.format("%s: %d requêtes (%.0f%%), %d en cours, %d échecs, latence %s | %s",
+                    backend.url, backend.requests.get(), 100.0 * backend.requests.get() / total,
+                    backend.outstanding.get(), backend.failures.get(),
+                    describeLatencies(backend), state));
+        }
+        return lines;
+    }
+
+    private static String describeLatencies(Backend backend) {
+        List<String> latencies = new ArrayList<>();
+        backend.latencyNanos.forEach((latencyClass, nanos) -> latencies.add(String.format("%s %.2f s", latencyClass, nanos / 1e9)));
+        return latencies.isEmpty() ? "n/d" : String.join(", ", latencies);
+    }
+
+    List<String> urls() {
+        return backends.stream().map(backend -> backend.url).toList();
+    }
+
+    static final class Backend {
+        final String url;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        // Moyenne glissante par classe de requête
+        private final Map<String, Double> latencyNanos = new ConcurrentSkipListMap<>();
+        private int consecutiveFailures;
+        private volatile boolean ejected;
+        private volatile long ejectedUntilNanos;
+        private int ejections;
+        private volatile String ejectionReason;
+
+        private Backend(String url) {
+            this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package org.rag_sys.ollama;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.jdk.JdkHttpClient;
+import dev.langchain4j.http.client.sse.ServerSentEvent;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import dev.langchain4j.model.chat.request.ResponseFormat;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.ollama.OllamaChatModel;
+import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+import org.rag_sys.concurrent.AsyncTasks;
+import org.rag_sys.metrics.StatsProvider;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Clients de modèles Ollama partagés par tous les agents d'un même groupe d'instances.
+ *
+ * Un modèle est construit une seule fois par (modèle, options) puis réutilisé : les OllamaChatModel
+ * et OllamaEmbeddingModel sont sans état et sûrs entre threads. Tous passent par un unique client HTTP/1.1
+ * dont les connexions restent ouvertes entre les requêtes (keep-alive du client JDK),
+ * et le nombre de requêtes simultanées par instance est borné par -Drag.ollama.maxConnections
+ * (4 par défaut, le parallélisme par défaut d'Ollama) : au-delà, les requêtes attendent une place.
+ * Comme le parallélisme d'Ollama, la borne s'applique séparément aux modèles de chat et d'embedding :
+ * une ingestion massive n'empêche pas de répondre aux questions.
+ * Avec plusieurs instances, chaque requête part vers la moins chargée (voir OllamaBackendBalancer).
+ */
+public class OllamaClientRegistry implements StatsProvider {
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 4;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final Map<String, OllamaClientRegistry> REGISTRIES = new ConcurrentHashMap<>();
+
+    private final String baseUrl;
+    private final int maxConnections;
+    private final java.net.http.HttpClient sharedHttpClient;
+    private final OllamaBackendBalancer balancer;
+    private final Map<ModelResidencyManager.ModelKind, ConnectionLimit> connections = new EnumMap<>(ModelResidencyManager.ModelKind.class);
+    private final Map<ChatModelKey, OllamaChatModel> chatModels = new ConcurrentHashMap<>();
+    private final Map<EmbeddingModelKey, EmbeddingModel> embeddingModels = new ConcurrentHashMap<>();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private OllamaClientRegistry(List<String> backends, int maxConnectionsPerBackend) {
+        this.sharedHttpClient = java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_1_1)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .build();
+        this.balancer = new OllamaBackendBalancer(backends, sharedHttpClient);
+        // Les modèles sont construits sur la première instance, les requêtes redirigées vers celle choisie
+        this.baseUrl = balancer.urls().get(0);
+        this.maxConnections = maxConnectionsPerBackend * backends.size();
+        for (ModelResidencyManager.ModelKind kind : ModelResidencyManager.ModelKind.values()) {
+            connections.put(kind, new ConnectionLimit(maxConnections));
+        }
+    }
+
+    /**
+     * @return le registre de ce serveur Ollama, créé au premier appel
+     */
+    public static OllamaClientRegistry of(String baseUrl) {
+        return of(List.of(baseUrl));
+    }
+
+    /**
+     * @return le registre de ce groupe d'instances Ollama, créé au premier appel
+     */
+    public static OllamaClientRegistry of(List<String> backends) {
+        return REGISTRIES.computeIfAbsent(String.join(",", backends), key -> new OllamaClientRegistry(backends,
+                Integer.getInteger("rag.ollama.maxConnections", DEFAULT_MAX_CONNECTIONS)));
+    }
+
+    /**
+     * @return le modèle de chat partagé pour ces options
+     * @param responseFormat format de réponse imposé, ou null
+     * @param timeout délai de lecture d'une réponse, ou null pour celui de langchain4j
+     */
+    public OllamaChatModel chatModel(String modelName, double temperature, ResponseFormat responseFormat, Duration timeout) {
+        return chatModel(modelName, temperature, responseFormat, timeout, null);
+    }
+
+    /**
+     * @return le modèle de chat partagé pour ces options
+     * @param responseFormat format de réponse imposé (JSON, ou schéma JSON contraignant la génération), ou null
+     * @param timeout délai de lecture d'une réponse, ou null pour celui de langchain4j
+     * @param maxTokens nombre maximal de tokens générés (num_predict), ou null pour celui du modèle
+     */
+    public OllamaChatModel chatModel(String modelName, double temperature, ResponseFormat responseFormat, Duration timeout,
+                                     Integer maxTokens) {
+        return chatModels.computeIfAbsent(new ChatModelKey(modelName, temperature, responseFormat, timeout, maxTokens),
+                key -> OllamaChatModel.builder()
+                        .httpClientBuilder(new SharedHttpClientBuilder(modelName, ModelResidencyManager.ModelKind.CHAT,
+                                latencyClass(modelName, "chat" + (responseFormat == null ? "" : ", json")
+                                        + (maxTokens == null ? "" : ", " + maxTokens + " tokens max"))))
+                        .baseUrl(baseUrl)
+                        .modelName(modelName)
+                        .temperature(temperature)
+                        .responseFormat(responseFormat)
+                        .timeout(timeout)
+                        .numPredict(maxTokens)
+                        .build());
+    }
+
+    /**
+     * @return le modèle d'embedding partagé pour ces options
+     */
+    public EmbeddingModel embeddingModel(String modelName, boolean logRequests) {
+        return embeddingModels.computeIfAbsent(new EmbeddingModelKey(modelName, logRequests),
+                key -> new OllamaEmbeddingModel.OllamaEmbeddingModelBuilder()
+                        .httpClientBuilder(new SharedHttpClientBuilder(modelName, ModelResidencyManager.ModelKind.EMBEDDING,
+                                latencyClass(modelName, "embedding")))
+                        .baseUrl(baseUrl)
+                        .logRequests(logRequests)
+                        .modelName(modelName)
+                        .build());
+    }
+
+    /**
+     * @return un client HTTP qui passe par les connexions partagées et la répartition entre instances,
+     * pour les appels que les modèles langchain4j ne couvrent pas ; les URL s'écrivent sur {@link #getBaseUrl()}
+     */
+    public HttpClient httpClient(String modelName, ModelResidencyManager.ModelKind kind, Duration readTimeout) {
+        return new SharedHttpClientBuilder(modelName, kind, latencyClass(modelName, kind.name().toLowerCase() + ", appel direct"))
+                .readTimeout(readTimeout).build();
+    }
+
+    /**
+     * @return le nom sous lequel la latence de ces requêtes est suivie et comparée entre instances
+     */
+    private static String latencyClass(String modelName, String options) {
+        return modelName + " (" + options + ")";
+    }
+
+    /**
+     * @return l'URL de la première instance, réécrite vers l'instance choisie à chaque requête
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * @return les URL des instances du groupe
+     */
+    public List<String> getBackends() {
+        return balancer.urls();
+    }
+
+    private record ChatModelKey(String modelName, double temperature, ResponseFormat responseFormat, Duration timeout,
+                                Integer maxTokens) {
+    }
+
+    private record EmbeddingModelKey(String modelName, boolean logRequests) {
+    }
+
+    /**
+     * Places de requêtes simultanées d'un type de modèle, et leurs statistiques d'attente
+     */
+    private static final class ConnectionLimit {
+        private final Semaphore permits;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicLong waitedRequests = new AtomicLong();
+
+        private ConnectionLimit(int maxConnections) {
+            this.permits = new Semaphore(maxConnections, true);
+        }
+
+        private void acquire() {
+            long start = System.nanoTime();
+            if (!permits.tryAcquire()) {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrompu en attente d'une connexion Ollama", e);
+                }
+                long waited = System.nanoTime() - start;
+                waitedRequests.incrementAndGet();
+                totalWaitNanos.addAndGet(waited);
+                maxWaitNanos.accumulateAndGet(waited, Math::max);
+            }
+            requests.incrementAndGet();
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        }
+
+        private void release() {
+            inFlight.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "🔌 CLIENTS OLLAMA PARTAGÉS (" + String.join(", ", balancer.urls()) + ")";
+    }
+
+    @Override
+    public List<String> getStatsLines() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("Modèles partagés: %d de chat, %d d'embedding, un seul client HTTP/1.1 keep-alive (%d échecs)",
+                chatModels.size(), embeddingModels.size(), failures.get()));
+        for (Map.Entry<ModelResidencyManager.ModelKind, ConnectionLimit> entry : connections.entrySet()) {
+            ConnectionLimit limit = entry.getValue();
+            long waited = limit.waitedRequests.get();
+            lines.add(String.format("Requêtes %s: %d, %d en cours, pic %d/%d connexions, attente: %d requêtes, moyenne %.1f ms, max %.1f ms",
+                    entry.getKey().name().toLowerCase(), limit.requests.get(), limit.inFlight.get(), limit.peakInFlight.get(),
+                    maxConnections, waited, waited == 0 ? 0 : limit.totalWaitNanos.get() / 1e6 / waited,
+                    limit.maxWaitNanos.get() / 1e6));
+        }
+        if (balancer.size() > 1) {
+            lines.addAll(balancer.describe());
+        }
+        return lines;
+    }
+
+    /**
+     * Fournit aux modèles langchain4j un client qui réutilise le client HTTP partagé et borne la concurrence
+     */
+    private class SharedHttpClientBuilder implements HttpClientBuilder {
+
+        private final String modelName;
+        private final ModelResidencyManager.ModelKind kind;
+        private final String latencyClass;
+        private Duration connectTimeout;
+        private Duration readTimeout;
+
+        private SharedHttpClientBuilder(String modelName, ModelResidencyManager.ModelKind kind, String latencyClass) {
+            this.modelName = modelName;
+            this.kind = kind;
+            this.latencyClass = latencyClass;
+        }
+
+        @Override
+        public Duration connectTimeout() {
+            return connectTimeout;
+        }
+
+        @Override
+        public HttpClientBuilder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        @Override
+        public Duration readTimeout() {
+            return readTimeout;
+        }
+
+        @Override
+        public HttpClientBuilder readTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        @Override
+        public HttpClient build() {
+            // Le délai de lecture reste propre au modèle : JdkHttpClient l'applique à chaque requête
+            return new BoundedHttpClient(JdkHttpClient.builder()
+                    .httpClientBuilder(new FixedJdkClientBuilder())
+                    .readTimeout(readTimeout)
+                    .build(), modelName, kind, latencyClass);
+        }
+    }
+
+    private class BoundedHttpClient implements HttpClient {
+
+        private final HttpClient delegate;
+        private final String modelName;
+        private final ModelResidencyManager.ModelKind kind;
+        private final String latencyClass;
+        private final ConnectionLimit limit;
+
+        private BoundedHttpClient(HttpClient delegate, String modelName, ModelResidencyManager.ModelKind kind,
+                                  String latencyClass) {
+            this.delegate = delegate;
+            this.modelName = modelName;
+            this.kind = kind;
+            this.latencyClass = latencyClass;
+            this.limit = connections.get(kind);
+        }
+
+        /**
+         * Réécrit la requête vers l'instance choisie et note l'usage du modèle sur cette instance
+         */
+        private HttpRequest routeTo(OllamaBackendBalancer.Backend backend, HttpRequest request) {
+            ModelResidencyManager.of(backend.url).recordUse(modelName, kind);
+            if (backend.url.equals(baseUrl)) {
+                return request;
+            }
+            return HttpRequest.builder()
+                    .method(request.method())
+                    .url(backend.url + request.url().substring(baseUrl.length()))
+                    .headers(request.headers())
+                    .body(request.body())
+                    .build();
+        }
+
+        @Override
+        public SuccessfulHttpResponse execute(HttpRequest request) throws HttpException, RuntimeException {
+            limit.acquire();
+            OllamaBackendBalancer.Backend backend = balancer.acquire();
+            long start = System.nanoTime();
+            try {
+                SuccessfulHttpResponse response = delegate.execute(routeTo(backend, request));
+                balancer.release(backend, latencyClass, System.nanoTime() - start, true);
+                return response;
+            } catch (RuntimeException e) {
+                releaseAfterError(backend, start, e);
+                throw e;
+            } catch (Error e) {
+                balancer.abandon(backend);
+                throw e;
+            } finally {
+                limit.release();
+            }
+        }
+
+        /**
+         * Une annulation par l'appelant (délai dépassé, arrêt) ne dit rien de l'instance :
+         * elle n'est comptée ni comme échec ni dans les échecs consécutifs menant à l'éviction
+         */
+        private void releaseAfterError(OllamaBackendBalancer.Backend backend, long start, Throwable error) {
+            if (AsyncTasks.isCancellation(error) || Thread.currentThread().isInterrupted()) {
+                balancer.abandon(backend);
+                return;
+            }
+            failures.incrementAndGet();
+            balancer.release(backend, latencyClass, System.nanoTime() - start, false);
+        }
+
+        @Override
+        public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+            limit.acquire();
+            OllamaBackendBalancer.Backend backend = balancer.acquire();
+            long start = System.nanoTime();
+            AtomicBoolean released = new AtomicBoolean();
+            Consumer<Throwable> releaseOnce = error -> {
+                if (released.compareAndSet(false, true)) {
+                    if (error == null) {
+                        balancer.release(backend, latencyClass, System.nanoTime() - start, true);
+                    } else {
+                        releaseAfterError(backend, start, error);
+                    }
+                    limit.release();
+                }
+            };
+            // La connexion reste occupée jusqu'à la fin du flux
+            delegate.execute(routeTo(backend, request), parser, new ServerSentEventListener() {
+                @Override
+                public void onOpen(SuccessfulHttpResponse response) {
+                    listener.onOpen(response);
+                }
+
+                @Override
+                public void onEvent(ServerSentEvent event) {
+                    listener.onEvent(event);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    releaseOnce.accept(error);
+                    listener.onError(error);
+                }
+
+                @Override
+                public void onClose() {
+                    releaseOnce.accept(null);
+                    listener.onClose();
+                }
+            });
+        }
+    }
+
+    /**
+     * JdkHttpClient construit son client java.net.http à partir d'un Builder : celui-ci rend toujours le client partagé
+     */
+    private class FixedJdkClientBuilder implements java.net.http.HttpClient.Builder {
+        @Override
+        public java.net.http.HttpClient.Builder cookieHandler(CookieHandler cookieHandler) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder connectTimeout(Duration duration) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder sslContext(SSLContext sslContext) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder sslParameters(SSLParameters sslParameters) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder executor(Executor executor) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder followRedirects(java.net.http.HttpClient.Redirect policy) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder version(java.net.http.HttpClient.Version version) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder priority(int priority) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder proxy(ProxySelector proxySelector) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder authenticator(Authenticator authenticator) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient build() {
+            return sharedHttpClient;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.rag_sys.orchestrator;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.rag_sys.agent.AgentType;
+import org.rag_sys.indexing.DirectoryWatch;
+import org.rag_sys.indexing.LiveDirectoryIndexer;
+import org.rag_sys.metrics.StatsProvider;
+import org.rag_sys.model.DocumentAnalyser;
+import org.rag_sys.resilience.CircuitBreaker;
+import org.rag_sys.retrieval.HybridContentRetriever;
+import org.rag_sys.retrieval.KeywordIndexedEmbeddingStore;
+import org.rag_sys.services.DocumentLoaderService;
+import org.rag_sys.services.VectorStoreService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chaîne RAG construite pour un agent, avec les composants nécessaires
+ * pour la faire évoluer après le démarrage (store, modèle d'embedding, services)
+ */
+public class AgentPipeline {
+    private final DocumentAnalyser documentAnalyser;
+    private final ContentRetriever contentRetriever;
+    private final ContentAggregator contentAggregator;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final EmbeddingModel embeddingModel;
+    private final Path documentsPath;
+    private final VectorStoreService vectorStoreService;
+    private final DocumentLoaderService documentLoaderService;
+    private final List<CircuitBreaker> circuitBreakers;
+    private final DirectoryWatch directoryWatch;
+
+    /**
+     * @param contentRetriever recherche de l'agent, hors disjoncteur
+     * @param circuitBreakers disjoncteurs de la recherche et de la génération de cet agent
+     * @param directoryWatch surveillance ouverte avant l'ingestion pour la réindexation à chaud, ou null
+     */
+    public AgentPipeline(DocumentAnalyser documentAnalyser, ContentRetriever contentRetriever,
+                         ContentAggregator contentAggregator,
+                         EmbeddingStore<TextSegment> embeddingStore,
+                         EmbeddingModel embeddingModel, Path documentsPath,
+                         VectorStoreService vectorStoreService, DocumentLoaderService documentLoaderService,
+                         List<CircuitBreaker> circuitBreakers, DirectoryWatch directoryWatch) {
+        this.documentAnalyser = documentAnalyser;
+        this.contentRetriever = contentRetriever;
+        this.contentAggregator = contentAggregator;
+        this.embeddingStore = embeddingStore;
+        this.embeddingModel = embeddingModel;
+        this.documentsPath = documentsPath;
+        this.vectorStoreService = vectorStoreService;
+        this.documentLoaderService = documentLoaderService;
+        this.circuitBreakers = circuitBreakers;
+        this.directoryWatch = directoryWatch;
+    }
+
+    public DocumentAnalyser getDocumentAnalyser() {
+        return documentAnalyser;
+    }
+
+    public ContentRetriever getContentRetriever() {
+        return contentRetriever;
+    }
+
+    public ContentAggregator getContentAggregator() {
+        return contentAggregator;
+    }
+
+    public EmbeddingStore<TextSegment> getEmbeddingStore() {
+        return embeddingStore;
+    }
+
+    public EmbeddingModel getEmbeddingModel() {
+        return embeddingModel;
+    }
+
+    public Path getDocumentsPath() {
+        return documentsPath;
+    }
+
+    public List<CircuitBreaker> getCircuitBreakers() {
+        return circuitBreakers;
+    }
+
+    /**
+     * @return les composants de la chaîne qui exposent des statistiques (agrégateur, store quantifié, disjoncteurs, etc.)
+     */
+    public List<StatsProvider> getStatsProviders() {
+        List<StatsProvider> providers = new ArrayList<>(circuitBreakers);
+        ContentRetriever retriever = contentRetriever instanceof HybridContentRetriever hybridRetriever
+                ? hybridRetriever.getVectorRetriever()
+                : contentRetriever;
+        if (retriever instanceof StatsProvider statsProvider) {
+            providers.add(statsProvider);
+        }
+        if (contentAggregator instanceof StatsProvider statsProvider) {
+            providers.add(statsProvider);
+        }
+        EmbeddingStore<TextSegment> store = embeddingStore instanceof KeywordIndexedEmbeddingStore keywordIndexedStore
+                ? keywordIndexedStore.getDelegate()
+                : embeddingStore;
+        if (store instanceof StatsProvider statsProvider) {
+            providers.add(statsProvider);
+        }
+        return providers;
+    }
+
+    /**
+     * Crée un indexeur à chaud sur le répertoire de documents de cet agent. Sans surveillance ouverte
+     * avant l'ingestion, elle est ouverte maintenant : les changements faits pendant le chargement sont manqués.
+     */
+    public LiveDirectoryIndexer createLiveIndexer(AgentType agentType) throws IOException {
+        DirectoryWatch watch = directoryWatch != null ? directoryWatch : DirectoryWatch.open(documentsPath);
+        return new LiveDirectoryIndexer(agentType, watch, embeddingStore, embeddingModel,
+                vectorStoreService, documentLoaderService);
+    }
+}
@@ -3,33 +3,92 @@ package org.rag_sys.orchestrator;
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import org.rag_sys.agent.AgentRouter;
 import org.rag_sys.agent.AgentType;
+import org.rag_sys.batch.BatchReport;
+import org.rag_sys.batch.BatchRunner;
+import org.rag_sys.config.AgentProfile;
+import org.rag_sys.config.ModelRole;
 import org.rag_sys.config.RagConfiguration;
+import org.rag_sys.config.VectorColumnType;
+import org.rag_sys.config.VectorStoreMode;
 import org.rag_sys.factory.ServiceFactory;
+import org.rag_sys.indexing.DirectoryWatch;
+import org.rag_sys.ingestion.NearDuplicateIndex;
+import org.rag_sys.logging.RequestLog;
+import org.rag_sys.memory.SessionMemoryStore;
 import org.rag_sys.model.DocumentAnalyser;
+import org.rag_sys.ollama.ModelResidencyManager;
+import org.rag_sys.ollama.OllamaClientRegistry;
+import org.rag_sys.resilience.CircuitBreaker;
+import org.rag_sys.resilience.CircuitBreakingContentRetriever;
+import org.rag_sys.retrieval.CoalescingEmbeddingModel;
 import org.rag_sys.services.*;
 import org.rag_sys.services.impl.AgentUserInteractionService;
+import org.rag_sys.services.impl.PartitionedPgVectorStoreService;
+import org.rag_sys.store.SharedPgVectorPool;
+import org.rag_sys.traffic.ReplayReport;
+import org.rag_sys.traffic.TrafficCaptureLog;
+import org.rag_sys.traffic.TrafficRecord;
+import org.rag_sys.traffic.TrafficReplayer;
 
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 /**
  * Orchestrateur principal du système RAG
  */
 public class RagSystemOrchestrator {
     
+    // Au-delà, un appel compte comme lent pour le disjoncteur (-Drag.breaker.retrievalSlowSeconds, etc.)
+    private static final long DEFAULT_RETRIEVAL_SLOW_SECONDS = 5;
+    private static final long DEFAULT_GENERATION_SLOW_SECONDS = 60;
+    // Recherche adaptative : plafond de k, puis score minimal et budget de génération par défaut
+    // (-Drag.adaptive.minScore, -Drag.adaptive.latencyBudgetSeconds)
+    private static final int ADAPTIVE_MAX_RESULTS = 8;
+    private static final long DEFAULT_ADAPTIVE_LATENCY_BUDGET_SECONDS = 20;
+
     private final UserInteractionService userInteractionService;
 //    private final ServiceFactory serviceFactory;
     private final AgentRouter agentRouter;
-//    private final RagConfiguration configuration;
+    private final RagConfiguration configuration;
+    private final Set<ModelResidencyManager> modelResidency = new LinkedHashSet<>();
+    private TrafficCaptureLog trafficCaptureLog;
+    private boolean sharedSchema;
+    private boolean halfPrecisionVectors;
+    private boolean adaptiveRetrieval;
+    private boolean nearDuplicateDetection;
+    private boolean liveReindexing;
+    private boolean quantizedVectors;
+    private boolean bulkLoad;
     
     public RagSystemOrchestrator(RagConfiguration configuration) {
-//        this.configuration = configuration;
+        this.configuration = configuration;
         this.agentRouter = new AgentRouter(configuration);
+        // Chaque instance Ollama garde chargés les modèles des rôles qu'elle sert
+        for (ModelRole role : ModelRole.values()) {
+            String modelName = role == ModelRole.EMBEDDING ? configuration.getEmbeddingModel() : configuration.getModelName();
+            ModelResidencyManager.ModelKind kind = role == ModelRole.EMBEDDING
+                    ? ModelResidencyManager.ModelKind.EMBEDDING : ModelResidencyManager.ModelKind.CHAT;
+            for (String backend : configuration.getOllamaBackends(role)) {
+                ModelResidencyManager residency = ModelResidencyManager.of(backend);
+                residency.register(modelName, kind);
+                modelResidency.add(residency);
+            }
+        }
         this.userInteractionService = this.createAgentUserInteractionService(agentRouter);
     }
     
@@ -44,25 +103,190 @@ public class RagSystemOrchestrator {
         
         // Démarrer la session interactive
         System.out.println("✅ Système prêt ! Démarrage de la session interactive...");
-        userInteractionService.startInteractiveSession(null, null);
+        try {
+            userInteractionService.startInteractiveSession(null, null);
+        } finally {
+            // Vide le tampon de capture même si la session s'interrompt sur une erreur
+            closeTrafficCapture();
+        }
+    }
+
+    /**
+     * Active la capture du trafic réel dans un journal en ajout seul
+     * @param capturePath le fichier de capture
+     */
+    public void enableTrafficCapture(Path capturePath) throws IOException {
+        trafficCaptureLog = new TrafficCaptureLog(capturePath);
+        agentRouter.setTrafficRecorder(trafficCaptureLog);
+        System.out.println("🎙️ Capture du trafic activée: " + capturePath);
+    }
+
+    /**
+     * Rejoue un journal de capture contre les agents de cette build et affiche le rapport
+     * @param capturePath le fichier de capture à rejouer
+     * @param speedFactor facteur d'accélération (1.0 = temps réel)
+     */
+    public ReplayReport replay(Path capturePath, double speedFactor) throws IOException, InterruptedException {
+        System.out.println("🔁 Rejeu du trafic capturé: " + capturePath + " (vitesse ×" + speedFactor + ")");
+        initializeAgents();
+
+        List<TrafficRecord> records = TrafficCaptureLog.readAll(capturePath);
+        System.out.println("Enregistrements à rejouer: " + records.size());
+        ReplayReport report = new TrafficReplayer(agentRouter, speedFactor).replay(records);
+        System.out.println(report);
+        return report;
+    }
+
+    /**
+     * Répond hors ligne à un fichier de questions et écrit les résultats en JSONL, avec reprise
+     * @param questionsPath fichier de questions (texte ou JSONL)
+     * @param outputPath fichier JSONL des résultats
+     * @param parallelism nombre de questions traitées simultanément
+     * @param maxQuestionsPerSecond débit maximal, 0 pour ne pas limiter
+     */
+    public BatchReport runBatch(Path questionsPath, Path outputPath, int parallelism, double maxQuestionsPerSecond)
+            throws IOException, InterruptedException {
+        System.out.println("📦 Traitement par lots: " + questionsPath + " → " + outputPath + " (parallélisme "
+                + parallelism + (maxQuestionsPerSecond > 0 ? ", " + maxQuestionsPerSecond + " q/s max" : "") + ")");
+        initializeAgents();
+
+        BatchReport report = new BatchRunner(agentRouter, parallelism, maxQuestionsPerSecond)
+                .run(questionsPath, outputPath);
+        System.out.println(report);
+        return report;
+    }
+
+    /**
+     * Regroupe tous les agents dans une table pgvector partitionnée par agent, avec un pool de connexions commun
+     */
+    public void enableSharedSchema() {
+        this.sharedSchema = true;
+        System.out.println("🐘 Schéma partagé activé: table " + PartitionedPgVectorStoreService.SHARED_TABLE
+                + " partitionnée par agent");
+    }
+
+    /**
+     * Stocke les embeddings de tous les agents en halfvec (float16) ; les tables existantes sont converties
+     */
+    public void enableHalfPrecisionVectors() {
+        this.halfPrecisionVectors = true;
+        System.out.println("🗜️ Embeddings stockés en halfvec (float16)");
+    }
+
+    /**
+     * Charge les segments de chaque agent par COPY binaire, l'index HNSW étant reconstruit une fois le chargement terminé
+     */
+    public void enableBulkLoad() {
+        this.bulkLoad = true;
+        System.out.println("🚚 Chargement initial par COPY, index HNSW construit après chargement");
+    }
+
+    /**
+     * Garde les embeddings de chaque agent en mémoire sous forme quantifiée (int8 et binaire) au lieu de pgvector,
+     * les vecteurs float32 restant dans un fichier projeté pour la re-notation
+     */
+    public void enableQuantizedVectors() {
+        this.quantizedVectors = true;
+        System.out.println("🗜️ Store quantifié en mémoire (int8 + binaire) à la place de pgvector");
+    }
+
+    /**
+     * Laisse chaque agent choisir le nombre de segments injectés d'après les scores et son budget de latence
+     */
+    public void enableAdaptiveRetrieval() {
+        this.adaptiveRetrieval = true;
+        System.out.println("🎚️ Recherche adaptative activée: k ≤ " + ADAPTIVE_MAX_RESULTS);
+    }
+
+    /**
+     * Écarte les segments quasi identiques à l'ingestion de chaque agent (seuil -Drag.dedup.threshold)
+     * et reprend les embeddings des passages déjà ingérés par un autre agent
+     */
+    public void enableNearDuplicateDetection() {
+        this.nearDuplicateDetection = true;
+        System.out.println("🧬 Détection des quasi-doublons activée à l'ingestion");
+    }
+
+    /**
+     * Surveille le répertoire de documents de chaque agent et réindexe les fichiers modifiés sans redémarrage
+     */
+    public void enableLiveReindexing() {
+        this.liveReindexing = true;
+        System.out.println("🔄 Réindexation à chaud activée");
+    }
+
+    private void closeTrafficCapture() {
+        if (trafficCaptureLog == null) return;
+        try {
+            trafficCaptureLog.close();
+            System.out.println("🎙️ Capture terminée: " + trafficCaptureLog.getRecordCount() + " questions enregistrées.");
+        } catch (IOException e) {
+            System.err.println("⚠️ Erreur lors de la fermeture du journal de capture: " + e.getMessage());
+        }
     }
     
+    /**
+     * Répertoire de documents d'un agent : sous -Drag.documents.root s'il est défini, sinon les sources
+     * (src/main/resources) quand on lance depuis le projet, et en dernier recours la copie du classpath.
+     * La réindexation à chaud doit surveiller les fichiers que l'on édite, pas leur copie dans target/classes.
+     */
     private String getDocumentsPath(String directory) throws URISyntaxException {
+        String root = System.getProperty("rag.documents.root");
+        if (root != null) {
+            return Paths.get(root, directory).toAbsolutePath().toString();
+        }
+        Path sources = Paths.get("src", "main", "resources", directory);
+        if (Files.isDirectory(sources)) {
+            return sources.toAbsolutePath().toString();
+        }
         return Paths.get(getClass().getClassLoader().getResource(directory+ "/").toURI()).toString();
     }
 
     public DocumentAnalyser registerRagChainForDifferentAgents(String agentDirectory,ServiceFactory serviceFactory, RagConfiguration configuration){
+        return buildAgentPipeline(agentDirectory, serviceFactory, configuration).getDocumentAnalyser();
+    }
+
+    /**
+     * Construit la chaîne RAG d'un agent et conserve ses composants pour la réindexation à chaud
+     */
+    public AgentPipeline buildAgentPipeline(String agentDirectory, ServiceFactory serviceFactory, RagConfiguration configuration) {
         DocumentLoaderService documentLoaderService= serviceFactory.createDocumentLoaderService();
         EmbeddingModelService embeddingModelService = serviceFactory.createEmbeddingModelService();
         VectorStoreService vectorStoreService = serviceFactory.createVectorStoreService();
         RagService ragService = serviceFactory.createRagService();
 
-        System.out.println("Chargement des documents pour l'agent: " + agentDirectory);
-        var documents=loadDocuments(documentLoaderService, agentDirectory);
         EmbeddingModel embeddingModel = embeddingModelService.createEmbeddingModel(configuration.getEmbeddingModel());
+        String documentsPath = resolveDocumentsPath(agentDirectory);
 
+        // Surveillance ouverte avant le chargement : ce qui change pendant l'ingestion sera réindexé
+        DirectoryWatch directoryWatch = configuration.getAgentProfile().isLiveReindexing()
+                ? openDirectoryWatch(Paths.get(documentsPath))
+                : null;
+        try {
+            return buildAgentPipeline(agentDirectory, documentsPath, documentLoaderService, embeddingModel,
+                    vectorStoreService, ragService, configuration, directoryWatch);
+        } catch (RuntimeException e) {
+            closeQuietly(directoryWatch);
+            throw e;
+        }
+    }
+
+    private AgentPipeline buildAgentPipeline(String agentDirectory, String documentsPath,
+                                             DocumentLoaderService documentLoaderService, EmbeddingModel embeddingModel,
+                                             VectorStoreService vectorStoreService, RagService ragService,
+                                             RagConfiguration configuration, DirectoryWatch directoryWatch) {
+        // Les documents sont lus paresseusement et ingérés au fil de l'eau
+        System.out.println("Chargement des documents pour l'agent: " + agentDirectory);
         System.out.println("Création du store d'embeddings pour l'agent: " + agentDirectory);
-        EmbeddingStore<TextSegment> embeddingStore = vectorStoreService.createVectorStore(documents, embeddingModel);
+        EmbeddingStore<TextSegment> embeddingStore;
+        AtomicInteger loadedDocuments = new AtomicInteger();
+        try (Stream<Document> documents = documentLoaderService.streamDocuments(documentsPath)) {
+            embeddingStore = vectorStoreService.createVectorStore(
+                    documents.peek(document -> loadedDocuments.incrementAndGet()), embeddingModel);
+        }
+        if (loadedDocuments.get() == 0) {
+            System.out.println("Aucun document trouvé au chemin spécifié: " + documentsPath);
+        }
         if (embeddingStore == null) {
             System.out.println("Échec de la création du store d'embeddings.");
             throw new RuntimeException("Échec de la création du store d'embeddings.");
@@ -70,25 +294,44 @@ public class RagSystemOrchestrator {
         System.out.println("Store d'embeddings créé avec succès.");
 
         System.out.println("Configuration de la chaîne RAG pour l'agent: " + agentDirectory);
-        EmbeddingStoreContentRetriever retriever = ragService.createRetriever(embeddingStore, embeddingModel);
-        DocumentAnalyser ragChain = ragService.setupRagChain(retriever, configuration.getModelName());
+        CircuitBreaker retrievalBreaker = new CircuitBreaker("recherche",
+                Duration.ofSeconds(Long.getLong("rag.breaker.retrievalSlowSeconds", DEFAULT_RETRIEVAL_SLOW_SECONDS)));
+        CircuitBreaker generationBreaker = new CircuitBreaker("génération",
+                Duration.ofSeconds(Long.getLong("rag.breaker.generationSlowSeconds", DEFAULT_GENERATION_SLOW_SECONDS)));
+        ContentRetriever agentRetriever = ragService.createRetriever(embeddingStore, embeddingModel);
+        ContentRetriever retriever = new CircuitBreakingContentRetriever(agentRetriever, retrievalBreaker);
+        ContentAggregator contentAggregator = ragService.createContentAggregator();
+        DocumentAnalyser ragChain = ragService.setupRagChain(retriever, contentAggregator, configuration.getModelName(),
+                generationBreaker);
         System.out.println("Chaîne RAG configurée avec succès pour l'agent: " + agentDirectory);
-        return ragChain;
+        return new AgentPipeline(ragChain, agentRetriever, contentAggregator, embeddingStore, embeddingModel, Paths.get(documentsPath),
+                vectorStoreService, documentLoaderService, List.of(retrievalBreaker, generationBreaker), directoryWatch);
     }
 
-    private List<Document> loadDocuments(DocumentLoaderService documentLoaderService ,String directory){
+    private static DirectoryWatch openDirectoryWatch(Path documentsPath) {
         try {
-            String documentsPath = getDocumentsPath(directory);
-            System.out.println("Chargement des documents depuis: " + documentsPath);
-            List<Document> documents = documentLoaderService.loadDocuments(documentsPath);
-
-            if (documents.isEmpty()) {
-                System.out.println("Aucun document trouvé au chemin spécifié: " + documentsPath);
-                return List.of();
+            return DirectoryWatch.open(documentsPath);
+        } catch (IOException e) {
+            System.err.println("⚠️ Surveillance de " + documentsPath + " impossible avant l'ingestion: " + e.getMessage());
+            return null;
+        }
+    }
 
+    private static void closeQuietly(DirectoryWatch directoryWatch) {
+        if (directoryWatch != null) {
+            try {
+                directoryWatch.close();
+            } catch (IOException ignored) {
+                // La chaîne n'a pas pu être construite : rien à surveiller
             }
-            System.out.println("Documents chargés avec succès: " + documents.size());
-            return documents;
+        }
+    }
+
+    private String resolveDocumentsPath(String directory){
+        try {
+            String documentsPath = getDocumentsPath(directory);
+            System.out.println("Chargement des documents depuis: " + documentsPath);
+            return documentsPath;
         }
         catch (Exception e) {
             System.err.println("Erreur lors de la résolution du chemin des documents: " + e.getMessage());
@@ -101,10 +344,12 @@ public class RagSystemOrchestrator {
      */
     private void initializeAgents() {
         System.out.println("📦 Initialisation des agents spécialisés...");
+        // Les modèles se chargent dans Ollama pendant l'ingestion des documents
+        modelResidency.forEach(ModelResidencyManager::warmUp);
         
         // Agent Story - utilise le dossier story existant
         try {
-            RagConfiguration configuration = new RagConfiguration("localhost", 5432, "postgres", "password", "postgres", "story_db");
+            RagConfiguration configuration = agentConfiguration("story_db", new AgentProfile().withChunking(384, 48));
             var serviceFactory = new ServiceFactory(configuration);
             agentRouter.registerAgent(AgentType.STORY, "story", serviceFactory);
         } catch (Exception e) {
@@ -113,7 +358,8 @@ public class RagSystemOrchestrator {
         
         // Agent Math - utilise le dossier math existant
         try {
-            RagConfiguration configuration = new RagConfiguration("localhost", 5432, "postgres", "password", "postgres", "math_db");
+            RagConfiguration configuration = agentConfiguration("math_db",
+                    new AgentProfile().withChunking(256, 32).withHybridRetrieval(true));
             var serviceFactory = new ServiceFactory(configuration);
             agentRouter.registerAgent(AgentType.MATH, "math", serviceFactory);
         } catch (Exception e) {
@@ -122,17 +368,67 @@ public class RagSystemOrchestrator {
         
         // Agent Droit - utilise le nouveau dossier droit
         try {
-            RagConfiguration configuration = new RagConfiguration("localhost", 5432, "postgres", "password", "postgres", "droit_db");
+            RagConfiguration configuration = agentConfiguration("droit_db",
+                    new AgentProfile().withChunking(192, 24).withHybridRetrieval(true));
             var serviceFactory = new ServiceFactory(configuration);
             agentRouter.registerAgent(AgentType.DROIT, "droit", serviceFactory);
         } catch (Exception e) {
             System.err.println("⚠️ Échec de l'initialisation de l'agent DROIT: " + e.getMessage());
         }
         
+        SharedPgVectorPool.pools().forEach(agentRouter::registerStatsProvider);
+        modelResidency.forEach(agentRouter::registerStatsProvider);
+        CoalescingEmbeddingModel.instances().forEach(agentRouter::registerStatsProvider);
+        agentRouter.registerStatsProvider(SessionMemoryStore.shared());
+        if (nearDuplicateDetection) {
+            agentRouter.registerStatsProvider(NearDuplicateIndex.shared());
+        }
+        agentRouter.registerStatsProvider(RequestLog.stats());
+        Arrays.stream(ModelRole.values())
+                .map(role -> OllamaClientRegistry.of(configuration.getOllamaBackends(role)))
+                .distinct()
+                .forEach(agentRouter::registerStatsProvider);
         System.out.println("✅ Initialisation des agents terminée.");
         System.out.println(agentRouter.getAgentStats());
     }
 
+    /**
+     * Configuration d'un agent : sa table dédiée, ou sa partition de la table commune en schéma partagé
+     */
+    private RagConfiguration agentConfiguration(String table, AgentProfile profile) {
+        if (bulkLoad) {
+            // Chargement initial par COPY, index HNSW construit une fois les segments écrits
+            profile = profile.withBulkLoad(true, true);
+        }
+        if (sharedSchema) {
+            profile = profile.withVectorStoreMode(VectorStoreMode.PARTITIONED);
+        }
+        if (quantizedVectors) {
+            // Prend le pas sur le schéma partagé : rien n'est écrit dans Postgres
+            profile = profile.withVectorStoreMode(VectorStoreMode.QUANTIZED);
+        }
+        if (halfPrecisionVectors) {
+            profile = profile.withVectorColumnType(VectorColumnType.HALFVEC);
+        }
+        if (adaptiveRetrieval) {
+            profile = profile.withMaxResults(ADAPTIVE_MAX_RESULTS).withAdaptiveRetrieval(
+                    Double.parseDouble(System.getProperty("rag.adaptive.minScore",
+                            String.valueOf(AgentProfile.DEFAULT_MIN_RELEVANCE_SCORE))),
+                    Duration.ofSeconds(Long.getLong("rag.adaptive.latencyBudgetSeconds",
+                            DEFAULT_ADAPTIVE_LATENCY_BUDGET_SECONDS)));
+        }
+        if (liveReindexing) {
+            profile = profile.withLiveReindexing(true);
+        }
+        if (nearDuplicateDetection) {
+            profile = profile.withNearDuplicateDetection(Double.parseDouble(System.getProperty("rag.dedup.threshold",
+                    String.valueOf(NearDuplicateIndex.DEFAULT_THRESHOLD))));
+        }
+        return new RagConfiguration("localhost", 5432, "postgres", "password", "postgres", table)
+                .withAgentProfile(profile)
+                .withOllamaBackendsOf(configuration);
+    }
+
     private UserInteractionService createAgentUserInteractionService(AgentRouter agentRouter) {
         return new AgentUserInteractionService(agentRouter);
     }
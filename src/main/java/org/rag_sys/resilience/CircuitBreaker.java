@@ -0,0 +1,252 @@
+package org.rag_sys.resilience;
+
+import org.rag_sys.concurrent.AsyncTasks;
+import org.rag_sys.logging.RequestLog;
+import org.rag_sys.metrics.StatsProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Disjoncteur autour d'une dépendance lente ou défaillante (Ollama, base vectorielle).
+ *
+ * Fermé, il laisse passer les appels et garde le résultat des WINDOW_SIZE derniers. Dès MINIMUM_CALLS appels,
+ * il s'ouvre si le taux d'échecs ou le taux d'appels lents (plus longs que slowCallThreshold) atteint 50 % :
+ * les appels échouent alors immédiatement pendant OPEN_DURATION, au lieu d'attendre un délai d'expiration.
+ * Il laisse ensuite passer HALF_OPEN_CALLS appels d'essai : s'ils réussissent sans lenteur il se referme,
+ * sinon il se rouvre.
+ */
+public class CircuitBreaker implements StatsProvider {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    public static final int WINDOW_SIZE = 20;
+    public static final int MINIMUM_CALLS = 10;
+    public static final double FAILURE_RATE_THRESHOLD = 0.5;
+    public static final double SLOW_CALL_RATE_THRESHOLD = 0.5;
+    public static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+    public static final int HALF_OPEN_CALLS = 3;
+
+    private static final byte SUCCESS = 0;
+    private static final byte SLOW = 1;
+    private static final byte FAILURE = 2;
+    private static final byte SLOW_FAILURE = 3;
+    private static final RequestLog LOG = RequestLog.of(CircuitBreaker.class);
+
+    private final String name;
+    private final long slowCallNanos;
+
+    private final byte[] window = new byte[WINDOW_SIZE];
+    private int windowCalls;
+    private int windowNext;
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermits;
+    private int halfOpenResults;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    private final AtomicLong openings = new AtomicLong();
+
+    /**
+     * @param slowCallThreshold durée au-delà de laquelle un appel compte comme lent
+     */
+    public CircuitBreaker(String name, Duration slowCallThreshold) {
+        this.name = name;
+        this.slowCallNanos = slowCallThreshold.toNanos();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Exécute l'appel à travers le disjoncteur
+     * @throws CircuitBreakerOpenException si le disjoncteur est ouvert
+     */
+    public <T> T execute(Supplier<T> call) {
+        if (!tryAcquirePermission()) {
+            rejectedCalls.incrementAndGet();
+            throw new CircuitBreakerOpenException(this);
+        }
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            record(System.nanoTime() - start, true);
+            return result;
+        } catch (RuntimeException | Error e) {
+            complete(System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Lance un appel asynchrone à travers le disjoncteur ; son résultat est compté à l'achèvement du future.
+     * Un appel annulé par l'appelant ne dit rien de la dépendance : il n'est pas compté.
+     * @return le future de l'appel, ou un future en échec (CircuitBreakerOpenException) si le disjoncteur est ouvert
+     */
+    public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> call) {
+        if (!tryAcquirePermission()) {
+            rejectedCalls.incrementAndGet();
+            return CompletableFuture.failedFuture(new CircuitBreakerOpenException(this));
+        }
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            complete(System.nanoTime() - start, e);
+            return CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, error) -> complete(System.nanoTime() - start, error));
+        return future;
+    }
+
+    private void complete(long elapsedNanos, Throwable error) {
+        if (error != null && AsyncTasks.isCancellation(error)) {
+            releasePermission();
+        } else {
+            record(elapsedNanos, error == null);
+        }
+    }
+
+    private synchronized void releasePermission() {
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    private synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < OPEN_DURATION.toNanos()) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = HALF_OPEN_CALLS;
+            halfOpenResults = 0;
+            resetWindow();
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        calls.incrementAndGet();
+        return true;
+    }
+
+    private synchronized void record(long elapsedNanos, boolean success) {
+        boolean slow = elapsedNanos > slowCallNanos;
+        byte outcome = success ? (slow ? SLOW : SUCCESS) : (slow ? SLOW_FAILURE : FAILURE);
+
+        if (state == State.HALF_OPEN) {
+            if (outcome != SUCCESS) {
+                open(outcome == SLOW ? "appel d'essai lent" : "appel d'essai en échec");
+                return;
+            }
+            if (++halfOpenResults >= HALF_OPEN_CALLS) {
+                state = State.CLOSED;
+                resetWindow();
+                LOG.info(() -> "✅ Disjoncteur " + name + " refermé");
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            // Appel lancé avant l'ouverture : le disjoncteur est déjà ouvert
+            return;
+        }
+
+        window[windowNext] = outcome;
+        windowNext = (windowNext + 1) % WINDOW_SIZE;
+        windowCalls = Math.min(WINDOW_SIZE, windowCalls + 1);
+        if (windowCalls >= MINIMUM_CALLS
+                && (failureRate() >= FAILURE_RATE_THRESHOLD || slowCallRate() >= SLOW_CALL_RATE_THRESHOLD)) {
+            open(String.format("échecs %.0f%%, appels lents %.0f%%", failureRate() * 100, slowCallRate() * 100));
+        }
+    }
+
+    private void open(String reason) {
+        LOG.warn(() -> String.format("⚡ Disjoncteur %s ouvert pour %d s: %s", name, OPEN_DURATION.toSeconds(), reason));
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+        openings.incrementAndGet();
+    }
+
+    private void resetWindow() {
+        windowCalls = 0;
+        windowNext = 0;
+    }
+
+    private double failureRate() {
+        return rate(FAILURE, SLOW_FAILURE);
+    }
+
+    private double slowCallRate() {
+        return rate(SLOW, SLOW_FAILURE);
+    }
+
+    private double rate(byte first, byte second) {
+        if (windowCalls == 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = 0; i < windowCalls; i++) {
+            if (window[i] == first || window[i] == second) {
+                count++;
+            }
+        }
+        return (double) count / windowCalls;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return vrai si un appel passerait maintenant (fermé, à l'essai, ou ouvert depuis assez longtemps pour essayer)
+     */
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case HALF_OPEN -> halfOpenPermits > 0;
+            case OPEN -> System.nanoTime() - openedAtNanos >= OPEN_DURATION.toNanos();
+        };
+    }
+
+    /**
+     * @return le temps restant avant les appels d'essai, nul si le disjoncteur n'est pas ouvert
+     */
+    public synchronized Duration getRemainingOpenDuration() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        long remaining = OPEN_DURATION.toNanos() - (System.nanoTime() - openedAtNanos);
+        return Duration.ofNanos(Math.max(0, remaining));
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "⚡ DISJONCTEUR " + name.toUpperCase();
+    }
+
+    @Override
+    public synchronized List<String> getStatsLines() {
+        String stateLine = switch (state) {
+            case CLOSED -> "État: fermé";
+            case HALF_OPEN -> "État: à l'essai (" + halfOpenResults + "/" + HALF_OPEN_CALLS + " appels réussis)";
+            case OPEN -> "État: ouvert, essai dans " + getRemainingOpenDuration().toSeconds() + " s";
+        };
+        return List.of(
+                stateLine,
+                String.format("Fenêtre: %d appels, %.0f%% d'échecs, %.0f%% lents (> %d ms)",
+                        windowCalls, failureRate() * 100, slowCallRate() * 100,
+                        TimeUnit.NANOSECONDS.toMillis(slowCallNanos)),
+                String.format("Appels: %d, rejetés sans attente: %d, ouvertures: %d",
+                        calls.get(), rejectedCalls.get(), openings.get()));
+    }
+}
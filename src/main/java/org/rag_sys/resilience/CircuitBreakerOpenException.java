@@ -0,0 +1,19 @@
+package org.rag_sys.resilience;
+
+/**
+ * Levée à la place de l'appel quand le disjoncteur est ouvert
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    private final transient CircuitBreaker circuitBreaker;
+
+    public CircuitBreakerOpenException(CircuitBreaker circuitBreaker) {
+        super("Disjoncteur " + circuitBreaker.getName() + " ouvert, nouvel essai dans "
+                + circuitBreaker.getRemainingOpenDuration().toSeconds() + " s");
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+}
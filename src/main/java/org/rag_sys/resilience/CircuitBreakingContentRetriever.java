@@ -0,0 +1,26 @@
+package org.rag_sys.resilience;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+
+import java.util.List;
+
+/**
+ * Recherche (embedding de la question + base vectorielle) protégée par un disjoncteur
+ */
+public class CircuitBreakingContentRetriever implements ContentRetriever {
+
+    private final ContentRetriever delegate;
+    private final CircuitBreaker circuitBreaker;
+
+    public CircuitBreakingContentRetriever(ContentRetriever delegate, CircuitBreaker circuitBreaker) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        return circuitBreaker.execute(() -> delegate.retrieve(query));
+    }
+}
@@ -0,0 +1,319 @@
+package org.rag_sys.retrieval;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import org.rag_sys.ingestion.TokenCounter;
+import org.rag_sys.metrics.StatsProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Retriever à k adaptatif : la recherche fournit jusqu'à maxResults candidats triés par score,
+ * et seuls les premiers sont gardés. En recherche hybride, il s'applique après la fusion RRF.
+ * La sélection s'arrête :
+ * <ol>
+ *   <li>au premier candidat sous le score minimal de l'agent,</li>
+ *   <li>au coude de la courbe des scores (un écart nettement plus grand que l'écart moyen entre candidats),</li>
+ *   <li>quand le budget de contexte de l'agent, en tokens, serait dépassé,</li>
+ *   <li>quand le temps de génération estimé dépasserait le budget de latence de l'agent.</li>
+ * </ol>
+ * Le premier candidat est toujours gardé. L'estimation du temps de génération est une régression
+ * (temps ≈ a + b × tokens de contexte) apprise sur les générations mesurées par {@link GenerationTimingChatModel},
+ * avec les tokens réellement injectés dans le prompt par le {@link ContextBudgetPacker}.
+ *
+ * La recherche et la génération d'une même question s'enchaînent sur le même thread (AiServices) :
+ * la sélection y est laissée pour que le modèle de chat lui rattache son temps de génération.
+ */
+public class AdaptiveContentRetriever implements ContentRetriever, StatsProvider {
+
+    private static final double ELBOW_FACTOR = 2.0;
+    // Écart minimal du coude, relatif au meilleur score : valable pour les scores cosinus comme pour les scores RRF
+    private static final double MIN_ELBOW_GAP = 0.06;
+    private static final int MIN_LATENCY_OBSERVATIONS = 8;
+    // Poids des anciennes générations dans la régression : ~50 dernières générations
+    private static final double LATENCY_DECAY = 0.98;
+
+    private static final ThreadLocal<Selection> PENDING_SELECTION = new ThreadLocal<>();
+
+    enum StopReason {
+        MAX_RESULTS("plafond"),
+        MIN_SCORE("score minimal"),
+        ELBOW("coude"),
+        TOKEN_BUDGET("budget de tokens"),
+        LATENCY_BUDGET("budget de latence");
+
+        private final String label;
+
+        StopReason(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Segments retenus pour une question, en attente de leur temps de génération
+     * @param contextTokens tokens des segments retenus
+     * @param injectedTokens tokens injectés dans le prompt après agrégation, ou -1 si l'agrégation ne les a pas fournis
+     */
+    record Selection(AdaptiveContentRetriever retriever, int k, int contextTokens, StopReason stopReason,
+                     int injectedTokens) {
+
+        Selection(AdaptiveContentRetriever retriever, int k, int contextTokens, StopReason stopReason) {
+            this(retriever, k, contextTokens, stopReason, -1);
+        }
+
+        /**
+         * @return les tokens de contexte vus par le modèle de chat
+         */
+        int promptTokens() {
+            return injectedTokens >= 0 ? injectedTokens : contextTokens;
+        }
+    }
+
+    private final ContentRetriever candidateRetriever;
+    private final int maxResults;
+    private final double minScore;
+    private final int tokenBudget;
+    private final Duration latencyBudget;
+    private final TokenCounter tokenCounter;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final Map<StopReason, AtomicLong> stopReasons = new EnumMap<>(StopReason.class);
+    private final AtomicLongArray selectionsByK;
+    private final AtomicLongArray generationsByK;
+    private final AtomicLongArray generationNanosByK;
+    private final AtomicLongArray contextTokensByK;
+
+    // Régression du temps de génération sur les tokens de contexte, sommes pondérées
+    private long latencyObservations;
+    private double weight;
+    private double sumTokens;
+    private double sumMillis;
+    private double sumTokensSquared;
+    private double sumTokensMillis;
+
+    /**
+     * @param candidateRetriever recherche vectorielle configurée pour renvoyer maxResults candidats, avec leur score
+     * @param maxResults nombre maximal de segments gardés
+     * @param minScore score en dessous duquel un segment n'est pas gardé
+     * @param tokenBudget budget de contexte de l'agent, en tokens
+     * @param latencyBudget durée de génération visée, ou null pour ne pas la limiter
+     */
+    public AdaptiveContentRetriever(ContentRetriever candidateRetriever, int maxResults, double minScore,
+                                    int tokenBudget, Duration latencyBudget, TokenCounter tokenCounter) {
+        this.candidateRetriever = candidateRetriever;
+        this.maxResults = maxResults;
+        this.minScore = minScore;
+        this.tokenBudget = tokenBudget;
+        this.latencyBudget = latencyBudget;
+        this.tokenCounter = tokenCounter;
+        for (StopReason reason : StopReason.values()) {
+            stopReasons.put(reason, new AtomicLong());
+        }
+        this.selectionsByK = new AtomicLongArray(maxResults + 1);
+        this.generationsByK = new AtomicLongArray(maxResults + 1);
+        this.generationNanosByK = new AtomicLongArray(maxResults + 1);
+        this.contextTokensByK = new AtomicLongArray(maxResults + 1);
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        List<Content> candidates = candidateRetriever.retrieve(query);
+        if (candidates.size() > maxResults) {
+            candidates = candidates.subList(0, maxResults);
+        }
+        Selection selection = select(candidates);
+
+        requests.incrementAndGet();
+        stopReasons.get(selection.stopReason()).incrementAndGet();
+        selectionsByK.incrementAndGet(selection.k());
+        PENDING_SELECTION.set(selection);
+        return new ArrayList<>(candidates.subList(0, selection.k()));
+    }
+
+    private Selection select(List<Content> candidates) {
+        double[] scores = new double[candidates.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = scoreOf(candidates.get(i));
+        }
+        int elbow = elbowIndex(scores);
+        int latencyTokenLimit = latencyTokenLimit();
+        int tokenLimit = Math.min(tokenBudget, latencyTokenLimit);
+
+        int tokens = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            int contentTokens = tokenCounter.countTokens(candidates.get(i).textSegment().text());
+            if (i > 0) {
+                StopReason reason = null;
+                if (scores[i] < minScore) {
+                    reason = StopReason.MIN_SCORE;
+                } else if (i == elbow) {
+                    reason = StopReason.ELBOW;
+                } else if (tokens + contentTokens > tokenLimit) {
+                    reason = tokenLimit == latencyTokenLimit && latencyTokenLimit < tokenBudget
+                            ? StopReason.LATENCY_BUDGET : StopReason.TOKEN_BUDGET;
+                }
+                if (reason != null) {
+                    return new Selection(this, i, tokens, reason);
+                }
+            }
+            tokens += contentTokens;
+        }
+        return new Selection(this, candidates.size(), tokens, StopReason.MAX_RESULTS);
+    }
+
+    /**
+     * @return l'indice du premier candidat après le coude de la courbe des scores, ou -1 s'il n'y en a pas
+     */
+    static int elbowIndex(double[] scores) {
+        if (scores.length < 3 || Double.isNaN(scores[0]) || Double.isNaN(scores[scores.length - 1])) {
+            return -1;
+        }
+        double meanGap = (scores[0] - scores[scores.length - 1]) / (scores.length - 1);
+        double threshold = Math.max(MIN_ELBOW_GAP * Math.abs(scores[0]), ELBOW_FACTOR * meanGap);
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i - 1] - scores[i] >= threshold) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Les contenus sans score (recherche par mots-clés) ne sont pas filtrés sur le score
+     */
+    private static double scoreOf(Content content) {
+        Object score = content.metadata().get(ContentMetadata.SCORE);
+        return score instanceof Number number ? number.doubleValue() : Double.NaN;
+    }
+
+    /**
+     * @return le nombre de tokens de contexte que le budget de latence permet, d'après les générations observées
+     */
+    private synchronized int latencyTokenLimit() {
+        if (latencyBudget == null || latencyObservations < MIN_LATENCY_OBSERVATIONS) {
+            return Integer.MAX_VALUE;
+        }
+        double slope;
+        double intercept;
+        double variance = weight * sumTokensSquared - sumTokens * sumTokens;
+        if (variance > 1e-6 * weight * sumTokensSquared) {
+            slope = (weight * sumTokensMillis - sumTokens * sumMillis) / variance;
+            intercept = (sumMillis - slope * sumTokens) / weight;
+        } else if (sumTokens > 0) {
+            // Contextes tous de même taille : estimation proportionnelle, prudente, jusqu'à ce que k varie
+            slope = sumMillis / sumTokens;
+            intercept = 0;
+        } else {
+            return Integer.MAX_VALUE;
+        }
+        if (slope <= 0) {
+            // Le contexte ne pèse pas sur le temps de génération
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, (latencyBudget.toMillis() - intercept) / slope));
+    }
+
+    /**
+     * Rattache à la sélection en attente sur ce thread les tokens que l'agrégation a injectés dans le prompt
+     */
+    static void recordInjectedTokens(int injectedTokens) {
+        Selection selection = PENDING_SELECTION.get();
+        if (selection != null) {
+            PENDING_SELECTION.set(new Selection(selection.retriever(), selection.k(), selection.contextTokens(),
+                    selection.stopReason(), injectedTokens));
+        }
+    }
+
+    /**
+     * @return la sélection faite par la dernière recherche de ce thread, retirée pour n'être comptée qu'une fois
+     */
+    static Selection takePendingSelection() {
+        Selection selection = PENDING_SELECTION.get();
+        PENDING_SELECTION.remove();
+        return selection;
+    }
+
+    /**
+     * Rattache à une sélection le temps de la génération qui l'a suivie
+     */
+    void recordGeneration(Selection selection, long generationNanos) {
+        int k = selection.k();
+        generationsByK.incrementAndGet(k);
+        generationNanosByK.addAndGet(k, generationNanos);
+        int tokens = selection.promptTokens();
+        contextTokensByK.addAndGet(k, tokens);
+
+        double millis = generationNanos / 1e6;
+        synchronized (this) {
+            latencyObservations++;
+            weight = weight * LATENCY_DECAY + 1;
+            sumTokens = sumTokens * LATENCY_DECAY + tokens;
+            sumMillis = sumMillis * LATENCY_DECAY + millis;
+            sumTokensSquared = sumTokensSquared * LATENCY_DECAY + (double) tokens * tokens;
+            sumTokensMillis = sumTokensMillis * LATENCY_DECAY + tokens * millis;
+        }
+    }
+
+    public double getAverageK() {
+        long count = requests.get();
+        if (count == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int k = 0; k <= maxResults; k++) {
+            total += k * selectionsByK.get(k);
+        }
+        return (double) total / count;
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "🎚️ RECHERCHE ADAPTATIVE (k ≤ " + maxResults + ", score ≥ " + minScore
+                + (latencyBudget != null ? ", génération ≤ " + latencyBudget.toMillis() + " ms" : "") + ")";
+    }
+
+    @Override
+    public List<String> getStatsLines() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("Requêtes: %d, k moyen: %.1f", requests.get(), getAverageK()));
+
+        StringBuilder reasons = new StringBuilder("Arrêts:");
+        for (StopReason reason : StopReason.values()) {
+            reasons.append(' ').append(reason.label).append(' ').append(stopReasons.get(reason).get()).append(',');
+        }
+        reasons.setLength(reasons.length() - 1);
+        lines.add(reasons.toString());
+
+        for (int k = 1; k <= maxResults; k++) {
+            long generations = generationsByK.get(k);
+            if (selectionsByK.get(k) == 0) {
+                continue;
+            }
+            lines.add(generations == 0
+                    ? String.format("k=%d: %d requêtes", k, selectionsByK.get(k))
+                    : String.format("k=%d: %d requêtes, contexte moyen %d tokens, génération moyenne %.0f ms",
+                            k, selectionsByK.get(k), contextTokensByK.get(k) / generations,
+                            generationNanosByK.get(k) / 1e6 / generations));
+        }
+
+        int limit = latencyTokenLimit();
+        if (latencyBudget != null) {
+            lines.add(limit == Integer.MAX_VALUE
+                    ? "Budget de latence: pas encore estimé (" + latencyObservations() + " générations mesurées)"
+                    : "Budget de latence: " + limit + " tokens de contexte au plus");
+        }
+        return lines;
+    }
+
+    private synchronized long latencyObservations() {
+        return latencyObservations;
+    }
+}
@@ -0,0 +1,335 @@
+package org.rag_sys.retrieval;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index inversé BM25 en mémoire, construit à côté des embeddings d'un agent.
+ *
+ * Les listes de postings sont compressées : identifiants de documents codés en delta
+ * puis en entiers de longueur variable (varint), suivis de la fréquence du terme.
+ * Les suppressions (réindexation à chaud) sont des pierres tombales filtrées à la recherche ;
+ * la fréquence documentaire de chaque terme ne compte que les segments vivants, pour que l'IDF
+ * ne dérive pas au fil des réindexations. Quand les pierres tombales dépassent le quart des segments,
+ * l'index est reconstruit à partir des segments vivants.
+ */
+public class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Reconstruction quand les pierres tombales dépassent cette part des segments, et au moins ce nombre
+    private static final double COMPACTION_RATIO = 0.25;
+    private static final int MIN_TOMBSTONES_BEFORE_COMPACTION = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<String, Integer> docIdsByExternalId = new HashMap<>();
+    private final List<String> externalIds = new ArrayList<>();
+    private final List<TextSegment> segments = new ArrayList<>();
+    private final BitSet deleted = new BitSet();
+    private int[] docLengths = new int[256];
+    private long totalLiveLength;
+    private int liveDocuments;
+    private int tombstones;
+    private long compactions;
+
+    public void add(String id, TextSegment segment) {
+        addAll(List.of(id), List.of(segment));
+    }
+
+    public void addAll(List<String> ids, List<TextSegment> newSegments) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                indexSegment(ids.get(i), newSegments.get(i));
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void indexSegment(String id, TextSegment segment) {
+        Integer previous = docIdsByExternalId.get(id);
+        if (previous != null) {
+            markDeleted(previous);
+        }
+
+        int docId = segments.size();
+        List<String> terms = TextAnalyzer.terms(segment.text());
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : terms) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new PostingList()).append(docId, entry.getValue());
+        }
+
+        if (docId == docLengths.length) {
+            docLengths = Arrays.copyOf(docLengths, docId * 2);
+        }
+        docLengths[docId] = terms.size();
+        segments.add(segment);
+        externalIds.add(id);
+        docIdsByExternalId.put(id, docId);
+        totalLiveLength += terms.size();
+        liveDocuments++;
+    }
+
+    public void remove(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                Integer docId = docIdsByExternalId.remove(id);
+                if (docId != null) {
+                    markDeleted(docId);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retire les segments dont les métadonnées satisfont le filtre
+     */
+    public void removeIf(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            for (int docId = 0; docId < segments.size(); docId++) {
+                if (!deleted.get(docId) && filter.test(segments.get(docId).metadata())) {
+                    docIdsByExternalId.remove(externalIds.get(docId));
+                    markDeleted(docId);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            reset();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reset() {
+        postings.clear();
+        docIdsByExternalId.clear();
+        externalIds.clear();
+        segments.clear();
+        deleted.clear();
+        totalLiveLength = 0;
+        liveDocuments = 0;
+        tombstones = 0;
+    }
+
+    private void markDeleted(int docId) {
+        if (!deleted.get(docId)) {
+            deleted.set(docId);
+            totalLiveLength -= docLengths[docId];
+            liveDocuments--;
+            tombstones++;
+            // Le segment ne compte plus dans la fréquence documentaire de ses termes
+            for (String term : new HashSet<>(TextAnalyzer.terms(segments.get(docId).text()))) {
+                PostingList postingList = postings.get(term);
+                if (postingList != null) {
+                    postingList.docFrequency--;
+                }
+            }
+            // Libérer le texte ; les postings seront ignorés à la recherche
+            segments.set(docId, null);
+        }
+    }
+
+    /**
+     * Reconstruit l'index à partir des segments vivants quand les pierres tombales en occupent une part trop grande :
+     * les postings des segments supprimés, et les termes qui n'apparaissent plus, sont libérés
+     */
+    private void compactIfNeeded() {
+        if (tombstones < MIN_TOMBSTONES_BEFORE_COMPACTION || tombstones < COMPACTION_RATIO * segments.size()) {
+            return;
+        }
+        List<String> liveIds = new ArrayList<>(liveDocuments);
+        List<TextSegment> liveSegments = new ArrayList<>(liveDocuments);
+        for (int docId = 0; docId < segments.size(); docId++) {
+            if (!deleted.get(docId)) {
+                liveIds.add(externalIds.get(docId));
+                liveSegments.add(segments.get(docId));
+            }
+        }
+        reset();
+        docLengths = new int[Math.max(256, liveSegments.size())];
+        for (int i = 0; i < liveIds.size(); i++) {
+            indexSegment(liveIds.get(i), liveSegments.get(i));
+        }
+        compactions++;
+    }
+
+    /**
+     * Recherche les segments les plus pertinents pour une requête
+     * @param query le texte de la requête
+     * @param maxResults le nombre maximum de résultats
+     * @return les meilleurs segments par score BM25 décroissant
+     */
+    public List<KeywordMatch> search(String query, int maxResults) {
+        List<String> queryTerms = TextAnalyzer.terms(query);
+        lock.readLock().lock();
+        try {
+            if (liveDocuments == 0 || queryTerms.isEmpty()) {
+                return List.of();
+            }
+
+            double averageLength = Math.max(1.0, (double) totalLiveLength / liveDocuments);
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : queryTerms.stream().distinct().toList()) {
+                PostingList postingList = postings.get(term);
+                if (postingList == null) continue;
+
+                double idf = Math.log(1 + (liveDocuments - postingList.docFrequency + 0.5) / (postingList.docFrequency + 0.5));
+                postingList.forEach((docId, frequency) -> {
+                    if (deleted.get(docId)) return;
+                    double lengthNorm = 1 - B + B * docLengths[docId] / averageLength;
+                    double termScore = idf * frequency * (K1 + 1) / (frequency + K1 * lengthNorm);
+                    scores.merge(docId, termScore, Double::sum);
+                });
+            }
+
+            PriorityQueue<Map.Entry<Integer, Double>> top = new PriorityQueue<>(Map.Entry.comparingByValue());
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                top.offer(entry);
+                if (top.size() > maxResults) top.poll();
+            }
+
+            List<KeywordMatch> matches = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                Map.Entry<Integer, Double> entry = top.poll();
+                matches.add(new KeywordMatch(externalIds.get(entry.getKey()), segments.get(entry.getKey()), entry.getValue()));
+            }
+            Collections.reverse(matches);
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return le nombre de segments supprimés encore présents dans les postings
+     */
+    public int tombstones() {
+        lock.readLock().lock();
+        try {
+            return tombstones;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long compactions() {
+        lock.readLock().lock();
+        try {
+            return compactions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Taille occupée par les listes de postings compressées
+     */
+    public long postingBytes() {
+        lock.readLock().lock();
+        try {
+            return postings.values().stream().mapToLong(postingList -> postingList.length).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Liste de postings en ajout seul : (delta d'identifiant, fréquence) codés en varint
+     */
+    private static final class PostingList {
+        private byte[] data = new byte[8];
+        private int length;
+        // Segments vivants contenant le terme ; les postings des segments supprimés restent jusqu'à la reconstruction
+        private int docFrequency;
+        private int lastDocId;
+
+        void append(int docId, int frequency) {
+            writeVarInt(docId - lastDocId);
+            writeVarInt(frequency);
+            lastDocId = docId;
+            docFrequency++;
+        }
+
+        void forEach(PostingConsumer consumer) {
+            int position = 0;
+            int docId = 0;
+            while (position < length) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+
+                int frequency = 0;
+                shift = 0;
+                do {
+                    b = data[position++];
+                    frequency |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+
+                docId += delta;
+                consumer.accept(docId, frequency);
+            }
+        }
+
+        private void writeVarInt(int value) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PostingConsumer {
+        void accept(int docId, int frequency);
+    }
+}
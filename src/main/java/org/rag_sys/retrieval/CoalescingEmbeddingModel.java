@@ -0,0 +1,157 @@
+package org.rag_sys.retrieval;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.rag_sys.concurrent.AsyncTasks;
+import org.rag_sys.context.RequestContext;
+import org.rag_sys.metrics.StatsProvider;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modèle d'embedding des questions : chaque texte n'est embarqué qu'une fois par requête
+ * (le vecteur est gardé dans le {@link RequestContext}), et les appels simultanés pour un même texte,
+ * venant de requêtes différentes, partagent un seul appel au modèle (single-flight).
+ *
+ * Une instance par modèle délégué, pour que la fusion des appels en vol vaille entre tous les agents.
+ * L'ingestion (embedAll) passe directement au modèle délégué.
+ */
+public class CoalescingEmbeddingModel implements EmbeddingModel, StatsProvider {
+
+    private static final Map<EmbeddingModel, CoalescingEmbeddingModel> INSTANCES = new ConcurrentHashMap<>();
+
+    private final EmbeddingModel delegate;
+    private final Map<String, CompletableFuture<Embedding>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong modelCalls = new AtomicLong();
+    private final AtomicLong reusedInRequest = new AtomicLong();
+    private final AtomicLong coalescedInFlight = new AtomicLong();
+
+    private CoalescingEmbeddingModel(EmbeddingModel delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return le modèle partagé qui embarque les questions pour ce modèle délégué
+     */
+    public static CoalescingEmbeddingModel of(EmbeddingModel delegate) {
+        if (delegate instanceof CoalescingEmbeddingModel coalescing) {
+            return coalescing;
+        }
+        return INSTANCES.computeIfAbsent(delegate, CoalescingEmbeddingModel::new);
+    }
+
+    /**
+     * @return les modèles créés, pour la commande 'stats'
+     */
+    public static Collection<CoalescingEmbeddingModel> instances() {
+        return INSTANCES.values();
+    }
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        RequestContext context = RequestContext.current();
+        if (context != null) {
+            Embedding known = context.getEmbedding(this, text);
+            if (known != null) {
+                reusedInRequest.incrementAndGet();
+                return Response.from(known);
+            }
+        }
+        Embedding embedding = embedOnce(text);
+        if (context != null) {
+            context.putEmbedding(this, text, embedding);
+        }
+        return Response.from(embedding);
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        return embed(textSegment.text());
+    }
+
+    private Embedding embedOnce(String text) {
+        while (true) {
+            CompletableFuture<Embedding> call = new CompletableFuture<>();
+            CompletableFuture<Embedding> running = inFlight.putIfAbsent(text, call);
+            if (running == null) {
+                return lead(text, call);
+            }
+            coalescedInFlight.incrementAndGet();
+            try {
+                return running.get();
+            } catch (ExecutionException e) {
+                Throwable cause = AsyncTasks.unwrap(e);
+                // Le premier appelant a été annulé (agent perdant d'une répartition) : ce n'est pas une
+                // défaillance du modèle, l'appel est relancé pour les autres
+                if (!AsyncTasks.isCancellation(cause)) {
+                    if (cause instanceof RuntimeException runtime) {
+                        throw runtime;
+                    }
+                    throw new RuntimeException("Échec de l'embedding de la question: " + cause.getMessage(), cause);
+                }
+                coalescedInFlight.decrementAndGet();
+            } catch (InterruptedException e) {
+                // L'appel partagé continue pour les autres appelants
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Attente de l'embedding interrompue");
+            }
+        }
+    }
+
+    private Embedding lead(String text, CompletableFuture<Embedding> call) {
+        try {
+            modelCalls.incrementAndGet();
+            Embedding embedding = delegate.embed(text).content();
+            call.complete(embedding);
+            return embedding;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(text, call);
+        }
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return delegate.embedAll(textSegments);
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    /**
+     * @return les appels au modèle évités : embeddings réutilisés dans une requête ou partagés en vol
+     */
+    public long getSavedCalls() {
+        return reusedInRequest.get() + coalescedInFlight.get();
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "🧮 EMBEDDINGS DES QUESTIONS";
+    }
+
+    @Override
+    public List<String> getStatsLines() {
+        long calls = modelCalls.get();
+        long saved = getSavedCalls();
+        return List.of(
+                String.format("Appels au modèle: %d, évités: %d (%.0f%% des demandes)", calls, saved,
+                        calls + saved == 0 ? 0.0 : 100.0 * saved / (calls + saved)),
+                String.format("Réutilisés dans la requête: %d, partagés entre requêtes simultanées: %d",
+                        reusedInRequest.get(), coalescedInFlight.get()));
+    }
+}
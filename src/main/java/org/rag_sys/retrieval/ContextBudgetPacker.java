@@ -0,0 +1,326 @@
+package org.rag_sys.retrieval;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.query.Query;
+import org.rag_sys.ingestion.TokenCounter;
+import org.rag_sys.metrics.StatsProvider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Étape d'agrégation entre le retriever et le modèle de chat qui réduit le contexte injecté :
+ * <ol>
+ *   <li>fusionne les segments d'une même source qui se recouvrent (recouvrement du découpage),</li>
+ *   <li>écarte les quasi-doublons par une sélection de type MMR (pertinence contre redondance),</li>
+ *   <li>remplit le prompt jusqu'au budget de tokens de l'agent.</li>
+ * </ol>
+ * La pertinence de chaque contenu est celle de la recherche (score, sinon rang d'arrivée), quel que soit
+ * le regroupement par source. Le contenu le plus pertinent est tronqué au budget plutôt qu'écarté.
+ * Les tokens économisés par requête sont comptabilisés, copies exactes comprises.
+ */
+public class ContextBudgetPacker implements ContentAggregator, StatsProvider {
+
+    private static final double MMR_LAMBDA = 0.7;
+    private static final double DUPLICATE_THRESHOLD = 0.8;
+    private static final int MIN_OVERLAP_CHARS = 20;
+
+    private final int tokenBudget;
+    private final TokenCounter tokenCounter;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong tokensRetrieved = new AtomicLong();
+    private final AtomicLong tokensInjected = new AtomicLong();
+    private final AtomicLong mergedSegments = new AtomicLong();
+    private final AtomicLong droppedDuplicates = new AtomicLong();
+    private final AtomicLong droppedForBudget = new AtomicLong();
+    private final AtomicLong truncatedSegments = new AtomicLong();
+
+    /**
+     * Contenu avec son rang d'arrivée du retriever (0 pour le plus pertinent)
+     */
+    private record Ranked(Content content, int rank) {
+        String text() {
+            return content.textSegment().text();
+        }
+    }
+
+    public ContextBudgetPacker(int tokenBudget, TokenCounter tokenCounter) {
+        this.tokenBudget = tokenBudget;
+        this.tokenCounter = tokenCounter;
+    }
+
+    @Override
+    public List<Content> aggregate(Map<Query, Collection<List<Content>>> queryToContents) {
+        List<Ranked> retrieved = new ArrayList<>();
+        Set<String> seenTexts = new HashSet<>();
+        int retrievedTokens = 0;
+        for (Collection<List<Content>> contentLists : queryToContents.values()) {
+            for (List<Content> contents : contentLists) {
+                for (Content content : contents) {
+                    String text = content.textSegment().text();
+                    retrievedTokens += tokenCounter.countTokens(text);
+                    if (seenTexts.add(text)) {
+                        retrieved.add(new Ranked(content, retrieved.size()));
+                    } else {
+                        // Copie exacte (plusieurs requêtes, ou segment présent deux fois) : jamais injectée
+                        droppedDuplicates.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        List<Ranked> merged = mergeOverlapping(retrieved);
+        List<Content> packed = selectWithinBudget(merged);
+
+        int injectedTokens = 0;
+        for (Content content : packed) {
+            injectedTokens += tokenCounter.countTokens(content.textSegment().text());
+        }
+        requests.incrementAndGet();
+        tokensRetrieved.addAndGet(retrievedTokens);
+        tokensInjected.addAndGet(injectedTokens);
+        // La régression du k adaptatif porte sur ce que le modèle reçoit réellement
+        AdaptiveContentRetriever.recordInjectedTokens(injectedTokens);
+        return packed;
+    }
+
+    /**
+     * Fusionne deux segments d'un même fichier lorsque la fin de l'un est le début de l'autre
+     */
+    private List<Ranked> mergeOverlapping(List<Ranked> contents) {
+        Map<String, List<Ranked>> bySource = new LinkedHashMap<>();
+        for (Ranked ranked : contents) {
+            bySource.computeIfAbsent(sourceOf(ranked.content()), source -> new ArrayList<>()).add(ranked);
+        }
+
+        List<Ranked> result = new ArrayList<>(contents.size());
+        for (List<Ranked> group : bySource.values()) {
+            List<Ranked> pending = new ArrayList<>(group);
+            boolean mergedAny = true;
+            while (mergedAny && pending.size() > 1) {
+                mergedAny = false;
+                outer:
+                for (int i = 0; i < pending.size(); i++) {
+                    for (int j = 0; j < pending.size(); j++) {
+                        if (i == j) continue;
+                        String first = pending.get(i).text();
+                        String second = pending.get(j).text();
+                        int overlap = overlapLength(first, second);
+                        if (overlap < 0) continue;
+
+                        // Le groupe est dans l'ordre d'arrivée : le contenu gardé est le plus pertinent des deux
+                        int keep = Math.min(i, j);
+                        Ranked kept = pending.get(keep);
+                        Ranked combined = new Ranked(withText(kept.content(), first + second.substring(overlap)), kept.rank());
+                        int drop = Math.max(i, j);
+                        pending.set(keep, combined);
+                        pending.remove(drop);
+                        mergedSegments.incrementAndGet();
+                        mergedAny = true;
+                        break outer;
+                    }
+                }
+            }
+            result.addAll(pending);
+        }
+
+        // Regroupés par source : la pertinence de chacun reste portée par son rang
+        return result;
+    }
+
+    /**
+     * @return la longueur du recouvrement entre la fin de first et le début de second,
+     *         ou -1 si les textes ne se recouvrent pas (l'inclusion est laissée au dédoublonnage)
+     */
+    static int overlapLength(String first, String second) {
+        if (second.contains(first)) {
+            return -1;
+        }
+        int probeLength = Math.min(MIN_OVERLAP_CHARS, second.length());
+        if (probeLength < MIN_OVERLAP_CHARS) {
+            return -1;
+        }
+        String probe = second.substring(0, probeLength);
+        int position = first.indexOf(probe, Math.max(0, first.length() - second.length()));
+        while (position >= 0) {
+            int overlap = first.length() - position;
+            if (second.startsWith(first.substring(position))) {
+                return overlap;
+            }
+            position = first.indexOf(probe, position + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Sélection gloutonne façon MMR : à chaque étape, le contenu qui maximise
+     * λ·pertinence − (1−λ)·redondance, tant qu'il reste du budget
+     */
+    private List<Content> selectWithinBudget(List<Ranked> candidates) {
+        candidates = new ArrayList<>(candidates);
+        double[] relevance = relevances(candidates);
+        int top = -1;
+        for (int i = 0; i < candidates.size(); i++) {
+            if (top < 0 || candidates.get(i).rank() < candidates.get(top).rank()) top = i;
+        }
+        List<Set<String>> termSets = new ArrayList<>(candidates.size());
+        int[] tokens = new int[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++) {
+            String text = candidates.get(i).text();
+            tokens[i] = tokenCounter.countTokens(text);
+            if (i == top && tokens[i] > tokenBudget) {
+                // Le meilleur contenu dépasse à lui seul le budget : on en garde le début
+                text = truncate(text, tokenBudget);
+                candidates.set(i, new Ranked(withText(candidates.get(i).content(), text), candidates.get(i).rank()));
+                tokens[i] = tokenCounter.countTokens(text);
+                truncatedSegments.incrementAndGet();
+            }
+            termSets.add(new HashSet<>(TextAnalyzer.terms(text)));
+        }
+
+        List<Integer> selected = new ArrayList<>();
+        boolean[] used = new boolean[candidates.size()];
+        int remainingBudget = tokenBudget;
+
+        while (true) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < candidates.size(); i++) {
+                if (used[i]) continue;
+                double redundancy = 0;
+                for (int chosen : selected) {
+                    redundancy = Math.max(redundancy, coverage(termSets.get(i), termSets.get(chosen)));
+                }
+                if (redundancy >= DUPLICATE_THRESHOLD) {
+                    used[i] = true;
+                    droppedDuplicates.incrementAndGet();
+                    continue;
+                }
+                if (tokens[i] > remainingBudget) {
+                    continue;
+                }
+                double score = MMR_LAMBDA * relevance[i] - (1 - MMR_LAMBDA) * redundancy;
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            if (best < 0) break;
+            used[best] = true;
+            selected.add(best);
+            remainingBudget -= tokens[best];
+        }
+
+        for (int i = 0; i < candidates.size(); i++) {
+            if (!used[i]) droppedForBudget.incrementAndGet();
+        }
+
+        // Réinjecter dans l'ordre de pertinence initial
+        List<Ranked> ranked = candidates;
+        selected.sort((first, second) -> Integer.compare(ranked.get(first).rank(), ranked.get(second).rank()));
+        List<Content> packed = new ArrayList<>(selected.size());
+        for (int index : selected) {
+            packed.add(candidates.get(index).content());
+        }
+        return packed;
+    }
+
+    /**
+     * @return le score de recherche de chaque contenu rapporté au meilleur ; 1/(rang+1) si un score manque
+     *         ou sort de [0, 1] (score BM25 brut, par exemple), les scores n'étant alors pas sur une même échelle
+     */
+    private static double[] relevances(List<Ranked> candidates) {
+        double[] relevance = new double[candidates.size()];
+        double maxScore = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            Object score = candidates.get(i).content().metadata().get(ContentMetadata.SCORE);
+            if (!(score instanceof Number number) || number.doubleValue() < 0 || number.doubleValue() > 1) {
+                for (int j = 0; j < candidates.size(); j++) {
+                    relevance[j] = 1.0 / (candidates.get(j).rank() + 1);
+                }
+                return relevance;
+            }
+            relevance[i] = number.doubleValue();
+            maxScore = Math.max(maxScore, relevance[i]);
+        }
+        if (maxScore > 0) {
+            for (int i = 0; i < relevance.length; i++) {
+                relevance[i] /= maxScore;
+            }
+        }
+        return relevance;
+    }
+
+    /**
+     * @return le plus long début du texte tenant dans maxTokens, coupé sur un espace si possible
+     */
+    private String truncate(String text, int maxTokens) {
+        int low = 0;
+        int high = text.length();
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (tokenCounter.countTokens(text, 0, middle) <= maxTokens) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        int space = text.lastIndexOf(' ', low);
+        return text.substring(0, space > low / 2 ? space : low);
+    }
+
+    /**
+     * Part des termes du candidat déjà présents dans un contenu retenu
+     */
+    private static double coverage(Set<String> candidate, Set<String> chosen) {
+        if (candidate.isEmpty()) return 1.0;
+        int shared = 0;
+        for (String term : candidate) {
+            if (chosen.contains(term)) shared++;
+        }
+        return (double) shared / candidate.size();
+    }
+
+    private static String sourceOf(Content content) {
+        Metadata metadata = content.textSegment().metadata();
+        String fileName = metadata.getString(Document.FILE_NAME);
+        return fileName != null ? fileName : "";
+    }
+
+    private static Content withText(Content content, String text) {
+        return Content.from(TextSegment.from(text, content.textSegment().metadata()), content.metadata());
+    }
+
+    public long getTokensSaved() {
+        return tokensRetrieved.get() - tokensInjected.get();
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "📦 CONTEXTE (budget " + tokenBudget + " tokens)";
+    }
+
+    @Override
+    public List<String> getStatsLines() {
+        long count = requests.get();
+        double savedPerRequest = count == 0 ? 0 : (double) getTokensSaved() / count;
+        double injectedPerRequest = count == 0 ? 0 : (double) tokensInjected.get() / count;
+        return List.of(
+                String.format("Requêtes: %d, tokens injectés/requête: %.0f, économisés/requête: %.0f",
+                        count, injectedPerRequest, savedPerRequest),
+                String.format("Segments fusionnés: %d, doublons écartés: %d, hors budget: %d, tronqués: %d",
+                        mergedSegments.get(), droppedDuplicates.get(), droppedForBudget.get(), truncatedSegments.get()));
+    }
+}
@@ -0,0 +1,50 @@
+package org.rag_sys.retrieval;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+import java.util.Set;
+
+/**
+ * Modèle de chat qui mesure chaque génération et la rattache aux segments choisis juste avant
+ * par un {@link AdaptiveContentRetriever} : c'est ce qui relie k au temps de génération.
+ * Seules les générations réussies sont comptées.
+ */
+public class GenerationTimingChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+
+    public GenerationTimingChatModel(ChatModel delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        AdaptiveContentRetriever.Selection selection = AdaptiveContentRetriever.takePendingSelection();
+        long start = System.nanoTime();
+        ChatResponse response = delegate.chat(chatRequest);
+        if (selection != null) {
+            selection.retriever().recordGeneration(selection, System.nanoTime() - start);
+        }
+        return response;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+}
@@ -0,0 +1,107 @@
+package org.rag_sys.retrieval;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Retriever hybride : interroge en parallèle la recherche vectorielle et l'index BM25
+ * puis fusionne les deux classements par Reciprocal Rank Fusion (RRF).
+ *
+ * Les termes exacts (numéros d'articles, noms de formules) remontent grâce au BM25
+ * sans devoir augmenter le nombre de résultats de la recherche vectorielle.
+ *
+ * Les contenus fusionnés portent leur score RRF (ContentMetadata.SCORE) : les scores cosinus et BM25
+ * ne sont pas sur la même échelle et ne doivent pas être comparés en aval.
+ */
+public class HybridContentRetriever implements ContentRetriever {
+
+    private static final int RRF_K = 60;
+    private static final ExecutorService KEYWORD_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "bm25-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ContentRetriever vectorRetriever;
+    private final Bm25Index keywordIndex;
+    private final int maxResults;
+    private final int candidatesPerRetriever;
+
+    /**
+     * @param vectorRetriever le retriever vectoriel, configuré pour renvoyer candidatesPerRetriever résultats
+     * @param keywordIndex l'index BM25 de l'agent
+     * @param maxResults le nombre de contenus renvoyés après fusion
+     * @param candidatesPerRetriever le nombre de candidats demandés à chaque recherche
+     */
+    public HybridContentRetriever(ContentRetriever vectorRetriever, Bm25Index keywordIndex,
+                                  int maxResults, int candidatesPerRetriever) {
+        this.vectorRetriever = vectorRetriever;
+        this.keywordIndex = keywordIndex;
+        this.maxResults = maxResults;
+        this.candidatesPerRetriever = candidatesPerRetriever;
+    }
+
+    /**
+     * @return le retriever vectoriel dont les résultats sont fusionnés avec ceux du BM25
+     */
+    public ContentRetriever getVectorRetriever() {
+        return vectorRetriever;
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        CompletableFuture<List<KeywordMatch>> keywordSearch = CompletableFuture.supplyAsync(
+                () -> keywordIndex.search(query.text(), candidatesPerRetriever), KEYWORD_EXECUTOR);
+        List<Content> vectorResults = vectorRetriever.retrieve(query);
+        List<KeywordMatch> keywordResults = keywordSearch.join();
+
+        return fuse(vectorResults, keywordResults);
+    }
+
+    private List<Content> fuse(List<Content> vectorResults, List<KeywordMatch> keywordResults) {
+        Map<String, Double> fusedScores = new HashMap<>();
+        Map<String, Content> contents = new LinkedHashMap<>();
+
+        for (int rank = 0; rank < vectorResults.size(); rank++) {
+            Content content = vectorResults.get(rank);
+            String key = keyOf(content);
+            fusedScores.merge(key, 1.0 / (RRF_K + rank + 1), Double::sum);
+            contents.putIfAbsent(key, content);
+        }
+        for (int rank = 0; rank < keywordResults.size(); rank++) {
+            KeywordMatch match = keywordResults.get(rank);
+            String key = match.getId();
+            fusedScores.merge(key, 1.0 / (RRF_K + rank + 1), Double::sum);
+            contents.putIfAbsent(key, Content.from(match.getSegment(), Map.of(
+                    ContentMetadata.EMBEDDING_ID, match.getId())));
+        }
+
+        List<String> ranked = new ArrayList<>(contents.keySet());
+        ranked.sort((a, b) -> Double.compare(fusedScores.get(b), fusedScores.get(a)));
+
+        List<Content> fused = new ArrayList<>(Math.min(maxResults, ranked.size()));
+        for (String key : ranked.subList(0, Math.min(maxResults, ranked.size()))) {
+            Content content = contents.get(key);
+            Map<ContentMetadata, Object> metadata = new HashMap<>(content.metadata());
+            metadata.put(ContentMetadata.SCORE, fusedScores.get(key));
+            fused.add(Content.from(content.textSegment(), metadata));
+        }
+        return fused;
+    }
+
+    private static String keyOf(Content content) {
+        Object id = content.metadata().get(ContentMetadata.EMBEDDING_ID);
+        return id != null ? id.toString() : content.textSegment().text();
+    }
+}
@@ -0,0 +1,98 @@
+package org.rag_sys.retrieval;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Décorateur d'EmbeddingStore qui alimente un index BM25 avec les mêmes segments
+ * et les mêmes identifiants que le store vectoriel, y compris lors des mises à jour à chaud
+ */
+public class KeywordIndexedEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private final EmbeddingStore<TextSegment> delegate;
+    private final Bm25Index keywordIndex;
+
+    public KeywordIndexedEmbeddingStore(EmbeddingStore<TextSegment> delegate, Bm25Index keywordIndex) {
+        this.delegate = delegate;
+        this.keywordIndex = keywordIndex;
+    }
+
+    public Bm25Index getKeywordIndex() {
+        return keywordIndex;
+    }
+
+    public EmbeddingStore<TextSegment> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        return delegate.add(embedding);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        delegate.add(id, embedding);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment segment) {
+        String id = delegate.add(embedding, segment);
+        keywordIndex.add(id, segment);
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return delegate.addAll(embeddings);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+        List<String> ids = delegate.addAll(embeddings, segments);
+        keywordIndex.addAll(ids, segments);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        delegate.addAll(ids, embeddings, segments);
+        keywordIndex.addAll(ids, segments);
+    }
+
+    @Override
+    public void remove(String id) {
+        delegate.remove(id);
+        keywordIndex.remove(List.of(id));
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        delegate.removeAll(ids);
+        keywordIndex.remove(ids);
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        delegate.removeAll(filter);
+        keywordIndex.removeIf(filter);
+    }
+
+    @Override
+    public void removeAll() {
+        delegate.removeAll();
+        keywordIndex.clear();
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        return delegate.search(request);
+    }
+}
@@ -0,0 +1,30 @@
+package org.rag_sys.retrieval;
+
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * Segment trouvé par la recherche par mots-clés, avec son score BM25
+ */
+public class KeywordMatch {
+    private final String id;
+    private final TextSegment segment;
+    private final double score;
+
+    public KeywordMatch(String id, TextSegment segment, double score) {
+        this.id = id;
+        this.segment = segment;
+        this.score = score;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public TextSegment getSegment() {
+        return segment;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,58 @@
+package org.rag_sys.retrieval;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Analyse lexicale pour la recherche par mots-clés : minuscules, suppression des accents,
+ * découpage sur les caractères non alphanumériques et retrait des mots vides français.
+ * Les nombres sont conservés tels quels (numéros d'articles, années, valeurs de formules).
+ */
+public final class TextAnalyzer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "le", "la", "les", "un", "une", "des", "du", "de", "d", "l", "et", "ou", "en", "a", "au", "aux",
+            "ce", "ces", "cet", "cette", "se", "sa", "son", "ses", "qui", "que", "quoi", "dont", "est",
+            "sont", "il", "elle", "ils", "elles", "on", "nous", "vous", "je", "tu", "me", "te", "y",
+            "ne", "pas", "par", "pour", "sur", "dans", "avec", "sans", "plus", "tout", "tous",
+            "leur", "leurs", "mon", "ma", "mes", "ton", "ta", "tes", "s", "c", "qu", "n", "j", "m", "t");
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * @param text le texte à analyser
+     * @return les termes indexables, dans l'ordre du texte
+     */
+    public static List<String> terms(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        List<String> terms = new ArrayList<>();
+        StringBuilder current = new StringBuilder(16);
+
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                addTerm(terms, current);
+            }
+        }
+        if (current.length() > 0) {
+            addTerm(terms, current);
+        }
+        return terms;
+    }
+
+    private static void addTerm(List<String> terms, StringBuilder current) {
+        String term = current.toString();
+        current.setLength(0);
+        if (!STOP_WORDS.contains(term)) {
+            terms.add(term);
+        }
+    }
+}
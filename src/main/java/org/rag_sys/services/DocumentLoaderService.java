@@ -1,17 +1,62 @@
 package org.rag_sys.services;
 
 import dev.langchain4j.data.document.Document;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Service responsable du chargement des documents
  * Principe SRP : Une seule responsabilité - charger les documents
  */
 public interface DocumentLoaderService {
+    /**
+     * Métadonnée du chemin d'un fichier relatif au répertoire de l'agent (séparateur '/') :
+     * identifie le fichier de façon unique, même si deux sous-répertoires contiennent le même nom
+     */
+    String RELATIVE_PATH = "relative_path";
+
+    /**
+     * @return le chemin du fichier relatif au répertoire de l'agent, avec '/' comme séparateur
+     */
+    static String relativePath(Path root, Path file) {
+        Path relative = root.toAbsolutePath().normalize().relativize(file.toAbsolutePath().normalize());
+        return relative.toString().replace(relative.getFileSystem().getSeparator(), "/");
+    }
+
     /**
      * Charge les documents depuis un chemin donné
      * @param path le chemin vers les documents
      * @return la liste des documents chargés
      */
     List<Document> loadDocuments(String path);
+
+    /**
+     * Charge un seul fichier
+     * @param rootPath le répertoire de documents auquel le fichier appartient
+     * @param filePath le chemin du fichier
+     * @return le document, ou null si le fichier est vide
+     */
+    Document loadDocument(String rootPath, String filePath);
+
+    /**
+     * Charge un seul fichier comme le chargement initial : un gros fichier est rendu en plusieurs parties.
+     * Le flux doit être fermé après usage.
+     * @param rootPath le répertoire de documents auquel le fichier appartient
+     * @param filePath le chemin du fichier
+     * @return les parties du document, aucune si le fichier est vide
+     */
+    default Stream<Document> streamDocument(String rootPath, String filePath) {
+        return Stream.ofNullable(loadDocument(rootPath, filePath));
+    }
+
+    /**
+     * Produit les documents d'un chemin de manière paresseuse : chaque fichier n'est lu
+     * qu'au moment où le flux le consomme. Le flux doit être fermé après usage.
+     * @param path le chemin vers les documents
+     * @return le flux des documents
+     */
+    default Stream<Document> streamDocuments(String path) {
+        return loadDocuments(path).stream();
+    }
 }
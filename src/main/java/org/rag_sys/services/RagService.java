@@ -1,7 +1,10 @@
 package org.rag_sys.services;
 
-import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.content.aggregator.DefaultContentAggregator;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import org.rag_sys.model.DocumentAnalyser;
+import org.rag_sys.resilience.CircuitBreaker;
 
 /**
  * Service responsable de la configuration de la chaîne RAG
@@ -14,15 +17,47 @@ public interface RagService {
      * @param modelName nom du modèle de chat
      * @return l'analyseur de documents configuré
      */
-    DocumentAnalyser setupRagChain(EmbeddingStoreContentRetriever retriever, String modelName);
+    default DocumentAnalyser setupRagChain(ContentRetriever retriever, String modelName) {
+        return setupRagChain(retriever, new DefaultContentAggregator(), modelName);
+    }
+
+    /**
+     * Configure la chaîne RAG avec une étape d'agrégation du contenu récupéré
+     * @param retriever le retriever de contenu
+     * @param contentAggregator l'agrégateur appliqué avant l'injection dans le prompt
+     * @param modelName nom du modèle de chat
+     * @return l'analyseur de documents configuré
+     */
+    default DocumentAnalyser setupRagChain(ContentRetriever retriever, ContentAggregator contentAggregator, String modelName) {
+        return setupRagChain(retriever, contentAggregator, modelName, null);
+    }
+
+    /**
+     * Configure la chaîne RAG avec la génération protégée par un disjoncteur
+     * @param retriever le retriever de contenu
+     * @param contentAggregator l'agrégateur appliqué avant l'injection dans le prompt
+     * @param modelName nom du modèle de chat
+     * @param generationBreaker le disjoncteur des appels au modèle de chat, ou null pour ne pas en mettre
+     * @return l'analyseur de documents configuré
+     */
+    DocumentAnalyser setupRagChain(ContentRetriever retriever, ContentAggregator contentAggregator, String modelName,
+                                   CircuitBreaker generationBreaker);
+
+    /**
+     * Crée l'agrégateur qui prépare le contenu récupéré avant son injection dans le prompt
+     * @return l'agrégateur configuré
+     */
+    default ContentAggregator createContentAggregator() {
+        return new DefaultContentAggregator();
+    }
     
     /**
-     * Crée un retriever de contenu
+     * Crée un retriever de contenu (vectoriel, ou hybride si le store porte un index par mots-clés)
      * @param embeddingStore le store d'embeddings
      * @param embeddingModel le modèle d'embedding
      * @return le retriever configuré
      */
-    EmbeddingStoreContentRetriever createRetriever(
+    ContentRetriever createRetriever(
         dev.langchain4j.store.embedding.EmbeddingStore<dev.langchain4j.data.segment.TextSegment> embeddingStore, 
         dev.langchain4j.model.embedding.EmbeddingModel embeddingModel
     );
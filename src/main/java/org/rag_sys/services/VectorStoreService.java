@@ -5,6 +5,8 @@ import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.data.segment.TextSegment;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Service responsable de la création et gestion du vector store
@@ -18,4 +20,45 @@ public interface VectorStoreService {
      * @return le vector store créé
      */
     EmbeddingStore<TextSegment> createVectorStore(List<Document> documents, EmbeddingModel embeddingModel);
+
+    /**
+     * Crée un vector store en ingérant les documents au fil de leur lecture,
+     * sans jamais conserver le corpus complet en mémoire
+     * @param documents le flux des documents à stocker
+     * @param embeddingModel le modèle d'embedding à utiliser
+     * @return le vector store créé
+     */
+    EmbeddingStore<TextSegment> createVectorStore(Stream<Document> documents, EmbeddingModel embeddingModel);
+
+    /**
+     * Ajoute ou remplace les segments d'un fichier dans un store existant.
+     * Les nouveaux segments sont ajoutés avant le retrait des anciens : une requête
+     * concurrente voit toujours au moins une version du document.
+     * @param embeddingStore le store à mettre à jour
+     * @param embeddingModel le modèle d'embedding à utiliser
+     * @param relativePath le chemin du fichier relatif au répertoire de l'agent
+     *                     ({@link org.rag_sys.services.DocumentLoaderService#RELATIVE_PATH})
+     * @param parts le document nouveau ou modifié, en une ou plusieurs parties pour un gros fichier ;
+     *              un flux vide retire le fichier du store
+     * @return le nombre de segments indexés
+     */
+    int upsertDocument(EmbeddingStore<TextSegment> embeddingStore, EmbeddingModel embeddingModel,
+                       String relativePath, Stream<Document> parts);
+
+    /**
+     * Retire d'un store tous les segments issus d'un fichier
+     * @param embeddingStore le store à mettre à jour
+     * @param relativePath le chemin du fichier supprimé, relatif au répertoire de l'agent
+     *                     ({@link org.rag_sys.services.DocumentLoaderService#RELATIVE_PATH})
+     */
+    void removeDocument(EmbeddingStore<TextSegment> embeddingStore, String relativePath);
+
+    /**
+     * Fichiers dont des passages avaient été écartés comme quasi-doublons d'un document depuis modifié
+     * ou retiré : ils sont à réindexer pour que ces passages reviennent. L'appel vide la liste.
+     * @return les chemins relatifs au répertoire de l'agent
+     */
+    default Set<String> takeDocumentsToReindex() {
+        return Set.of();
+    }
 }
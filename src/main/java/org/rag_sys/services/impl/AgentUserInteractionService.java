@@ -1,6 +1,7 @@
 package org.rag_sys.services.impl;
 
 import org.rag_sys.agent.AgentRouter;
+import org.rag_sys.logging.RequestLog;
 import org.rag_sys.services.UserInteractionService;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import org.rag_sys.model.DocumentAnalyser;
@@ -16,6 +17,8 @@ public class AgentUserInteractionService implements UserInteractionService {
     private static final String EXIT_COMMAND_2 = "quit";
     private static final String STATS_COMMAND = "stats";
     private static final String HELP_COMMAND = "help";
+    // La console est une seule conversation : les agents se souviennent des questions précédentes
+    private static final String CONSOLE_SESSION = "console";
     
     private final AgentRouter agentRouter;
     
@@ -45,6 +48,7 @@ public class AgentUserInteractionService implements UserInteractionService {
             
             // Traitement des commandes spéciales
             if (input.equalsIgnoreCase(STATS_COMMAND)) {
+                RequestLog.flush();
                 System.out.println(agentRouter.getAgentStats());
                 continue;
             }
@@ -56,7 +60,9 @@ public class AgentUserInteractionService implements UserInteractionService {
             
             try {
                 // Router la question vers l'agent approprié
-                String response = agentRouter.routeQuestion(input);
+                String response = agentRouter.routeQuestion(input, CONSOLE_SESSION);
+                // Le journal de la question s'affiche avant la réponse
+                RequestLog.flush();
                 System.out.println("\n" + response);
                 
             } catch (Exception e) {
@@ -1,42 +1,329 @@
 package org.rag_sys.services.impl;
 
 import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.parser.TextDocumentParser;
+import dev.langchain4j.data.document.Metadata;
 import org.rag_sys.services.DocumentLoaderService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implémentation du service de chargement de documents
  * Principe SRP : Se concentre uniquement sur le chargement des documents
+ *
+ * Les fichiers sont lus via des FileChannel (mappés en mémoire par fenêtres pour les gros fichiers)
+ * avec un décodage UTF-8 incrémental. Les fichiers du répertoire sont lus par un petit pool dédié,
+ * quelques-uns à l'avance seulement ; les gros fichiers sont rendus par parties, lues à la demande.
  */
 public class FileSystemDocumentLoaderService implements DocumentLoaderService {
     
     private static final String DEFAULT_MODEL_NAME = "mistral";
     private static final String DEFAULT_EMBEDDING_MODEL = "nomic-embed-text";
+
+    // Au-delà de ce seuil, le fichier est mappé en mémoire plutôt que lu dans un buffer du tas
+    private static final long MMAP_THRESHOLD_BYTES = 1 << 20;
+    private static final long MMAP_WINDOW_BYTES = 16L << 20;
+    private static final int READ_BUFFER_BYTES = 64 << 10;
+    private static final int DECODE_BUFFER_CHARS = 64 << 10;
+    // Au-delà, un fichier est rendu en plusieurs documents d'au plus PART_CHARS caractères
+    private static final long PART_THRESHOLD_BYTES = MMAP_THRESHOLD_BYTES;
+    private static final int PART_CHARS = 512 << 10;
+    private static final String PART_KEY = "part";
+    // Lecteurs dédiés (-Drag.loader.threads) et nombre de fichiers lus d'avance
+    private static final int READER_THREADS = Integer.getInteger("rag.loader.threads",
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int READ_AHEAD_FILES = 2 * READER_THREADS;
     
     @Override
     public List<Document> loadDocuments(String path) {
-        try {
-            List<Document> documents = FileSystemDocumentLoader.loadDocuments(path, new TextDocumentParser());
-            
-            if (documents.isEmpty()) {
+        try (Stream<Document> documents = streamDocuments(path)) {
+            List<Document> loaded = documents.toList();
+
+            if (loaded.isEmpty()) {
                 throw new RuntimeException("No documents found at the specified path: " + path);
             }
-            
-            System.out.println("Loaded " + documents.size() + " documents from path: " + path);
-            
-            // Ajouter les métadonnées
-            documents.forEach(document -> {
-                document.metadata().put("source", path);
-                document.metadata().put("modelName", DEFAULT_MODEL_NAME);
-                document.metadata().put("embeddingModel", DEFAULT_EMBEDDING_MODEL);
-            });
-            
-            return documents;
-        } catch (Exception e) {
+
+            System.out.println("Loaded " + loaded.size() + " documents from path: " + path);
+            return loaded;
+        } catch (RuntimeException e) {
             throw new RuntimeException("Failed to load documents from path: " + path, e);
         }
     }
+
+    @Override
+    public Document loadDocument(String rootPath, String filePath) {
+        return readDocument(Paths.get(filePath), rootPath);
+    }
+
+    @Override
+    public Stream<Document> streamDocument(String rootPath, String filePath) {
+        try {
+            return readFile(Paths.get(filePath), rootPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read document: " + filePath, e);
+        }
+    }
+
+    @Override
+    public Stream<Document> streamDocuments(String path) {
+        Path root = Paths.get(path);
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            // Seuls les chemins sont listés d'avance : les contenus sont lus au fil de la consommation
+            files = walk.filter(Files::isRegularFile).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to walk documents directory: " + path, e);
+        }
+        if (files.isEmpty()) {
+            return Stream.empty();
+        }
+
+        ExecutorService readers = Executors.newFixedThreadPool(Math.min(READER_THREADS, files.size()), runnable -> {
+            Thread thread = new Thread(runnable, "document-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ReadAhead readAhead = new ReadAhead(files, path, readers);
+        return Stream.iterate(readAhead.next(), Objects::nonNull, previous -> readAhead.next())
+                .flatMap(document -> document)
+                .onClose(readers::shutdownNow);
+    }
+
+    /**
+     * Lecture anticipée bornée : au plus READ_AHEAD_FILES fichiers lus à l'avance par le pool dédié,
+     * rendus dans l'ordre de la liste. Les gros fichiers ne sont pas lus à l'avance mais découpés
+     * en parties au moment où le flux les consomme.
+     */
+    private final class ReadAhead {
+        private final Iterator<Path> files;
+        private final String sourcePath;
+        private final ExecutorService readers;
+        private final Deque<Future<Stream<Document>>> inFlight = new ArrayDeque<>();
+
+        private ReadAhead(List<Path> files, String sourcePath, ExecutorService readers) {
+            this.files = files.iterator();
+            this.sourcePath = sourcePath;
+            this.readers = readers;
+        }
+
+        /**
+         * @return les documents du prochain fichier, ou null après le dernier
+         */
+        private Stream<Document> next() {
+            while (inFlight.size() < READ_AHEAD_FILES && files.hasNext()) {
+                Path file = files.next();
+                inFlight.add(readers.submit(() -> readFile(file, sourcePath)));
+            }
+            Future<Stream<Document>> head = inFlight.poll();
+            if (head == null) {
+                return null;
+            }
+            try {
+                return head.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Lecture des documents interrompue", e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException runtime ? runtime : new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    private Stream<Document> readFile(Path file, String sourcePath) throws IOException {
+        if (Files.size(file) < PART_THRESHOLD_BYTES) {
+            Document document = readDocument(file, sourcePath);
+            return document == null ? Stream.empty() : Stream.of(document);
+        }
+        // Gros fichier : une partie après l'autre, la mémoire ne dépend pas de la taille du fichier
+        DocumentParts parts = new DocumentParts(file, sourcePath);
+        return StreamSupport.stream(parts, false).onClose(parts::close);
+    }
+
+    /**
+     * Parties successives d'un gros fichier, décodées à la demande depuis le canal : une seule partie
+     * et les tampons de lecture sont en mémoire à la fois. Une partie s'arrête de préférence à une fin
+     * de paragraphe pour ne pas couper un passage en deux.
+     */
+    private final class DocumentParts extends Spliterators.AbstractSpliterator<Document> implements AutoCloseable {
+        private final Path file;
+        private final String sourcePath;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer bytes = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private final CharBuffer chars = CharBuffer.allocate(DECODE_BUFFER_CHARS);
+        private final StringBuilder pending = new StringBuilder();
+        private FileChannel channel;
+        private boolean endOfInput;
+        private int partIndex;
+
+        private DocumentParts(Path file, String sourcePath) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.file = file;
+            this.sourcePath = sourcePath;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Document> action) {
+            try {
+                if (channel == null) {
+                    channel = FileChannel.open(file, StandardOpenOption.READ);
+                }
+                while (pending.length() < PART_CHARS && !endOfInput) {
+                    endOfInput = channel.read(bytes) == -1;
+                    bytes.flip();
+                    decodeInto(decoder, bytes, chars, pending, endOfInput);
+                    bytes.compact();
+                    if (endOfInput) {
+                        decoder.flush(chars);
+                    }
+                    chars.flip();
+                    pending.append(chars);
+                    chars.clear();
+                }
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException("Failed to read document: " + file, e);
+            }
+            if (pending.isEmpty()) {
+                close();
+                return false;
+            }
+
+            int end = pending.length();
+            if (!endOfInput || end > PART_CHARS) {
+                end = Math.min(end, PART_CHARS);
+                int paragraph = pending.lastIndexOf("\n\n", end);
+                if (paragraph > end / 2) {
+                    end = paragraph + 2;
+                }
+            }
+            String text = pending.substring(0, end);
+            pending.delete(0, end);
+            if (!text.isBlank()) {
+                Metadata metadata = metadata(file, sourcePath);
+                metadata.put(PART_KEY, partIndex++);
+                action.accept(Document.from(text, metadata));
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Lecture seule : rien à perdre
+                }
+            }
+        }
+    }
+
+    private Document readDocument(Path file, String sourcePath) {
+        try {
+            String text = readUtf8(file);
+            if (text.isBlank()) {
+                return null;
+            }
+
+            return Document.from(text, metadata(file, sourcePath));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read document: " + file, e);
+        }
+    }
+
+    private static Metadata metadata(Path file, String sourcePath) {
+        Metadata metadata = new Metadata();
+        metadata.put(Document.FILE_NAME, file.getFileName().toString());
+        metadata.put(Document.ABSOLUTE_DIRECTORY_PATH, file.toAbsolutePath().getParent().toString());
+        metadata.put(RELATIVE_PATH, DocumentLoaderService.relativePath(Paths.get(sourcePath), file));
+        metadata.put("source", sourcePath);
+        metadata.put("modelName", DEFAULT_MODEL_NAME);
+        metadata.put("embeddingModel", DEFAULT_EMBEDDING_MODEL);
+        return metadata;
+    }
+
+    /**
+     * Lit un fichier en UTF-8 en décodant les octets au fil de l'eau, sans charger
+     * de copie intermédiaire du fichier complet sous forme de tableau d'octets
+     */
+    static String readUtf8(Path file) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(DECODE_BUFFER_CHARS);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            StringBuilder text = new StringBuilder((int) Math.min(size, Integer.MAX_VALUE - 8));
+
+            if (size >= MMAP_THRESHOLD_BYTES) {
+                long position = 0;
+                while (position < size) {
+                    long windowSize = Math.min(MMAP_WINDOW_BYTES, size - position);
+                    ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                    boolean last = position + windowSize >= size;
+                    decodeInto(decoder, window, chars, text, last);
+                    // Les octets d'un caractère coupé par la fenêtre sont relus au début de la suivante
+                    position += window.position();
+                    if (!last && window.position() == 0) {
+                        throw new IOException("Séquence UTF-8 indécodable à la position " + position + " de " + file);
+                    }
+                }
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    decodeInto(decoder, buffer, chars, text, false);
+                    buffer.compact();
+                }
+                buffer.flip();
+                decodeInto(decoder, buffer, chars, text, true);
+            }
+
+            decoder.flush(chars);
+            chars.flip();
+            text.append(chars);
+            return text.toString();
+        }
+    }
+
+    private static void decodeInto(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars,
+                                   StringBuilder text, boolean endOfInput) {
+        while (true) {
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            if (result.isOverflow()) {
+                chars.flip();
+                text.append(chars);
+                chars.clear();
+            } else {
+                return;
+            }
+        }
+    }
 }
@@ -1,9 +1,11 @@
 package org.rag_sys.services.impl;
 
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
+import org.rag_sys.ollama.OllamaClientRegistry;
 import org.rag_sys.services.EmbeddingModelService;
 
+import java.util.List;
+
 /**
  * Implémentation du service de modèles d'embedding utilisant Ollama
  * Principe SRP : Se concentre uniquement sur la création des modèles d'embedding
@@ -12,24 +14,27 @@ import org.rag_sys.services.EmbeddingModelService;
 public class OllamaEmbeddingModelService implements EmbeddingModelService {
     
     private static final String DEFAULT_BASE_URL = "http://localhost:11434";
-    private final String baseUrl;
+    private final List<String> backends;
     private final boolean logRequests;
     
     public OllamaEmbeddingModelService() {
-        this(DEFAULT_BASE_URL, true);
+        this(DEFAULT_BASE_URL, false);
     }
     
     public OllamaEmbeddingModelService(String baseUrl, boolean logRequests) {
-        this.baseUrl = baseUrl;
+        this(List.of(baseUrl), logRequests);
+    }
+
+    /**
+     * @param backends instances Ollama entre lesquelles répartir les calculs d'embeddings
+     */
+    public OllamaEmbeddingModelService(List<String> backends, boolean logRequests) {
+        this.backends = backends;
         this.logRequests = logRequests;
     }
     
     @Override
     public EmbeddingModel createEmbeddingModel(String modelName) {
-        return new OllamaEmbeddingModel.OllamaEmbeddingModelBuilder()
-                .baseUrl(baseUrl)
-                .logRequests(logRequests)
-                .modelName(modelName)
-                .build();
+        return OllamaClientRegistry.of(backends).embeddingModel(modelName, logRequests);
     }
 }
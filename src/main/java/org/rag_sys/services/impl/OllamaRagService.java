@@ -1,16 +1,33 @@
 package org.rag_sys.services.impl;
 
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.request.ResponseFormat;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.ollama.OllamaChatModel;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.rag.DefaultRetrievalAugmentor;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.rag_sys.config.AgentProfile;
+import org.rag_sys.ingestion.HeuristicTokenCounter;
+import org.rag_sys.memory.SessionChatMemory;
+import org.rag_sys.memory.SessionMemoryStore;
 import org.rag_sys.model.DocumentAnalyser;
+import org.rag_sys.ollama.OllamaClientRegistry;
+import org.rag_sys.resilience.CircuitBreaker;
+import org.rag_sys.resilience.CircuitBreakingChatModel;
+import org.rag_sys.retrieval.AdaptiveContentRetriever;
+import org.rag_sys.retrieval.CoalescingEmbeddingModel;
+import org.rag_sys.retrieval.ContextBudgetPacker;
+import org.rag_sys.retrieval.GenerationTimingChatModel;
+import org.rag_sys.retrieval.HybridContentRetriever;
+import org.rag_sys.retrieval.KeywordIndexedEmbeddingStore;
 import org.rag_sys.services.RagService;
 
+import java.util.List;
+
 /**
  * Implémentation du service RAG utilisant Ollama
  * Principe SRP : Se concentre uniquement sur la configuration RAG
@@ -21,44 +38,108 @@ public class OllamaRagService implements RagService {
     private static final String DEFAULT_BASE_URL = "http://localhost:11434";
     private static final double DEFAULT_TEMPERATURE = 0.2;
     private static final int DEFAULT_MAX_MESSAGES = 10;
+    private static final String DEFAULT_MEMORY_SCOPE = "rag";
     
-    private final String baseUrl;
+    private final List<String> backends;
     private final double temperature;
     private final int maxMessages;
+    private final AgentProfile agentProfile;
+    private final String memoryScope;
     
     public OllamaRagService() {
         this(DEFAULT_BASE_URL, DEFAULT_TEMPERATURE, DEFAULT_MAX_MESSAGES);
     }
     
     public OllamaRagService(String baseUrl, double temperature, int maxMessages) {
-        this.baseUrl = baseUrl;
+        this(baseUrl, temperature, maxMessages, new AgentProfile());
+    }
+
+    public OllamaRagService(String baseUrl, double temperature, int maxMessages, AgentProfile agentProfile) {
+        this(List.of(baseUrl), temperature, maxMessages, agentProfile);
+    }
+
+    public OllamaRagService(List<String> backends, double temperature, int maxMessages, AgentProfile agentProfile) {
+        this(backends, temperature, maxMessages, agentProfile, DEFAULT_MEMORY_SCOPE);
+    }
+
+    /**
+     * @param backends instances Ollama entre lesquelles répartir les générations
+     * @param memoryScope identifiant stable de l'agent (sa table), sous lequel sont rangés ses historiques de conversation
+     */
+    public OllamaRagService(List<String> backends, double temperature, int maxMessages, AgentProfile agentProfile,
+                            String memoryScope) {
+        this.backends = backends;
         this.temperature = temperature;
         this.maxMessages = maxMessages;
+        this.agentProfile = agentProfile;
+        this.memoryScope = memoryScope;
     }
     
     @Override
-    public DocumentAnalyser setupRagChain(EmbeddingStoreContentRetriever retriever, String modelName) {
-        OllamaChatModel ollamaModel = OllamaChatModel.builder()
-                .baseUrl(baseUrl)
-                .modelName(modelName)
-                .responseFormat(ResponseFormat.JSON)
-                .temperature(temperature)
-                .build();
+    public DocumentAnalyser setupRagChain(ContentRetriever retriever, ContentAggregator contentAggregator, String modelName,
+                                          CircuitBreaker generationBreaker) {
+        // Un seul client par (modèle, options), partagé entre agents ; le disjoncteur, lui, est propre à l'agent
+        ChatModel ollamaModel = OllamaClientRegistry.of(backends).chatModel(modelName, temperature, ResponseFormat.JSON, null);
+        if (generationBreaker != null) {
+            ollamaModel = new CircuitBreakingChatModel(ollamaModel, generationBreaker);
+        }
+        if (agentProfile.isAdaptiveRetrieval()) {
+            // Relie le nombre de segments retenus au temps de génération qui suit
+            ollamaModel = new GenerationTimingChatModel(ollamaModel);
+        }
 
         return AiServices.builder(DocumentAnalyser.class)
                 .chatModel(ollamaModel)
-                .contentRetriever(retriever)
-                .chatMemory(MessageWindowChatMemory.builder().maxMessages(maxMessages).build())
+                .retrievalAugmentor(DefaultRetrievalAugmentor.builder()
+                        .contentRetriever(retriever)
+                        .contentAggregator(contentAggregator)
+                        .build())
+                .chatMemory(new SessionChatMemory(SessionMemoryStore.shared(), memoryScope, maxMessages))
                 .build();
     }
     
     @Override
-    public EmbeddingStoreContentRetriever createRetriever(
+    public ContentAggregator createContentAggregator() {
+        return new ContextBudgetPacker(agentProfile.getContextTokenBudget(),
+                new HeuristicTokenCounter());
+    }
+
+    @Override
+    public ContentRetriever createRetriever(
             EmbeddingStore<TextSegment> embeddingStore, 
             EmbeddingModel embeddingModel) {
-        return EmbeddingStoreContentRetriever.builder()
-                .embeddingStore(embeddingStore)
+        // La question n'est embarquée qu'une fois par requête, quel que soit le nombre d'agents consultés
+        embeddingModel = CoalescingEmbeddingModel.of(embeddingModel);
+        int maxResults = agentProfile.getMaxResults();
+        if (!(embeddingStore instanceof KeywordIndexedEmbeddingStore keywordIndexedStore)) {
+            return adaptive(EmbeddingStoreContentRetriever.builder()
+                    .embeddingStore(embeddingStore)
+                    .embeddingModel(embeddingModel)
+                    .maxResults(maxResults)
+                    .build(), maxResults, agentProfile.getMinRelevanceScore());
+        }
+
+        // Recherche hybride : chaque recherche fournit plus de candidats que le résultat final
+        int candidates = maxResults * 2;
+        ContentRetriever vectorRetriever = EmbeddingStoreContentRetriever.builder()
+                .embeddingStore(keywordIndexedStore.getDelegate())
                 .embeddingModel(embeddingModel)
+                .maxResults(candidates)
+                .minScore(agentProfile.isAdaptiveRetrieval() ? agentProfile.getMinRelevanceScore() : 0.0)
                 .build();
+        // Le k adaptatif s'applique à la liste fusionnée, celle qui est injectée ; les scores RRF n'étant pas
+        // comparables au score minimal de l'agent, celui-ci filtre les candidats vectoriels avant la fusion
+        ContentRetriever hybridRetriever = new HybridContentRetriever(vectorRetriever,
+                keywordIndexedStore.getKeywordIndex(), maxResults, candidates);
+        return adaptive(hybridRetriever, maxResults, 0.0);
+    }
+
+    private ContentRetriever adaptive(ContentRetriever retriever, int maxResults, double minScore) {
+        if (!agentProfile.isAdaptiveRetrieval()) {
+            return retriever;
+        }
+        return new AdaptiveContentRetriever(retriever, maxResults, minScore,
+                agentProfile.getContextTokenBudget(), agentProfile.getGenerationLatencyBudget(),
+                new HeuristicTokenCounter());
     }
 }
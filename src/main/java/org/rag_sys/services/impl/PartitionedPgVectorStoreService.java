@@ -0,0 +1,50 @@
+package org.rag_sys.services.impl;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.rag_sys.config.AgentProfile;
+import org.rag_sys.config.VectorColumnType;
+import org.rag_sys.model.DbVectorModel;
+import org.rag_sys.store.BulkCopyTarget;
+import org.rag_sys.store.PartitionedPgVectorEmbeddingStore;
+import org.rag_sys.store.SharedPgVectorPool;
+
+/**
+ * Variante du service de vector store où tous les agents partagent un pool de connexions
+ * et une table partitionnée par agent ; la table configurée pour l'agent sert de clé de partition.
+ * Le découpage, l'ingestion et les mises à jour à chaud restent ceux de PgVectorStoreService.
+ * Les partitions d'une table partagent le type de colonne : les agents en halfvec ont leur propre table mère.
+ */
+public class PartitionedPgVectorStoreService extends PgVectorStoreService {
+
+    public static final String SHARED_TABLE = "rag_segments";
+    public static final String SHARED_HALF_PRECISION_TABLE = "rag_segments_half";
+
+    private final DbVectorModel dbVectorModel;
+
+    public PartitionedPgVectorStoreService(DbVectorModel dbVectorModel, AgentProfile agentProfile) {
+        super(dbVectorModel, agentProfile);
+        this.dbVectorModel = dbVectorModel;
+    }
+
+    @Override
+    protected EmbeddingStore<TextSegment> createEmbeddingStore(int dimension) {
+        return new PartitionedPgVectorEmbeddingStore(pool(), sharedTable(), dbVectorModel.getDbTable(), dimension,
+                getAgentProfile().getVectorColumnType(), !getAgentProfile().isDeferIndexCreation());
+    }
+
+    @Override
+    protected BulkCopyTarget createBulkCopyTarget() {
+        return new BulkCopyTarget(pool(), sharedTable(), "agent", dbVectorModel.getDbTable());
+    }
+
+    private String sharedTable() {
+        return getAgentProfile().getVectorColumnType() == VectorColumnType.HALFVEC
+                ? SHARED_HALF_PRECISION_TABLE : SHARED_TABLE;
+    }
+
+    private SharedPgVectorPool pool() {
+        return SharedPgVectorPool.of(dbVectorModel.getDbHost(), dbVectorModel.getDbPort(),
+                dbVectorModel.getDbName(), dbVectorModel.getDbUser(), dbVectorModel.getDbPassword());
+    }
+}
@@ -1,20 +1,45 @@
 package org.rag_sys.services.impl;
 
 import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
 import dev.langchain4j.store.embedding.pgvector.PgVectorEmbeddingStore;
+import org.rag_sys.config.AgentProfile;
+import org.rag_sys.config.VectorColumnType;
+import org.rag_sys.ingestion.DeduplicatingDocumentSplitter;
+import org.rag_sys.ingestion.DeduplicatingEmbeddingModel;
+import org.rag_sys.ingestion.DeduplicatingEmbeddingStore;
+import org.rag_sys.ingestion.FrenchSentenceSplitter;
+import org.rag_sys.ingestion.NearDuplicateIndex;
 import org.rag_sys.model.DbVectorModel;
+import org.rag_sys.retrieval.Bm25Index;
+import org.rag_sys.retrieval.KeywordIndexedEmbeddingStore;
+import org.rag_sys.store.BulkCopyEmbeddingStore;
+import org.rag_sys.store.BulkCopyTarget;
+import org.rag_sys.store.HalfPrecisionPgVectorEmbeddingStore;
+import org.rag_sys.store.PgVectorColumnMigration;
+import org.rag_sys.store.SharedPgVectorPool;
+import org.rag_sys.services.DocumentLoaderService;
 import org.rag_sys.services.VectorStoreService;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.utility.DockerImageName;
 
-import java.util.ArrayList;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
 
 /**
  * Implémentation du service de vector store utilisant PgVector
@@ -22,8 +47,7 @@ import java.util.List;
  * Principe OCP : Peut être étendu pour supporter d'autres types de stores
  */
 public class PgVectorStoreService implements VectorStoreService {
-    private static final int CHUNK_SIZE = 1000;
-    private static final int OVERLAP = 200;
+    private static final String REVISION_KEY = "revision";
     
     private final String host;
     private final int port;
@@ -31,51 +55,224 @@ public class PgVectorStoreService implements VectorStoreService {
     private final String password;
     private final String database;
     private final String table;
+    private final DocumentSplitter documentSplitter;
+    private final boolean hybridRetrieval;
+    private final AgentProfile agentProfile;
+    // Segments de l'agent dans l'index des doublons, une fois l'ingestion initiale commencée
+    private volatile NearDuplicateIndex.Corpus nearDuplicates;
+    // Écritures par lots COPY : les quasi-doublons sont validés à l'envoi du lot, pas au retour de l'ajout
+    private volatile boolean deferredWrites;
+    // Fichiers dont des passages écartés comme doublons ont perdu leur original
+    private final Set<String> documentsToReindex = ConcurrentHashMap.newKeySet();
 
     
     public PgVectorStoreService(DbVectorModel dbVectorModel) {
+        this(dbVectorModel, new AgentProfile());
+    }
+
+    public PgVectorStoreService(DbVectorModel dbVectorModel, AgentProfile agentProfile) {
         this.host = dbVectorModel.getDbHost();
         this.port = dbVectorModel.getDbPort();
         this.user = dbVectorModel.getDbUser();
         this.password = dbVectorModel.getDbPassword();
         this.database = dbVectorModel.getDbName();
         this.table = dbVectorModel.getDbTable();
+        this.documentSplitter = new FrenchSentenceSplitter(agentProfile);
+        this.hybridRetrieval = agentProfile.isHybridRetrieval();
+        this.agentProfile = agentProfile;
     }
     
     @Override
     public EmbeddingStore<TextSegment> createVectorStore(List<Document> documents, EmbeddingModel embeddingModel) {
+        return createVectorStore(documents.stream(), embeddingModel);
+    }
+
+    @Override
+    public EmbeddingStore<TextSegment> createVectorStore(Stream<Document> documents, EmbeddingModel embeddingModel) {
         DockerImageName dockerImageName = DockerImageName.parse("pgvector/pgvector:pg17");
         
         try (var pgVectorContainer = new PostgreSQLContainer<>(dockerImageName)) {
-            // Créer les segments de texte à partir des documents
-            List<TextSegment> textSegments = new ArrayList<>();
-            
-            for (Document document : documents) {
-                TextSegment textSegment = document.toTextSegment();
-                textSegments.add(textSegment);
+            EmbeddingStore<TextSegment> embeddingStore = createEmbeddingStore(embeddingModel.dimension());
+            if (agentProfile.isNearDuplicateDetection()) {
+                nearDuplicates = NearDuplicateIndex.shared().corpus(table, agentProfile.getNearDuplicateThreshold(),
+                        (long) embeddingModel.dimension() * agentProfile.getVectorColumnType().bytesPerDimension());
+            }
+
+            // Écritures groupées par COPY binaire plutôt qu'INSERT par document
+            BulkCopyTarget bulkCopyTarget = agentProfile.isBulkLoad() ? createBulkCopyTarget() : null;
+            BulkCopyEmbeddingStore bulkCopyStore = null;
+            if (bulkCopyTarget != null) {
+                bulkCopyStore = new BulkCopyEmbeddingStore(embeddingStore, bulkCopyTarget);
+                embeddingStore = bulkCopyStore;
+                NearDuplicateIndex.Corpus corpus = nearDuplicates;
+                if (corpus != null) {
+                    // Les segments retenus ne sont validés qu'une fois leur lot écrit dans la table
+                    bulkCopyStore.setFlushListener(new BulkCopyEmbeddingStore.FlushListener() {
+                        @Override
+                        public void flushed(List<TextSegment> segments) {
+                            corpus.commit(segments);
+                        }
+
+                        @Override
+                        public void failed(List<TextSegment> segments) {
+                            corpus.abandon(segments);
+                        }
+                    });
+                    deferredWrites = true;
+                }
+            }
+
+            // Index BM25 construit au fil de l'ingestion, à côté des embeddings
+            if (hybridRetrieval) {
+                embeddingStore = new KeywordIndexedEmbeddingStore(embeddingStore, new Bm25Index());
             }
             
-            // Créer le store PgVector
-            EmbeddingStore<TextSegment> embeddingStore = PgVectorEmbeddingStore.builder()
-                    .host(host)
-                    .port(port)
-                    .user(user)
-                    .password(password)
-                    .table(table)
-                    .database(database)
-                    .dimension(embeddingModel.dimension())
-                    .build();
-            
-            // Configurer l'ingesteur
+            // Configurer l'ingesteur : découpage par phrases, mesuré en tokens selon le profil de l'agent
             EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
-                    .documentSplitter(DocumentSplitters.recursive(CHUNK_SIZE, OVERLAP))
-                    .embeddingModel(embeddingModel)
-                    .embeddingStore(embeddingStore)
+                    .documentSplitter(splitter())
+                    .embeddingModel(ingestionModel(embeddingModel))
+                    .embeddingStore(ingestionStore(embeddingStore))
                     .build();
             
-            ingestor.ingest(documents);
+            // Chaque document est découpé et embarqué dès sa lecture, puis libéré
+            AtomicInteger ingestedDocuments = new AtomicInteger();
+            documents.forEach(document -> {
+                ingestor.ingest(document);
+                ingestedDocuments.incrementAndGet();
+            });
+            if (bulkCopyStore != null) {
+                bulkCopyStore.flush();
+                System.out.println(bulkCopyStore.describeThroughput());
+                if (agentProfile.isDeferIndexCreation()) {
+                    createDeferredIndex(bulkCopyTarget);
+                }
+            }
+            System.out.println("Documents ingérés dans la table " + table + ": " + ingestedDocuments.get());
+            if (nearDuplicates != null) {
+                System.out.println(nearDuplicates.describe());
+            }
             
             return embeddingStore;
         }
     }
+
+    /**
+     * Crée le store qui reçoit les embeddings de l'agent
+     * @param dimension dimension des embeddings du modèle
+     */
+    protected EmbeddingStore<TextSegment> createEmbeddingStore(int dimension) {
+        // Toutes les connexions de l'agent (store, vérification du type de colonne, COPY) viennent du pool de la base
+        EmbeddingStore<TextSegment> embeddingStore = PgVectorEmbeddingStore.datasourceBuilder()
+                .datasource(connectionSource().getDataSource())
+                .table(table)
+                .dimension(dimension)
+                .build();
+
+        boolean createIndex = !agentProfile.isDeferIndexCreation();
+        if (agentProfile.getVectorColumnType() == VectorColumnType.HALFVEC) {
+            return new HalfPrecisionPgVectorEmbeddingStore(embeddingStore, connectionSource(), table, dimension, createIndex);
+        }
+        // Une table passée en halfvec par un profil précédent revient en vector (une requête sur une connexion du pool)
+        try (Connection connection = connectionSource().getConnection()) {
+            PgVectorColumnMigration.migrate(connection, table, dimension, VectorColumnType.VECTOR, createIndex);
+            if (!createIndex) {
+                // Sans index pendant le chargement, reconstruit ensuite (createDeferredIndex)
+                PgVectorColumnMigration.dropEmbeddingIndexes(connection, table);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Impossible de repasser la table " + table + " en vector", e);
+        }
+        return embeddingStore;
+    }
+
+    /**
+     * Cible des écritures COPY pour ce store, ou null si le store ne les prend pas en charge
+     */
+    protected BulkCopyTarget createBulkCopyTarget() {
+        return new BulkCopyTarget(connectionSource(), table);
+    }
+
+    private SharedPgVectorPool connectionSource() {
+        return SharedPgVectorPool.of(host, port, database, user, password);
+    }
+
+    /**
+     * Découpage de l'agent, qui écarte les quasi-doublons si la détection est active
+     */
+    private DocumentSplitter splitter() {
+        NearDuplicateIndex.Corpus corpus = nearDuplicates;
+        return corpus != null ? new DeduplicatingDocumentSplitter(documentSplitter, corpus) : documentSplitter;
+    }
+
+    private EmbeddingModel ingestionModel(EmbeddingModel embeddingModel) {
+        NearDuplicateIndex.Corpus corpus = nearDuplicates;
+        return corpus != null ? new DeduplicatingEmbeddingModel(embeddingModel, corpus) : embeddingModel;
+    }
+
+    private EmbeddingStore<TextSegment> ingestionStore(EmbeddingStore<TextSegment> embeddingStore) {
+        NearDuplicateIndex.Corpus corpus = nearDuplicates;
+        return corpus != null ? new DeduplicatingEmbeddingStore(embeddingStore, corpus, deferredWrites) : embeddingStore;
+    }
+
+    protected AgentProfile getAgentProfile() {
+        return agentProfile;
+    }
+
+    private void createDeferredIndex(BulkCopyTarget bulkCopyTarget) {
+        long start = System.nanoTime();
+        try {
+            bulkCopyTarget.createVectorIndex();
+            System.out.printf("Index HNSW de la table %s créé après chargement en %.2f s%n",
+                    bulkCopyTarget.getIndexedTable(), (System.nanoTime() - start) / 1e9);
+        } catch (SQLException e) {
+            throw new RuntimeException("Échec de la création de l'index de la table " + bulkCopyTarget.getTable(), e);
+        }
+    }
+
+    @Override
+    public int upsertDocument(EmbeddingStore<TextSegment> embeddingStore, EmbeddingModel embeddingModel,
+                              String relativePath, Stream<Document> parts) {
+        String revision = UUID.randomUUID().toString();
+        // L'ancienne version du fichier ne compte plus comme original de ses propres passages
+        forgetNearDuplicates(relativePath);
+
+        // Les parties d'un gros fichier sont découpées et embarquées l'une après l'autre, sous la même révision
+        int segmentCount = 0;
+        for (Document part : (Iterable<Document>) parts::iterator) {
+            Metadata metadata = part.metadata().copy();
+            metadata.put(REVISION_KEY, revision);
+            metadata.put(DocumentLoaderService.RELATIVE_PATH, relativePath);
+            List<TextSegment> segments = splitter().split(Document.from(part.text(), metadata));
+            if (!segments.isEmpty()) {
+                List<Embedding> embeddings = ingestionModel(embeddingModel).embedAll(segments).content();
+                ingestionStore(embeddingStore).addAll(embeddings, segments);
+                segmentCount += segments.size();
+            }
+        }
+
+        // Retirer les versions précédentes une fois la nouvelle en place
+        embeddingStore.removeAll(metadataKey(DocumentLoaderService.RELATIVE_PATH).isEqualTo(relativePath)
+                .and(metadataKey(REVISION_KEY).isNotEqualTo(revision)));
+        return segmentCount;
+    }
+
+    @Override
+    public void removeDocument(EmbeddingStore<TextSegment> embeddingStore, String relativePath) {
+        embeddingStore.removeAll(metadataKey(DocumentLoaderService.RELATIVE_PATH).isEqualTo(relativePath));
+        forgetNearDuplicates(relativePath);
+    }
+
+    @Override
+    public Set<String> takeDocumentsToReindex() {
+        Set<String> documents = new LinkedHashSet<>(documentsToReindex);
+        documentsToReindex.removeAll(documents);
+        return documents;
+    }
+
+    private void forgetNearDuplicates(String fileName) {
+        NearDuplicateIndex.Corpus corpus = nearDuplicates;
+        if (corpus != null) {
+            documentsToReindex.addAll(corpus.forget(fileName));
+        }
+    }
 }
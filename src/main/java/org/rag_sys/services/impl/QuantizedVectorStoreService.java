@@ -0,0 +1,43 @@
+package org.rag_sys.services.impl;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.rag_sys.config.AgentProfile;
+import org.rag_sys.model.DbVectorModel;
+import org.rag_sys.store.BulkCopyTarget;
+import org.rag_sys.store.QuantizedEmbeddingStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Variante du service de vector store qui garde les embeddings en mémoire sous forme quantifiée
+ * (codes int8 et binaires) au lieu de les écrire dans pgvector.
+ * Le découpage, l'ingestion et les mises à jour à chaud restent ceux de PgVectorStoreService.
+ */
+public class QuantizedVectorStoreService extends PgVectorStoreService {
+
+    public QuantizedVectorStoreService(DbVectorModel dbVectorModel, AgentProfile agentProfile) {
+        super(dbVectorModel, agentProfile);
+    }
+
+    @Override
+    protected BulkCopyTarget createBulkCopyTarget() {
+        // Rien n'est écrit dans Postgres
+        return null;
+    }
+
+    @Override
+    protected EmbeddingStore<TextSegment> createEmbeddingStore(int dimension) {
+        try {
+            // Vecteurs pleine précision, relus uniquement pour la re-notation
+            Path vectorFile = Files.createTempFile("rag-vectors-", ".f32");
+            vectorFile.toFile().deleteOnExit();
+            return new QuantizedEmbeddingStore(vectorFile, dimension);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible de créer le fichier de vecteurs", e);
+        }
+    }
+}
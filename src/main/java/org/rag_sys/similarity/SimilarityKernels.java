@@ -0,0 +1,74 @@
+package org.rag_sys.similarity;
+
+/**
+ * Noyaux de similarité sur des tampons contigus (float32, int8, codes binaires).
+ *
+ * L'implémentation vectorisée (jdk.incubator.vector, compilée avec le profil Maven simd) est utilisée
+ * quand elle est présente et que le module est chargé (--add-modules jdk.incubator.vector),
+ * sinon une implémentation scalaire équivalente.
+ * -Drag.similarity.scalar=true force l'implémentation scalaire.
+ */
+public interface SimilarityKernels {
+
+    /**
+     * @return l'implémentation retenue pour cette JVM
+     */
+    static SimilarityKernels get() {
+        return SimilarityKernelsHolder.INSTANCE;
+    }
+
+    /**
+     * @return l'implémentation scalaire, référence des benchmarks
+     */
+    static SimilarityKernels scalar() {
+        return new ScalarSimilarityKernels();
+    }
+
+    /**
+     * @return le nom de l'implémentation (affiché dans les benchmarks)
+     */
+    String name();
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    default float dot(float[] a, float[] b) {
+        return dot(a, 0, b, 0, a.length);
+    }
+
+    float cosine(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    default float cosine(float[] a, float[] b) {
+        return cosine(a, 0, b, 0, a.length);
+    }
+
+    float squaredL2(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    default float squaredL2(float[] a, float[] b) {
+        return squaredL2(a, 0, b, 0, a.length);
+    }
+
+    int dotInt8(byte[] a, int aOffset, byte[] b, int bOffset, int length);
+
+    int hammingDistance(long[] a, int aOffset, long[] b, int bOffset, int words);
+
+    /**
+     * Produit scalaire de la requête avec chaque ligne d'une matrice rangée ligne par ligne
+     * @param scores reçoit un score par ligne
+     */
+    default void dotBatch(float[] matrix, int rows, int dimension, float[] query, float[] scores) {
+        for (int row = 0; row < rows; row++) {
+            scores[row] = dot(matrix, row * dimension, query, 0, dimension);
+        }
+    }
+
+    /**
+     * @return les k lignes de la matrice les plus proches de la requête (produit scalaire)
+     */
+    default TopK topK(float[] matrix, int rows, int dimension, float[] query, int k) {
+        TopK topK = new TopK(k);
+        for (int row = 0; row < rows; row++) {
+            topK.offer(row, dot(matrix, row * dimension, query, 0, dimension));
+        }
+        return topK;
+    }
+}
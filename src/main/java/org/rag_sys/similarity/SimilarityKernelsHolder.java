@@ -0,0 +1,31 @@
+package org.rag_sys.similarity;
+
+/**
+ * Choix paresseux de l'implémentation : la classe vectorisée n'est chargée
+ * que si le module incubateur est présent, pour éviter toute erreur de liaison.
+ * Hors profil simd, elle n'est pas compilée : le repli scalaire est alors silencieux.
+ */
+final class SimilarityKernelsHolder {
+
+    static final SimilarityKernels INSTANCE = select();
+
+    private SimilarityKernelsHolder() {
+    }
+
+    private static SimilarityKernels select() {
+        if (Boolean.getBoolean("rag.similarity.scalar")
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return new ScalarSimilarityKernels();
+        }
+        try {
+            return (SimilarityKernels) Class.forName("org.rag_sys.similarity.VectorizedSimilarityKernels")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ClassNotFoundException e) {
+            return new ScalarSimilarityKernels();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("⚠️ Noyaux vectorisés indisponibles, repli scalaire: " + e.getMessage());
+            return new ScalarSimilarityKernels();
+        }
+    }
+}
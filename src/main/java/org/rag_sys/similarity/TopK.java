@@ -0,0 +1,81 @@
+package org.rag_sys.similarity;
+
+import java.util.Arrays;
+
+/**
+ * Sélection des k meilleurs scores sans allocation par candidat (tas min sur des tableaux primitifs)
+ */
+public final class TopK {
+
+    private final int capacity;
+    private final double[] scores;
+    private final int[] slots;
+    private int size;
+
+    public TopK(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.scores = new double[this.capacity];
+        this.slots = new int[this.capacity];
+    }
+
+    public void offer(int slot, double score) {
+        if (size < capacity) {
+            scores[size] = score;
+            slots[size] = slot;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            scores[0] = score;
+            slots[0] = slot;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return les emplacements retenus, du meilleur score au moins bon
+     */
+    public int[] slotsByDescendingScore() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        int[] sorted = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = slots[order[i]];
+        }
+        return sorted;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= scores[index]) break;
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) break;
+            int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[index] <= scores[smallest]) break;
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        int slot = slots[a];
+        slots[a] = slots[b];
+        slots[b] = slot;
+    }
+}
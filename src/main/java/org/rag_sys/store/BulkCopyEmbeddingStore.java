@@ -0,0 +1,212 @@
+package org.rag_sys.store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.rag_sys.config.VectorColumnType;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Décorateur d'EmbeddingStore pgvector dont les ajouts passent par COPY ... FROM STDIN (FORMAT BINARY)
+ * au lieu d'INSERT unitaires. Les lignes sont regroupées en lots de batchSize ;
+ * tout lot en attente est envoyé avant une recherche ou une suppression, pour que le store reste cohérent.
+ * Un {@link FlushListener} apprend quels segments sont réellement écrits, ou ne l'ont pas été.
+ */
+public class BulkCopyEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    public static final int DEFAULT_BATCH_SIZE = 10_000;
+
+    /**
+     * Averti à la fin de chaque COPY, sous le verrou du store
+     */
+    public interface FlushListener {
+        /**
+         * @param segments les segments du lot, désormais dans la table
+         */
+        void flushed(List<TextSegment> segments);
+
+        /**
+         * @param segments les segments du lot dont le COPY a échoué ; ils restent en attente pour le prochain envoi
+         */
+        void failed(List<TextSegment> segments);
+    }
+
+    private final EmbeddingStore<TextSegment> delegate;
+    private final BulkCopyTarget target;
+    private final int batchSize;
+
+    private final List<String> pendingIds = new ArrayList<>();
+    private final List<Embedding> pendingEmbeddings = new ArrayList<>();
+    private final List<TextSegment> pendingSegments = new ArrayList<>();
+
+    private long rowsCopied;
+    private long bytesCopied;
+    private long copyNanos;
+    private FlushListener flushListener;
+
+    public BulkCopyEmbeddingStore(EmbeddingStore<TextSegment> delegate, BulkCopyTarget target) {
+        this(delegate, target, DEFAULT_BATCH_SIZE);
+    }
+
+    public BulkCopyEmbeddingStore(EmbeddingStore<TextSegment> delegate, BulkCopyTarget target, int batchSize) {
+        this.delegate = delegate;
+        this.target = target;
+        this.batchSize = batchSize;
+    }
+
+    public EmbeddingStore<TextSegment> getDelegate() {
+        return delegate;
+    }
+
+    public synchronized void setFlushListener(FlushListener flushListener) {
+        this.flushListener = flushListener;
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment segment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(segment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public synchronized void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        for (int i = 0; i < ids.size(); i++) {
+            pendingIds.add(ids.get(i));
+            pendingEmbeddings.add(embeddings.get(i));
+            pendingSegments.add(segments == null ? null : segments.get(i));
+        }
+        if (pendingIds.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Envoie le lot en attente en un seul COPY
+     */
+    public synchronized void flush() {
+        if (pendingIds.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try (Connection connection = target.getConnection()) {
+            boolean jsonb = target.isJsonbMetadata(connection);
+            boolean halfPrecision = target.getColumnType(connection) == VectorColumnType.HALFVEC;
+            int fieldCount = target.isPartitioned() ? 5 : 4;
+            try (PgCopyBinaryWriter writer = new PgCopyBinaryWriter(connection, target.copySql())) {
+                for (int i = 0; i < pendingIds.size(); i++) {
+                    TextSegment segment = pendingSegments.get(i);
+                    writer.startRow(fieldCount);
+                    if (target.isPartitioned()) {
+                        writer.writeText(target.getPartitionValue());
+                    }
+                    writer.writeUuid(UUID.fromString(pendingIds.get(i)));
+                    if (halfPrecision) {
+                        writer.writeHalfVector(pendingEmbeddings.get(i).vector());
+                    } else {
+                        writer.writeVector(pendingEmbeddings.get(i).vector());
+                    }
+                    writer.writeText(segment == null ? null : segment.text());
+                    writer.writeJson(segment == null ? null : MetadataJson.toJson(segment.metadata()), jsonb);
+                }
+                rowsCopied += writer.finish();
+                bytesCopied += writer.getBytesSent();
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (flushListener != null) {
+                flushListener.failed(writtenSegments());
+            }
+            if (e instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException("Échec du COPY vers la table " + target.getTable(), e);
+        } finally {
+            copyNanos += System.nanoTime() - start;
+        }
+        List<TextSegment> written = flushListener != null ? writtenSegments() : List.of();
+        pendingIds.clear();
+        pendingEmbeddings.clear();
+        pendingSegments.clear();
+        if (flushListener != null) {
+            flushListener.flushed(written);
+        }
+    }
+
+    private List<TextSegment> writtenSegments() {
+        return pendingSegments.stream().filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        flush();
+        return delegate.search(request);
+    }
+
+    @Override
+    public void remove(String id) {
+        flush();
+        delegate.remove(id);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        flush();
+        delegate.removeAll(ids);
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        flush();
+        delegate.removeAll(filter);
+    }
+
+    @Override
+    public void removeAll() {
+        flush();
+        delegate.removeAll();
+    }
+
+    public synchronized long getRowsCopied() {
+        return rowsCopied;
+    }
+
+    /**
+     * @return un résumé du débit d'écriture (lignes/s, Mo/s) depuis la création du store
+     */
+    public synchronized String describeThroughput() {
+        double seconds = copyNanos / 1e9;
+        return String.format("COPY binaire: %d lignes en %.2f s (%.0f lignes/s, %.1f Mo/s)",
+                rowsCopied, seconds,
+                seconds == 0 ? 0 : rowsCopied / seconds,
+                seconds == 0 ? 0 : bytesCopied / seconds / (1 << 20));
+    }
+}
@@ -0,0 +1,102 @@
+package org.rag_sys.store;
+
+import org.rag_sys.config.VectorColumnType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Table pgvector alimentée par COPY : colonnes embedding_id, embedding, text, metadata,
+ * précédées d'une colonne de partition (agent) dans le schéma partagé
+ */
+public class BulkCopyTarget {
+
+    private final ConnectionSource connectionSource;
+    private final String table;
+    private final String partitionColumn;
+    private final String partitionValue;
+    private volatile Boolean jsonbMetadata;
+    private volatile VectorColumnType columnType;
+
+    public BulkCopyTarget(ConnectionSource connectionSource, String table) {
+        this(connectionSource, table, null, null);
+    }
+
+    public BulkCopyTarget(ConnectionSource connectionSource, String table, String partitionColumn, String partitionValue) {
+        this.connectionSource = connectionSource;
+        this.table = table;
+        this.partitionColumn = partitionColumn;
+        this.partitionValue = partitionValue;
+    }
+
+    public Connection getConnection() throws SQLException {
+        return connectionSource.getConnection();
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public boolean isPartitioned() {
+        return partitionColumn != null;
+    }
+
+    public String getPartitionValue() {
+        return partitionValue;
+    }
+
+    public String copySql() {
+        String columns = "embedding_id, embedding, text, metadata";
+        if (isPartitioned()) {
+            columns = partitionColumn + ", " + columns;
+        }
+        return "COPY " + table + " (" + columns + ") FROM STDIN (FORMAT BINARY)";
+    }
+
+    /**
+     * La table créée par PgVectorEmbeddingStore stocke les métadonnées en json, le schéma partagé en jsonb
+     */
+    public boolean isJsonbMetadata(Connection connection) throws SQLException {
+        if (jsonbMetadata == null) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT data_type FROM information_schema.columns WHERE table_name = ? AND column_name = 'metadata'")) {
+                statement.setString(1, table);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    jsonbMetadata = resultSet.next() && "jsonb".equalsIgnoreCase(resultSet.getString(1));
+                }
+            }
+        }
+        return jsonbMetadata;
+    }
+
+    /**
+     * Type de la colonne embedding (vector ou halfvec), qui fixe l'encodage binaire des vecteurs
+     */
+    public VectorColumnType getColumnType(Connection connection) throws SQLException {
+        if (columnType == null) {
+            VectorColumnType current = PgVectorColumnMigration.currentType(connection, table);
+            columnType = current == null ? VectorColumnType.VECTOR : current;
+        }
+        return columnType;
+    }
+
+    /**
+     * Crée l'index HNSW (cosinus) une fois les données chargées. En schéma partagé, seule la partition
+     * de l'agent est indexée : les autres agents peuvent être encore en plein chargement.
+     */
+    public void createVectorIndex() throws SQLException {
+        try (Connection connection = getConnection(); Statement statement = connection.createStatement()) {
+            PgVectorColumnMigration.createCosineIndex(statement, getIndexedTable(), getColumnType(connection));
+        }
+    }
+
+    /**
+     * @return la table qui reçoit l'index différé : celle de l'agent, ou sa partition en schéma partagé
+     */
+    public String getIndexedTable() {
+        return isPartitioned() ? table + "_" + partitionValue : table;
+    }
+}
@@ -0,0 +1,11 @@
+package org.rag_sys.store;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Source de connexions Postgres (pool partagé ou source de données dédiée à un agent)
+ */
+public interface ConnectionSource {
+    Connection getConnection() throws SQLException;
+}
@@ -0,0 +1,91 @@
+package org.rag_sys.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Vecteurs float32 rangés par emplacement dans un fichier projeté en mémoire.
+ * Seuls les candidats à la re-notation sont lus : le système de fichiers décide
+ * des pages gardées en mémoire, pas le tas de la JVM.
+ *
+ * Une projection étant limitée à 2 Go, le fichier est projeté par tranches d'au plus 1 Go :
+ * seule la dernière tranche est reprojetée quand le fichier grandit.
+ *
+ * Les écritures et l'agrandissement doivent être sérialisés par l'appelant ;
+ * les lectures concurrentes sont sûres (accès absolus uniquement).
+ */
+public class FullPrecisionVectorFile implements Closeable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final int dimension;
+    private final int vectorsPerSegment;
+    private volatile FloatBuffer[] segments = new FloatBuffer[0];
+    private long capacity;
+
+    public FullPrecisionVectorFile(Path path, int dimension) {
+        this.dimension = dimension;
+        this.vectorsPerSegment = (int) Math.max(1, MAX_SEGMENT_BYTES / ((long) dimension * Float.BYTES));
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'ouvrir le fichier de vecteurs " + path, e);
+        }
+        remap(INITIAL_CAPACITY);
+    }
+
+    public void write(int slot, float[] vector) {
+        if (slot >= capacity) {
+            remap(Math.max(capacity * 2, slot + 1L));
+        }
+        segments[slot / vectorsPerSegment].put((slot % vectorsPerSegment) * dimension, vector);
+    }
+
+    public float[] read(int slot) {
+        float[] vector = new float[dimension];
+        segments[slot / vectorsPerSegment].get((slot % vectorsPerSegment) * dimension, vector);
+        return vector;
+    }
+
+    public long sizeInBytes() {
+        return capacity * dimension * Float.BYTES;
+    }
+
+    private void remap(long newCapacity) {
+        int segmentCount = (int) ((newCapacity + vectorsPerSegment - 1) / vectorsPerSegment);
+        FloatBuffer[] grown = Arrays.copyOf(segments, segmentCount);
+        try {
+            // Les tranches pleines gardent leur projection, seules la dernière et les nouvelles sont projetées
+            for (int segment = Math.max(0, segments.length - 1); segment < segmentCount; segment++) {
+                long first = (long) segment * vectorsPerSegment;
+                long vectors = Math.min(vectorsPerSegment, newCapacity - first);
+                if (grown[segment] != null && grown[segment].capacity() >= vectors * dimension) {
+                    continue;
+                }
+                grown[segment] = channel.map(FileChannel.MapMode.READ_WRITE,
+                                first * dimension * Float.BYTES, vectors * dimension * Float.BYTES)
+                        .order(ByteOrder.nativeOrder())
+                        .asFloatBuffer();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible de projeter le fichier de vecteurs", e);
+        }
+        segments = grown;
+        capacity = newCapacity;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
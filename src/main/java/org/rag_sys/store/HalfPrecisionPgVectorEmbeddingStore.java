@@ -0,0 +1,136 @@
+package org.rag_sys.store;
+
+import com.pgvector.PGvector;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.rag_sys.config.VectorColumnType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Table d'un agent dont la colonne embedding est en halfvec (float16).
+ *
+ * Les écritures et suppressions restent celles de PgVectorEmbeddingStore : Postgres convertit
+ * les paramètres vector vers halfvec à l'affectation. La recherche est réécrite, car PgVectorEmbeddingStore
+ * relit la colonne comme un vector ; ici la requête est typée halfvec pour utiliser l'index halfvec_cosine_ops.
+ * Une table existante en vector est convertie à la création du store. Un filtre de recherche
+ * non traduisible en SQL est évalué sur les segments lus, par ordre de distance.
+ */
+public class HalfPrecisionPgVectorEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private final EmbeddingStore<TextSegment> delegate;
+    private final ConnectionSource connectionSource;
+    private final String table;
+
+    public HalfPrecisionPgVectorEmbeddingStore(EmbeddingStore<TextSegment> delegate, ConnectionSource connectionSource,
+                                               String table, int dimension, boolean createIndex) {
+        this.delegate = delegate;
+        this.connectionSource = connectionSource;
+        this.table = table;
+        try (Connection connection = connectionSource.getConnection()) {
+            // Une conversion recrée elle-même l'index (ou le laisse au chargement en masse)
+            boolean migrated = PgVectorColumnMigration.migrate(connection, table, dimension, VectorColumnType.HALFVEC, createIndex);
+            if (!createIndex) {
+                PgVectorColumnMigration.dropEmbeddingIndexes(connection, table);
+            } else if (!migrated) {
+                try (Statement statement = connection.createStatement()) {
+                    PgVectorColumnMigration.createCosineIndex(statement, table, VectorColumnType.HALFVEC);
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Impossible de passer la table " + table + " en halfvec", e);
+        }
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        return delegate.add(embedding);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        delegate.add(id, embedding);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment segment) {
+        return delegate.add(embedding, segment);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return delegate.addAll(embeddings);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+        return delegate.addAll(embeddings, segments);
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        delegate.addAll(ids, embeddings, segments);
+    }
+
+    @Override
+    public void remove(String id) {
+        delegate.remove(id);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        delegate.removeAll(ids);
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        delegate.removeAll(filter);
+    }
+
+    @Override
+    public void removeAll() {
+        delegate.removeAll();
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        MetadataFilterSql filter = null;
+        Filter postFilter = null;
+        if (request.filter() != null) {
+            filter = MetadataFilterSql.translate(request.filter(), "metadata");
+            if (filter == null) {
+                postFilter = request.filter();
+            }
+        }
+
+        String sql = "SELECT embedding_id, embedding, text, metadata, embedding <=> ?::halfvec AS distance FROM " + table
+                + (filter == null ? "" : " WHERE " + filter.sql())
+                + " ORDER BY distance" + (postFilter == null ? " LIMIT ?" : "");
+        try (Connection connection = connectionSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            statement.setObject(index++, new PGvector(request.queryEmbedding().vector()));
+            if (filter != null) {
+                for (String parameter : filter.parameters()) {
+                    statement.setString(index++, parameter);
+                }
+            }
+            if (postFilter == null) {
+                statement.setInt(index, request.maxResults());
+            }
+            return new EmbeddingSearchResult<>(PgVectorSearchRows.collect(connection, statement, postFilter,
+                    request.maxResults(), request.minScore()));
+        } catch (SQLException e) {
+            throw new RuntimeException("Échec de la recherche dans la table " + table, e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.rag_sys.store;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.ContainsString;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsNotEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsNotIn;
+import dev.langchain4j.store.embedding.filter.logical.And;
+import dev.langchain4j.store.embedding.filter.logical.Not;
+import dev.langchain4j.store.embedding.filter.logical.Or;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Traduit les filtres de métadonnées de LangChain4j (égalité, ordre, appartenance, sous-chaîne, et/ou/non)
+ * en clause SQL paramétrée sur une colonne jsonb, avec la même sémantique que Filter.test.
+ *
+ * Les valeurs sont comparées typées : en jsonb pour l'égalité et l'appartenance (5 = 5.0, mais 5 ≠ "5"),
+ * numériquement pour l'ordre entre nombres et dans l'ordre des caractères (COLLATE "C") entre textes.
+ * Une clé absente ou d'un autre type ne satisfait aucune comparaison d'ordre ; là où Filter.test rejette
+ * des types incompatibles, la clause les tient pour différents.
+ */
+final class MetadataFilterSql {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final String sql;
+    private final List<String> parameters;
+
+    private MetadataFilterSql(String sql, List<String> parameters) {
+        this.sql = sql;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return la clause traduite, ou null si le filtre contient un type de filtre inconnu (à évaluer avec Filter.test)
+     */
+    static MetadataFilterSql translate(Filter filter, String metadataColumn) {
+        List<String> parameters = new ArrayList<>();
+        String sql = toSql(filter, metadataColumn, parameters);
+        return sql == null ? null : new MetadataFilterSql(sql, parameters);
+    }
+
+    String sql() {
+        return sql;
+    }
+
+    List<String> parameters() {
+        return parameters;
+    }
+
+    private static String toSql(Filter filter, String column, List<String> parameters) {
+        if (filter instanceof IsEqualTo isEqualTo) {
+            parameters.add(isEqualTo.key());
+            parameters.add(json(isEqualTo.comparisonValue()));
+            return "(" + column + " -> ? = ?::jsonb)";
+        }
+        if (filter instanceof IsNotEqualTo isNotEqualTo) {
+            // Comme Filter.test : une clé absente satisfait « différent de »
+            parameters.add(isNotEqualTo.key());
+            parameters.add(json(isNotEqualTo.comparisonValue()));
+            return "(" + column + " -> ? IS DISTINCT FROM ?::jsonb)";
+        }
+        if (filter instanceof IsGreaterThan greaterThan) {
+            return ordering(column, greaterThan.key(), greaterThan.comparisonValue(), ">", parameters);
+        }
+        if (filter instanceof IsGreaterThanOrEqualTo greaterOrEqual) {
+            return ordering(column, greaterOrEqual.key(), greaterOrEqual.comparisonValue(), ">=", parameters);
+        }
+        if (filter instanceof IsLessThan lessThan) {
+            return ordering(column, lessThan.key(), lessThan.comparisonValue(), "<", parameters);
+        }
+        if (filter instanceof IsLessThanOrEqualTo lessOrEqual) {
+            return ordering(column, lessOrEqual.key(), lessOrEqual.comparisonValue(), "<=", parameters);
+        }
+        if (filter instanceof ContainsString containsString) {
+            parameters.add(containsString.key());
+            parameters.add(containsString.key());
+            parameters.add(containsString.comparisonValue());
+            return "(jsonb_typeof(" + column + " -> ?) = 'string' AND strpos(" + column + " ->> ?, ?) > 0)";
+        }
+        if (filter instanceof IsIn isIn) {
+            return inClause(column, isIn.key(), isIn.comparisonValues(), false, parameters);
+        }
+        if (filter instanceof IsNotIn isNotIn) {
+            return inClause(column, isNotIn.key(), isNotIn.comparisonValues(), true, parameters);
+        }
+        if (filter instanceof And and) {
+            return binary(and.left(), and.right(), " AND ", column, parameters);
+        }
+        if (filter instanceof Or or) {
+            return binary(or.left(), or.right(), " OR ", column, parameters);
+        }
+        if (filter instanceof Not not) {
+            String expression = toSql(not.expression(), column, parameters);
+            return expression == null ? null : "(NOT COALESCE(" + expression + ", false))";
+        }
+        return null;
+    }
+
+    /**
+     * Comparaison d'ordre entre valeurs du même type : jsonb entre nombres (comparaison numérique),
+     * texte en ordre des caractères sinon. Le contrôle de type évite toute conversion qui pourrait échouer.
+     */
+    private static String ordering(String column, String key, Object value, String operator, List<String> parameters) {
+        parameters.add(key);
+        parameters.add(key);
+        if (value instanceof Number) {
+            parameters.add(json(value));
+            return "(jsonb_typeof(" + column + " -> ?) = 'number' AND " + column + " -> ? " + operator + " ?::jsonb)";
+        }
+        parameters.add(String.valueOf(value));
+        return "(jsonb_typeof(" + column + " -> ?) = 'string' AND (" + column + " ->> ?) COLLATE \"C\" " + operator + " ?)";
+    }
+
+    private static String json(Object value) {
+        try {
+            // Les UUID sont écrits comme dans les métadonnées, en chaîne
+            return JSON.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Valeur de filtre non sérialisable: " + value, e);
+        }
+    }
+
+    private static String binary(Filter left, Filter right, String operator, String column, List<String> parameters) {
+        String leftSql = toSql(left, column, parameters);
+        String rightSql = leftSql == null ? null : toSql(right, column, parameters);
+        return rightSql == null ? null : "(" + leftSql + operator + rightSql + ")";
+    }
+
+    private static String inClause(String column, String key, Collection<?> values, boolean negated,
+                                   List<String> parameters) {
+        if (negated) {
+            // Comme Filter.test : une clé absente n'appartient à aucun ensemble
+            parameters.add(key);
+        }
+        parameters.add(key);
+        StringBuilder placeholders = new StringBuilder();
+        for (Object value : values) {
+            if (placeholders.length() > 0) placeholders.append(", ");
+            placeholders.append("?::jsonb");
+            parameters.add(json(value));
+        }
+        if (negated) {
+            return "(" + column + " -> ? IS NULL OR " + column + " -> ? NOT IN (" + placeholders + "))";
+        }
+        return "(" + column + " -> ? IN (" + placeholders + "))";
+    }
+}
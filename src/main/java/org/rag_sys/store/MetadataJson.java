@@ -0,0 +1,40 @@
+package org.rag_sys.store;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.document.Metadata;
+
+import java.util.Map;
+
+/**
+ * Sérialisation des métadonnées de segment dans les colonnes json/jsonb,
+ * au même format que PgVectorEmbeddingStore (objet plat clé → valeur)
+ */
+final class MetadataJson {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {};
+
+    private MetadataJson() {
+    }
+
+    static String toJson(Metadata metadata) {
+        try {
+            return JSON.writeValueAsString(metadata.toMap());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Métadonnées non sérialisables: " + metadata, e);
+        }
+    }
+
+    static Metadata fromJson(String json) {
+        if (json == null) {
+            return new Metadata();
+        }
+        try {
+            return Metadata.from(JSON.readValue(json, METADATA_TYPE));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Métadonnées illisibles: " + json, e);
+        }
+    }
+}
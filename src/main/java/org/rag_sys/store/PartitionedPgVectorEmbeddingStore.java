@@ -0,0 +1,257 @@
+package org.rag_sys.store;
+
+import com.pgvector.PGvector;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.rag_sys.config.VectorColumnType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Store pgvector dont les segments vivent dans une table commune partitionnée par agent (PARTITION BY LIST).
+ * Les connexions viennent du pool partagé, et chaque requête porte la clé de partition
+ * pour que Postgres n'explore que la partition de l'agent.
+ */
+public class PartitionedPgVectorEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final SharedPgVectorPool pool;
+    private final String table;
+    private final String partition;
+    private final VectorColumnType columnType;
+
+    public PartitionedPgVectorEmbeddingStore(SharedPgVectorPool pool, String table, String partition, int dimension) {
+        this(pool, table, partition, dimension, VectorColumnType.VECTOR, true);
+    }
+
+    /**
+     * @param columnType type de la colonne embedding, commun à toutes les partitions de la table
+     * @param createIndex faux pour créer l'index vectoriel après un chargement en masse : les index existants
+     *                    sont alors supprimés, puis chaque agent indexe sa partition une fois chargée
+     */
+    public PartitionedPgVectorEmbeddingStore(SharedPgVectorPool pool, String table, String partition, int dimension,
+                                             VectorColumnType columnType, boolean createIndex) {
+        this.pool = pool;
+        this.table = checkIdentifier(table);
+        this.partition = checkIdentifier(partition);
+        this.columnType = columnType;
+        try {
+            pool.initializeOnce(this.table, () -> createParentTable(dimension, createIndex));
+            pool.initializeOnce(this.table + "_" + this.partition, () -> createPartition(createIndex));
+        } catch (SQLException e) {
+            throw new RuntimeException("Impossible de créer la partition " + partition + " de la table " + table, e);
+        }
+    }
+
+    private static String checkIdentifier(String identifier) {
+        if (identifier == null || !IDENTIFIER.matcher(identifier).matches()) {
+            throw new IllegalArgumentException("Identifiant SQL invalide (attendu [a-z_][a-z0-9_]*): " + identifier);
+        }
+        return identifier;
+    }
+
+    private void createParentTable(int dimension, boolean createIndex) throws SQLException {
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE EXTENSION IF NOT EXISTS vector");
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " ("
+                    + "agent TEXT NOT NULL, "
+                    + "embedding_id UUID NOT NULL, "
+                    + "embedding " + columnType.columnDefinition(dimension) + " NOT NULL, "
+                    + "text TEXT, "
+                    + "metadata JSONB, "
+                    + "PRIMARY KEY (agent, embedding_id)"
+                    + ") PARTITION BY LIST (agent)");
+            if (!createIndex) {
+                // L'index de la table mère couvrirait toutes les partitions, y compris celles en chargement
+                PgVectorColumnMigration.dropEmbeddingIndexes(connection, table);
+                return;
+            }
+            // Index déclaré sur la table mère : chaque partition reçoit le sien
+            PgVectorColumnMigration.createCosineIndex(statement, table, columnType);
+        }
+    }
+
+    private void createPartition(boolean createIndex) throws SQLException {
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + "_" + partition
+                    + " PARTITION OF " + table + " FOR VALUES IN ('" + partition + "')");
+            if (!createIndex) {
+                // Index propre à la partition laissé par un chargement précédent
+                PgVectorColumnMigration.dropEmbeddingIndexes(connection, table + "_" + partition);
+            }
+        }
+    }
+
+    public String getPartition() {
+        return partition;
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment segment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(segment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO " + table + " (agent, embedding_id, embedding, text, metadata) "
+                + "VALUES (?, ?, ?::" + columnType.sqlType() + ", ?, ?::jsonb) "
+                + "ON CONFLICT (agent, embedding_id) DO UPDATE SET "
+                + "embedding = EXCLUDED.embedding, text = EXCLUDED.text, metadata = EXCLUDED.metadata";
+        try (Connection connection = pool.getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                TextSegment segment = segments == null ? null : segments.get(i);
+                statement.setString(1, partition);
+                statement.setObject(2, UUID.fromString(ids.get(i)));
+                statement.setObject(3, new PGvector(embeddings.get(i).vector()));
+                statement.setString(4, segment == null ? null : segment.text());
+                statement.setString(5, segment == null ? null : MetadataJson.toJson(segment.metadata()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        } catch (SQLException e) {
+            throw new RuntimeException("Échec de l'écriture dans la partition " + partition, e);
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        MetadataFilterSql filter = null;
+        Filter postFilter = null;
+        if (request.filter() != null) {
+            filter = MetadataFilterSql.translate(request.filter(), "metadata");
+            if (filter == null) {
+                // Filtre d'un type inconnu : évalué sur les segments lus, par ordre de distance
+                postFilter = request.filter();
+            }
+        }
+
+        String sql = "SELECT embedding_id, embedding, text, metadata, embedding <=> ?::" + columnType.sqlType() + " AS distance FROM " + table
+                + " WHERE agent = ?" + (filter == null ? "" : " AND " + filter.sql())
+                + " ORDER BY distance" + (postFilter == null ? " LIMIT ?" : "");
+        try (Connection connection = pool.getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            statement.setObject(index++, new PGvector(request.queryEmbedding().vector()));
+            statement.setString(index++, partition);
+            if (filter != null) {
+                for (String parameter : filter.parameters()) {
+                    statement.setString(index++, parameter);
+                }
+            }
+            if (postFilter == null) {
+                statement.setInt(index, request.maxResults());
+            }
+            return new EmbeddingSearchResult<>(PgVectorSearchRows.collect(connection, statement, postFilter,
+                    request.maxResults(), request.minScore()));
+        } catch (SQLException e) {
+            throw new RuntimeException("Échec de la recherche dans la partition " + partition, e);
+        }
+    }
+
+    @Override
+    public void remove(String id) {
+        removeAll(List.of(id));
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM " + table + " WHERE agent = ? AND embedding_id = ANY (?)";
+        try (Connection connection = pool.getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, partition);
+            statement.setArray(2, connection.createArrayOf("uuid", ids.stream().map(UUID::fromString).toArray()));
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Échec de la suppression dans la partition " + partition, e);
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        MetadataFilterSql translated = MetadataFilterSql.translate(filter, "metadata");
+        if (translated == null) {
+            removeMatching(filter);
+            return;
+        }
+        String sql = "DELETE FROM " + table + " WHERE agent = ? AND " + translated.sql();
+        try (Connection connection = pool.getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, partition);
+            int index = 2;
+            for (String parameter : translated.parameters()) {
+                statement.setString(index++, parameter);
+            }
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Échec de la suppression dans la partition " + partition, e);
+        }
+    }
+
+    /**
+     * Repli pour les filtres non traduisibles en SQL : évalués côté Java sur les métadonnées de la partition
+     */
+    private void removeMatching(Filter filter) {
+        List<String> ids = new ArrayList<>();
+        String sql = "SELECT embedding_id, metadata FROM " + table + " WHERE agent = ?";
+        try (Connection connection = pool.getConnection(); PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, partition);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    if (filter.test(MetadataJson.fromJson(resultSet.getString("metadata")))) {
+                        ids.add(resultSet.getString("embedding_id"));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Échec de la lecture de la partition " + partition, e);
+        }
+        removeAll(ids);
+    }
+
+    @Override
+    public void removeAll() {
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate("TRUNCATE " + table + "_" + partition);
+        } catch (SQLException e) {
+            throw new RuntimeException("Échec du vidage de la partition " + partition, e);
+        }
+    }
+}
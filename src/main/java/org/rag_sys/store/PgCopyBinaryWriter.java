@@ -0,0 +1,170 @@
+package org.rag_sys.store;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Encodeur du format binaire de COPY (PGCOPY) envoyé au fil de l'eau au serveur.
+ * Les lignes sont accumulées dans un tampon transmis par blocs de CHUNK_BYTES.
+ *
+ * Format : en-tête « PGCOPY\n\377\r\n\0 », drapeaux et extension (int32 à 0),
+ * puis pour chaque ligne un int16 (nombre de champs) et pour chaque champ un int32 (longueur, -1 pour NULL)
+ * suivi des octets au format binaire du type ; fin de flux par un int16 à -1.
+ */
+public class PgCopyBinaryWriter implements AutoCloseable {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final byte JSONB_VERSION = 1;
+
+    private final CopyIn copyIn;
+    private ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES + (CHUNK_BYTES >> 2));
+    private long bytesSent;
+    private long rows;
+    private boolean finished;
+
+    /**
+     * Démarre un COPY ... FROM STDIN (FORMAT BINARY) sur la connexion
+     * @param copySql la commande COPY complète
+     */
+    public PgCopyBinaryWriter(Connection connection, String copySql) throws SQLException {
+        this.copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql);
+        buffer.put(SIGNATURE);
+        buffer.putInt(0);
+        buffer.putInt(0);
+    }
+
+    public void startRow(int fieldCount) throws SQLException {
+        flushIfFull();
+        ensureRemaining(Short.BYTES);
+        buffer.putShort((short) fieldCount);
+        rows++;
+    }
+
+    public void writeNull() {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(-1);
+    }
+
+    public void writeUuid(UUID uuid) {
+        ensureRemaining(Integer.BYTES + 16);
+        buffer.putInt(16);
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    public void writeText(String text) {
+        if (text == null) {
+            writeNull();
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ensureRemaining(Integer.BYTES + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * @param jsonb vrai pour une colonne jsonb (octet de version en tête), faux pour json
+     */
+    public void writeJson(String json, boolean jsonb) {
+        if (json == null) {
+            writeNull();
+            return;
+        }
+        if (!jsonb) {
+            writeText(json);
+            return;
+        }
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        ensureRemaining(Integer.BYTES + 1 + bytes.length);
+        buffer.putInt(bytes.length + 1);
+        buffer.put(JSONB_VERSION);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Format binaire du type vector de pgvector : int16 dimension, int16 réservé, puis les float4
+     */
+    public void writeVector(float[] vector) {
+        int length = 2 * Short.BYTES + vector.length * Float.BYTES;
+        ensureRemaining(Integer.BYTES + length);
+        buffer.putInt(length);
+        buffer.putShort((short) vector.length);
+        buffer.putShort((short) 0);
+        for (float value : vector) {
+            buffer.putFloat(value);
+        }
+    }
+
+    /**
+     * Format binaire du type halfvec : même en-tête que vector, puis les float16 (IEEE 754 binary16)
+     */
+    public void writeHalfVector(float[] vector) {
+        int length = 2 * Short.BYTES + vector.length * Short.BYTES;
+        ensureRemaining(Integer.BYTES + length);
+        buffer.putInt(length);
+        buffer.putShort((short) vector.length);
+        buffer.putShort((short) 0);
+        for (float value : vector) {
+            buffer.putShort(Float.floatToFloat16(value));
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Termine le flux et valide le COPY
+     * @return le nombre de lignes chargées selon le serveur
+     */
+    public long finish() throws SQLException {
+        ensureRemaining(Short.BYTES);
+        buffer.putShort((short) -1);
+        sendBuffer();
+        finished = true;
+        return copyIn.endCopy();
+    }
+
+    private void flushIfFull() throws SQLException {
+        if (buffer.position() >= CHUNK_BYTES) {
+            sendBuffer();
+        }
+    }
+
+    private void sendBuffer() throws SQLException {
+        copyIn.writeToCopy(buffer.array(), 0, buffer.position());
+        bytesSent += buffer.position();
+        buffer.clear();
+    }
+
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+
+    /**
+     * Abandonne le COPY s'il n'a pas été terminé (la transaction côté serveur est annulée)
+     */
+    @Override
+    public void close() throws SQLException {
+        if (!finished && copyIn.isActive()) {
+            copyIn.cancelCopy();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.rag_sys.store;
+
+import org.rag_sys.config.VectorColumnType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversion en place de la colonne embedding d'une table existante entre vector et halfvec.
+ *
+ * Les index construits sur l'ancienne colonne sont supprimés avant la conversion (leur classe
+ * d'opérateurs dépend du type) ; l'index HNSW cosinus est recréé avec la classe du nouveau type,
+ * sauf si sa création est différée après un chargement en masse.
+ */
+public final class PgVectorColumnMigration {
+
+    private PgVectorColumnMigration() {
+    }
+
+    /**
+     * @return le type actuel de la colonne embedding, ou null si la table n'existe pas encore
+     */
+    public static VectorColumnType currentType(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT udt_name FROM information_schema.columns WHERE table_name = ? AND column_name = 'embedding'")) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? VectorColumnType.fromSqlType(resultSet.getString(1)) : null;
+            }
+        }
+    }
+
+    /**
+     * Convertit la colonne si son type diffère de celui demandé
+     * @return vrai si une conversion a eu lieu
+     */
+    public static boolean migrate(Connection connection, String table, int dimension, VectorColumnType target,
+                                  boolean createIndex) throws SQLException {
+        VectorColumnType current = currentType(connection, table);
+        if (current == null || current == target) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            for (String index : embeddingIndexes(connection, table)) {
+                statement.executeUpdate("DROP INDEX IF EXISTS " + index);
+            }
+            statement.executeUpdate("ALTER TABLE " + table + " ALTER COLUMN embedding TYPE "
+                    + target.columnDefinition(dimension) + " USING embedding::" + target.columnDefinition(dimension));
+            if (createIndex) {
+                createCosineIndex(statement, table, target);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        System.out.printf("Colonne embedding de %s convertie de %s en %s en %.2f s%n",
+                table, current.sqlType(), target.sqlType(), (System.nanoTime() - start) / 1e9);
+        return true;
+    }
+
+    /**
+     * Supprime les index de la colonne embedding avant un chargement en masse, pour que l'index
+     * recréé ensuite (createCosineIndex) soit réellement reconstruit à chaque démarrage
+     */
+    public static void dropEmbeddingIndexes(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String index : embeddingIndexes(connection, table)) {
+                statement.executeUpdate("DROP INDEX IF EXISTS " + index);
+            }
+        }
+    }
+
+    /**
+     * Crée l'index HNSW cosinus adapté au type de la colonne, s'il n'existe pas
+     */
+    public static void createCosineIndex(Statement statement, String table, VectorColumnType type) throws SQLException {
+        statement.executeUpdate("CREATE INDEX IF NOT EXISTS " + table + "_embedding_idx ON " + table
+                + " USING hnsw (embedding " + type.cosineOperatorClass() + ")");
+    }
+
+    private static List<String> embeddingIndexes(Connection connection, String table) throws SQLException {
+        List<String> indexes = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT indexname FROM pg_indexes WHERE tablename = ? AND indexdef LIKE '%(embedding%'")) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    indexes.add(resultSet.getString(1));
+                }
+            }
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,77 @@
+package org.rag_sys.store;
+
+import com.pgvector.PGvector;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecture des résultats d'une recherche pgvector (embedding_id, embedding, text, metadata, distance),
+ * triés par distance croissante.
+ *
+ * Un filtre qui n'a pas pu être traduit en SQL est appliqué ici, pendant la lecture : la requête est alors
+ * lancée sans LIMIT et parcourue par lots via un curseur, jusqu'à maxResults segments retenus.
+ */
+final class PgVectorSearchRows {
+
+    private static final int FETCH_SIZE = 256;
+
+    private PgVectorSearchRows() {
+    }
+
+    /**
+     * @param postFilter filtre évalué côté Java, ou null s'il est déjà dans la requête (qui porte alors le LIMIT)
+     */
+    static List<EmbeddingMatch<TextSegment>> collect(Connection connection, PreparedStatement statement,
+                                                     Filter postFilter, int maxResults, double minScore) throws SQLException {
+        if (postFilter == null) {
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return read(resultSet, null, maxResults, minScore);
+            }
+        }
+        // Le pilote Postgres ne lit par lots que hors auto-commit
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return read(resultSet, postFilter, maxResults, minScore);
+            }
+        } finally {
+            connection.commit();
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static List<EmbeddingMatch<TextSegment>> read(ResultSet resultSet, Filter postFilter,
+                                                          int maxResults, double minScore) throws SQLException {
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+        while (matches.size() < maxResults && resultSet.next()) {
+            double score = RelevanceScore.fromCosineSimilarity(1 - resultSet.getDouble("distance"));
+            if (score < minScore) {
+                // Résultats triés par distance : les suivants sont encore moins pertinents
+                break;
+            }
+            Metadata metadata = MetadataJson.fromJson(resultSet.getString("metadata"));
+            if (postFilter != null && !postFilter.test(metadata)) {
+                continue;
+            }
+            String text = resultSet.getString("text");
+            TextSegment segment = text == null ? null : TextSegment.from(text, metadata);
+            // Le texte d'un halfvec a le même format que celui d'un vector
+            matches.add(new EmbeddingMatch<>(score, resultSet.getString("embedding_id"),
+                    Embedding.from(new PGvector(resultSet.getString("embedding")).toArray()), segment));
+        }
+        return matches;
+    }
+}
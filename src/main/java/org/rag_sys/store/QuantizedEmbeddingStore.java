@@ -0,0 +1,318 @@
+package org.rag_sys.store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.rag_sys.metrics.StatsProvider;
+import org.rag_sys.similarity.SimilarityKernels;
+import org.rag_sys.similarity.TopK;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Store vectoriel en mémoire qui ne garde sur le tas que des codes compacts :
+ * codes binaires (1 bit par dimension) et codes int8 avec leur facteur d'échelle.
+ *
+ * La recherche se fait en trois passes :
+ * <ol>
+ *   <li>distance de Hamming sur les codes binaires pour tous les segments,</li>
+ *   <li>produit scalaire int8 sur les meilleurs candidats,</li>
+ *   <li>cosinus exact sur les vecteurs float32 du fichier projeté en mémoire.</li>
+ * </ol>
+ * Les suppressions sont des pierres tombales, comme dans l'index BM25.
+ */
+public class QuantizedEmbeddingStore implements EmbeddingStore<TextSegment>, StatsProvider, Closeable {
+
+    // Rappel@10 ≥ 0,97 au QuantizationBenchmark, corpus de 64 thèmes comme de 16 thèmes serrés
+    // (×40 : 0,90 et 0,58) ; la passe int8 sur 2 000 candidats reste négligeable devant la passe binaire
+    public static final int DEFAULT_OVERSAMPLING = 200;
+    private static final int INT8_RESCORE_FACTOR = 4;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int dimension;
+    private final int binaryWords;
+    private final int oversampling;
+    private final FullPrecisionVectorFile fullPrecisionVectors;
+
+    private final Map<String, Integer> slotsById = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<TextSegment> segments = new ArrayList<>();
+    private final BitSet removed = new BitSet();
+    private byte[] int8Codes;
+    private float[] int8Scales;
+    private long[] binaryCodes;
+    private int liveCount;
+
+    public QuantizedEmbeddingStore(Path vectorFile, int dimension) {
+        this(vectorFile, dimension, DEFAULT_OVERSAMPLING);
+    }
+
+    /**
+     * @param oversampling nombre de candidats issus de la passe binaire, par résultat demandé
+     */
+    public QuantizedEmbeddingStore(Path vectorFile, int dimension, int oversampling) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("La dimension doit être positive: " + dimension);
+        }
+        this.dimension = dimension;
+        this.binaryWords = VectorQuantizer.binaryWords(dimension);
+        this.oversampling = Math.max(1, oversampling);
+        this.fullPrecisionVectors = new FullPrecisionVectorFile(vectorFile, dimension);
+        this.int8Codes = new byte[256 * dimension];
+        this.int8Scales = new float[256];
+        this.binaryCodes = new long[256 * binaryWords];
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment segment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(segment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> newIds = generateIds(embeddings.size());
+        addAll(newIds, embeddings, null);
+        return newIds;
+    }
+
+    @Override
+    public void addAll(List<String> newIds, List<Embedding> embeddings, List<TextSegment> newSegments) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < newIds.size(); i++) {
+                append(newIds.get(i), embeddings.get(i).vector(), newSegments == null ? null : newSegments.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(String id, float[] vector, TextSegment segment) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Dimension attendue " + dimension + ", reçue " + vector.length);
+        }
+        Integer previous = slotsById.get(id);
+        if (previous != null) {
+            markRemoved(previous);
+        }
+
+        int slot = ids.size();
+        ensureCapacity(slot + 1);
+        float[] unit = VectorQuantizer.normalize(vector);
+        int8Scales[slot] = VectorQuantizer.quantizeInt8(unit, int8Codes, slot * dimension);
+        VectorQuantizer.binarize(unit, binaryCodes, slot * binaryWords);
+        fullPrecisionVectors.write(slot, unit);
+
+        ids.add(id);
+        segments.add(segment);
+        slotsById.put(id, slot);
+        liveCount++;
+    }
+
+    private void ensureCapacity(int slots) {
+        int capacity = int8Scales.length;
+        if (slots <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(capacity * 2, slots);
+        int8Codes = Arrays.copyOf(int8Codes, newCapacity * dimension);
+        int8Scales = Arrays.copyOf(int8Scales, newCapacity);
+        binaryCodes = Arrays.copyOf(binaryCodes, newCapacity * binaryWords);
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = VectorQuantizer.normalize(request.queryEmbedding().vector());
+        byte[] queryCodes = new byte[dimension];
+        float queryScale = VectorQuantizer.quantizeInt8(query, queryCodes, 0);
+        long[] queryBits = new long[binaryWords];
+        VectorQuantizer.binarize(query, queryBits, 0);
+        int maxResults = request.maxResults();
+        Filter filter = request.filter();
+
+        SimilarityKernels kernels = SimilarityKernels.get();
+        lock.readLock().lock();
+        try {
+            // Passe 1 : Hamming sur tous les segments vivants
+            TopK binaryCandidates = new TopK(maxResults * oversampling);
+            for (int slot = 0; slot < ids.size(); slot++) {
+                if (removed.get(slot) || !matches(filter, slot)) continue;
+                int distance = kernels.hammingDistance(binaryCodes, slot * binaryWords, queryBits, 0, binaryWords);
+                binaryCandidates.offer(slot, -distance);
+            }
+
+            // Passe 2 : produit scalaire int8 sur les candidats binaires
+            TopK int8Candidates = new TopK(maxResults * INT8_RESCORE_FACTOR);
+            for (int slot : binaryCandidates.slotsByDescendingScore()) {
+                int dot = kernels.dotInt8(int8Codes, slot * dimension, queryCodes, 0, dimension);
+                int8Candidates.offer(slot, (double) dot * int8Scales[slot] * queryScale);
+            }
+
+            // Passe 3 : cosinus exact depuis le fichier float32
+            TopK exact = new TopK(maxResults);
+            Map<Integer, float[]> candidateVectors = new HashMap<>();
+            for (int slot : int8Candidates.slotsByDescendingScore()) {
+                float[] candidate = fullPrecisionVectors.read(slot);
+                candidateVectors.put(slot, candidate);
+                exact.offer(slot, kernels.dot(candidate, query));
+            }
+
+            List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+            for (int slot : exact.slotsByDescendingScore()) {
+                float[] candidate = candidateVectors.get(slot);
+                double score = RelevanceScore.fromCosineSimilarity(kernels.dot(candidate, query));
+                if (score < request.minScore()) continue;
+                matches.add(new EmbeddingMatch<>(score, ids.get(slot), Embedding.from(candidate), segments.get(slot)));
+            }
+            return new EmbeddingSearchResult<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean matches(Filter filter, int slot) {
+        if (filter == null) return true;
+        TextSegment segment = segments.get(slot);
+        return segment != null && filter.test(segment.metadata());
+    }
+
+    @Override
+    public void remove(String id) {
+        removeAll(List.of(id));
+    }
+
+    @Override
+    public void removeAll(Collection<String> idsToRemove) {
+        lock.writeLock().lock();
+        try {
+            for (String id : idsToRemove) {
+                Integer slot = slotsById.get(id);
+                if (slot != null) {
+                    markRemoved(slot);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            for (int slot = 0; slot < ids.size(); slot++) {
+                if (!removed.get(slot) && segments.get(slot) != null && filter.test(segments.get(slot).metadata())) {
+                    markRemoved(slot);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            for (int slot = 0; slot < ids.size(); slot++) {
+                if (!removed.get(slot)) {
+                    markRemoved(slot);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void markRemoved(int slot) {
+        removed.set(slot);
+        slotsById.remove(ids.get(slot), slot);
+        segments.set(slot, null);
+        liveCount--;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return les octets de codes gardés sur le tas (int8 + échelles + binaire)
+     */
+    public long getCodeBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) ids.size() * (dimension + Float.BYTES + (long) binaryWords * Long.BYTES);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return les octets qu'occuperaient les mêmes vecteurs en float32 sur le tas
+     */
+    public long getFloat32Bytes() {
+        lock.readLock().lock();
+        try {
+            return (long) ids.size() * dimension * Float.BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "🗜️ STORE QUANTIFIÉ (int8 + binaire)";
+    }
+
+    @Override
+    public List<String> getStatsLines() {
+        long codeBytes = getCodeBytes();
+        long floatBytes = getFloat32Bytes();
+        return List.of(
+                String.format("Segments: %d (dimension %d, sur-échantillonnage ×%d)", size(), dimension, oversampling),
+                String.format("Codes en mémoire: %.1f Mo, float32 équivalent: %.1f Mo (÷%.1f)",
+                        codeBytes / 1048576.0, floatBytes / 1048576.0,
+                        codeBytes == 0 ? 0 : (double) floatBytes / codeBytes));
+    }
+
+    @Override
+    public void close() throws IOException {
+        fullPrecisionVectors.close();
+    }
+}
@@ -0,0 +1,140 @@
+package org.rag_sys.store;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.rag_sys.metrics.StatsProvider;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool de connexions Postgres partagé par tous les agents d'une même base.
+ * Un seul pool par (hôte, port, base, utilisateur) : ajouter des agents n'ajoute pas de connexions.
+ *
+ * La taille du pool se règle avec -Drag.pg.poolSize (10 par défaut).
+ */
+public class SharedPgVectorPool implements ConnectionSource, StatsProvider {
+
+    public static final int DEFAULT_POOL_SIZE = 10;
+    private static final long CONNECTION_TIMEOUT_MILLIS = 10_000;
+
+    private static final Map<String, SharedPgVectorPool> POOLS = new ConcurrentHashMap<>();
+
+    private final String jdbcUrl;
+    private final HikariDataSource dataSource;
+    private final Map<String, Boolean> initializedTables = new ConcurrentHashMap<>();
+
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private SharedPgVectorPool(String jdbcUrl, String user, String password, int poolSize) {
+        this.jdbcUrl = jdbcUrl;
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(user);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(Math.min(2, poolSize));
+        config.setConnectionTimeout(CONNECTION_TIMEOUT_MILLIS);
+        config.setPoolName("rag-pgvector");
+        this.dataSource = new HikariDataSource(config);
+    }
+
+    /**
+     * @return le pool de cette base, créé au premier appel
+     */
+    public static SharedPgVectorPool of(String host, int port, String database, String user, String password) {
+        String jdbcUrl = "jdbc:postgresql://" + host + ":" + port + "/" + database;
+        return POOLS.computeIfAbsent(jdbcUrl + "|" + user, key -> new SharedPgVectorPool(jdbcUrl, user, password,
+                Integer.getInteger("rag.pg.poolSize", DEFAULT_POOL_SIZE)));
+    }
+
+    /**
+     * @return les pools ouverts dans cette JVM
+     */
+    public static Collection<SharedPgVectorPool> pools() {
+        return POOLS.values();
+    }
+
+    /**
+     * Emprunte une connexion en mesurant le temps d'attente
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return dataSource.getConnection();
+        } catch (SQLTransientConnectionException e) {
+            timeouts.incrementAndGet();
+            throw e;
+        } finally {
+            long waited = System.nanoTime() - start;
+            acquisitions.incrementAndGet();
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+    }
+
+    /**
+     * @return la source de données du pool, pour les stores qui gèrent eux-mêmes leurs connexions (PgVectorEmbeddingStore)
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Exécute l'initialisation d'une table une seule fois par pool
+     */
+    void initializeOnce(String table, SqlAction initialization) throws SQLException {
+        if (initializedTables.containsKey(table)) {
+            return;
+        }
+        synchronized (initializedTables) {
+            if (initializedTables.containsKey(table)) {
+                return;
+            }
+            initialization.run();
+            initializedTables.put(table, Boolean.TRUE);
+        }
+    }
+
+    interface SqlAction {
+        void run() throws SQLException;
+    }
+
+    public void close() {
+        dataSource.close();
+        POOLS.values().remove(this);
+    }
+
+    @Override
+    public String getStatsTitle() {
+        return "🐘 POOL POSTGRES PARTAGÉ (" + jdbcUrl + ")";
+    }
+
+    @Override
+    public List<String> getStatsLines() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        long count = acquisitions.get();
+        String connections = pool == null
+                ? "Connexions: pool non démarré"
+                : String.format("Connexions: %d actives, %d inactives, %d/%d ouvertes, %d threads en attente",
+                        pool.getActiveConnections(), pool.getIdleConnections(), pool.getTotalConnections(),
+                        dataSource.getMaximumPoolSize(), pool.getThreadsAwaitingConnection());
+        return List.of(
+                connections,
+                String.format("Attente d'une connexion: moyenne %.2f ms, max %.2f ms sur %d emprunts, %d expirations",
+                        count == 0 ? 0 : totalWaitNanos.get() / 1e6 / count, maxWaitNanos.get() / 1e6,
+                        count, timeouts.get()));
+    }
+}
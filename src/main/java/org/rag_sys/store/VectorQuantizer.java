@@ -0,0 +1,66 @@
+package org.rag_sys.store;
+
+import org.rag_sys.similarity.SimilarityKernels;
+
+/**
+ * Codages compacts d'un vecteur normalisé :
+ * <ul>
+ *   <li>scalaire int8 symétrique (un facteur d'échelle par vecteur),</li>
+ *   <li>binaire 1 bit par dimension (signe), comparé par distance de Hamming.</li>
+ * </ul>
+ */
+public final class VectorQuantizer {
+
+    private VectorQuantizer() {
+    }
+
+    /**
+     * @return une copie de norme 1 du vecteur (le vecteur nul est conservé tel quel)
+     */
+    public static float[] normalize(float[] vector) {
+        double squaredNorm = SimilarityKernels.get().dot(vector, vector);
+        float[] unit = new float[vector.length];
+        if (squaredNorm == 0) {
+            return unit;
+        }
+        float inverseNorm = (float) (1.0 / Math.sqrt(squaredNorm));
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * inverseNorm;
+        }
+        return unit;
+    }
+
+    /**
+     * Écrit les codes int8 du vecteur dans target à partir de offset
+     * @return le facteur d'échelle à appliquer aux produits de codes
+     */
+    public static float quantizeInt8(float[] vector, byte[] target, int offset) {
+        float maxAbs = 0;
+        for (float value : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        if (maxAbs == 0) {
+            return 0;
+        }
+        float scale = maxAbs / 127f;
+        for (int i = 0; i < vector.length; i++) {
+            target[offset + i] = (byte) Math.round(vector[i] / scale);
+        }
+        return scale;
+    }
+
+    /**
+     * Écrit le signe de chaque composante (1 si positive) dans target à partir du mot offset
+     */
+    public static void binarize(float[] vector, long[] target, int offset) {
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] > 0) {
+                target[offset + (i >>> 6)] |= 1L << (i & 63);
+            }
+        }
+    }
+
+    public static int binaryWords(int dimension) {
+        return (dimension + 63) >>> 6;
+    }
+}
@@ -0,0 +1,102 @@
+package org.rag_sys.traffic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Comparaison entre un trafic capturé et son rejeu : décisions de routage
+ * divergentes et percentiles de latence par étape
+ */
+public class ReplayReport {
+
+    private static final int MAX_LISTED_MISMATCHES = 10;
+
+    private final List<TrafficRecord> recorded;
+    private final List<TrafficRecord> replayed;
+    private final long elapsedMillis;
+    private final List<Integer> mismatches = new ArrayList<>();
+    private int failures;
+
+    public ReplayReport(List<TrafficRecord> recorded, List<TrafficRecord> replayed, long elapsedMillis) {
+        this.recorded = recorded;
+        this.replayed = replayed;
+        this.elapsedMillis = elapsedMillis;
+
+        for (int i = 0; i < replayed.size(); i++) {
+            TrafficRecord replay = replayed.get(i);
+            if (replay == null) {
+                failures++;
+            } else if (!recorded.get(i).sameRoutingAs(replay)) {
+                mismatches.add(i);
+            }
+        }
+    }
+
+    public int getMismatchCount() {
+        return mismatches.size();
+    }
+
+    public int getFailureCount() {
+        return failures;
+    }
+
+    /**
+     * Calcule un percentile (méthode du rang le plus proche) sur des valeurs déjà triées
+     */
+    public static long percentile(long[] sortedValues, double percentile) {
+        if (sortedValues.length == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(0, Math.min(sortedValues.length - 1, rank - 1))];
+    }
+
+    private static long[] sortedValues(List<TrafficRecord> records, ToLongFunction<TrafficRecord> extractor) {
+        long[] values = records.stream()
+                .filter(record -> record != null)
+                .mapToLong(extractor)
+                .toArray();
+        Arrays.sort(values);
+        return values;
+    }
+
+    private void appendLatencyLine(StringBuilder report, String stage, ToLongFunction<TrafficRecord> extractor) {
+        long[] before = sortedValues(recorded, extractor);
+        long[] after = sortedValues(replayed, extractor);
+        for (double p : new double[]{50, 90, 99}) {
+            long recordedValue = percentile(before, p);
+            long replayedValue = percentile(after, p);
+            double delta = recordedValue == 0 ? 0 : (double) (replayedValue - recordedValue) / recordedValue * 100;
+            report.append(String.format("║ %-6s p%-2.0f : capture %6d ms | rejeu %6d ms | %+6.1f%%   ║\n",
+                    stage, p, recordedValue, replayedValue, delta));
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append("╔══════════════════════════════════════════════════════════════╗\n");
+        report.append("║                    🔁 RAPPORT DE REJEU                       ║\n");
+        report.append("╠══════════════════════════════════════════════════════════════╣\n");
+        report.append(String.format("║ 📝 Questions rejouées: %-5d (échecs: %-5d)              ║\n", replayed.size(), failures));
+        report.append(String.format("║ 🔀 Décisions divergentes: %-5d                            ║\n", mismatches.size()));
+        report.append(String.format("║ ⏱️ Durée du rejeu: %d ms                                   ║\n", elapsedMillis));
+        report.append("╠══════════════════════════════════════════════════════════════╣\n");
+        appendLatencyLine(report, "garde", TrafficRecord::getGuardMillis);
+        appendLatencyLine(report, "agent", TrafficRecord::getAgentMillis);
+        appendLatencyLine(report, "total", TrafficRecord::getTotalMillis);
+
+        if (!mismatches.isEmpty()) {
+            report.append("╠══════════════════════════════════════════════════════════════╣\n");
+            for (int index : mismatches.subList(0, Math.min(MAX_LISTED_MISMATCHES, mismatches.size()))) {
+                TrafficRecord before = recorded.get(index);
+                TrafficRecord after = replayed.get(index);
+                report.append(String.format("║ #%d %s/%s -> %s/%s\n", index,
+                        before.getRecommendedAgent(), before.getOutcome(),
+                        after.getRecommendedAgent(), after.getOutcome()));
+            }
+        }
+        report.append("╚══════════════════════════════════════════════════════════════╝\n");
+        return report.toString();
+    }
+}
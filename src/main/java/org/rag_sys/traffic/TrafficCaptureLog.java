@@ -0,0 +1,298 @@
+package org.rag_sys.traffic;
+
+import org.rag_sys.agent.AgentType;
+import org.rag_sys.agent.RoutingOutcome;
+import org.rag_sys.logging.RequestLog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Journal binaire compact et en ajout seul des questions routées.
+ * Chaque enregistrement contient l'horodatage, la question, la décision de routage
+ * et les temps par étape ; le fichier peut être rejoué par le TrafficReplayer.
+ *
+ * L'écriture passe par le tampon asynchrone du journal ({@link RequestLog#submit}) : le thread de la requête
+ * n'attend ni le verrou ni le disque. Si le tampon est plein, l'enregistrement est écrit sur place plutôt que perdu.
+ *
+ * Chaque enregistrement est encadré par sa longueur et son CRC32 : un enregistrement à moitié écrit
+ * par un arrêt brutal est reconnu, retiré à la réouverture du fichier et ignoré à la relecture.
+ * Le tampon d'écriture est vidé au plus tard une seconde après un enregistrement, et à l'arrêt de la JVM.
+ */
+public class TrafficCaptureLog implements TrafficRecorder, Closeable {
+
+    private static final int MAGIC = 0x52414754; // "RAGT"
+    private static final int FORMAT_VERSION = 2;
+    // Version 1 : enregistrements sans cadre, relus mais plus complétés
+    private static final int LEGACY_FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 5;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Au-delà, la longueur lue est celle d'un cadre corrompu
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path path;
+    private final DataOutputStream output;
+    private final Thread shutdownHook;
+    private long recordCount;
+    private long lastFlushNanos = System.nanoTime();
+    private boolean closed;
+
+    public TrafficCaptureLog(Path path) throws IOException {
+        this.path = path;
+        boolean newFile = !Files.exists(path) || Files.size(path) == 0;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        if (!newFile) {
+            truncateIncompleteRecord(path);
+        }
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND), BUFFER_SIZE));
+        boolean opened = false;
+        try {
+            if (newFile) {
+                stream.writeInt(MAGIC);
+                stream.writeByte(FORMAT_VERSION);
+                stream.flush();
+            }
+            opened = true;
+        } finally {
+            if (!opened) {
+                stream.close();
+            }
+        }
+        this.output = stream;
+        // Ctrl+C : les enregistrements en attente sont écrits avant l'arrêt
+        this.shutdownHook = new Thread(this::closeQuietly, "rag-capture-flush");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public void record(TrafficRecord record) {
+        if (!RequestLog.submit(() -> write(record))) {
+            write(record);
+        }
+    }
+
+    private synchronized void write(TrafficRecord record) {
+        if (closed) {
+            System.err.println("⚠️ Journal de capture " + path + " déjà fermé, enregistrement ignoré");
+            return;
+        }
+        try {
+            byte[] payload = encode(record);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            output.writeInt(payload.length);
+            output.write(payload);
+            output.writeInt((int) crc.getValue());
+            recordCount++;
+            long now = System.nanoTime();
+            if (now - lastFlushNanos >= FLUSH_INTERVAL_NANOS) {
+                output.flush();
+                lastFlushNanos = now;
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Impossible d'écrire dans le journal de capture " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static byte[] encode(TrafficRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream payload = new DataOutputStream(bytes);
+        byte[] question = record.getQuestion().getBytes(StandardCharsets.UTF_8);
+        payload.writeLong(record.getTimestampMillis());
+        payload.writeInt(question.length);
+        payload.write(question);
+        payload.writeUTF(record.getRecommendedAgent().getCode());
+        payload.writeFloat((float) record.getConfidenceScore());
+        payload.writeByte(record.getOutcome().ordinal());
+        payload.writeInt((int) record.getGuardMillis());
+        payload.writeInt((int) record.getAgentMillis());
+        payload.writeInt((int) record.getTotalMillis());
+        return bytes.toByteArray();
+    }
+
+    private static TrafficRecord decode(DataInputStream input) throws IOException {
+        long timestamp = input.readLong();
+        int questionLength = input.readInt();
+        if (questionLength < 0 || questionLength > MAX_RECORD_BYTES) {
+            throw new IOException("Longueur de question invalide: " + questionLength);
+        }
+        byte[] question = new byte[questionLength];
+        input.readFully(question);
+        AgentType agent = AgentType.fromCode(input.readUTF());
+        double score = input.readFloat();
+        RoutingOutcome outcome = RoutingOutcome.fromOrdinal(input.readUnsignedByte());
+        long guardMillis = input.readInt();
+        long agentMillis = input.readInt();
+        long totalMillis = input.readInt();
+        return new TrafficRecord(timestamp, new String(question, StandardCharsets.UTF_8),
+                agent, score, outcome, guardMillis, agentMillis, totalMillis);
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException shuttingDown) {
+            // Appelé pendant l'arrêt : le crochet s'exécute de toute façon
+        }
+        closeOutput();
+    }
+
+    private void closeQuietly() {
+        try {
+            closeOutput();
+        } catch (IOException e) {
+            System.err.println("⚠️ Erreur lors de la fermeture du journal de capture " + path + ": " + e.getMessage());
+        }
+    }
+
+    private void closeOutput() throws IOException {
+        // Les enregistrements encore dans le tampon du journal sont écrits avant la fermeture
+        RequestLog.flush();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            output.close();
+        }
+    }
+
+    /**
+     * Relit l'intégralité d'un journal de capture ; la lecture s'arrête au premier enregistrement
+     * incomplet ou corrompu
+     * @param path le chemin du journal
+     * @return les enregistrements dans l'ordre d'écriture
+     */
+    public static List<TrafficRecord> readAll(Path path) throws IOException {
+        List<TrafficRecord> records = new ArrayList<>();
+        long validBytes = scan(path, records::add);
+        if (validBytes < Files.size(path)) {
+            System.err.println("⚠️ Journal de capture tronqué ou corrompu, " + records.size() + " enregistrements relus.");
+        }
+        return records;
+    }
+
+    /**
+     * Lit les enregistrements valides du journal
+     * @return la longueur du début valide du fichier
+     */
+    private static long scan(Path path, Consumer<TrafficRecord> consumer) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Fichier de capture invalide: " + path);
+            }
+            int version = input.readUnsignedByte();
+            if (version == LEGACY_FORMAT_VERSION) {
+                return scanLegacy(input, consumer);
+            }
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Version de capture non supportée: " + version);
+            }
+
+            long validBytes = HEADER_BYTES;
+            while (true) {
+                int length;
+                try {
+                    length = input.readInt();
+                } catch (EOFException endOfLog) {
+                    return validBytes;
+                }
+                if (length <= 0 || length > MAX_RECORD_BYTES) {
+                    return validBytes;
+                }
+                byte[] payload = new byte[length];
+                int storedCrc;
+                try {
+                    input.readFully(payload);
+                    storedCrc = input.readInt();
+                } catch (EOFException truncated) {
+                    return validBytes;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != storedCrc) {
+                    return validBytes;
+                }
+                TrafficRecord record;
+                try {
+                    record = decode(new DataInputStream(new ByteArrayInputStream(payload)));
+                } catch (IOException | RuntimeException malformed) {
+                    return validBytes;
+                }
+                consumer.accept(record);
+                validBytes += Integer.BYTES + length + Integer.BYTES;
+            }
+        }
+    }
+
+    private static long scanLegacy(DataInputStream input, Consumer<TrafficRecord> consumer) {
+        long validBytes = HEADER_BYTES;
+        while (true) {
+            TrafficRecord record;
+            try {
+                record = decode(input);
+            } catch (IOException | RuntimeException endOrMalformed) {
+                return validBytes;
+            }
+            consumer.accept(record);
+            // Horodatage, longueur, question, code d'agent (writeUTF), score, issue et trois durées
+            validBytes += Long.BYTES + Integer.BYTES + record.getQuestion().getBytes(StandardCharsets.UTF_8).length
+                    + Short.BYTES + record.getRecommendedAgent().getCode().length() + Float.BYTES + 1 + 3 * Integer.BYTES;
+        }
+    }
+
+    /**
+     * Retire la fin d'un journal laissée par un arrêt brutal, pour que les ajouts suivants restent lisibles
+     */
+    private static void truncateIncompleteRecord(Path path) throws IOException {
+        int version;
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(path))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Fichier de capture invalide: " + path);
+            }
+            version = input.readUnsignedByte();
+        } catch (EOFException truncated) {
+            throw new IOException("Fichier de capture invalide: " + path);
+        }
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Journal de capture au format " + version + ", impossible d'y ajouter des enregistrements: " + path);
+        }
+        long validBytes = scan(path, record -> { });
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            if (validBytes < file.length()) {
+                file.setLength(validBytes);
+                System.err.println("⚠️ Dernier enregistrement incomplet retiré de " + path);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.rag_sys.traffic;
+
+import org.rag_sys.agent.AgentType;
+import org.rag_sys.agent.RoutingOutcome;
+
+/**
+ * Enregistrement d'une question routée : horodatage, décision de routage
+ * et temps passés dans chaque étape (garde, agent, total)
+ */
+public class TrafficRecord {
+    private final long timestampMillis;
+    private final String question;
+    private final AgentType recommendedAgent;
+    private final double confidenceScore;
+    private final RoutingOutcome outcome;
+    private final long guardMillis;
+    private final long agentMillis;
+    private final long totalMillis;
+
+    public TrafficRecord(long timestampMillis, String question, AgentType recommendedAgent,
+                         double confidenceScore, RoutingOutcome outcome,
+                         long guardMillis, long agentMillis, long totalMillis) {
+        this.timestampMillis = timestampMillis;
+        this.question = question;
+        this.recommendedAgent = recommendedAgent;
+        this.confidenceScore = confidenceScore;
+        this.outcome = outcome;
+        this.guardMillis = guardMillis;
+        this.agentMillis = agentMillis;
+        this.totalMillis = totalMillis;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getQuestion() {
+        return question;
+    }
+
+    public AgentType getRecommendedAgent() {
+        return recommendedAgent;
+    }
+
+    public double getConfidenceScore() {
+        return confidenceScore;
+    }
+
+    public RoutingOutcome getOutcome() {
+        return outcome;
+    }
+
+    public long getGuardMillis() {
+        return guardMillis;
+    }
+
+    public long getAgentMillis() {
+        return agentMillis;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    /**
+     * Indique si deux enregistrements ont pris la même décision de routage
+     */
+    public boolean sameRoutingAs(TrafficRecord other) {
+        return other != null && recommendedAgent == other.recommendedAgent && outcome == other.outcome;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TrafficRecord{agent=%s, outcome=%s, score=%.2f, guard=%dms, agent=%dms, total=%dms}",
+                recommendedAgent, outcome, confidenceScore, guardMillis, agentMillis, totalMillis);
+    }
+}
@@ -0,0 +1,12 @@
+package org.rag_sys.traffic;
+
+/**
+ * Destination des traces de routage capturées par l'AgentRouter
+ */
+public interface TrafficRecorder {
+    /**
+     * Enregistre la trace d'une question routée
+     * @param record la trace à enregistrer
+     */
+    void record(TrafficRecord record);
+}
@@ -0,0 +1,86 @@
+package org.rag_sys.traffic;
+
+import org.rag_sys.agent.AgentRouter;
+import org.rag_sys.agent.RoutingResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejoue un journal de capture contre un AgentRouter en respectant les écarts
+ * de temps d'origine, à vitesse réelle (1×) ou accélérée (N×)
+ *
+ * Chaque question est envoyée à son heure prévue par le routage asynchrone, sans file d'attente :
+ * à vitesse accélérée, les requêtes se chevauchent comme en production (charge en boucle ouverte).
+ * La latence rejouée est mesurée depuis l'heure d'envoi prévue, de sorte qu'un retard de l'envoi
+ * compte dans la latence au lieu d'être masqué.
+ */
+public class TrafficReplayer {
+
+    private final AgentRouter agentRouter;
+    private final double speedFactor;
+
+    public TrafficReplayer(AgentRouter agentRouter, double speedFactor) {
+        if (speedFactor <= 0) {
+            throw new IllegalArgumentException("Le facteur de vitesse doit être strictement positif: " + speedFactor);
+        }
+        this.agentRouter = agentRouter;
+        this.speedFactor = speedFactor;
+    }
+
+    /**
+     * Rejoue les enregistrements et compare les décisions et latences à la capture
+     * @param recorded les enregistrements capturés, dans l'ordre chronologique
+     * @return le rapport de comparaison
+     */
+    public ReplayReport replay(List<TrafficRecord> recorded) throws InterruptedException {
+        if (recorded.isEmpty()) {
+            return new ReplayReport(recorded, List.of(), 0);
+        }
+
+        List<CompletableFuture<TrafficRecord>> pending = new ArrayList<>(recorded.size());
+        long firstTimestamp = recorded.get(0).getTimestampMillis();
+        long replayStart = System.nanoTime();
+
+        try {
+            for (TrafficRecord record : recorded) {
+                long offsetNanos = (long) (TimeUnit.MILLISECONDS.toNanos(
+                        record.getTimestampMillis() - firstTimestamp) / speedFactor);
+                long scheduledNanos = replayStart + offsetNanos;
+                long waitNanos = scheduledNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+                pending.add(replayOne(record, scheduledNanos));
+            }
+
+            List<TrafficRecord> replayed = new ArrayList<>(pending.size());
+            for (CompletableFuture<TrafficRecord> future : pending) {
+                try {
+                    replayed.add(future.get());
+                } catch (ExecutionException e) {
+                    replayed.add(null);
+                }
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - replayStart);
+            return new ReplayReport(recorded, replayed, elapsedMillis);
+        } finally {
+            // Rejeu interrompu : les questions encore en vol sont annulées
+            pending.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private CompletableFuture<TrafficRecord> replayOne(TrafficRecord record, long scheduledNanos) {
+        CompletableFuture<RoutingResult> routing = agentRouter.routeQuestionWithTraceAsync(record.getQuestion());
+        return routing.thenApply(result -> {
+            TrafficRecord trace = result.getTrace();
+            long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scheduledNanos);
+            return new TrafficRecord(trace.getTimestampMillis(), trace.getQuestion(), trace.getRecommendedAgent(),
+                    trace.getConfidenceScore(), trace.getOutcome(), trace.getGuardMillis(), trace.getAgentMillis(),
+                    totalMillis);
+        });
+    }
+}
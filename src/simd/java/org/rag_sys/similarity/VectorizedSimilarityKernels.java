@@ -0,0 +1,128 @@
+package org.rag_sys.similarity;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implémentation SIMD basée sur l'API Vector (jdk.incubator.vector).
+ * Chargée uniquement par réflexion depuis SimilarityKernelsHolder.
+ */
+final class VectorizedSimilarityKernels implements SimilarityKernels {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    // Les octets sont élargis en entiers : autant de voies des deux côtés
+    private static final boolean WIDE = IntVector.SPECIES_PREFERRED.vectorBitSize() >= 512;
+    private static final VectorSpecies<Byte> BYTES = WIDE ? ByteVector.SPECIES_128 : ByteVector.SPECIES_64;
+    private static final VectorSpecies<Integer> INTS = WIDE ? IntVector.SPECIES_512 : IntVector.SPECIES_256;
+
+    @Override
+    public String name() {
+        return "vectorisé (" + FLOATS.vectorBitSize() + " bits)";
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(FLOATS);
+        int i = 0;
+        int bound = FLOATS.loopBound(length);
+        for (; i < bound; i += FLOATS.length()) {
+            FloatVector x = FloatVector.fromArray(FLOATS, a, aOffset + i);
+            FloatVector y = FloatVector.fromArray(FLOATS, b, bOffset + i);
+            sum = x.fma(y, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+
+    @Override
+    public float cosine(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector dotSum = FloatVector.zero(FLOATS);
+        FloatVector normASum = FloatVector.zero(FLOATS);
+        FloatVector normBSum = FloatVector.zero(FLOATS);
+        int i = 0;
+        int bound = FLOATS.loopBound(length);
+        for (; i < bound; i += FLOATS.length()) {
+            FloatVector x = FloatVector.fromArray(FLOATS, a, aOffset + i);
+            FloatVector y = FloatVector.fromArray(FLOATS, b, bOffset + i);
+            dotSum = x.fma(y, dotSum);
+            normASum = x.fma(x, normASum);
+            normBSum = y.fma(y, normBSum);
+        }
+        float dot = dotSum.reduceLanes(VectorOperators.ADD);
+        float normA = normASum.reduceLanes(VectorOperators.ADD);
+        float normB = normBSum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            float x = a[aOffset + i];
+            float y = b[bOffset + i];
+            dot += x * y;
+            normA += x * x;
+            normB += y * y;
+        }
+        return normA == 0 || normB == 0 ? 0 : (float) (dot / Math.sqrt((double) normA * normB));
+    }
+
+    @Override
+    public float squaredL2(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(FLOATS);
+        int i = 0;
+        int bound = FLOATS.loopBound(length);
+        for (; i < bound; i += FLOATS.length()) {
+            FloatVector diff = FloatVector.fromArray(FLOATS, a, aOffset + i)
+                    .sub(FloatVector.fromArray(FLOATS, b, bOffset + i));
+            sum = diff.fma(diff, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            float diff = a[aOffset + i] - b[bOffset + i];
+            result += diff * diff;
+        }
+        return result;
+    }
+
+    @Override
+    public int dotInt8(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        IntVector sum = IntVector.zero(INTS);
+        int i = 0;
+        int bound = BYTES.loopBound(length);
+        for (; i < bound; i += BYTES.length()) {
+            IntVector x = (IntVector) ByteVector.fromArray(BYTES, a, aOffset + i)
+                    .convertShape(VectorOperators.B2I, INTS, 0);
+            IntVector y = (IntVector) ByteVector.fromArray(BYTES, b, bOffset + i)
+                    .convertShape(VectorOperators.B2I, INTS, 0);
+            sum = sum.add(x.mul(y));
+        }
+        int result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+
+    @Override
+    public int hammingDistance(long[] a, int aOffset, long[] b, int bOffset, int words) {
+        int i = 0;
+        int distance = 0;
+        int bound = LONGS.loopBound(words);
+        if (bound > 0) {
+            LongVector sum = LongVector.zero(LONGS);
+            for (; i < bound; i += LONGS.length()) {
+                sum = sum.add(LongVector.fromArray(LONGS, a, aOffset + i)
+                        .lanewise(VectorOperators.XOR, LongVector.fromArray(LONGS, b, bOffset + i))
+                        .lanewise(VectorOperators.BIT_COUNT));
+            }
+            distance = (int) sum.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < words; i++) {
+            distance += Long.bitCount(a[aOffset + i] ^ b[bOffset + i]);
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,124 @@
+package org.rag_sys.benchmark;
+
+import org.rag_sys.agent.AgentType;
+import org.rag_sys.agent.GuardAgentImpl;
+import org.rag_sys.agent.QuestionAnalysisResult;
+import org.rag_sys.config.GuardProfile;
+import org.rag_sys.config.RagConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compare les deux profils de l'agent de garde sur un jeu de questions étiquetées :
+ * latence par question (p50, p95), tokens lus et générés, justesse du routage et accord entre profils.
+ *
+ * Nécessite un serveur Ollama servant le modèle (0.5 ou plus récent pour la sortie contrainte par schéma).
+ *
+ * Usage : mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass="org.rag_sys.benchmark.GuardProfileBenchmark"
+ *         -Dexec.args="[url Ollama] [modèle] [répétitions]"
+ */
+public class GuardProfileBenchmark {
+
+    private record LabeledQuestion(String text, AgentType agent, boolean accepted) {
+    }
+
+    private static final List<LabeledQuestion> QUESTIONS = List.of(
+            new LabeledQuestion("Résoudre l'équation x² + 5x + 6 = 0", AgentType.MATH, true),
+            new LabeledQuestion("Quelle est la dérivée de sin(x) multiplié par x ?", AgentType.MATH, true),
+            new LabeledQuestion("Combien font 25 fois 17 ?", AgentType.MATH, true),
+            new LabeledQuestion("Comment calculer l'aire d'un cercle de rayon 3 cm ?", AgentType.MATH, true),
+            new LabeledQuestion("Raconte-moi le débarquement en Normandie", AgentType.STORY, true),
+            new LabeledQuestion("Qui était Jeanne d'Arc et que lui est-il arrivé ?", AgentType.STORY, true),
+            new LabeledQuestion("Résume l'intrigue des Misérables de Victor Hugo", AgentType.STORY, true),
+            new LabeledQuestion("Que s'est-il passé pendant la Révolution française en 1789 ?", AgentType.STORY, true),
+            new LabeledQuestion("Quels sont les droits fondamentaux en France ?", AgentType.DROIT, true),
+            new LabeledQuestion("Mon propriétaire peut-il garder ma caution sans justification ?", AgentType.DROIT, true),
+            new LabeledQuestion("Quelle est la durée de la période d'essai d'un CDI ?", AgentType.DROIT, true),
+            new LabeledQuestion("Comment contester une amende de stationnement ?", AgentType.DROIT, true),
+            new LabeledQuestion("asdkj qwe zzz ???", AgentType.GUARD, false),
+            new LabeledQuestion("Donne-moi une recette de gâteau au chocolat", AgentType.GUARD, false),
+            new LabeledQuestion("Explique-moi comment fabriquer une arme artisanale", AgentType.GUARD, false),
+            new LabeledQuestion("truc", AgentType.GUARD, false));
+
+    private static final int WARMUP_QUESTIONS = 3;
+
+    public static void main(String[] args) {
+        String baseUrl = args.length > 0 ? args[0] : RagConfiguration.DEFAULT_OLLAMA_BASE_URL;
+        String modelName = args.length > 1 ? args[1] : RagConfiguration.DEFAULT_MODEL_NAME;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        System.out.println("Modèle: " + modelName + " sur " + baseUrl + ", " + QUESTIONS.size() + " questions × "
+                + repetitions + " répétitions");
+
+        List<List<QuestionAnalysisResult>> decisions = new ArrayList<>();
+        List<String> reports = new ArrayList<>();
+        for (GuardProfile profile : GuardProfile.values()) {
+            GuardAgentImpl guard = new GuardAgentImpl(modelName, List.of(baseUrl), profile);
+            // Charge le modèle et amorce le cache de prompt d'Ollama
+            for (int i = 0; i < WARMUP_QUESTIONS; i++) {
+                guard.analyzeQuestion(QUESTIONS.get(i).text());
+            }
+            GuardAgentImpl measured = new GuardAgentImpl(modelName, List.of(baseUrl), profile);
+            List<QuestionAnalysisResult> results = new ArrayList<>();
+            List<Long> latencies = new ArrayList<>();
+            for (int r = 0; r < repetitions; r++) {
+                for (LabeledQuestion question : QUESTIONS) {
+                    long start = System.nanoTime();
+                    QuestionAnalysisResult result = measured.analyzeQuestion(question.text());
+                    latencies.add(System.nanoTime() - start);
+                    if (r == 0) {
+                        results.add(result);
+                    }
+                }
+            }
+            decisions.add(results);
+            reports.add(report(profile, measured, results, latencies));
+        }
+
+        System.out.println();
+        reports.forEach(System.out::println);
+        int agreements = 0;
+        for (int i = 0; i < QUESTIONS.size(); i++) {
+            QuestionAnalysisResult detailed = decisions.get(0).get(i);
+            QuestionAnalysisResult compact = decisions.get(1).get(i);
+            if (detailed.shouldProcess() == compact.shouldProcess()
+                    && (!detailed.shouldProcess() || detailed.getRecommendedAgent() == compact.getRecommendedAgent())) {
+                agreements++;
+            }
+        }
+        System.out.printf("Accord entre profils: %d/%d questions%n", agreements, QUESTIONS.size());
+    }
+
+    private static String report(GuardProfile profile, GuardAgentImpl guard, List<QuestionAnalysisResult> results,
+                                 List<Long> latencies) {
+        int correct = 0;
+        int fallbacks = 0;
+        for (int i = 0; i < results.size(); i++) {
+            LabeledQuestion question = QUESTIONS.get(i);
+            QuestionAnalysisResult result = results.get(i);
+            boolean routedRight = question.accepted()
+                    ? result.shouldProcess() && result.getRecommendedAgent() == question.agent()
+                    : !result.shouldProcess();
+            if (routedRight) {
+                correct++;
+            }
+            if (result.getReasoning().startsWith("Analyse de fallback")) {
+                fallbacks++;
+            }
+        }
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        return String.format("%-8s p50 %6.0f ms | p95 %6.0f ms | modèle %6.0f ms/analyse | tokens %5.0f lus, %5.1f générés"
+                        + " | routage juste %d/%d | replis %d",
+                profile.name().toLowerCase(), percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.95) / 1e6,
+                guard.getAverageLatencyMillis(), guard.getAverageInputTokens(), guard.getAverageOutputTokens(),
+                correct, results.size(), fallbacks);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+}
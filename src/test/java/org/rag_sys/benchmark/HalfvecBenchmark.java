@@ -0,0 +1,200 @@
+package org.rag_sys.benchmark;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.pgvector.PgVectorEmbeddingStore;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.rag_sys.similarity.SimilarityKernels;
+import org.rag_sys.similarity.TopK;
+import org.rag_sys.store.BulkCopyEmbeddingStore;
+import org.rag_sys.store.BulkCopyTarget;
+import org.rag_sys.store.ConnectionSource;
+import org.rag_sys.store.HalfPrecisionPgVectorEmbeddingStore;
+import org.rag_sys.store.VectorQuantizer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compare une table pgvector en vector (float32) et la même table en halfvec (float16) :
+ * taille sur disque (table + index HNSW), latence des requêtes et rappel@k face à une recherche exacte en Java.
+ *
+ * Nécessite un Postgres avec l'extension pgvector (0.7 ou plus récent pour halfvec).
+ *
+ * Usage : mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass="org.rag_sys.benchmark.HalfvecBenchmark"
+ *         -Dexec.args="hôte port base utilisateur mot_de_passe [segments] [dimension] [requêtes] [k]"
+ */
+public class HalfvecBenchmark {
+
+    private static final int CLUSTERS = 64;
+    private static final float CLUSTER_SPREAD = 0.6f;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.err.println("Usage: HalfvecBenchmark hôte port base utilisateur mot_de_passe [segments] [dimension] [requêtes] [k]");
+            System.exit(1);
+        }
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        String database = args[2];
+        String user = args[3];
+        String password = args[4];
+        int segmentCount = args.length > 5 ? Integer.parseInt(args[5]) : 50_000;
+        int dimension = args.length > 6 ? Integer.parseInt(args[6]) : 768;
+        int queryCount = args.length > 7 ? Integer.parseInt(args[7]) : 200;
+        int k = args.length > 8 ? Integer.parseInt(args[8]) : 10;
+
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setServerNames(new String[]{host});
+        dataSource.setPortNumbers(new int[]{port});
+        dataSource.setDatabaseName(database);
+        dataSource.setUser(user);
+        dataSource.setPassword(password);
+        ConnectionSource connectionSource = dataSource::getConnection;
+
+        Random random = new Random(42);
+        float[][] centers = new float[CLUSTERS][];
+        for (int c = 0; c < CLUSTERS; c++) {
+            centers[c] = gaussian(random, dimension, 1f);
+        }
+        float[][] vectors = new float[segmentCount][];
+        for (int i = 0; i < segmentCount; i++) {
+            vectors[i] = VectorQuantizer.normalize(around(random, centers[random.nextInt(CLUSTERS)], CLUSTER_SPREAD));
+        }
+        float[][] queries = new float[queryCount][];
+        for (int q = 0; q < queryCount; q++) {
+            queries[q] = VectorQuantizer.normalize(around(random, centers[random.nextInt(CLUSTERS)], CLUSTER_SPREAD));
+        }
+        List<Set<Integer>> groundTruth = new ArrayList<>();
+        for (float[] query : queries) {
+            groundTruth.add(exactTopK(vectors, query, k));
+        }
+
+        System.out.println("Segments: " + segmentCount + ", dimension: " + dimension + ", requêtes: " + queryCount + ", k: " + k);
+
+        for (boolean halfPrecision : new boolean[]{false, true}) {
+            String table = halfPrecision ? "rag_bench_halfvec" : "rag_bench_vector";
+            try (Connection connection = connectionSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DROP TABLE IF EXISTS " + table);
+            }
+            EmbeddingStore<TextSegment> store = PgVectorEmbeddingStore.builder()
+                    .host(host)
+                    .port(port)
+                    .user(user)
+                    .password(password)
+                    .database(database)
+                    .table(table)
+                    .dimension(dimension)
+                    .build();
+            if (halfPrecision) {
+                store = new HalfPrecisionPgVectorEmbeddingStore(store, connectionSource, table, dimension, false);
+            }
+
+            // Chargement par COPY puis construction de l'index, comme un chargement initial différé
+            BulkCopyTarget target = new BulkCopyTarget(connectionSource, table);
+            BulkCopyEmbeddingStore bulkStore = new BulkCopyEmbeddingStore(store, target);
+            Map<String, Integer> positions = new HashMap<>(segmentCount * 2);
+            List<String> ids = new ArrayList<>(segmentCount);
+            List<Embedding> embeddings = new ArrayList<>(segmentCount);
+            List<TextSegment> segments = new ArrayList<>(segmentCount);
+            for (int i = 0; i < segmentCount; i++) {
+                String id = UUID.randomUUID().toString();
+                positions.put(id, i);
+                ids.add(id);
+                embeddings.add(Embedding.from(vectors[i]));
+                segments.add(TextSegment.from("segment " + i));
+            }
+            bulkStore.addAll(ids, embeddings, segments);
+            bulkStore.flush();
+            long indexStart = System.nanoTime();
+            target.createVectorIndex();
+            double indexSeconds = (System.nanoTime() - indexStart) / 1e9;
+
+            run(halfPrecision ? "halfvec" : "vector", store, queries, groundTruth, positions, k,
+                    relationSize(connectionSource, table), indexSeconds);
+        }
+    }
+
+    private static void run(String name, EmbeddingStore<TextSegment> store, float[][] queries,
+                            List<Set<Integer>> groundTruth, Map<String, Integer> positions, int k,
+                            long bytes, double indexSeconds) {
+        for (int i = 0; i < Math.min(20, queries.length); i++) {
+            search(store, queries[i], k);
+        }
+
+        long start = System.nanoTime();
+        int hits = 0;
+        for (int q = 0; q < queries.length; q++) {
+            for (EmbeddingMatch<TextSegment> match : search(store, queries[q], k)) {
+                if (groundTruth.get(q).contains(positions.get(match.embeddingId()))) {
+                    hits++;
+                }
+            }
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / queries.length;
+        System.out.printf("%-10s rappel@%d %.3f | %7.2f ms/requête | %8.1f Mo (table + index) | index en %.1f s%n",
+                name, k, (double) hits / ((long) queries.length * k), millis, bytes / (double) (1 << 20), indexSeconds);
+    }
+
+    private static List<EmbeddingMatch<TextSegment>> search(EmbeddingStore<TextSegment> store, float[] query, int k) {
+        return store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(query))
+                .maxResults(k)
+                .minScore(0.0)
+                .build()).matches();
+    }
+
+    private static long relationSize(ConnectionSource connectionSource, String table) throws SQLException {
+        try (Connection connection = connectionSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT pg_total_relation_size(?::regclass)")) {
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    private static Set<Integer> exactTopK(float[][] vectors, float[] query, int k) {
+        SimilarityKernels kernels = SimilarityKernels.get();
+        TopK topK = new TopK(k);
+        for (int i = 0; i < vectors.length; i++) {
+            topK.offer(i, kernels.dot(vectors[i], query));
+        }
+        Set<Integer> result = new HashSet<>();
+        for (int slot : topK.slotsByDescendingScore()) {
+            result.add(slot);
+        }
+        return result;
+    }
+
+    private static float[] gaussian(Random random, int dimension, float sigma) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian() * sigma;
+        }
+        return vector;
+    }
+
+    private static float[] around(Random random, float[] center, float spread) {
+        float[] vector = gaussian(random, center.length, spread);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] += center[i];
+        }
+        return vector;
+    }
+}
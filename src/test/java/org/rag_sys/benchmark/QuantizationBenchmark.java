@@ -0,0 +1,144 @@
+package org.rag_sys.benchmark;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import org.rag_sys.similarity.SimilarityKernels;
+import org.rag_sys.similarity.TopK;
+import org.rag_sys.store.QuantizedEmbeddingStore;
+import org.rag_sys.store.VectorQuantizer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Mesure le rappel@k et l'empreinte mémoire du store quantifié face à une recherche exacte en float32.
+ *
+ * Les vecteurs sont synthétiques (regroupés autour de centres, comme des embeddings de thèmes voisins)
+ * afin de ne pas dépendre d'Ollama.
+ *
+ * Moins de thèmes rend les voisins plus serrés, donc la passe binaire plus difficile.
+ *
+ * Usage : mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass="org.rag_sys.benchmark.QuantizationBenchmark" -Dexec.args="[segments] [dimension] [requêtes] [k] [thèmes]"
+ */
+public class QuantizationBenchmark {
+
+    private static final float CLUSTER_SPREAD = 0.6f;
+    private static final int[] OVERSAMPLINGS = {40, 80, QuantizedEmbeddingStore.DEFAULT_OVERSAMPLING, 400};
+
+    public static void main(String[] args) throws Exception {
+        int segmentCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int dimension = args.length > 1 ? Integer.parseInt(args[1]) : 768;
+        int queryCount = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int k = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int clusters = args.length > 4 ? Integer.parseInt(args[4]) : 64;
+
+        Random random = new Random(42);
+        float[][] centers = new float[clusters][];
+        for (int c = 0; c < clusters; c++) {
+            centers[c] = gaussian(random, dimension, 1f);
+        }
+        float[][] vectors = new float[segmentCount][];
+        for (int i = 0; i < segmentCount; i++) {
+            vectors[i] = VectorQuantizer.normalize(around(random, centers[random.nextInt(clusters)], CLUSTER_SPREAD));
+        }
+        float[][] queries = new float[queryCount][];
+        for (int q = 0; q < queryCount; q++) {
+            queries[q] = VectorQuantizer.normalize(around(random, centers[random.nextInt(clusters)], CLUSTER_SPREAD));
+        }
+
+        System.out.println("Segments: " + segmentCount + ", dimension: " + dimension + ", requêtes: " + queryCount
+                + ", k: " + k + ", thèmes: " + clusters);
+
+        long start = System.nanoTime();
+        List<Set<Integer>> groundTruth = new ArrayList<>();
+        for (float[] query : queries) {
+            groundTruth.add(exactTopK(vectors, query, k));
+        }
+        double exactMillis = (System.nanoTime() - start) / 1e6 / queryCount;
+        System.out.printf("%-20s rappel@%d 1.000 | %7.2f ms/requête | %8.1f Mo sur le tas%n",
+                "float32 exact", k, exactMillis, (double) segmentCount * dimension * Float.BYTES / (1 << 20));
+
+        for (int oversampling : OVERSAMPLINGS) {
+            Path vectorFile = Files.createTempFile("rag-bench-", ".f32");
+            try (QuantizedEmbeddingStore store = new QuantizedEmbeddingStore(vectorFile, dimension, oversampling)) {
+                List<String> ids = new ArrayList<>(segmentCount);
+                List<Embedding> embeddings = new ArrayList<>(segmentCount);
+                List<TextSegment> segments = new ArrayList<>(segmentCount);
+                for (int i = 0; i < segmentCount; i++) {
+                    ids.add(Integer.toString(i));
+                    embeddings.add(Embedding.from(vectors[i]));
+                    segments.add(TextSegment.from("segment " + i));
+                }
+                store.addAll(ids, embeddings, segments);
+                run("quantifié ×" + oversampling, store, queries, groundTruth, k);
+            } finally {
+                Files.deleteIfExists(vectorFile);
+            }
+        }
+    }
+
+    private static void run(String name, QuantizedEmbeddingStore store, float[][] queries,
+                            List<Set<Integer>> groundTruth, int k) {
+        for (int i = 0; i < Math.min(20, queries.length); i++) {
+            search(store, queries[i], k);
+        }
+
+        long start = System.nanoTime();
+        int hits = 0;
+        for (int q = 0; q < queries.length; q++) {
+            for (EmbeddingMatch<TextSegment> match : search(store, queries[q], k)) {
+                if (groundTruth.get(q).contains(Integer.parseInt(match.embeddingId()))) {
+                    hits++;
+                }
+            }
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / queries.length;
+        System.out.printf("%-20s rappel@%d %.3f | %7.2f ms/requête | %8.1f Mo sur le tas%n",
+                name, k, (double) hits / ((long) queries.length * k), millis,
+                store.getCodeBytes() / (double) (1 << 20));
+    }
+
+    private static List<EmbeddingMatch<TextSegment>> search(QuantizedEmbeddingStore store, float[] query, int k) {
+        return store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(query))
+                .maxResults(k)
+                .minScore(0.0)
+                .build()).matches();
+    }
+
+    private static Set<Integer> exactTopK(float[][] vectors, float[] query, int k) {
+        SimilarityKernels kernels = SimilarityKernels.get();
+        TopK topK = new TopK(k);
+        for (int i = 0; i < vectors.length; i++) {
+            topK.offer(i, kernels.dot(vectors[i], query));
+        }
+        Set<Integer> result = new HashSet<>();
+        for (int slot : topK.slotsByDescendingScore()) {
+            result.add(slot);
+        }
+        return result;
+    }
+
+    private static float[] gaussian(Random random, int dimension, float sigma) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian() * sigma;
+        }
+        return vector;
+    }
+
+    private static float[] around(Random random, float[] center, float spread) {
+        float[] vector = gaussian(random, center.length, spread);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] += center[i];
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,125 @@
+package org.rag_sys.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.rag_sys.similarity.SimilarityKernels;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare (JMH) les noyaux de similarité vectorisés (jdk.incubator.vector) à l'implémentation scalaire :
+ * produit scalaire, cosinus, L2, int8, Hamming et top-k sur une matrice contiguë de vecteurs.
+ *
+ * Chaque mesure parcourt toute la matrice ; les JVM de mesure chargent le module incubateur.
+ * Sans le profil simd, "vector" retombe sur l'implémentation scalaire (affichée au démarrage).
+ *
+ * Outil de mesure hors de l'application, compilé avec les sources de test.
+ * Usage : mvn -Psimd test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test -Dexec.args="-cp %classpath org.openjdk.jmh.Main SimilarityBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class SimilarityBenchmark {
+
+    private static final int TOP_K = 10;
+
+    @Param({"scalar", "vector"})
+    public String implementation;
+
+    @Param("20000")
+    public int rows;
+
+    @Param("768")
+    public int dimension;
+
+    private SimilarityKernels kernels;
+    private float[] matrix;
+    private float[] query;
+    private byte[] codes;
+    private byte[] queryCodes;
+    private long[] bits;
+    private long[] queryBits;
+    private int words;
+
+    @Setup
+    public void setUp() {
+        kernels = implementation.equals("scalar") ? SimilarityKernels.scalar() : SimilarityKernels.get();
+        System.out.println("Implémentation: " + kernels.name());
+
+        Random random = new Random(7);
+        matrix = new float[rows * dimension];
+        for (int i = 0; i < matrix.length; i++) {
+            matrix[i] = (float) random.nextGaussian();
+        }
+        query = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            query[i] = (float) random.nextGaussian();
+        }
+        codes = new byte[rows * dimension];
+        random.nextBytes(codes);
+        queryCodes = new byte[dimension];
+        random.nextBytes(queryCodes);
+        words = (dimension + 63) / 64;
+        bits = new long[rows * words];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = random.nextLong();
+        }
+        queryBits = new long[words];
+        for (int i = 0; i < words; i++) {
+            queryBits[i] = random.nextLong();
+        }
+    }
+
+    @Benchmark
+    public double dot() {
+        double sum = 0;
+        for (int row = 0; row < rows; row++) sum += kernels.dot(matrix, row * dimension, query, 0, dimension);
+        return sum;
+    }
+
+    @Benchmark
+    public double cosine() {
+        double sum = 0;
+        for (int row = 0; row < rows; row++) sum += kernels.cosine(matrix, row * dimension, query, 0, dimension);
+        return sum;
+    }
+
+    @Benchmark
+    public double squaredL2() {
+        double sum = 0;
+        for (int row = 0; row < rows; row++) sum += kernels.squaredL2(matrix, row * dimension, query, 0, dimension);
+        return sum;
+    }
+
+    @Benchmark
+    public long dotInt8() {
+        long sum = 0;
+        for (int row = 0; row < rows; row++) sum += kernels.dotInt8(codes, row * dimension, queryCodes, 0, dimension);
+        return sum;
+    }
+
+    @Benchmark
+    public long hamming() {
+        long sum = 0;
+        for (int row = 0; row < rows; row++) sum += kernels.hammingDistance(bits, row * words, queryBits, 0, words);
+        return sum;
+    }
+
+    @Benchmark
+    public Object topK() {
+        return kernels.topK(matrix, rows, dimension, query, TOP_K);
+    }
+}
@@ -0,0 +1,74 @@
+package org.rag_sys.benchmark;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import org.rag_sys.ingestion.FrenchSentenceSplitter;
+import org.rag_sys.ingestion.HeuristicTokenCounter;
+import org.rag_sys.ingestion.TokenCounter;
+import org.rag_sys.services.impl.FileSystemDocumentLoaderService;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compare le débit du découpeur récursif de LangChain4j (1000 caractères, recouvrement 200)
+ * avec le FrenchSentenceSplitter sur les corpus des agents.
+ *
+ * Outil de mesure hors de l'application, compilé avec les sources de test.
+ * Usage : mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass="org.rag_sys.benchmark.SplitterBenchmark" -Dexec.args="[itérations]"
+ */
+public class SplitterBenchmark {
+
+    private static final String[] CORPORA = {"story", "math", "droit"};
+    private static final int WARMUP_ITERATIONS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        List<Document> documents = loadCorpora();
+        long corpusChars = documents.stream().mapToLong(document -> document.text().length()).sum();
+        TokenCounter tokenCounter = new HeuristicTokenCounter();
+
+        System.out.println("Corpus: " + documents.size() + " documents, " + corpusChars + " caractères, "
+                + iterations + " itérations");
+
+        run("recursive(1000, 200)", DocumentSplitters.recursive(1000, 200), documents, corpusChars, iterations, tokenCounter);
+        run("french(256, 32)", new FrenchSentenceSplitter(256, 32, tokenCounter),
+                documents, corpusChars, iterations, tokenCounter);
+    }
+
+    private static void run(String name, DocumentSplitter splitter, List<Document> documents,
+                            long corpusChars, int iterations, TokenCounter tokenCounter) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            splitter.splitAll(documents);
+        }
+
+        long start = System.nanoTime();
+        List<TextSegment> segments = null;
+        for (int i = 0; i < iterations; i++) {
+            segments = splitter.splitAll(documents);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long segmentChars = segments.stream().mapToLong(segment -> segment.text().length()).sum();
+        long segmentTokens = segments.stream().mapToLong(segment -> tokenCounter.countTokens(segment.text())).sum();
+        System.out.printf("%-22s %8.1f Mo/s | %5d segments | %6.0f tokens/segment | amplification %.2f×%n",
+                name,
+                corpusChars * (double) iterations / seconds / (1 << 20),
+                segments.size(),
+                (double) segmentTokens / segments.size(),
+                (double) segmentChars / corpusChars);
+    }
+
+    private static List<Document> loadCorpora() throws Exception {
+        FileSystemDocumentLoaderService loader = new FileSystemDocumentLoaderService();
+        List<Document> documents = new ArrayList<>();
+        for (String corpus : CORPORA) {
+            String path = Paths.get(SplitterBenchmark.class.getClassLoader().getResource(corpus + "/").toURI()).toString();
+            documents.addAll(loader.loadDocuments(path));
+        }
+        return documents;
+    }
+}
@@ -0,0 +1,43 @@
+package org.rag_sys.ingestion;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinHasherTest {
+
+    private static final String TEXT = "Le contrat de bail commercial est conclu pour une durée de neuf ans. "
+            + "Le locataire peut donner congé à l'expiration de chaque période triennale, "
+            + "par acte extrajudiciaire, au moins six mois à l'avance.";
+
+    private final MinHasher hasher = new MinHasher(128);
+
+    @Test
+    void identicalTextsHaveIdenticalSignatures() {
+        assertArrayEquals(hasher.signature(TEXT), hasher.signature(TEXT));
+        assertEquals(1.0, MinHasher.similarity(hasher.signature(TEXT), hasher.signature(TEXT)));
+    }
+
+    @Test
+    void nearDuplicatesAreSimilar() {
+        String edited = TEXT.replace("six mois", "trois mois");
+
+        assertTrue(MinHasher.similarity(hasher.signature(TEXT), hasher.signature(edited)) > 0.6);
+    }
+
+    @Test
+    void unrelatedTextsAreDissimilar() {
+        String other = "La recette de la tarte aux pommes demande une pâte brisée, "
+                + "quatre pommes reinettes, du sucre vanillé et trente minutes de cuisson.";
+
+        assertTrue(MinHasher.similarity(hasher.signature(TEXT), hasher.signature(other)) < 0.1);
+    }
+
+    @Test
+    void shortTextsHaveNoSignature() {
+        assertNull(hasher.signature("Bail résilié"));
+    }
+}
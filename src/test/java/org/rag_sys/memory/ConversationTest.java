@@ -0,0 +1,86 @@
+package org.rag_sys.memory;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+import org.rag_sys.ingestion.HeuristicTokenCounter;
+import org.rag_sys.ingestion.TokenCounter;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationTest {
+
+    private final TokenCounter tokenCounter = new HeuristicTokenCounter();
+
+    @Test
+    void stripsTheInjectedContextFromPastQuestions() {
+        Conversation conversation = new Conversation();
+        conversation.add(UserMessage.from("Quel est le préavis ?" + Conversation.CONTEXT_MARKER + "Article 12 : trois mois."));
+        conversation.add(AiMessage.from("Trois mois."));
+
+        Conversation.Compaction compaction = conversation.compact(10_000, 100, tokenCounter);
+
+        assertEquals(1, compaction.strippedContexts());
+        assertEquals(0, compaction.summarizedTurns());
+        assertTrue(compaction.tokensSaved() > 0);
+        assertEquals("Quel est le préavis ?", ((UserMessage) conversation.messages().get(0)).singleText());
+    }
+
+    @Test
+    void summarizesTheOldestTurnsBeyondMaxMessages() {
+        Conversation conversation = conversation(4);
+
+        Conversation.Compaction compaction = conversation.compact(10_000, 4, tokenCounter);
+
+        assertEquals(2, compaction.summarizedTurns());
+        List<ChatMessage> messages = conversation.messages();
+        assertEquals(5, messages.size());
+        String system = assertInstanceOf(SystemMessage.class, messages.get(0)).text();
+        assertTrue(system.startsWith("Tu es un assistant juridique."));
+        assertTrue(system.contains("Résumé des échanges précédents :"));
+        assertTrue(system.contains("Q : Question 0"));
+        assertEquals("Question 2", ((UserMessage) messages.get(1)).singleText());
+    }
+
+    @Test
+    void keepsTheLastTurnEvenOverBudget() {
+        Conversation conversation = conversation(3);
+
+        conversation.compact(1, 100, tokenCounter);
+
+        List<ChatMessage> messages = conversation.messages();
+        assertEquals(3, messages.size());
+        assertEquals("Question 2", ((UserMessage) messages.get(1)).singleText());
+        assertEquals("Réponse 2", ((AiMessage) messages.get(2)).text());
+    }
+
+    @Test
+    void leavesAShortConversationUntouched() {
+        Conversation conversation = conversation(2);
+        List<ChatMessage> before = conversation.messages();
+
+        Conversation.Compaction compaction = conversation.compact(10_000, 100, tokenCounter);
+
+        assertEquals(0, compaction.summarizedTurns());
+        assertEquals(0, compaction.tokensSaved());
+        assertEquals(before, conversation.messages());
+        assertFalse(before.get(0) instanceof UserMessage);
+    }
+
+    private static Conversation conversation(int turns) {
+        Conversation conversation = new Conversation();
+        conversation.add(SystemMessage.from("Tu es un assistant juridique."));
+        for (int i = 0; i < turns; i++) {
+            conversation.add(UserMessage.from("Question " + i));
+            conversation.add(AiMessage.from("Réponse " + i));
+        }
+        return conversation;
+    }
+}
@@ -0,0 +1,35 @@
+package org.rag_sys.retrieval;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveContentRetrieverTest {
+
+    @Test
+    void findsTheElbowOfACosineCurve() {
+        assertEquals(3, AdaptiveContentRetriever.elbowIndex(new double[]{0.91, 0.89, 0.88, 0.62, 0.60, 0.59}));
+    }
+
+    @Test
+    void findsTheElbowOnTheReciprocalRankFusionScale() {
+        // Scores RRF (1/(60+rang) cumulés) : les écarts sont minuscules en valeur absolue
+        assertEquals(2, AdaptiveContentRetriever.elbowIndex(new double[]{0.0328, 0.0325, 0.0164, 0.0161, 0.0159}));
+    }
+
+    @Test
+    void noElbowOnAnEvenSlope() {
+        assertEquals(-1, AdaptiveContentRetriever.elbowIndex(new double[]{0.90, 0.85, 0.80, 0.75, 0.70}));
+    }
+
+    @Test
+    void noElbowOnAFlatCurve() {
+        assertEquals(-1, AdaptiveContentRetriever.elbowIndex(new double[]{0.70, 0.70, 0.70, 0.70}));
+    }
+
+    @Test
+    void needsThreeScoredCandidates() {
+        assertEquals(-1, AdaptiveContentRetriever.elbowIndex(new double[]{0.9, 0.1}));
+        assertEquals(-1, AdaptiveContentRetriever.elbowIndex(new double[]{Double.NaN, 0.5, 0.1}));
+    }
+}
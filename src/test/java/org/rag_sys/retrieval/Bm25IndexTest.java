@@ -0,0 +1,119 @@
+package org.rag_sys.retrieval;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Bm25IndexTest {
+
+    private static final String[] TOPICS = {"contrat", "bail", "succession", "divorce", "licenciement", "brevet"};
+
+    @Test
+    void ranksTheSegmentSharingTheRarestTermsFirst() {
+        Bm25Index index = new Bm25Index();
+        index.add("a", TextSegment.from("Le contrat de bail commercial fixe le loyer."));
+        index.add("b", TextSegment.from("Le contrat de travail précise la période d'essai."));
+        index.add("c", TextSegment.from("La recette de la tarte aux pommes."));
+
+        List<KeywordMatch> matches = index.search("bail commercial", 3);
+
+        assertEquals("a", matches.get(0).getId());
+        assertTrue(matches.stream().noneMatch(match -> match.getId().equals("c")));
+    }
+
+    @Test
+    void removedSegmentsAreNoLongerReturned() {
+        Bm25Index index = new Bm25Index();
+        index.add("a", TextSegment.from("Le brevet protège une invention."));
+        index.add("b", TextSegment.from("Le brevet expire après vingt ans."));
+
+        index.remove(List.of("a"));
+
+        assertEquals(List.of("b"), ids(index.search("brevet invention", 5)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void scoresAfterUpdatesMatchAFreshIndex() {
+        // Les fréquences documentaires doivent suivre les suppressions, sans attendre une compaction
+        Bm25Index updated = new Bm25Index();
+        for (int i = 0; i < 40; i++) {
+            updated.add("s" + i, segment(i));
+        }
+        List<String> removed = new ArrayList<>();
+        for (int i = 0; i < 40; i += 3) {
+            removed.add("s" + i);
+        }
+        updated.remove(removed);
+
+        Bm25Index fresh = new Bm25Index();
+        for (int i = 0; i < 40; i++) {
+            if (i % 3 != 0) {
+                fresh.add("s" + i, segment(i));
+            }
+        }
+
+        for (String topic : TOPICS) {
+            assertSameMatches(fresh.search(topic + " clause", 10), updated.search(topic + " clause", 10));
+        }
+    }
+
+    @Test
+    void compactionKeepsTheSameResults() {
+        Bm25Index index = new Bm25Index();
+        Bm25Index fresh = new Bm25Index();
+        List<String> removed = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            index.add("s" + i, segment(i));
+            if (i % 2 == 0) {
+                removed.add("s" + i);
+            } else {
+                fresh.add("s" + i, segment(i));
+            }
+        }
+
+        index.remove(removed);
+
+        assertEquals(1, index.compactions());
+        assertEquals(0, index.tombstones());
+        assertEquals(fresh.size(), index.size());
+        for (String topic : TOPICS) {
+            assertSameMatches(fresh.search(topic, 20), index.search(topic, 20));
+        }
+    }
+
+    @Test
+    void removeIfDropsTheSegmentsMatchingTheFilter() {
+        Bm25Index index = new Bm25Index();
+        index.add("a", TextSegment.from("Le bail est résilié.", Metadata.from(Map.of("source", "a.txt"))));
+        index.add("b", TextSegment.from("Le bail est renouvelé.", Metadata.from(Map.of("source", "b.txt"))));
+
+        index.removeIf(metadataKey("source").isEqualTo("a.txt"));
+
+        assertEquals(List.of("b"), ids(index.search("bail", 5)));
+    }
+
+    private static TextSegment segment(int i) {
+        return TextSegment.from("Clause " + i + " sur le " + TOPICS[i % TOPICS.length]
+                + " et le " + TOPICS[(i / TOPICS.length) % TOPICS.length] + ", rédigée en " + (1990 + i % 30) + ".");
+    }
+
+    private static List<String> ids(List<KeywordMatch> matches) {
+        return matches.stream().map(KeywordMatch::getId).toList();
+    }
+
+    private static void assertSameMatches(List<KeywordMatch> expected, List<KeywordMatch> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.rag_sys.retrieval;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ContextBudgetPackerTest {
+
+    private static final String SHARED = "la résiliation prend effet au terme du préavis";
+
+    @Test
+    void measuresTheOverlapOfConsecutiveChunks() {
+        String first = "Le locataire envoie un courrier recommandé ; " + SHARED;
+        String second = SHARED + " de trois mois, sauf accord contraire.";
+
+        assertEquals(SHARED.length(), ContextBudgetPacker.overlapLength(first, second));
+    }
+
+    @Test
+    void noOverlapBetweenUnrelatedChunks() {
+        assertEquals(-1, ContextBudgetPacker.overlapLength(
+                "Le locataire envoie un courrier recommandé.", "Le bailleur restitue le dépôt de garantie."));
+    }
+
+    @Test
+    void containedChunksAreLeftToDeduplication() {
+        assertEquals(-1, ContextBudgetPacker.overlapLength(SHARED, "Article 12 : " + SHARED + "."));
+    }
+
+    @Test
+    void ignoresOverlapsShorterThanTheMinimum() {
+        assertEquals(-1, ContextBudgetPacker.overlapLength("Le préavis est de trois mois", "trois mois"));
+    }
+
+    @Test
+    void probeMustBeFollowedByTheWholeSuffix() {
+        // Le début du second texte apparaît dans le premier, mais pas à sa fin
+        String first = SHARED + " puis le bail est clos définitivement.";
+        String second = SHARED + " de trois mois.";
+
+        assertEquals(-1, ContextBudgetPacker.overlapLength(first, second));
+    }
+}
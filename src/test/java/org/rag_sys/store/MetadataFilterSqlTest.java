@@ -0,0 +1,118 @@
+package org.rag_sys.store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compare la clause SQL de chaque filtre à Filter.test sur les mêmes métadonnées, dans une table temporaire.
+ * Nécessite un PostgreSQL (-Drag.test.pg.url, .user, .password) ; sans base joignable, les tests sont ignorés.
+ */
+class MetadataFilterSqlTest {
+
+    private static final List<Metadata> ROWS = List.of(
+            Metadata.from(Map.of("source", "droit/code.txt", "page", 3, "score", 0.5)),
+            Metadata.from(Map.of("source", "droit/arrêt.txt", "page", 12, "score", 0.9)),
+            Metadata.from(Map.of("source", "math/algèbre.txt", "page", 5)),
+            Metadata.from(Map.of("source", "story/conte.txt", "page", 5.0, "score", 0.2)),
+            Metadata.from(Map.of("source", "Story/Conte.txt")),
+            Metadata.from(Map.of("page", 7)));
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void createTable() throws SQLException {
+        try {
+            connection = DriverManager.getConnection(
+                    System.getProperty("rag.test.pg.url", "jdbc:postgresql://localhost:5432/postgres"),
+                    System.getProperty("rag.test.pg.user", "postgres"),
+                    System.getProperty("rag.test.pg.password", "postgres"));
+        } catch (SQLException e) {
+            connection = null;
+        }
+        assumeTrue(connection != null, "PostgreSQL injoignable");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TEMP TABLE filter_rows (id int, metadata jsonb)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO filter_rows VALUES (?, ?::jsonb)")) {
+            for (int id = 0; id < ROWS.size(); id++) {
+                insert.setInt(1, id);
+                insert.setString(2, MetadataJson.toJson(ROWS.get(id)));
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    @AfterAll
+    static void close() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    static Stream<Arguments> filters() {
+        return Stream.of(
+                Arguments.of("égalité texte", metadataKey("source").isEqualTo("droit/code.txt")),
+                Arguments.of("égalité 5 = 5.0", metadataKey("page").isEqualTo(5)),
+                Arguments.of("différent, clé absente comprise", metadataKey("source").isNotEqualTo("droit/code.txt")),
+                Arguments.of("plus grand, nombres", metadataKey("page").isGreaterThan(4)),
+                Arguments.of("plus petit ou égal, nombres", metadataKey("score").isLessThanOrEqualTo(0.5)),
+                Arguments.of("ordre des caractères", metadataKey("source").isLessThan("s")),
+                Arguments.of("sous-chaîne sensible à la casse", metadataKey("source").containsString("onte")),
+                Arguments.of("appartenance", metadataKey("page").isIn(3, 12)),
+                Arguments.of("non-appartenance, clé absente comprise", metadataKey("source").isNotIn("droit/code.txt", "math/algèbre.txt")),
+                Arguments.of("et", metadataKey("source").containsString("droit").and(metadataKey("page").isGreaterThanOrEqualTo(10))),
+                Arguments.of("ou", metadataKey("page").isEqualTo(7).or(metadataKey("score").isGreaterThan(0.8))),
+                Arguments.of("non, clé absente comprise", Filter.not(metadataKey("score").isGreaterThan(0.3))));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("filters")
+    void sqlSelectsTheRowsFilterTestAccepts(String name, Filter filter) throws SQLException {
+        MetadataFilterSql translated = MetadataFilterSql.translate(filter, "metadata");
+        assertNotNull(translated, "filtre non traduit");
+
+        Set<Integer> expected = new TreeSet<>();
+        for (int id = 0; id < ROWS.size(); id++) {
+            if (filter.test(ROWS.get(id))) {
+                expected.add(id);
+            }
+        }
+
+        Set<Integer> selected = new TreeSet<>();
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT id FROM filter_rows WHERE " + translated.sql())) {
+            int index = 1;
+            for (String parameter : translated.parameters()) {
+                query.setString(index++, parameter);
+            }
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    selected.add(rows.getInt(1));
+                }
+            }
+        }
+        assertEquals(expected, selected);
+    }
+}